@@ -0,0 +1,84 @@
+package bencode.batch;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <p>批量处理种子文件的命令行入口。
+ *
+ * <p>用法：<code>BatchMain [-t threads] [-n maxInFlight] directory</code>
+ * <ul>
+ *  <li>-t 解析文件的线程数，默认使用虚拟线程（若JDK支持）</li>
+ *  <li>-n 同时处理中的文件数的上限，默认为
+ *  {@value BatchProcessor#DEFAULT_MAX_IN_FLIGHT}</li>
+ * </ul>
+ *
+ * <p>每处理完一个文件，就向标准输出打印一行，各列以制表符分隔，
+ * 依次为info-hash、总长度、name和文件路径；处理失败的文件打印到标准错误。
+ * 最后在标准错误中打印吞吐量统计。存在处理失败的文件时，退出码为1。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public class BatchMain {
+
+  private static final String USAGE =
+      "Usage: BatchMain [-t threads] [-n maxInFlight] directory";
+
+  public static void main(String[] args)
+      throws IOException, InterruptedException {
+    int threads = 0;
+    int maxInFlight = BatchProcessor.DEFAULT_MAX_IN_FLIGHT;
+    Path directory = null;
+    try {
+      for (int i = 0; i < args.length; i++) {
+        if ("-t".equals(args[i]) && (i + 1 < args.length)) {
+          threads = Integer.parseInt(args[++i]);
+        } else if ("-n".equals(args[i]) && (i + 1 < args.length)) {
+          maxInFlight = Integer.parseInt(args[++i]);
+        } else if ((null == directory) && !args[i].startsWith("-")) {
+          directory = Paths.get(args[i]);
+        } else {
+          directory = null;
+          break;
+        }
+      }
+    } catch (NumberFormatException e) {
+      directory = null;
+    }
+    if ((null == directory) || (threads < 0) || (maxInFlight <= 0)) {
+      System.err.println(USAGE);
+      System.exit(2);
+      return;
+    }
+
+    ExecutorService executor = (threads > 0)
+        ? Executors.newFixedThreadPool(threads)
+        : BatchProcessor.newDefaultExecutor();
+    final PrintStream out = System.out;
+    final PrintStream err = System.err;
+    BatchStatistics statistics;
+    try {
+      statistics = new BatchProcessor(executor, maxInFlight).process(
+          directory, result -> {
+            if (result.isSuccess()) {
+              out.println(result.getInfoHashHex() + '\t'
+                  + result.getTotalLength() + '\t' + result.getName() + '\t'
+                  + result.getPath());
+            } else {
+              err.println("ERROR\t" + result.getPath() + '\t'
+                  + result.getError());
+            }
+          });
+    } finally {
+      executor.shutdown();
+    }
+    out.flush();
+    err.println(statistics);
+    System.exit((statistics.getFailures() > 0) ? 1 : 0);
+  }
+}
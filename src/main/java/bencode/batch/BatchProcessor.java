@@ -0,0 +1,256 @@
+package bencode.batch;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import bencode.exception.BEncodeFormatException;
+import bencode.parse.BencodeTape;
+import bencode.parse.InfoHash;
+import bencode.parse.Metainfo;
+import bencode.type.BString;
+
+/**
+ * <p>批量处理目录中的种子文件。
+ *
+ * <p>调用线程遍历目录，将每个".torrent"文件提交给executor并发地读取和解析，
+ * 同时处理中的文件数不超过maxInFlight，因此占用的内存是有上限的。
+ * 处理结果按照完成的顺序，在调用线程中依次回调给调用方。
+ *
+ * <p>解析时只为文件建立{@link BencodeTape}索引，不创建B编码对象，
+ * info-hash直接根据info在文件中的原始字节计算。
+ * 只有v2信息的种子（info中只有file tree）交给{@link Metainfo}解码，
+ * 结果中的info-hash为v2的info-hash。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public class BatchProcessor {
+
+  private static Logger logger = LoggerFactory.getLogger(BatchProcessor.class);
+
+  public static final int DEFAULT_MAX_IN_FLIGHT = 64;
+  public static final String SUFFIX = ".torrent";
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final BString INFO = key(InfoHash.INFO_KEY);
+  private static final BString NAME = key("name");
+  private static final BString LENGTH = key("length");
+  private static final BString FILES = key("files");
+  private static final BString FILE_TREE = key("file tree");
+
+  private final ExecutorService executor;
+  private final int maxInFlight;
+
+  public BatchProcessor(ExecutorService executor) {
+    this(executor, DEFAULT_MAX_IN_FLIGHT);
+  }
+
+  /**
+   * @param executor    解析文件的线程池，由调用方负责关闭
+   * @param maxInFlight 同时处理中的文件数的上限
+   */
+  public BatchProcessor(ExecutorService executor, int maxInFlight) {
+    if (maxInFlight <= 0) {
+      throw new IllegalArgumentException(
+          "Max in-flight files must be positive, maxInFlight = "
+              + maxInFlight);
+    }
+    this.executor = executor;
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * <p>创建默认的线程池：若JDK支持虚拟线程，则每个任务使用一个虚拟线程，
+   * 否则使用与CPU核数相同大小的线程池。
+   * @return 线程池，由调用方负责关闭
+   */
+  public static ExecutorService newDefaultExecutor() {
+    try {
+      Method method =
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService)method.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newFixedThreadPool(
+          Runtime.getRuntime().availableProcessors());
+    }
+  }
+
+  /**
+   * <p>递归地处理目录中的所有种子文件。
+   * @param directory 目录
+   * @param sink      接收每个文件的处理结果，只会在调用线程中被回调
+   * @return          吞吐量统计
+   * @throws IOException 无法遍历目录
+   * @throws InterruptedException 等待处理结果时被中断
+   */
+  public BatchStatistics process(Path directory, Consumer<BatchResult> sink)
+      throws IOException, InterruptedException {
+    Walker walker = new Walker(sink);
+    Files.walkFileTree(directory, walker);
+    if (walker.interrupted) {
+      throw new InterruptedException();
+    }
+    while (walker.inFlight > 0) {
+      walker.drain();
+    }
+    return new BatchStatistics(walker.files, walker.failures, walker.bytes,
+        System.nanoTime() - walker.startTime);
+  }
+
+  /**
+   * <p>处理单个种子文件，不会抛出异常，失败的原因记录在结果中。
+   * @param file 种子文件
+   * @return     处理结果
+   */
+  public static BatchResult processFile(Path file) {
+    long size = 0;
+    try {
+      byte[] data = Files.readAllBytes(file);
+      size = data.length;
+      return summarize(file, data);
+    } catch (Exception e) {
+      return new BatchResult(file, size, e);
+    }
+  }
+
+  private static BatchResult summarize(Path file, byte[] data) {
+    BencodeTape tape = BencodeTape.build(data);
+    BencodeTape.Cursor cursor = tape.cursor();
+    if (!cursor.get(INFO) || (BencodeTape.Type.DICTIONARY != cursor.type())) {
+      throw formatError("Info dictionary not found, file = " + file);
+    }
+    int info = cursor.index();
+
+    String name = null;
+    if (cursor.get(NAME) && (BencodeTape.Type.STRING == cursor.type())) {
+      int offset = tape.stringOffset(cursor.index());
+      name = new String(data, offset, cursor.end() - offset, UTF_8);
+    }
+
+    long totalLength = 0;
+    if (cursor.moveTo(info).get(LENGTH)) {
+      totalLength = cursor.longValue();
+    } else if (cursor.get(FILES)
+        && (BencodeTape.Type.LIST == cursor.type())) {
+      boolean hasNext = cursor.firstChild();
+      while (hasNext) {
+        int entry = cursor.index();
+        if (!cursor.get(LENGTH)) {
+          throw formatError("File length not found, file = " + file);
+        }
+        totalLength += cursor.longValue();
+        hasNext = cursor.moveTo(entry).nextSibling();
+      }
+    } else if (cursor.get(FILE_TREE)) {
+      return summarizeV2(file, data);
+    } else {
+      throw formatError("Length not found in info, file = " + file);
+    }
+    return new BatchResult(file, data.length, InfoHash.sha1(data), name,
+        totalLength);
+  }
+
+  /**
+   * <p>只有v2信息的种子，文件长度分散在file tree的各层目录中，
+   * 由{@link Metainfo}解码，info-hash为SHA-256摘要。
+   */
+  private static BatchResult summarizeV2(Path file, byte[] data) {
+    Metainfo metainfo = Metainfo.decode(data);
+    return new BatchResult(file, data.length, metainfo.getInfoHashV2(),
+        metainfo.getName(), metainfo.getTotalLength());
+  }
+
+  private static BString key(String key) {
+    return new BString(key.getBytes(UTF_8));
+  }
+
+  private static BEncodeFormatException formatError(String msg) {
+    logger.error(msg);
+    return new BEncodeFormatException(msg);
+  }
+
+  /**
+   * <p>遍历目录并提交任务，处理中的文件数达到上限时，先输出已完成的结果。
+   */
+  private final class Walker extends SimpleFileVisitor<Path> {
+
+    private final Consumer<BatchResult> sink;
+    private final ExecutorCompletionService<BatchResult> completion =
+        new ExecutorCompletionService<>(executor);
+    private final long startTime = System.nanoTime();
+    private int inFlight;
+    private long files;
+    private long failures;
+    private long bytes;
+    private boolean interrupted;
+
+    Walker(Consumer<BatchResult> sink) {
+      this.sink = sink;
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+      if (!attrs.isRegularFile()
+          || !file.getFileName().toString().toLowerCase(Locale.ROOT)
+              .endsWith(SUFFIX)) {
+        return FileVisitResult.CONTINUE;
+      }
+      try {
+        while (inFlight >= maxInFlight) {
+          drain();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        interrupted = true;
+        return FileVisitResult.TERMINATE;
+      }
+      completion.submit(() -> processFile(file));
+      inFlight++;
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFileFailed(Path file, IOException e) {
+      emit(new BatchResult(file, 0, e));
+      return FileVisitResult.CONTINUE;
+    }
+
+    /**
+     * <p>等待并输出一个已完成的结果。
+     */
+    void drain() throws InterruptedException {
+      BatchResult result;
+      try {
+        result = completion.take().get();
+      } catch (ExecutionException e) {
+        throw new IllegalStateException(e.getCause());
+      }
+      inFlight--;
+      emit(result);
+    }
+
+    private void emit(BatchResult result) {
+      files++;
+      bytes += result.getSize();
+      if (!result.isSuccess()) {
+        failures++;
+      }
+      sink.accept(result);
+    }
+  }
+}
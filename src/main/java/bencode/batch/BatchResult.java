@@ -0,0 +1,117 @@
+package bencode.batch;
+
+import java.nio.file.Path;
+
+/**
+ * <p>批量处理中单个种子文件的处理结果。
+ *
+ * <p>处理成功时，{@link #getError()}返回null；
+ * 处理失败时，只有{@link #getPath()}和{@link #getError()}是有效的。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public class BatchResult {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final Path path;
+  private final long size;
+  private final byte[] infoHash;
+  private final String name;
+  private final long totalLength;
+  private final Throwable error;
+
+  BatchResult(Path path, long size, byte[] infoHash, String name,
+      long totalLength) {
+    this.path = path;
+    this.size = size;
+    this.infoHash = infoHash;
+    this.name = name;
+    this.totalLength = totalLength;
+    this.error = null;
+  }
+
+  BatchResult(Path path, long size, Throwable error) {
+    this.path = path;
+    this.size = size;
+    this.infoHash = null;
+    this.name = null;
+    this.totalLength = -1;
+    this.error = error;
+  }
+
+  /**
+   * @return 种子文件的路径
+   */
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * @return 种子文件的字节数，读取失败时为0
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * @return BitTorrent v1的info-hash（SHA-1），
+   *         只有v2信息的种子返回v2的info-hash（SHA-256）
+   */
+  public byte[] getInfoHash() {
+    return (null == infoHash) ? null : infoHash.clone();
+  }
+
+  /**
+   * @return 十六进制小写形式的info-hash
+   */
+  public String getInfoHashHex() {
+    if (null == infoHash) {
+      return null;
+    }
+    char[] chars = new char[infoHash.length * 2];
+    for (int i = 0; i < infoHash.length; i++) {
+      chars[i * 2] = HEX[(infoHash[i] >> 4) & 0xF];
+      chars[i * 2 + 1] = HEX[infoHash[i] & 0xF];
+    }
+    return new String(chars);
+  }
+
+  /**
+   * @return info中的name，按照UTF-8解码
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return 单文件种子的length，或者多文件种子中各个文件的length之和，
+   *         只有v2信息的种子为file tree中各个文件的length之和
+   */
+  public long getTotalLength() {
+    return totalLength;
+  }
+
+  /**
+   * @return 处理失败的原因，处理成功时返回null
+   */
+  public Throwable getError() {
+    return error;
+  }
+
+  /**
+   * @return 是否处理成功
+   */
+  public boolean isSuccess() {
+    return null == error;
+  }
+
+  @Override
+  public String toString() {
+    if (null != error) {
+      return path + ": " + error;
+    }
+    return getInfoHashHex() + " " + totalLength + " " + name + " " + path;
+  }
+}
@@ -0,0 +1,83 @@
+package bencode.batch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>一次批量处理的吞吐量统计。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public class BatchStatistics {
+
+  private final long files;
+  private final long failures;
+  private final long bytes;
+  private final long elapsedNanos;
+
+  BatchStatistics(long files, long failures, long bytes, long elapsedNanos) {
+    this.files = files;
+    this.failures = failures;
+    this.bytes = bytes;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * @return 处理的文件数，包括处理失败的文件
+   */
+  public long getFiles() {
+    return files;
+  }
+
+  /**
+   * @return 处理失败的文件数
+   */
+  public long getFailures() {
+    return failures;
+  }
+
+  /**
+   * @return 读取的字节数
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * @param unit 时间单位
+   * @return     从开始遍历目录到所有结果都输出完成所用的时间
+   */
+  public long getElapsed(TimeUnit unit) {
+    return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @return 每秒处理的文件数
+   */
+  public double getFilesPerSecond() {
+    return perSecond(files);
+  }
+
+  /**
+   * @return 每秒读取的字节数
+   */
+  public double getBytesPerSecond() {
+    return perSecond(bytes);
+  }
+
+  private double perSecond(long count) {
+    if (0 == elapsedNanos) {
+      return 0;
+    }
+    return count * 1e9 / elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "files = %d, failures = %d, bytes = %d, elapsed = %d ms, "
+            + "%.1f files/s, %.2f MB/s",
+        files, failures, bytes, getElapsed(TimeUnit.MILLISECONDS),
+        getFilesPerSecond(), getBytesPerSecond() / (1024 * 1024));
+  }
+}
@@ -0,0 +1,26 @@
+package bencode.bind;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>标记需要与B编码字典中的某个key相互映射的字段，参见{@link BencodeMapper}。
+ *
+ * <p>没有该注解的字段不参与映射，解码时输入中多余的key会被跳过。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface BencodeField {
+
+  /**
+   * @return 字典中的key，使用UTF-8编码，为空时使用字段名
+   */
+  String value() default "";
+}
@@ -0,0 +1,120 @@
+package bencode.bind;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import bencode.exception.BEncodeFormatException;
+import bencode.parse.BencodeReader;
+import bencode.type.BencodeWriter;
+
+/**
+ * <p>在普通Java对象与B编码数据之间直接相互转换，不构建中间的对象树。
+ *
+ * <p>需要映射的字段使用{@link BencodeField}标注，如：
+ * <pre>
+ * class Info {
+ *   &#64;BencodeField("piece length")
+ *   long pieceLength;
+ *   &#64;BencodeField
+ *   String name;
+ * }
+ * </pre>
+ * 被映射的类必须有无参构造方法，可以不是public的。
+ * 解码时从{@link BencodeReader}的词法单元直接填充字段，输入中多余的key被跳过，
+ * 缺少的key对应的字段保持默认值；编码时直接写入{@link BencodeWriter}，
+ * 值为null的字段不输出。支持的字段类型参见{@link ValueCodecs}。
+ *
+ * <p>每个类的字段访问器只在第一次使用时生成一次，此后的编解码不再使用反射。
+ * 该类是线程安全的。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public final class BencodeMapper {
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  private BencodeMapper() {
+  }
+
+  /**
+   * @param content 一个完整的B编码字典
+   * @param type    映射的目标类型
+   * @return        解码出的对象
+   * @throws BEncodeFormatException   格式错误，或与字段的类型不匹配
+   * @throws IllegalArgumentException type不能被映射
+   * @since 0.1.1
+   */
+  public static <T> T read(byte[] content, Class<T> type) {
+    try {
+      return read(new ByteArrayInputStream(content), type);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @param in   输入流，其中只有一个B编码字典，读完后不会关闭该输入流
+   * @param type 映射的目标类型
+   * @return     解码出的对象
+   * @throws IOException              读取失败
+   * @throws BEncodeFormatException   格式错误，或与字段的类型不匹配
+   * @throws IllegalArgumentException type不能被映射
+   * @since 0.1.1
+   */
+  public static <T> T read(InputStream in, Class<T> type) throws IOException {
+    BencodeReader reader = new BencodeReader(in);
+    T result = read(reader, type);
+    CodecSupport.expectEnd(reader);
+    return result;
+  }
+
+  /**
+   * <p>从reader中读取下一个值，该值必须是字典。
+   * 可用于逐个读取连续保存的多个字典。
+   *
+   * @param reader 读取器
+   * @param type   映射的目标类型
+   * @return       解码出的对象
+   * @throws IOException              读取失败
+   * @throws BEncodeFormatException   格式错误，或与字段的类型不匹配
+   * @throws IllegalArgumentException type不能被映射
+   * @since 0.1.1
+   */
+  public static <T> T read(BencodeReader reader, Class<T> type)
+      throws IOException {
+    ObjectCodec codec = ObjectCodec.of(type);
+    reader.next();
+    return type.cast(codec.read(reader));
+  }
+
+  /**
+   * @param value 带有{@link BencodeField}字段的对象
+   * @return      编码结果
+   * @throws IllegalArgumentException value不能被映射
+   * @since 0.1.1
+   */
+  public static byte[] write(Object value) {
+    BencodeWriter writer = new BencodeWriter(INITIAL_CAPACITY);
+    try {
+      write(value, writer);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return writer.toByteArray();
+  }
+
+  /**
+   * @param value  带有{@link BencodeField}字段的对象
+   * @param writer 输出的目标
+   * @throws IOException              写入失败
+   * @throws IllegalArgumentException value不能被映射
+   * @since 0.1.1
+   */
+  public static void write(Object value, BencodeWriter writer)
+      throws IOException {
+    ObjectCodec.of(value.getClass()).write(value, writer);
+  }
+}
@@ -0,0 +1,35 @@
+package bencode.bind;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>标记需要在编译期生成编解码器的类，由
+ * {@link bencode.bind.processor.CodecProcessor}处理。
+ *
+ * <p>对于类X，在同一个包中生成XCodec，嵌套类Outer.X生成Outer_XCodec，
+ * 包含以下静态方法：
+ * <ul>
+ * <li>{@code X read(byte[])}：解码一个完整的字典</li>
+ * <li>{@code X read(BencodeReader)}：从读取器中读取下一个字典</li>
+ * <li>{@code X readValue(BencodeReader)}：从读取器的当前词法单元开始读取</li>
+ * <li>{@code byte[] write(X)}、{@code void write(X, BencodeWriter)}：编码</li>
+ * </ul>
+ * 生成的代码按照key的长度和内容分支，直接读写字段，不使用反射，
+ * 也不构建中间的对象树，适合对启动时间敏感或不能使用反射的场景。
+ *
+ * <p>映射规则与{@link BencodeMapper}相同，另外要求：该类是静态的非private类，
+ * 有非private的无参构造方法；带{@link BencodeField}的字段不能是private、
+ * static或final的；作为字段类型的其他类也必须带有该注解。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface BencodeType {
+}
@@ -0,0 +1,208 @@
+package bencode.bind;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import bencode.exception.BEncodeFormatException;
+import bencode.parse.BencodeReader;
+import bencode.parse.BencodeToken;
+import bencode.type.BDictionary;
+import bencode.type.BList;
+import bencode.type.BNumber;
+import bencode.type.BString;
+import bencode.type.BType;
+
+/**
+ * <p>{@link BencodeMapper}和根据{@link BencodeType}生成的编解码器共用的读取方法。
+ *
+ * <p>各个read方法读取{@link BencodeReader}的当前词法单元，
+ * 若当前词法单元是列表或字典的开始，返回时已经读到与之匹配的结束。
+ * 词法单元与期望的类型不符时抛出{@link BEncodeFormatException}。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public final class CodecSupport {
+
+  private static Logger logger = LoggerFactory.getLogger(CodecSupport.class);
+
+  static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private CodecSupport() {
+  }
+
+  /**
+   * @param reader   读取器
+   * @param expected 期望的当前词法单元
+   * @since 0.1.1
+   */
+  public static void expect(BencodeReader reader, BencodeToken expected) {
+    if (expected != reader.getToken()) {
+      throw formatError(
+          "Unexpected token when mapping bencode, expected = " + expected
+              + ", actual = " + reader.getToken()
+              + ", pos = " + reader.getTokenPosition());
+    }
+  }
+
+  /**
+   * <p>读完一个值后调用，确认输入中没有多余的数据。
+   * @param reader 读取器
+   * @since 0.1.1
+   */
+  public static void expectEnd(BencodeReader reader) throws IOException {
+    if (BencodeToken.END_OF_INPUT != reader.next()) {
+      throw formatError(
+          "Unexpected data after value when mapping bencode, pos = "
+              + reader.getTokenPosition());
+    }
+  }
+
+  /**
+   * @param reader 读取器
+   * @param min    允许的最小值
+   * @param max    允许的最大值
+   * @return       当前整数的值
+   * @since 0.1.1
+   */
+  public static long readLong(BencodeReader reader, long min, long max) {
+    expect(reader, BencodeToken.INTEGER);
+    long value = reader.getLong();
+    if ((value < min) || (value > max)) {
+      throw formatError(
+          "Number out of range when mapping bencode, value = " + value
+              + ", pos = " + reader.getTokenPosition());
+    }
+    return value;
+  }
+
+  /**
+   * @param reader 读取器
+   * @return       当前整数是否不为0
+   * @since 0.1.1
+   */
+  public static boolean readBoolean(BencodeReader reader) {
+    expect(reader, BencodeToken.INTEGER);
+    return 0 != reader.getLong();
+  }
+
+  /**
+   * @param reader 读取器
+   * @return       当前字符串按照UTF-8解码的结果
+   * @since 0.1.1
+   */
+  public static String readString(BencodeReader reader) throws IOException {
+    expect(reader, BencodeToken.STRING);
+    return new String(reader.readBytes(), UTF_8);
+  }
+
+  /**
+   * @param reader 读取器
+   * @return       当前字典的key按照UTF-8解码的结果
+   * @since 0.1.1
+   */
+  public static String readKey(BencodeReader reader) throws IOException {
+    expect(reader, BencodeToken.KEY);
+    return new String(reader.readBytes(), UTF_8);
+  }
+
+  /**
+   * @param reader 读取器
+   * @return       当前字符串的内容
+   * @since 0.1.1
+   */
+  public static byte[] readBytes(BencodeReader reader) throws IOException {
+    expect(reader, BencodeToken.STRING);
+    return reader.readBytes();
+  }
+
+  /**
+   * @param reader 读取器
+   * @param type   期望的B编码类型，如{@link BDictionary}或{@link BType}
+   * @return       根据当前的值构建的B编码对象
+   * @since 0.1.1
+   */
+  public static <T> T readTree(BencodeReader reader, Class<T> type)
+      throws IOException {
+    long pos = reader.getTokenPosition();
+    BType<?> value = readTree(reader);
+    if (!type.isInstance(value)) {
+      throw formatError(
+          "Unexpected type when mapping bencode, expected = "
+              + type.getSimpleName() + ", actual = "
+              + value.getClass().getSimpleName() + ", pos = " + pos);
+    }
+    return type.cast(value);
+  }
+
+  /**
+   * <p>按照B编码字典中key的顺序，即UTF-8编码后的无符号字节顺序排序。
+   * @param keys 字典的key
+   * @since 0.1.1
+   */
+  public static void sortKeys(String[] keys) {
+    Arrays.sort(keys, (a, b) -> compareKeys(
+        a.getBytes(UTF_8), b.getBytes(UTF_8)));
+  }
+
+  /**
+   * <p>按照无符号字节的顺序比较两个key，与B编码字典中key的顺序一致。
+   * @since 0.1.1
+   */
+  public static int compareKeys(byte[] a, byte[] b) {
+    int length = Math.min(a.length, b.length);
+    for (int i = 0; i < length; i++) {
+      int diff = (a[i] & 0xFF) - (b[i] & 0xFF);
+      if (0 != diff) {
+        return diff;
+      }
+    }
+    return a.length - b.length;
+  }
+
+  static BEncodeFormatException formatError(String msg) {
+    logger.error(msg);
+    return new BEncodeFormatException(msg);
+  }
+
+  private static BType<?> readTree(BencodeReader reader) throws IOException {
+    switch (reader.getToken()) {
+      case INTEGER: {
+        return new BNumber(reader.getLong());
+      }
+
+      case STRING: {
+        return new BString(reader.readBytes());
+      }
+
+      case START_LIST: {
+        BList list = new BList();
+        while (BencodeToken.END != reader.next()) {
+          list.add(readTree(reader));
+        }
+        return list;
+      }
+
+      case START_DICT: {
+        BDictionary dict = new BDictionary();
+        while (BencodeToken.END != reader.next()) {
+          BString key = new BString(reader.readBytes());
+          reader.next();
+          dict.put(key, readTree(reader));
+        }
+        return dict;
+      }
+
+      default: {
+        throw formatError(
+            "Unexpected token when mapping bencode, token = "
+                + reader.getToken()
+                + ", pos = " + reader.getTokenPosition());
+      }
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package bencode.bind;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import bencode.parse.BencodeReader;
+import bencode.parse.BencodeToken;
+import bencode.type.BencodeWriter;
+
+/**
+ * <p>带有{@link BencodeField}字段的类与B编码字典之间的编解码器。
+ *
+ * <p>每个类只在第一次使用时通过反射分析一次，
+ * 字段的读写和无参构造方法都转换为{@link MethodHandle}后缓存，
+ * 此后编解码时不再使用反射。
+ * 各个字段按照key排序，编码时依次输出，解码时按key二分查找。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+final class ObjectCodec implements ValueCodec {
+
+  private static final ClassValue<ObjectCodec> CODECS =
+      new ClassValue<ObjectCodec>() {
+        @Override
+        protected ObjectCodec computeValue(Class<?> type) {
+          return new ObjectCodec(type);
+        }
+      };
+
+  private static final MethodType CONSTRUCTOR_TYPE =
+      MethodType.methodType(Object.class);
+  private static final MethodType GETTER_TYPE =
+      MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE =
+      MethodType.methodType(void.class, Object.class, Object.class);
+
+  private final MethodHandle constructor;
+  private final Property[] properties;
+
+  private ObjectCodec(Class<?> type) {
+    if (type.isInterface() || type.isArray() || type.isPrimitive()
+        || Modifier.isAbstract(type.getModifiers())) {
+      throw new IllegalArgumentException(
+          "Type can not be instantiated, type = " + type.getName());
+    }
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      Constructor<?> c = type.getDeclaredConstructor();
+      c.setAccessible(true);
+      this.constructor =
+          lookup.unreflectConstructor(c).asType(CONSTRUCTOR_TYPE);
+
+      ArrayList<Property> list = new ArrayList<>();
+      for (Class<?> t = type; Object.class != t; t = t.getSuperclass()) {
+        for (Field field : t.getDeclaredFields()) {
+          BencodeField annotation = field.getAnnotation(BencodeField.class);
+          if ((null == annotation)
+              || Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          field.setAccessible(true);
+          String key = annotation.value().isEmpty()
+              ? field.getName() : annotation.value();
+          list.add(new Property(
+              key.getBytes(CodecSupport.UTF_8),
+              lookup.unreflectGetter(field).asType(GETTER_TYPE),
+              lookup.unreflectSetter(field).asType(SETTER_TYPE),
+              ValueCodecs.forType(field.getGenericType())));
+        }
+      }
+      this.properties = list.toArray(new Property[list.size()]);
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new IllegalArgumentException(
+          "Type can not be mapped, type = " + type.getName(), e);
+    }
+    Arrays.sort(properties,
+        (a, b) -> CodecSupport.compareKeys(a.key, b.key));
+    for (int i = 1; i < properties.length; i++) {
+      if (0 == CodecSupport.compareKeys(
+          properties[i - 1].key, properties[i].key)) {
+        throw new IllegalArgumentException(
+            "Duplicate key, type = " + type.getName() + ", key = "
+                + new String(properties[i].key, CodecSupport.UTF_8));
+      }
+    }
+  }
+
+  /**
+   * @param type 带有{@link BencodeField}字段的类
+   * @return     该类的编解码器
+   * @throws IllegalArgumentException 该类不能被映射
+   */
+  static ObjectCodec of(Class<?> type) {
+    return CODECS.get(type);
+  }
+
+  /**
+   * @return type或其父类是否有带{@link BencodeField}的字段
+   */
+  static boolean isMapped(Class<?> type) {
+    for (Class<?> t = type; (null != t) && (Object.class != t);
+        t = t.getSuperclass()) {
+      for (Field field : t.getDeclaredFields()) {
+        if (field.isAnnotationPresent(BencodeField.class)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public Object read(BencodeReader reader) throws IOException {
+    CodecSupport.expect(reader, BencodeToken.START_DICT);
+    Object target;
+    try {
+      target = (Object)constructor.invokeExact();
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+    while (BencodeToken.END != reader.next()) {
+      Property property = find(reader.readBytes());
+      reader.next();
+      if (null == property) {
+        reader.skipValue();
+        continue;
+      }
+      Object value = property.codec.read(reader);
+      try {
+        property.setter.invokeExact(target, value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    return target;
+  }
+
+  @Override
+  public void write(Object value, BencodeWriter writer) throws IOException {
+    writer.beginDictionary();
+    for (Property property : properties) {
+      Object v;
+      try {
+        v = (Object)property.getter.invokeExact(value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+      if (null != v) {
+        writer.key(property.key);
+        property.codec.write(v, writer);
+      }
+    }
+    writer.end();
+  }
+
+  private Property find(byte[] key) {
+    int low = 0;
+    int high = properties.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = CodecSupport.compareKeys(properties[mid].key, key);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return properties[mid];
+      }
+    }
+    return null;
+  }
+
+  private static RuntimeException rethrow(Throwable t) {
+    if (t instanceof Error) {
+      throw (Error)t;
+    } else if (t instanceof RuntimeException) {
+      return (RuntimeException)t;
+    }
+    return new IllegalStateException(t);
+  }
+
+  private static final class Property {
+
+    final byte[] key;
+    final MethodHandle getter;
+    final MethodHandle setter;
+    final ValueCodec codec;
+
+    Property(byte[] key, MethodHandle getter, MethodHandle setter,
+        ValueCodec codec) {
+      this.key = key;
+      this.getter = getter;
+      this.setter = setter;
+      this.codec = codec;
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package bencode.bind;
+
+import java.io.IOException;
+
+import bencode.parse.BencodeReader;
+import bencode.type.BencodeWriter;
+
+/**
+ * <p>在B编码的词法单元和某种Java类型的值之间相互转换。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+interface ValueCodec {
+
+  /**
+   * @param reader 当前词法单元是该值的开始，若是列表或字典，
+   *               返回时已经读到与之匹配的结束
+   * @return       解码出的值
+   */
+  Object read(BencodeReader reader) throws IOException;
+
+  /**
+   * @param value  待编码的值，不为null
+   * @param writer 输出的目标
+   */
+  void write(Object value, BencodeWriter writer) throws IOException;
+}
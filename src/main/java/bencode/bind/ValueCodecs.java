@@ -0,0 +1,306 @@
+package bencode.bind;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import bencode.parse.BencodeReader;
+import bencode.parse.BencodeToken;
+import bencode.type.BType;
+import bencode.type.BencodeWriter;
+
+/**
+ * <p>根据字段的声明类型选择{@link ValueCodec}。
+ *
+ * <p>支持的类型：
+ * <ul>
+ * <li>long、int、short、byte及其包装类型，对应整数，超出范围时解码失败</li>
+ * <li>boolean及其包装类型，对应整数，非0为true</li>
+ * <li>String，对应UTF-8编码的字符串；byte[]，对应原始的字符串内容</li>
+ * <li>{@link BType}及其子类，对应任意的B编码数据</li>
+ * <li>带有{@link BencodeField}字段的类，对应字典</li>
+ * <li>List、Collection、ArrayList，对应列表，元素是以上任一类型</li>
+ * <li>key为String的Map、LinkedHashMap，对应字典，编码时按照key排序</li>
+ * </ul>
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+final class ValueCodecs {
+
+  private static final ValueCodec LONG =
+      new IntegerCodec(Long.MIN_VALUE, Long.MAX_VALUE) {
+        @Override
+        Object box(long value) {
+          return value;
+        }
+      };
+
+  private static final ValueCodec INT =
+      new IntegerCodec(Integer.MIN_VALUE, Integer.MAX_VALUE) {
+        @Override
+        Object box(long value) {
+          return (int)value;
+        }
+      };
+
+  private static final ValueCodec SHORT =
+      new IntegerCodec(Short.MIN_VALUE, Short.MAX_VALUE) {
+        @Override
+        Object box(long value) {
+          return (short)value;
+        }
+      };
+
+  private static final ValueCodec BYTE =
+      new IntegerCodec(Byte.MIN_VALUE, Byte.MAX_VALUE) {
+        @Override
+        Object box(long value) {
+          return (byte)value;
+        }
+      };
+
+  private static final ValueCodec BOOLEAN = new ValueCodec() {
+    @Override
+    public Object read(BencodeReader reader) throws IOException {
+      return CodecSupport.readBoolean(reader);
+    }
+
+    @Override
+    public void write(Object value, BencodeWriter writer) throws IOException {
+      writer.value(((Boolean)value) ? 1 : 0);
+    }
+  };
+
+  private static final ValueCodec STRING = new ValueCodec() {
+    @Override
+    public Object read(BencodeReader reader) throws IOException {
+      return CodecSupport.readString(reader);
+    }
+
+    @Override
+    public void write(Object value, BencodeWriter writer) throws IOException {
+      writer.value((String)value);
+    }
+  };
+
+  private static final ValueCodec BYTES = new ValueCodec() {
+    @Override
+    public Object read(BencodeReader reader) throws IOException {
+      return CodecSupport.readBytes(reader);
+    }
+
+    @Override
+    public void write(Object value, BencodeWriter writer) throws IOException {
+      writer.value((byte[])value);
+    }
+  };
+
+  private ValueCodecs() {
+  }
+
+  /**
+   * @param type 字段的声明类型
+   * @return     对应的编解码器
+   * @throws IllegalArgumentException 不支持该类型
+   */
+  static ValueCodec forType(Type type) {
+    if (type instanceof Class) {
+      Class<?> c = (Class<?>)type;
+      if ((long.class == c) || (Long.class == c)) {
+        return LONG;
+      } else if ((int.class == c) || (Integer.class == c)) {
+        return INT;
+      } else if ((short.class == c) || (Short.class == c)) {
+        return SHORT;
+      } else if ((byte.class == c) || (Byte.class == c)) {
+        return BYTE;
+      } else if ((boolean.class == c) || (Boolean.class == c)) {
+        return BOOLEAN;
+      } else if (String.class == c) {
+        return STRING;
+      } else if (byte[].class == c) {
+        return BYTES;
+      } else if (BType.class.isAssignableFrom(c)) {
+        return new TreeCodec(c);
+      } else if (ObjectCodec.isMapped(c)) {
+        return new ObjectRef(c);
+      }
+    } else if (type instanceof ParameterizedType) {
+      Type raw = ((ParameterizedType)type).getRawType();
+      Type[] args = ((ParameterizedType)type).getActualTypeArguments();
+      if ((List.class == raw) || (Collection.class == raw)
+          || (ArrayList.class == raw)) {
+        return new ListCodec(forType(args[0]));
+      } else if (((Map.class == raw) || (LinkedHashMap.class == raw))
+          && (String.class == args[0])) {
+        return new MapCodec(forType(args[1]));
+      } else if (BType.class.isAssignableFrom((Class<?>)raw)) {
+        return new TreeCodec((Class<?>)raw);
+      }
+    }
+    throw new IllegalArgumentException(
+        "Unsupported type for bencode mapping, type = " + type.getTypeName());
+  }
+
+  private abstract static class IntegerCodec implements ValueCodec {
+
+    private final long min;
+    private final long max;
+
+    IntegerCodec(long min, long max) {
+      this.min = min;
+      this.max = max;
+    }
+
+    abstract Object box(long value);
+
+    @Override
+    public Object read(BencodeReader reader) throws IOException {
+      return box(CodecSupport.readLong(reader, min, max));
+    }
+
+    @Override
+    public void write(Object value, BencodeWriter writer) throws IOException {
+      writer.value(((Number)value).longValue());
+    }
+  }
+
+  /**
+   * <p>直接从词法单元构建B编码对象。
+   */
+  private static final class TreeCodec implements ValueCodec {
+
+    private final Class<?> type;
+
+    TreeCodec(Class<?> type) {
+      this.type = type;
+    }
+
+    @Override
+    public Object read(BencodeReader reader) throws IOException {
+      return CodecSupport.readTree(reader, type);
+    }
+
+    @Override
+    public void write(Object value, BencodeWriter writer) throws IOException {
+      writer.write((BType<?>)value);
+    }
+  }
+
+  /**
+   * <p>第一次使用时才获取{@link ObjectCodec}，以支持引用自身的类型。
+   */
+  private static final class ObjectRef implements ValueCodec {
+
+    private final Class<?> type;
+    private ObjectCodec codec;
+
+    ObjectRef(Class<?> type) {
+      this.type = type;
+    }
+
+    @Override
+    public Object read(BencodeReader reader) throws IOException {
+      return codec().read(reader);
+    }
+
+    @Override
+    public void write(Object value, BencodeWriter writer) throws IOException {
+      codec().write(value, writer);
+    }
+
+    private ObjectCodec codec() {
+      ObjectCodec c = codec;
+      if (null == c) {
+        c = ObjectCodec.of(type);
+        codec = c;
+      }
+      return c;
+    }
+  }
+
+  private static final class ListCodec implements ValueCodec {
+
+    private final ValueCodec element;
+
+    ListCodec(ValueCodec element) {
+      this.element = element;
+    }
+
+    @Override
+    public Object read(BencodeReader reader) throws IOException {
+      CodecSupport.expect(reader, BencodeToken.START_LIST);
+      ArrayList<Object> list = new ArrayList<>();
+      while (BencodeToken.END != reader.next()) {
+        list.add(element.read(reader));
+      }
+      return list;
+    }
+
+    @Override
+    public void write(Object value, BencodeWriter writer) throws IOException {
+      writer.beginList();
+      for (Object e : (Collection<?>)value) {
+        if (null == e) {
+          throw new IllegalArgumentException(
+              "Null element can not be encoded");
+        }
+        element.write(e, writer);
+      }
+      writer.end();
+    }
+  }
+
+  private static final class MapCodec implements ValueCodec {
+
+    private final ValueCodec element;
+
+    MapCodec(ValueCodec element) {
+      this.element = element;
+    }
+
+    @Override
+    public Object read(BencodeReader reader) throws IOException {
+      CodecSupport.expect(reader, BencodeToken.START_DICT);
+      LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+      while (BencodeToken.END != reader.next()) {
+        String key = CodecSupport.readKey(reader);
+        reader.next();
+        map.put(key, element.read(reader));
+      }
+      return map;
+    }
+
+    @Override
+    public void write(Object value, BencodeWriter writer) throws IOException {
+      Map<?, ?> map = (Map<?, ?>)value;
+      byte[][] keys = new byte[map.size()][];
+      Object[] values = new Object[keys.length];
+      Integer[] order = new Integer[keys.length];
+      int i = 0;
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        keys[i] = ((String)entry.getKey()).getBytes(CodecSupport.UTF_8);
+        values[i] = entry.getValue();
+        order[i] = i;
+        i++;
+      }
+      Arrays.sort(order,
+          (x, y) -> CodecSupport.compareKeys(keys[x], keys[y]));
+      writer.beginDictionary();
+      for (int index : order) {
+        if (null != values[index]) {
+          writer.key(keys[index]);
+          element.write(values[index], writer);
+        }
+      }
+      writer.end();
+    }
+  }
+}
@@ -0,0 +1,647 @@
+package bencode.bind.processor;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import bencode.bind.BencodeField;
+import bencode.bind.BencodeType;
+
+/**
+ * <p>为一个带有{@link BencodeType}的类生成编解码器的源代码。
+ *
+ * <p>解码时先按照key的长度分支，同一长度有多个key时再按照第一个字节分支，
+ * 最后与常量比较整个key；列表和字典类型的字段各自生成一个读写方法。
+ * 该类不是线程安全的，每个类使用一个新的实例。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+final class CodecGenerator {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final String SUPPORT = "CodecSupport";
+
+  private final Elements elements;
+  private final Types types;
+  private final TypeMirror btype;
+  private final TypeElement type;
+  private final String packageName;
+  private final String codecName;
+
+  private final List<Property> properties = new ArrayList<>();
+  private final Map<String, String> helperNames = new HashMap<>();
+  private final StringBuilder helpers = new StringBuilder();
+
+  CodecGenerator(ProcessingEnvironment env, TypeElement type) {
+    this.elements = env.getElementUtils();
+    this.types = env.getTypeUtils();
+    this.btype = types.erasure(
+        elements.getTypeElement("bencode.type.BType").asType());
+    this.type = type;
+    this.packageName = elements.getPackageOf(type).getQualifiedName()
+        .toString();
+    this.codecName = codecName(type);
+  }
+
+  /**
+   * @return 生成的编解码器的全限定名
+   */
+  String getQualifiedName() {
+    return packageName.isEmpty() ? codecName : packageName + "." + codecName;
+  }
+
+  /**
+   * @return 生成的源代码
+   * @throws InvalidTypeException 该类不满足生成编解码器的要求
+   */
+  String generate() {
+    checkType();
+    collectProperties();
+
+    String typeName = type.getQualifiedName().toString();
+    StringBuilder out = new StringBuilder();
+    if (!packageName.isEmpty()) {
+      out.append("package ").append(packageName).append(";\n\n");
+    }
+    out.append("import java.io.ByteArrayInputStream;\n")
+        .append("import java.io.IOException;\n")
+        .append("import java.io.UncheckedIOException;\n")
+        .append("import java.util.Arrays;\n\n")
+        .append("import bencode.bind.CodecSupport;\n")
+        .append("import bencode.parse.BencodeReader;\n")
+        .append("import bencode.parse.BencodeToken;\n")
+        .append("import bencode.type.BencodeWriter;\n\n")
+        .append("/**\n")
+        .append(" * <p>{@link ").append(typeName)
+        .append("}的编解码器，由CodecProcessor生成，不要手动修改。\n")
+        .append(" */\n");
+    if (isPublic(type)) {
+      out.append("public ");
+    }
+    out.append("final class ").append(codecName).append(" {\n\n");
+    for (int i = 0; i < properties.size(); i++) {
+      out.append("  private static final byte[] KEY_").append(i)
+          .append(" = {");
+      byte[] key = properties.get(i).key;
+      for (int j = 0; j < key.length; j++) {
+        out.append((0 == j) ? "" : ", ").append(key[j]);
+      }
+      out.append("};\n");
+    }
+    if (!properties.isEmpty()) {
+      out.append("\n");
+    }
+    out.append("  private ").append(codecName).append("() {\n  }\n\n");
+
+    out.append("  public static ").append(typeName)
+        .append(" read(byte[] content) {\n")
+        .append("    BencodeReader reader =\n")
+        .append("        new BencodeReader(")
+        .append("new ByteArrayInputStream(content));\n")
+        .append("    try {\n")
+        .append("      ").append(typeName)
+        .append(" value = read(reader);\n")
+        .append("      CodecSupport.expectEnd(reader);\n")
+        .append("      return value;\n")
+        .append("    } catch (IOException e) {\n")
+        .append("      throw new UncheckedIOException(e);\n")
+        .append("    }\n")
+        .append("  }\n\n");
+
+    out.append("  public static ").append(typeName)
+        .append(" read(BencodeReader reader)\n")
+        .append("      throws IOException {\n")
+        .append("    reader.next();\n")
+        .append("    return readValue(reader);\n")
+        .append("  }\n\n");
+
+    appendReadValue(out, typeName);
+
+    out.append("  public static byte[] write(").append(typeName)
+        .append(" value) {\n")
+        .append("    BencodeWriter writer = new BencodeWriter(256);\n")
+        .append("    try {\n")
+        .append("      write(value, writer);\n")
+        .append("    } catch (IOException e) {\n")
+        .append("      throw new UncheckedIOException(e);\n")
+        .append("    }\n")
+        .append("    return writer.toByteArray();\n")
+        .append("  }\n\n");
+
+    out.append("  public static void write(").append(typeName)
+        .append(" value, BencodeWriter writer)\n")
+        .append("      throws IOException {\n")
+        .append("    writer.beginDictionary();\n");
+    for (int i = 0; i < properties.size(); i++) {
+      Property property = properties.get(i);
+      String expr = "value." + property.name;
+      String indent = "    ";
+      boolean nullable = !property.type.getKind().isPrimitive();
+      if (nullable) {
+        out.append(indent).append("if (null != ").append(expr)
+            .append(") {\n");
+        indent = "      ";
+      }
+      out.append(indent).append("writer.key(KEY_").append(i).append(");\n");
+      out.append(indent)
+          .append(writeStatement(property.type, expr, property.field))
+          .append("\n");
+      if (nullable) {
+        out.append("    }\n");
+      }
+    }
+    out.append("    writer.end();\n")
+        .append("  }\n");
+
+    out.append(helpers);
+    out.append("}\n");
+    return out.toString();
+  }
+
+  private void appendReadValue(StringBuilder out, String typeName) {
+    out.append("  public static ").append(typeName)
+        .append(" readValue(BencodeReader reader)\n")
+        .append("      throws IOException {\n")
+        .append("    CodecSupport.expect(reader, BencodeToken.START_DICT);\n")
+        .append("    ").append(typeName).append(" value = new ")
+        .append(typeName).append("();\n")
+        .append("    while (BencodeToken.END != reader.next()) {\n")
+        .append("      byte[] key = reader.readBytes();\n")
+        .append("      reader.next();\n")
+        .append("      switch (key.length) {\n");
+
+    // 按照key的长度分组，同一长度内再按照第一个字节分组
+    Map<Integer, Map<Byte, List<Integer>>> groups = new TreeMap<>();
+    for (int i = 0; i < properties.size(); i++) {
+      byte[] key = properties.get(i).key;
+      byte first = (0 == key.length) ? 0 : key[0];
+      groups.computeIfAbsent(key.length, k -> new TreeMap<>())
+          .computeIfAbsent(first, k -> new ArrayList<>())
+          .add(i);
+    }
+    for (Map.Entry<Integer, Map<Byte, List<Integer>>> group
+        : groups.entrySet()) {
+      out.append("        case ").append(group.getKey()).append(":\n");
+      Map<Byte, List<Integer>> byFirst = group.getValue();
+      if (1 == byFirst.size()) {
+        appendMatches(out, "          ",
+            byFirst.values().iterator().next());
+      } else {
+        out.append("          switch (key[0]) {\n");
+        for (Map.Entry<Byte, List<Integer>> first : byFirst.entrySet()) {
+          out.append("            case ").append(first.getKey())
+              .append(":\n");
+          appendMatches(out, "              ", first.getValue());
+        }
+        out.append("            default:\n")
+            .append("              break;\n")
+            .append("          }\n")
+            .append("          break;\n");
+      }
+    }
+    out.append("        default:\n")
+        .append("          break;\n")
+        .append("      }\n")
+        .append("      reader.skipValue();\n")
+        .append("    }\n")
+        .append("    return value;\n")
+        .append("  }\n\n");
+  }
+
+  private void appendMatches(StringBuilder out, String indent,
+      List<Integer> indexes) {
+    for (int i : indexes) {
+      Property property = properties.get(i);
+      out.append(indent).append("if (Arrays.equals(key, KEY_").append(i)
+          .append(")) {\n")
+          .append(indent).append("  value.").append(property.name)
+          .append(" = ")
+          .append(readExpression(property.type, property.field))
+          .append(";\n")
+          .append(indent).append("  continue;\n")
+          .append(indent).append("}\n");
+    }
+    out.append(indent).append("break;\n");
+  }
+
+  private String readExpression(TypeMirror t, Element where) {
+    switch (t.getKind()) {
+      case LONG:
+        return readLong("Long", "");
+      case INT:
+        return readLong("Integer", "(int)");
+      case SHORT:
+        return readLong("Short", "(short)");
+      case BYTE:
+        return readLong("Byte", "(byte)");
+      case BOOLEAN:
+        return SUPPORT + ".readBoolean(reader)";
+      case ARRAY:
+        if (isByteArray(t)) {
+          return SUPPORT + ".readBytes(reader)";
+        }
+        break;
+      case DECLARED: {
+        TypeElement element = (TypeElement)types.asElement(t);
+        String name = element.getQualifiedName().toString();
+        switch (name) {
+          case "java.lang.Long":
+            return readLong("Long", "");
+          case "java.lang.Integer":
+            return readLong("Integer", "(int)");
+          case "java.lang.Short":
+            return readLong("Short", "(short)");
+          case "java.lang.Byte":
+            return readLong("Byte", "(byte)");
+          case "java.lang.Boolean":
+            return SUPPORT + ".readBoolean(reader)";
+          case "java.lang.String":
+            return SUPPORT + ".readString(reader)";
+          case "java.util.List":
+          case "java.util.Collection":
+          case "java.util.ArrayList":
+            return listReader((DeclaredType)t, where) + "(reader)";
+          case "java.util.Map":
+          case "java.util.LinkedHashMap":
+            return mapReader((DeclaredType)t, where) + "(reader)";
+          default:
+            break;
+        }
+        if (types.isAssignable(types.erasure(t), btype)) {
+          return SUPPORT + ".readTree(reader, " + types.erasure(t)
+              + ".class)";
+        }
+        if (null != element.getAnnotation(BencodeType.class)) {
+          return qualifiedCodecName(element) + ".readValue(reader)";
+        }
+        break;
+      }
+      default:
+        break;
+    }
+    throw unsupported(t, where);
+  }
+
+  private String writeStatement(TypeMirror t, String expr, Element where) {
+    switch (t.getKind()) {
+      case LONG:
+      case INT:
+      case SHORT:
+      case BYTE:
+        return "writer.value(" + expr + ");";
+      case BOOLEAN:
+        return "writer.value(" + expr + " ? 1 : 0);";
+      case ARRAY:
+        if (isByteArray(t)) {
+          return "writer.value(" + expr + ");";
+        }
+        break;
+      case DECLARED: {
+        TypeElement element = (TypeElement)types.asElement(t);
+        String name = element.getQualifiedName().toString();
+        switch (name) {
+          case "java.lang.Long":
+          case "java.lang.Integer":
+          case "java.lang.Short":
+          case "java.lang.Byte":
+          case "java.lang.String":
+            return "writer.value(" + expr + ");";
+          case "java.lang.Boolean":
+            return "writer.value(" + expr + " ? 1 : 0);";
+          case "java.util.List":
+          case "java.util.Collection":
+          case "java.util.ArrayList":
+            return listWriter((DeclaredType)t, where)
+                + "(" + expr + ", writer);";
+          case "java.util.Map":
+          case "java.util.LinkedHashMap":
+            return mapWriter((DeclaredType)t, where)
+                + "(" + expr + ", writer);";
+          default:
+            break;
+        }
+        if (types.isAssignable(types.erasure(t), btype)) {
+          return "writer.write(" + expr + ");";
+        }
+        if (null != element.getAnnotation(BencodeType.class)) {
+          return qualifiedCodecName(element)
+              + ".write(" + expr + ", writer);";
+        }
+        break;
+      }
+      default:
+        break;
+    }
+    throw unsupported(t, where);
+  }
+
+  private String listReader(DeclaredType t, Element where) {
+    TypeMirror e = typeArgument(t, 0, where);
+    String key = "readList:" + e;
+    String name = helperNames.get(key);
+    if (null != name) {
+      return name;
+    }
+    name = newHelperName("readList");
+    helperNames.put(key, name);
+    String listType = "java.util.ArrayList<" + e + ">";
+    String element = readExpression(e, where);
+    helpers.append("\n")
+        .append("  private static ").append(listType).append(" ")
+        .append(name).append("(BencodeReader reader)\n")
+        .append("      throws IOException {\n")
+        .append("    CodecSupport.expect(reader, BencodeToken.START_LIST);\n")
+        .append("    ").append(listType).append(" list = ")
+        .append("new java.util.ArrayList<>();\n")
+        .append("    while (BencodeToken.END != reader.next()) {\n")
+        .append("      list.add(").append(element).append(");\n")
+        .append("    }\n")
+        .append("    return list;\n")
+        .append("  }\n");
+    return name;
+  }
+
+  private String mapReader(DeclaredType t, Element where) {
+    checkStringKey(t, where);
+    TypeMirror v = typeArgument(t, 1, where);
+    String key = "readMap:" + v;
+    String name = helperNames.get(key);
+    if (null != name) {
+      return name;
+    }
+    name = newHelperName("readMap");
+    helperNames.put(key, name);
+    String mapType = "java.util.LinkedHashMap<String, " + v + ">";
+    String value = readExpression(v, where);
+    helpers.append("\n")
+        .append("  private static ").append(mapType).append(" ")
+        .append(name).append("(BencodeReader reader)\n")
+        .append("      throws IOException {\n")
+        .append("    CodecSupport.expect(reader, BencodeToken.START_DICT);\n")
+        .append("    ").append(mapType).append(" map = ")
+        .append("new java.util.LinkedHashMap<>();\n")
+        .append("    while (BencodeToken.END != reader.next()) {\n")
+        .append("      String key = CodecSupport.readKey(reader);\n")
+        .append("      reader.next();\n")
+        .append("      map.put(key, ").append(value).append(");\n")
+        .append("    }\n")
+        .append("    return map;\n")
+        .append("  }\n");
+    return name;
+  }
+
+  private String listWriter(DeclaredType t, Element where) {
+    TypeMirror e = typeArgument(t, 0, where);
+    String key = "writeList:" + e;
+    String name = helperNames.get(key);
+    if (null != name) {
+      return name;
+    }
+    name = newHelperName("writeList");
+    helperNames.put(key, name);
+    String statement = writeStatement(e, "element", where);
+    helpers.append("\n")
+        .append("  private static void ").append(name)
+        .append("(java.util.Collection<").append(e)
+        .append("> value,\n")
+        .append("      BencodeWriter writer) throws IOException {\n")
+        .append("    writer.beginList();\n")
+        .append("    for (").append(e).append(" element : value) {\n")
+        .append("      if (null == element) {\n")
+        .append("        throw new IllegalArgumentException(\n")
+        .append("            \"Null element can not be encoded\");\n")
+        .append("      }\n")
+        .append("      ").append(statement).append("\n")
+        .append("    }\n")
+        .append("    writer.end();\n")
+        .append("  }\n");
+    return name;
+  }
+
+  private String mapWriter(DeclaredType t, Element where) {
+    checkStringKey(t, where);
+    TypeMirror v = typeArgument(t, 1, where);
+    String key = "writeMap:" + v;
+    String name = helperNames.get(key);
+    if (null != name) {
+      return name;
+    }
+    name = newHelperName("writeMap");
+    helperNames.put(key, name);
+    String statement = writeStatement(v, "element", where);
+    helpers.append("\n")
+        .append("  private static void ").append(name)
+        .append("(java.util.Map<String, ").append(v).append("> value,\n")
+        .append("      BencodeWriter writer) throws IOException {\n")
+        .append("    String[] keys = ")
+        .append("value.keySet().toArray(new String[0]);\n")
+        .append("    CodecSupport.sortKeys(keys);\n")
+        .append("    writer.beginDictionary();\n")
+        .append("    for (String key : keys) {\n")
+        .append("      ").append(v).append(" element = value.get(key);\n")
+        .append("      if (null != element) {\n")
+        .append("        writer.key(key);\n")
+        .append("        ").append(statement).append("\n")
+        .append("      }\n")
+        .append("    }\n")
+        .append("    writer.end();\n")
+        .append("  }\n");
+    return name;
+  }
+
+  private String newHelperName(String prefix) {
+    return prefix + helperNames.size();
+  }
+
+  private String readLong(String box, String cast) {
+    return cast + SUPPORT + ".readLong(reader, " + box + ".MIN_VALUE, "
+        + box + ".MAX_VALUE)";
+  }
+
+  private TypeMirror typeArgument(DeclaredType t, int index, Element where) {
+    List<? extends TypeMirror> args = t.getTypeArguments();
+    if (args.size() <= index) {
+      throw unsupported(t, where);
+    }
+    TypeMirror arg = args.get(index);
+    if ((TypeKind.DECLARED != arg.getKind())
+        && (TypeKind.ARRAY != arg.getKind())) {
+      throw unsupported(t, where);
+    }
+    return arg;
+  }
+
+  private void checkStringKey(DeclaredType t, Element where) {
+    TypeMirror key = typeArgument(t, 0, where);
+    if (!"java.lang.String".equals(
+        ((TypeElement)types.asElement(key)).getQualifiedName().toString())) {
+      throw unsupported(t, where);
+    }
+  }
+
+  private void checkType() {
+    Set<Modifier> modifiers = type.getModifiers();
+    if (modifiers.contains(Modifier.PRIVATE)
+        || modifiers.contains(Modifier.ABSTRACT)) {
+      throw new InvalidTypeException(
+          "@BencodeType class must not be private or abstract", type);
+    }
+    if ((NestingKind.TOP_LEVEL != type.getNestingKind())
+        && ((NestingKind.MEMBER != type.getNestingKind())
+            || !modifiers.contains(Modifier.STATIC))) {
+      throw new InvalidTypeException(
+          "@BencodeType class must be top level or static nested", type);
+    }
+    for (ExecutableElement c
+        : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+      if (c.getParameters().isEmpty()
+          && !c.getModifiers().contains(Modifier.PRIVATE)) {
+        return;
+      }
+    }
+    throw new InvalidTypeException(
+        "@BencodeType class must have a non-private no-arg constructor",
+        type);
+  }
+
+  private void collectProperties() {
+    for (TypeElement t = type; null != t; t = superclass(t)) {
+      boolean samePackage = packageName.equals(
+          elements.getPackageOf(t).getQualifiedName().toString());
+      for (VariableElement field
+          : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+        BencodeField annotation = field.getAnnotation(BencodeField.class);
+        if (null == annotation) {
+          continue;
+        }
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)
+            || modifiers.contains(Modifier.STATIC)
+            || modifiers.contains(Modifier.FINAL)
+            || (!samePackage && !modifiers.contains(Modifier.PUBLIC))) {
+          throw new InvalidTypeException(
+              "@BencodeField must be an accessible non-static non-final "
+                  + "field", field);
+        }
+        String name = field.getSimpleName().toString();
+        String key = annotation.value().isEmpty() ? name : annotation.value();
+        properties.add(new Property(
+            key.getBytes(UTF_8), name, field.asType(), field));
+      }
+    }
+    properties.sort((a, b) -> compareKeys(a.key, b.key));
+    for (int i = 1; i < properties.size(); i++) {
+      if (0 == compareKeys(properties.get(i - 1).key,
+          properties.get(i).key)) {
+        throw new InvalidTypeException(
+            "Duplicate key, key = "
+                + new String(properties.get(i).key, UTF_8),
+            properties.get(i).field);
+      }
+    }
+  }
+
+  /**
+   * <p>与{@link bencode.bind.CodecSupport#compareKeys(byte[], byte[])}相同。
+   * 处理器运行在编译器中，不能加载运行时的类，否则会触发它们的静态初始化，
+   * 要求编译期的classpath上也有slf4j等运行时依赖。
+   */
+  private static int compareKeys(byte[] a, byte[] b) {
+    int length = Math.min(a.length, b.length);
+    for (int i = 0; i < length; i++) {
+      int diff = (a[i] & 0xFF) - (b[i] & 0xFF);
+      if (0 != diff) {
+        return diff;
+      }
+    }
+    return a.length - b.length;
+  }
+
+  private TypeElement superclass(TypeElement t) {
+    TypeMirror superclass = t.getSuperclass();
+    if (TypeKind.DECLARED != superclass.getKind()) {
+      return null;
+    }
+    TypeElement element = (TypeElement)types.asElement(superclass);
+    if ("java.lang.Object".equals(element.getQualifiedName().toString())) {
+      return null;
+    }
+    return element;
+  }
+
+  private static boolean isByteArray(TypeMirror t) {
+    return (TypeKind.ARRAY == t.getKind())
+        && (TypeKind.BYTE == ((ArrayType)t).getComponentType().getKind());
+  }
+
+  private String qualifiedCodecName(TypeElement element) {
+    String pkg = elements.getPackageOf(element).getQualifiedName()
+        .toString();
+    String name = codecName(element);
+    return pkg.isEmpty() ? name : pkg + "." + name;
+  }
+
+  private InvalidTypeException unsupported(TypeMirror t, Element where) {
+    return new InvalidTypeException(
+        "Unsupported type for bencode mapping, type = " + t, where);
+  }
+
+  /**
+   * @return 类X对应XCodec，嵌套类Outer.X对应Outer_XCodec
+   */
+  static String codecName(TypeElement type) {
+    StringBuilder name = new StringBuilder(type.getSimpleName());
+    for (Element e = type.getEnclosingElement(); !(e instanceof PackageElement);
+        e = e.getEnclosingElement()) {
+      name.insert(0, '_').insert(0, e.getSimpleName());
+    }
+    return name.append("Codec").toString();
+  }
+
+  private static boolean isPublic(TypeElement type) {
+    for (Element e = type; !(e instanceof PackageElement);
+        e = e.getEnclosingElement()) {
+      if (!e.getModifiers().contains(Modifier.PUBLIC)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static final class Property {
+
+    final byte[] key;
+    final String name;
+    final TypeMirror type;
+    final Element field;
+
+    Property(byte[] key, String name, TypeMirror type, Element field) {
+      this.key = key;
+      this.name = name;
+      this.type = type;
+      this.field = field;
+    }
+  }
+}
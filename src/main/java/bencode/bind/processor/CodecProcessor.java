@@ -0,0 +1,74 @@
+package bencode.bind.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import bencode.bind.BencodeType;
+
+/**
+ * <p>编译期的注解处理器，为每个带有{@link BencodeType}的类生成编解码器，
+ * 生成的代码参见{@link BencodeType}。
+ *
+ * <p>该处理器没有在META-INF/services中注册，不会因为bencode在classpath上
+ * 就被javac自动运行，需要显式地启用，例如：
+ * <pre>
+ * javac -processor bencode.bind.processor.CodecProcessor ...
+ * </pre>
+ * 使用maven时，在maven-compiler-plugin的annotationProcessors中指定该类。
+ * 处理器只依赖注解和JDK，编译期不需要slf4j等运行时依赖。
+ * 生成的编解码器不使用反射，可以直接用于GraalVM native-image。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+@SupportedAnnotationTypes("bencode.bind.BencodeType")
+public class CodecProcessor extends AbstractProcessor {
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations,
+      RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getElementsAnnotatedWith(
+        BencodeType.class)) {
+      if (ElementKind.CLASS != element.getKind()) {
+        error("@BencodeType can only be applied to class", element);
+        continue;
+      }
+      TypeElement type = (TypeElement)element;
+      CodecGenerator generator = new CodecGenerator(processingEnv, type);
+      try {
+        String source = generator.generate();
+        JavaFileObject file = processingEnv.getFiler()
+            .createSourceFile(generator.getQualifiedName(), type);
+        try (Writer writer = file.openWriter()) {
+          writer.write(source);
+        }
+      } catch (InvalidTypeException e) {
+        error(e.getMessage(), e.getElement());
+      } catch (IOException e) {
+        error("Failed to write codec, " + e, type);
+      }
+    }
+    return true;
+  }
+
+  private void error(String msg, Element element) {
+    processingEnv.getMessager().printMessage(
+        Diagnostic.Kind.ERROR, msg, element);
+  }
+}
@@ -0,0 +1,28 @@
+package bencode.bind.processor;
+
+import javax.lang.model.element.Element;
+
+/**
+ * <p>类或字段不满足生成编解码器的要求，由{@link CodecProcessor}报告为编译错误。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+class InvalidTypeException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient Element element;
+
+  InvalidTypeException(String msg, Element element) {
+    super(msg);
+    this.element = element;
+  }
+
+  /**
+   * @return 出错的类或字段
+   */
+  Element getElement() {
+    return element;
+  }
+}
@@ -0,0 +1,314 @@
+package bencode.parse;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import bencode.type.BDictionary;
+import bencode.type.BList;
+import bencode.type.BType;
+
+/**
+ * <p>编译后的路径表达式，直接在B编码的字节数组上查找数据，不需要解析整个文档。
+ *
+ * <p>表达式的语法如下：
+ * <ul>
+ *  <li>用"."分隔字典的各级key，如"info.piece length"</li>
+ *  <li>"[n]"表示列表中的第n个元素（从0开始），如"announce-list[0][0]"</li>
+ *  <li>"[*]"表示列表中的所有元素，单独的"*"表示字典中的所有value，
+ *  如"info.files[*].length"</li>
+ *  <li>key中包含"."、"["等特殊字符时，可以用"['key']"的形式引用</li>
+ * </ul>
+ *
+ * <p>查找时，不匹配的子树只会被跳过，不会创建任何对象。
+ * 由于字典中的key是有序的，越过目标key后就会停止扫描该字典。
+ * 类型不匹配（如对列表使用key）时，视为没有找到。
+ *
+ * <p>该类是不可变的，可以被多个线程共享。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public final class BencodePath {
+
+  private static final int KEY = 0;
+  private static final int ANY_KEY = 1;
+  private static final int INDEX = 2;
+  private static final int ANY_INDEX = 3;
+
+  private final String expression;
+  private final int[] kinds;
+  private final int[] indexes;
+  private final byte[][] keys;
+
+  private BencodePath(
+      String expression, int[] kinds, int[] indexes, byte[][] keys) {
+    this.expression = expression;
+    this.kinds = kinds;
+    this.indexes = indexes;
+    this.keys = keys;
+  }
+
+  /**
+   * <p>编译路径表达式，key使用UTF-8编码。
+   * @param expression 路径表达式
+   * @return           编译后的路径
+   * @throws IllegalArgumentException 表达式的格式错误
+   * @since 0.1.1
+   */
+  public static BencodePath compile(String expression) {
+    Charset utf8 = Charset.forName("UTF-8");
+    List<Integer> kindList = new ArrayList<>();
+    List<Integer> indexList = new ArrayList<>();
+    List<byte[]> keyList = new ArrayList<>();
+
+    int i = 0;
+    int length = expression.length();
+    while (i < length) {
+      char c = expression.charAt(i);
+      if ('[' == c) {
+        int close;
+        if ((i + 1 < length) && ('\'' == expression.charAt(i + 1))) {
+          close = expression.indexOf("']", i + 2);
+          if (close >= 0) {
+            close++;
+          }
+        } else {
+          close = expression.indexOf(']', i);
+        }
+        if (close < 0) {
+          throw new IllegalArgumentException(
+              "Unclosed '[' in path, pos = " + i + ", path = " + expression);
+        }
+        String token = expression.substring(i + 1, close);
+        if ("*".equals(token)) {
+          kindList.add(ANY_INDEX);
+          indexList.add(-1);
+          keyList.add(null);
+        } else if (token.startsWith("'")) {
+          kindList.add(KEY);
+          indexList.add(-1);
+          keyList.add(token.substring(1, token.length() - 1).getBytes(utf8));
+        } else {
+          int index;
+          try {
+            index = Integer.parseInt(token);
+          } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                "Invalid list index in path, index = " + token
+                    + ", path = " + expression);
+          }
+          if (index < 0) {
+            throw new IllegalArgumentException(
+                "Invalid list index in path, index = " + token
+                    + ", path = " + expression);
+          }
+          kindList.add(INDEX);
+          indexList.add(index);
+          keyList.add(null);
+        }
+        i = close + 1;
+      } else if ('.' == c) {
+        if ((0 == i) || (i + 1 >= length) || ('.' == expression.charAt(i + 1))
+            || ('[' == expression.charAt(i + 1))) {
+          throw new IllegalArgumentException(
+              "Empty key in path, pos = " + i + ", path = " + expression);
+        }
+        i++;
+      } else {
+        int end = i;
+        while ((end < length) && ('.' != expression.charAt(end))
+            && ('[' != expression.charAt(end))) {
+          end++;
+        }
+        String key = expression.substring(i, end);
+        if ("*".equals(key)) {
+          kindList.add(ANY_KEY);
+          keyList.add(null);
+        } else {
+          kindList.add(KEY);
+          keyList.add(key.getBytes(utf8));
+        }
+        indexList.add(-1);
+        i = end;
+      }
+    }
+
+    int size = kindList.size();
+    int[] kinds = new int[size];
+    int[] indexes = new int[size];
+    for (int k = 0; k < size; k++) {
+      kinds[k] = kindList.get(k);
+      indexes[k] = indexList.get(k);
+    }
+    return new BencodePath(
+        expression, kinds, indexes, keyList.toArray(new byte[size][]));
+  }
+
+  /**
+   * <p>在以content[0]开始的数据中查找所有匹配的值，并解析为B编码对象。
+   * @param content 待查找的内容
+   * @return        所有匹配的值，按照在原始数据中出现的顺序排列
+   * @since 0.1.1
+   */
+  public List<BType<?>> select(final byte[] content) {
+    final List<BType<?>> result = new ArrayList<>();
+    final Parser parser = new Parser();
+    evaluate(content, 0, 0, pos -> {
+      TreeBuilder builder = new TreeBuilder();
+      parser.parseNext(content, pos, builder);
+      result.add(builder.getLastValue());
+      return false;
+    });
+    return result;
+  }
+
+  /**
+   * <p>在以content[0]开始的数据中查找第一个匹配的值，找到后立即停止扫描。
+   * @param content 待查找的内容
+   * @return        第一个匹配的值，若没有找到则返回null
+   * @since 0.1.1
+   */
+  public BType<?> selectFirst(final byte[] content) {
+    int pos = find(content, 0);
+    if (pos < 0) {
+      return null;
+    }
+    TreeBuilder builder = new TreeBuilder();
+    new Parser().parseNext(content, pos, builder);
+    return builder.getLastValue();
+  }
+
+  /**
+   * <p>查找第一个匹配的值在原始数据中的位置，找到后立即停止扫描。
+   * @param content 待查找的内容
+   * @param offset  文档在content中的起始位置
+   * @return        第一个匹配的值的起始位置，若没有找到则返回-1
+   * @since 0.1.1
+   */
+  public int find(final byte[] content, int offset) {
+    final int[] found = {-1};
+    evaluate(content, offset, 0, pos -> {
+      found[0] = pos;
+      return true;
+    });
+    return found[0];
+  }
+
+  /**
+   * <p>将所有匹配的值的解析事件依次回调给visitor，不创建B编码对象。
+   * @param content 待查找的内容
+   * @param offset  文档在content中的起始位置
+   * @param visitor 接收解析事件的回调
+   * @since 0.1.1
+   */
+  public void select(final byte[] content, int offset,
+      final BencodeVisitor visitor) {
+    final Parser parser = new Parser();
+    evaluate(content, offset, 0, pos -> {
+      parser.parseNext(content, pos, visitor);
+      return false;
+    });
+  }
+
+  @Override
+  public String toString() {
+    return expression;
+  }
+
+  /**
+   * <p>匹配到值以后的回调。
+   */
+  private interface Sink {
+
+    /**
+     * @param pos 匹配的值的起始位置
+     * @return    是否停止查找
+     */
+    boolean accept(int pos);
+  }
+
+  /**
+   * <p>从第step步开始，匹配位于pos的值。
+   * @return 是否停止查找
+   */
+  private boolean evaluate(final byte[] content, int pos, int step,
+      Sink sink) {
+    if (step == kinds.length) {
+      return sink.accept(pos);
+    }
+    if (pos >= content.length) {
+      throw ValueScanner.formatError(
+          "Parsing value unfinished when reaching the end, pos = " + pos);
+    }
+
+    int kind = kinds[step];
+    if ((KEY == kind) || (ANY_KEY == kind)) {
+      if (BDictionary.PREFIX != content[pos]) {
+        return false;
+      }
+      int i = pos + 1;
+      while (!isEnd(content, i, pos)) {
+        int keyEnd = ValueScanner.stringEnd(content, i, content.length);
+        if (KEY == kind) {
+          int cmp = compareKey(content, i, keyEnd, keys[step]);
+          if (0 == cmp) {
+            return evaluate(content, keyEnd, step + 1, sink);
+          } else if (cmp > 0) {
+            return false;
+          }
+        } else if (evaluate(content, keyEnd, step + 1, sink)) {
+          return true;
+        }
+        i = skip(content, keyEnd);
+      }
+      return false;
+    }
+
+    if (BList.PREFIX != content[pos]) {
+      return false;
+    }
+    int i = pos + 1;
+    for (int n = 0; !isEnd(content, i, pos); n++) {
+      if (ANY_INDEX == kind) {
+        if (evaluate(content, i, step + 1, sink)) {
+          return true;
+        }
+      } else if (n == indexes[step]) {
+        return evaluate(content, i, step + 1, sink);
+      }
+      i = skip(content, i);
+    }
+    return false;
+  }
+
+  private static boolean isEnd(final byte[] content, int i, int start) {
+    if (i >= content.length) {
+      throw ValueScanner.formatError(
+          "Parsing container unfinished when reaching the end, "
+              + "starting pos = " + start);
+    }
+    return BList.SUFFIX == content[i];
+  }
+
+  private static int skip(final byte[] content, int offset) {
+    return ValueScanner.skip(content, offset, content.length);
+  }
+
+  /**
+   * <p>按照无符号字节比较原始数据中的key与目标key。
+   */
+  private static int compareKey(
+      final byte[] content, int keyStart, int keyEnd, byte[] target) {
+    int offset = ValueScanner.stringContentStart(content, keyStart);
+    int length = keyEnd - offset;
+    int minLength = Math.min(length, target.length);
+    for (int i = 0; i < minLength; i++) {
+      int diff = (content[offset + i] & 0xFF) - (target[i] & 0xFF);
+      if (0 != diff) {
+        return diff;
+      }
+    }
+    return length - target.length;
+  }
+}
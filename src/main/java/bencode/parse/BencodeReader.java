@@ -0,0 +1,358 @@
+package bencode.parse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import bencode.exception.BEncodeFormatException;
+import bencode.type.BDictionary;
+import bencode.type.BList;
+import bencode.type.BNumber;
+import bencode.type.BString;
+
+/**
+ * <p>流式的B编码读取器，以拉取（pull）的方式逐个返回{@link BencodeToken}。
+ *
+ * <p>读取器直接从{@link InputStream}或{@link ReadableByteChannel}中读取数据，
+ * 内部只使用一块固定大小的缓冲区，因此不需要事先将全部内容读入内存。
+ * 格式错误时抛出{@link BEncodeFormatException}，与{@link Parser}保持一致。
+ *
+ * <p>读到{@link BencodeToken#STRING}或{@link BencodeToken#KEY}时，
+ * 只读取了字符串的长度前缀，内容需要通过{@link #readBytes()}读取；
+ * 若未读取，则下一次调用{@link #next()}时会直接跳过，不会分配内存。
+ *
+ * <p>该类不是线程安全的。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public class BencodeReader implements Closeable {
+
+  private static Logger logger = LoggerFactory.getLogger(BencodeReader.class);
+
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private final InputStream in;
+  private final ReadableByteChannel channel;
+  private final byte[] buffer;
+  private int pos;
+  private int limit;
+  private long bufferStart;
+  private boolean eof;
+
+  private final ContainerStack containers = new ContainerStack();
+
+  private BencodeToken token;
+  private long tokenPosition;
+  private long longValue;
+  private int stringLength;
+  private int stringRemaining;
+
+  public BencodeReader(InputStream in) {
+    this(in, DEFAULT_BUFFER_SIZE);
+  }
+
+  public BencodeReader(InputStream in, int bufferSize) {
+    this(in, null, bufferSize);
+  }
+
+  public BencodeReader(ReadableByteChannel channel) {
+    this(channel, DEFAULT_BUFFER_SIZE);
+  }
+
+  public BencodeReader(ReadableByteChannel channel, int bufferSize) {
+    this(null, channel, bufferSize);
+  }
+
+  private BencodeReader(
+      InputStream in, ReadableByteChannel channel, int bufferSize) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException(
+          "Buffer size must be positive, bufferSize = " + bufferSize);
+    }
+    this.in = in;
+    this.channel = channel;
+    this.buffer = new byte[bufferSize];
+  }
+
+  /**
+   * <p>读取下一个词法单元。
+   *
+   * @return 下一个词法单元，所有内容读完后返回{@link BencodeToken#END_OF_INPUT}
+   * @throws IOException 底层输入流读取失败
+   * @since 0.1.1
+   */
+  public BencodeToken next() throws IOException {
+    skipString();
+    tokenPosition = getPosition();
+    int current = read();
+    if (current < 0) {
+      if (containers.depth() > 0) {
+        throw formatError(
+            "Parsing container unfinished when reaching the end, pos = "
+                + tokenPosition);
+      }
+      return token = BencodeToken.END_OF_INPUT;
+    }
+
+    if (BList.SUFFIX == current) {
+      containers.pop(tokenPosition);
+      containers.valueFinished();
+      return token = BencodeToken.END;
+    }
+
+    if (containers.startValue(current, tokenPosition)) {
+      readStringLength(current);
+      return token = BencodeToken.KEY;
+    }
+
+    switch (current) {
+      case BNumber.PREFIX: {
+        readNumber();
+        containers.valueFinished();
+        return token = BencodeToken.INTEGER;
+      }
+
+      case BList.PREFIX: {
+        containers.push(false);
+        return token = BencodeToken.START_LIST;
+      }
+
+      case BDictionary.PREFIX: {
+        containers.push(true);
+        return token = BencodeToken.START_DICT;
+      }
+
+      default: {
+        if (!isDigit(current)) {
+          throw formatError(
+              "Unexpected char in bencode, when detemining bencode type, "
+                  + "char = " + (char)current + ", pos = " + tokenPosition);
+        }
+        readStringLength(current);
+        containers.valueFinished();
+        return token = BencodeToken.STRING;
+      }
+    }
+  }
+
+  /**
+   * <p>跳过当前的值。若当前词法单元是列表或字典的开始，
+   * 则一直读到与之匹配的{@link BencodeToken#END}为止。
+   *
+   * @throws IOException 底层输入流读取失败
+   * @since 0.1.1
+   */
+  public void skipValue() throws IOException {
+    if ((BencodeToken.START_LIST != token)
+        && (BencodeToken.START_DICT != token)) {
+      return;
+    }
+    int targetDepth = containers.depth() - 1;
+    while (containers.depth() > targetDepth) {
+      next();
+    }
+  }
+
+  /**
+   * <p>读取当前字符串的内容，只能在读到{@link BencodeToken#STRING}
+   * 或{@link BencodeToken#KEY}后调用一次。
+   *
+   * <p>结果数组随着实际读到的字节增长，不会根据长度前缀一次性分配，
+   * 以免被恶意的长度前缀耗尽内存。
+   *
+   * @return 字符串的内容
+   * @throws IOException 底层输入流读取失败
+   * @since 0.1.1
+   */
+  public byte[] readBytes() throws IOException {
+    if (((BencodeToken.STRING != token) && (BencodeToken.KEY != token))
+        || (stringRemaining != stringLength)) {
+      throw new IllegalStateException(
+          "No unread string at current position, token = " + token);
+    }
+    byte[] result = new byte[Math.min(stringLength, buffer.length)];
+    int copied = 0;
+    while (copied < stringLength) {
+      if ((pos == limit) && !fill()) {
+        throw formatError(
+            "Parsing string unfinished when reaching the end, "
+                + "starting pos = " + tokenPosition);
+      }
+      int n = Math.min(limit - pos, stringLength - copied);
+      if (copied + n > result.length) {
+        int capacity = Math.max(result.length * 2, copied + n);
+        result = Arrays.copyOf(result, Math.min(capacity, stringLength));
+      }
+      System.arraycopy(buffer, pos, result, copied, n);
+      pos += n;
+      copied += n;
+    }
+    stringRemaining = 0;
+    return result;
+  }
+
+  /**
+   * @return 当前词法单元
+   * @since 0.1.1
+   */
+  public BencodeToken getToken() {
+    return token;
+  }
+
+  /**
+   * @return 当前整数的值，只在读到{@link BencodeToken#INTEGER}后有效
+   * @since 0.1.1
+   */
+  public long getLong() {
+    return longValue;
+  }
+
+  /**
+   * @return 当前字符串内容的长度，只在读到{@link BencodeToken#STRING}
+   *         或{@link BencodeToken#KEY}后有效
+   * @since 0.1.1
+   */
+  public int getStringLength() {
+    return stringLength;
+  }
+
+  /**
+   * @return 当前词法单元在输入中的起始位置
+   * @since 0.1.1
+   */
+  public long getTokenPosition() {
+    return tokenPosition;
+  }
+
+  /**
+   * @return 已经从输入中消费的字节数
+   * @since 0.1.1
+   */
+  public long getPosition() {
+    return bufferStart + pos;
+  }
+
+  /**
+   * @return 当前所在的列表/字典的嵌套深度，顶层为0
+   * @since 0.1.1
+   */
+  public int getDepth() {
+    return containers.depth();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (null != in) {
+      in.close();
+    } else {
+      channel.close();
+    }
+  }
+
+  private void readNumber() throws IOException {
+    int current = read();
+    boolean isNagetive = false;
+    if ('-' == current) {
+      isNagetive = true;
+      current = read();
+    }
+    if (BNumber.SUFFIX == current) {
+      throw formatError(
+          "Numbers not found when parsing number, pos = " + tokenPosition);
+    }
+
+    long value = 0;
+    for (boolean hasDigits = false; BNumber.SUFFIX != current;
+        hasDigits = true) {
+      if (current < 0) {
+        throw formatError(
+            "Parsing number unfinished when reaching the end, "
+                + "starting pos = " + tokenPosition);
+      }
+      value = ValueScanner.appendDigit(value, hasDigits, current,
+          tokenPosition);
+      current = read();
+    }
+    longValue = ValueScanner.signedValue(isNagetive, value, tokenPosition);
+  }
+
+  private void readStringLength(int first) throws IOException {
+    long value = first - '0';
+    int current = read();
+    while (BString.DELIMITER != current) {
+      if (current < 0) {
+        throw formatError(
+            "Parsing string unfinished when reaching the end, "
+                + "starting pos = " + tokenPosition);
+      }
+      value = ValueScanner.appendLengthDigit(value, current, tokenPosition);
+      current = read();
+    }
+    stringLength = (int)value;
+    stringRemaining = stringLength;
+  }
+
+  private void skipString() throws IOException {
+    while (stringRemaining > 0) {
+      if ((pos == limit) && !fill()) {
+        throw formatError(
+            "Parsing string unfinished when reaching the end, "
+                + "starting pos = " + tokenPosition);
+      }
+      int n = Math.min(limit - pos, stringRemaining);
+      pos += n;
+      stringRemaining -= n;
+    }
+  }
+
+  private int read() throws IOException {
+    if ((pos == limit) && !fill()) {
+      return -1;
+    }
+    return buffer[pos++] & 0xFF;
+  }
+
+  /**
+   * <p>缓冲区已经读完时，从底层输入中重新填充缓冲区。
+   *
+   * @return 若已到达输入末尾，则返回false
+   */
+  private boolean fill() throws IOException {
+    if (eof) {
+      return false;
+    }
+    bufferStart += pos;
+    pos = 0;
+    limit = 0;
+    int n;
+    do {
+      if (null != in) {
+        n = in.read(buffer, 0, buffer.length);
+      } else {
+        n = channel.read(ByteBuffer.wrap(buffer));
+      }
+    } while (0 == n);
+    if (n < 0) {
+      eof = true;
+      return false;
+    }
+    limit = n;
+    return true;
+  }
+
+  private static boolean isDigit(int c) {
+    return (c >= '0') && (c <= '9');
+  }
+
+  private BEncodeFormatException formatError(String msg) {
+    logger.error(msg);
+    return new BEncodeFormatException(msg);
+  }
+}
@@ -0,0 +1,473 @@
+package bencode.parse;
+
+import java.util.Arrays;
+
+import bencode.type.BDictionary;
+import bencode.type.BList;
+import bencode.type.BNumber;
+import bencode.type.BString;
+import bencode.type.BType;
+
+/**
+ * <p>B编码数据的结构索引（tape），参考simdjson的两阶段解析。
+ *
+ * <p>第一阶段只顺序扫描一遍输入，按照先序遍历的顺序，将每个数据（包括字典的key）
+ * 的类型、起始位置、结束位置、下一个兄弟节点以及父节点记录在一个int数组中，
+ * 不创建任何对象，也不使用递归。之后可以通过{@link Cursor}在索引上导航，
+ * 跳到下一个兄弟节点或容器的结尾都是O(1)的，适合需要反复查询的只读场景。
+ *
+ * <p>字典的子节点是key和value交替排列的，key的下一个兄弟节点就是它的value。
+ *
+ * <p>建立索引后，调用方不能修改输入的数据。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public final class BencodeTape {
+
+  /**
+   * 数据的类型。
+   */
+  public enum Type {
+    INTEGER, STRING, LIST, DICTIONARY
+  }
+
+  private static final Type[] TYPES = Type.values();
+
+  /**
+   * 每个数据在tape中占用的int个数，依次为：起始位置、结束位置、
+   * 子树之后的下一个节点的序号、(父节点序号 + 1) &lt;&lt; 2 | 类型。
+   */
+  private static final int STRIDE = 4;
+
+  private final byte[] content;
+  private final int[] tape;
+  private final int size;
+
+  private BencodeTape(byte[] content, int[] tape, int size) {
+    this.content = content;
+    this.tape = tape;
+    this.size = size;
+  }
+
+  /**
+   * <p>为整个字节数组建立索引。
+   * @param content 待解析的内容
+   * @return        索引
+   * @since 0.1.1
+   */
+  public static BencodeTape build(final byte[] content) {
+    return build(content, 0, content.length);
+  }
+
+  /**
+   * <p>为字节数组中的一段建立索引，其中可以包含多个顶层数据。
+   * @param content 待解析的内容
+   * @param offset  起始位置
+   * @param length  长度
+   * @return        索引
+   * @since 0.1.1
+   */
+  public static BencodeTape build(
+      final byte[] content, int offset, int length) {
+    int limit = offset + length;
+    int[] tape = new int[STRIDE * 64];
+    int size = 0;
+    int[] stack = new int[16];
+    boolean[] expectKey = new boolean[16];
+    int depth = 0;
+
+    int i = offset;
+    while ((i < limit) || (depth > 0)) {
+      if (i >= limit) {
+        int start = tape[stack[depth - 1] * STRIDE];
+        throw ValueScanner.formatError(
+            "Parsing container unfinished when reaching the end, "
+                + "starting pos = " + start);
+      }
+      byte current = content[i];
+      if ((depth > 0) && (BList.SUFFIX == current)) {
+        if (!expectKey[depth - 1]) {
+          throw ValueScanner.formatError(
+              "Dictionary value not found, pos = " + i);
+        }
+        int container = stack[--depth];
+        tape[container * STRIDE + 1] = i + 1;
+        tape[container * STRIDE + 2] = size;
+        i++;
+        continue;
+      }
+
+      Type type;
+      int end;
+      switch (current) {
+        case BNumber.PREFIX: {
+          type = Type.INTEGER;
+          end = ValueScanner.numberEnd(content, i, limit);
+          break;
+        }
+
+        case BList.PREFIX: {
+          type = Type.LIST;
+          end = -1;
+          break;
+        }
+
+        case BDictionary.PREFIX: {
+          type = Type.DICTIONARY;
+          end = -1;
+          break;
+        }
+
+        default: {
+          if ((current < '0') || (current > '9')) {
+            throw ValueScanner.formatError(
+                "Unexpected char in bencode, when detemining bencode type, "
+                    + "char = " + (char)current + ", pos = " + i);
+          }
+          type = Type.STRING;
+          end = ValueScanner.stringEnd(content, i, limit);
+        }
+      }
+
+      if (depth > 0) {
+        int parentType = tape[stack[depth - 1] * STRIDE + 3] & 3;
+        if (Type.DICTIONARY.ordinal() == parentType) {
+          if (expectKey[depth - 1] && (Type.STRING != type)) {
+            throw ValueScanner.formatError(
+                "Dictionary key must be string, char = " + (char)current
+                    + ", pos = " + i);
+          }
+          expectKey[depth - 1] = !expectKey[depth - 1];
+        }
+      }
+
+      if ((size + 1) * STRIDE > tape.length) {
+        tape = Arrays.copyOf(tape, tape.length * 2);
+      }
+      int base = size * STRIDE;
+      int parent = (depth > 0) ? stack[depth - 1] : -1;
+      tape[base] = i;
+      tape[base + 1] = end;
+      tape[base + 2] = size + 1;
+      tape[base + 3] = ((parent + 1) << 2) | type.ordinal();
+
+      if (end < 0) {
+        if (depth == stack.length) {
+          stack = Arrays.copyOf(stack, depth * 2);
+          expectKey = Arrays.copyOf(expectKey, depth * 2);
+        }
+        stack[depth] = size;
+        expectKey[depth] = true;
+        depth++;
+        i++;
+      } else {
+        i = end;
+      }
+      size++;
+    }
+
+    return new BencodeTape(content, tape, size);
+  }
+
+  /**
+   * @return 索引中数据（包括字典的key）的个数
+   * @since 0.1.1
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return 建立索引的原始数据
+   * @since 0.1.1
+   */
+  public byte[] getContent() {
+    return content;
+  }
+
+  /**
+   * @param index 数据的序号
+   * @return      数据的类型
+   * @since 0.1.1
+   */
+  public Type type(int index) {
+    return TYPES[tape[index * STRIDE + 3] & 3];
+  }
+
+  /**
+   * @param index 数据的序号
+   * @return      数据在原始数据中的起始位置
+   * @since 0.1.1
+   */
+  public int start(int index) {
+    return tape[index * STRIDE];
+  }
+
+  /**
+   * @param index 数据的序号
+   * @return      数据结束后的下一个位置
+   * @since 0.1.1
+   */
+  public int end(int index) {
+    return tape[index * STRIDE + 1];
+  }
+
+  /**
+   * @param index 数据的序号
+   * @return      跳过该数据的所有子节点后的下一个节点的序号，
+   *              可能是它的下一个兄弟节点，也可能已经超出了父节点的范围
+   * @since 0.1.1
+   */
+  public int next(int index) {
+    return tape[index * STRIDE + 2];
+  }
+
+  /**
+   * @param index 数据的序号
+   * @return      父节点的序号，顶层数据返回-1
+   * @since 0.1.1
+   */
+  public int parent(int index) {
+    return (tape[index * STRIDE + 3] >>> 2) - 1;
+  }
+
+  /**
+   * @param index 整数的序号
+   * @return      整数的值
+   * @since 0.1.1
+   */
+  public long longValue(int index) {
+    checkType(index, Type.INTEGER);
+    return ValueScanner.numberValue(content, start(index));
+  }
+
+  /**
+   * @param index 字符串的序号
+   * @return      字符串的内容在原始数据中的起始位置
+   * @since 0.1.1
+   */
+  public int stringOffset(int index) {
+    checkType(index, Type.STRING);
+    return ValueScanner.stringContentStart(content, start(index));
+  }
+
+  /**
+   * @param index 字符串的序号
+   * @return      字符串的内容，是原始数据的切片
+   * @since 0.1.1
+   */
+  public BString stringValue(int index) {
+    int offset = stringOffset(index);
+    return new BString(content, offset, end(index) - offset);
+  }
+
+  /**
+   * <p>将某个数据及其子节点解析为B编码对象。
+   * @param index 数据的序号
+   * @return      解析出的数据
+   * @since 0.1.1
+   */
+  public BType<?> toBType(int index) {
+    TreeBuilder builder = new TreeBuilder();
+    new Parser().parseNext(content, start(index), builder);
+    return builder.getLastValue();
+  }
+
+  /**
+   * @return 指向第一个顶层数据的游标
+   * @since 0.1.1
+   */
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  /**
+   * <p>按照无符号字节比较字符串与key，不创建切片对象。
+   */
+  private int compareKey(int index, BString key) {
+    int offset = stringOffset(index);
+    int length = end(index) - offset;
+    int minLength = Math.min(length, key.length());
+    for (int i = 0; i < minLength; i++) {
+      int diff = (content[offset + i] & 0xFF) - (key.byteAt(i) & 0xFF);
+      if (0 != diff) {
+        return diff;
+      }
+    }
+    return length - key.length();
+  }
+
+  private void checkType(int index, Type expected) {
+    if (type(index) != expected) {
+      throw new IllegalStateException(
+          "Expected " + expected + " but was " + type(index)
+              + ", index = " + index);
+    }
+  }
+
+  /**
+   * <p>在索引上导航的游标，移动游标不会创建任何对象。
+   * 游标不是线程安全的，但同一个索引可以同时使用多个游标。
+   *
+   * @since 0.1.1
+   */
+  public final class Cursor {
+
+    private int index;
+
+    private Cursor() {
+    }
+
+    /**
+     * @return 当前数据的序号
+     */
+    public int index() {
+      return index;
+    }
+
+    /**
+     * @return 当前数据的类型
+     */
+    public Type type() {
+      return BencodeTape.this.type(index);
+    }
+
+    /**
+     * @return 当前数据在原始数据中的起始位置
+     */
+    public int start() {
+      return BencodeTape.this.start(index);
+    }
+
+    /**
+     * @return 当前数据结束后的下一个位置
+     */
+    public int end() {
+      return BencodeTape.this.end(index);
+    }
+
+    /**
+     * @return 当前整数的值
+     */
+    public long longValue() {
+      return BencodeTape.this.longValue(index);
+    }
+
+    /**
+     * @return 当前字符串的内容，是原始数据的切片
+     */
+    public BString stringValue() {
+      return BencodeTape.this.stringValue(index);
+    }
+
+    /**
+     * @return 当前数据解析出的B编码对象
+     */
+    public BType<?> toBType() {
+      return BencodeTape.this.toBType(index);
+    }
+
+    /**
+     * <p>移动到指定序号的数据。
+     * @param target 数据的序号
+     * @return 当前游标
+     */
+    public Cursor moveTo(int target) {
+      if ((target < 0) || (target >= size)) {
+        throw new IndexOutOfBoundsException(
+            "index = " + target + ", size = " + size);
+      }
+      this.index = target;
+      return this;
+    }
+
+    /**
+     * <p>移动到第一个子节点。
+     * @return 若当前数据不是容器或容器为空，则返回false且不移动
+     */
+    public boolean firstChild() {
+      Type type = type();
+      if (((Type.LIST != type) && (Type.DICTIONARY != type))
+          || (BencodeTape.this.next(index) == index + 1)) {
+        return false;
+      }
+      index++;
+      return true;
+    }
+
+    /**
+     * <p>跳过当前数据的所有子节点，移动到下一个兄弟节点。
+     * @return 若没有下一个兄弟节点，则返回false且不移动
+     */
+    public boolean nextSibling() {
+      int sibling = BencodeTape.this.next(index);
+      if ((sibling >= size) || (BencodeTape.this.parent(sibling)
+              != BencodeTape.this.parent(index))) {
+        return false;
+      }
+      index = sibling;
+      return true;
+    }
+
+    /**
+     * <p>移动到父节点。
+     * @return 若当前数据是顶层数据，则返回false且不移动
+     */
+    public boolean parent() {
+      int parent = BencodeTape.this.parent(index);
+      if (parent < 0) {
+        return false;
+      }
+      index = parent;
+      return true;
+    }
+
+    /**
+     * <p>当前数据是字典时，移动到key对应的value。由于key是有序的，
+     * 越过目标key后就停止查找。
+     * @param key 要查找的key
+     * @return    若找不到key，则返回false且不移动
+     */
+    public boolean get(BString key) {
+      if (Type.DICTIONARY != type()) {
+        return false;
+      }
+      int end = BencodeTape.this.next(index);
+      int k = index + 1;
+      while (k < end) {
+        int value = BencodeTape.this.next(k);
+        int cmp = compareKey(k, key);
+        if (0 == cmp) {
+          index = value;
+          return true;
+        } else if (cmp > 0) {
+          break;
+        }
+        k = BencodeTape.this.next(value);
+      }
+      return false;
+    }
+
+    /**
+     * <p>当前数据是列表时，移动到指定位置的元素。
+     * @param position 元素在列表中的位置
+     * @return         若位置超出范围，则返回false且不移动
+     */
+    public boolean get(int position) {
+      if ((Type.LIST != type()) || (position < 0)) {
+        return false;
+      }
+      int end = BencodeTape.this.next(index);
+      int k = index + 1;
+      for (int i = 0; (i < position) && (k < end); i++) {
+        k = BencodeTape.this.next(k);
+      }
+      if (k >= end) {
+        return false;
+      }
+      index = k;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package bencode.parse;
+
+/**
+ * <p>{@link BencodeReader}逐个读出的词法单元类型。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public enum BencodeToken {
+
+  /**
+   * 字典开始，即前缀'd'。
+   */
+  START_DICT,
+
+  /**
+   * 列表开始，即前缀'l'。
+   */
+  START_LIST,
+
+  /**
+   * 字典中的key，key必然是字符串。
+   */
+  KEY,
+
+  /**
+   * 字符串的值（字典中的key除外）。
+   */
+  STRING,
+
+  /**
+   * 整数的值。
+   */
+  INTEGER,
+
+  /**
+   * 列表或字典结束，即后缀'e'。
+   */
+  END,
+
+  /**
+   * 输入已经全部读完。
+   */
+  END_OF_INPUT
+}
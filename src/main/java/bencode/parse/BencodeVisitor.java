@@ -0,0 +1,114 @@
+package bencode.parse;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>B编码的事件回调接口（类似SAX）。
+ *
+ * <p>{@link Parser}在解析过程中按照数据出现的顺序回调该接口，
+ * 不会创建任何{@link bencode.type.BType}对象。若只需要统计或汇总数据，
+ * 实现该接口即可避免为每个节点分配内存。构建B编码对象树的逻辑
+ * 也只是该接口的一个实现，参见{@link TreeBuilder}。
+ *
+ * <p>所有方法都有空的默认实现，只需覆盖关心的事件即可。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public interface BencodeVisitor {
+
+  /**
+   * 解析出一个整数。
+   * @param value 整数的值
+   * @since 0.1.1
+   */
+  default void visitInteger(long value) {
+  }
+
+  /**
+   * <p>解析出一个字符串（字典中的key除外）。
+   *
+   * <p>buf是解析器的输入，回调返回后其内容可能会被复用，
+   * 若需要保留字符串，则应自行复制。
+   * @param buf     字符串所在的字节数组
+   * @param offset  字符串内容在buf中的起始位置
+   * @param length  字符串内容的长度
+   * @since 0.1.1
+   */
+  default void visitString(byte[] buf, int offset, int length) {
+  }
+
+  /**
+   * <p>解析{@link ByteBuffer}时，解析出一个字符串（字典中的key除外）。
+   *
+   * <p>默认实现将内容复制到新的字节数组中，
+   * 再调用{@link #visitString(byte[], int, int)}。
+   * @param buf     字符串所在的缓冲区
+   * @param offset  字符串内容在buf中的绝对起始位置
+   * @param length  字符串内容的长度
+   * @since 0.1.1
+   */
+  default void visitString(ByteBuffer buf, int offset, int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buf.get(offset + i);
+    }
+    visitString(bytes, 0, length);
+  }
+
+  /**
+   * 开始解析列表。
+   * @since 0.1.1
+   */
+  default void beginList() {
+  }
+
+  /**
+   * 列表解析结束。
+   * @since 0.1.1
+   */
+  default void endList() {
+  }
+
+  /**
+   * 开始解析字典。
+   * @since 0.1.1
+   */
+  default void beginDict() {
+  }
+
+  /**
+   * <p>解析出字典中的key，紧接着的下一个事件就是该key对应的值。
+   * @param buf     key所在的字节数组
+   * @param offset  key的内容在buf中的起始位置
+   * @param length  key的内容的长度
+   * @since 0.1.1
+   */
+  default void visitKey(byte[] buf, int offset, int length) {
+  }
+
+  /**
+   * <p>解析{@link ByteBuffer}时，解析出字典中的key。
+   *
+   * <p>默认实现将内容复制到新的字节数组中，
+   * 再调用{@link #visitKey(byte[], int, int)}。
+   * @param buf     key所在的缓冲区
+   * @param offset  key的内容在buf中的绝对起始位置
+   * @param length  key的内容的长度
+   * @since 0.1.1
+   */
+  default void visitKey(ByteBuffer buf, int offset, int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buf.get(offset + i);
+    }
+    visitKey(bytes, 0, length);
+  }
+
+  /**
+   * 字典解析结束。
+   * @since 0.1.1
+   */
+  default void endDict() {
+  }
+}
@@ -0,0 +1,161 @@
+package bencode.parse;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>只读的、可随机访问的输入数据，使同一份扫描和校验逻辑可以同时用于
+ * 字节数组、{@link ByteBuffer}以及由多个缓冲区首尾相连组成的数据。
+ *
+ * <p>所有位置都是绝对位置，并且使用long表示，读取时不会修改缓冲区的position。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+abstract class ByteInput {
+
+  private static final byte[] EMPTY = new byte[0];
+
+  /**
+   * @param pos 位置
+   * @return    该位置的字节
+   */
+  abstract byte get(long pos);
+
+  /**
+   * <p>回调字符串的内容，若是字典的key，则回调
+   * {@link BencodeVisitor#visitKey}，否则回调{@link BencodeVisitor#visitString}。
+   * 内容尽量直接引用输入，不复制。
+   * @param start   字符串内容的起始位置
+   * @param length  字符串内容的长度
+   * @param visitor 接收解析事件的回调
+   * @param isKey   是否是字典中的key
+   */
+  abstract void visitString(
+      long start, int length, BencodeVisitor visitor, boolean isKey);
+
+  /**
+   * @param content 字节数组
+   * @return        读取该数组的输入
+   */
+  static ByteInput of(final byte[] content) {
+    return new ArrayInput(content);
+  }
+
+  /**
+   * @param content 缓冲区
+   * @return        读取该缓冲区的输入
+   */
+  static ByteInput of(final ByteBuffer content) {
+    return new BufferInput(content);
+  }
+
+  /**
+   * <p>数据由多个缓冲区首尾相连组成（例如超过2GB的文件映射出的多个
+   * {@link java.nio.MappedByteBuffer}），
+   * 除最后一个以外，每个缓冲区的大小都必须是2的segmentShift次方。
+   * @param segments     首尾相连的各个缓冲区
+   * @param segmentShift 每个缓冲区的大小为2的segmentShift次方（最后一个除外）
+   * @return             读取这些缓冲区的输入
+   */
+  static ByteInput of(final ByteBuffer[] segments, int segmentShift) {
+    return new SegmentedInput(segments, segmentShift);
+  }
+
+  private static final class ArrayInput extends ByteInput {
+
+    private final byte[] content;
+
+    ArrayInput(byte[] content) {
+      this.content = content;
+    }
+
+    @Override
+    byte get(long pos) {
+      return content[(int)pos];
+    }
+
+    @Override
+    void visitString(
+        long start, int length, BencodeVisitor visitor, boolean isKey) {
+      if (isKey) {
+        visitor.visitKey(content, (int)start, length);
+      } else {
+        visitor.visitString(content, (int)start, length);
+      }
+    }
+  }
+
+  private static final class BufferInput extends ByteInput {
+
+    private final ByteBuffer content;
+
+    BufferInput(ByteBuffer content) {
+      this.content = content;
+    }
+
+    @Override
+    byte get(long pos) {
+      return content.get((int)pos);
+    }
+
+    @Override
+    void visitString(
+        long start, int length, BencodeVisitor visitor, boolean isKey) {
+      if (isKey) {
+        visitor.visitKey(content, (int)start, length);
+      } else {
+        visitor.visitString(content, (int)start, length);
+      }
+    }
+  }
+
+  private static final class SegmentedInput extends ByteInput {
+
+    private final ByteBuffer[] segments;
+    private final int segmentShift;
+    private final long segmentMask;
+
+    SegmentedInput(ByteBuffer[] segments, int segmentShift) {
+      this.segments = segments;
+      this.segmentShift = segmentShift;
+      this.segmentMask = (1L << segmentShift) - 1;
+    }
+
+    @Override
+    byte get(long pos) {
+      return segments[(int)(pos >>> segmentShift)]
+          .get((int)(pos & segmentMask));
+    }
+
+    /**
+     * <p>字符串位于同一个缓冲区中时直接回调该缓冲区，
+     * 否则复制到新的字节数组中。
+     */
+    @Override
+    void visitString(
+        long start, int length, BencodeVisitor visitor, boolean isKey) {
+      int segment = (int)(start >>> segmentShift);
+      if ((length > 0)
+          && (segment == (int)((start + length - 1) >>> segmentShift))) {
+        ByteBuffer buf = segments[segment];
+        int offset = (int)(start & segmentMask);
+        if (isKey) {
+          visitor.visitKey(buf, offset, length);
+        } else {
+          visitor.visitString(buf, offset, length);
+        }
+        return;
+      }
+
+      byte[] bytes = (0 == length) ? EMPTY : new byte[length];
+      for (int i = 0; i < length; i++) {
+        bytes[i] = get(start + i);
+      }
+      if (isKey) {
+        visitor.visitKey(bytes, 0, length);
+      } else {
+        visitor.visitString(bytes, 0, length);
+      }
+    }
+  }
+}
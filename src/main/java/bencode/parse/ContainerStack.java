@@ -0,0 +1,95 @@
+package bencode.parse;
+
+import java.util.Arrays;
+
+import bencode.type.BList;
+
+/**
+ * <p>流式解码时，记录当前所在的各层列表和字典，并校验它们的结构：
+ * 字典中的key必须是字符串，每个key之后必须有value，
+ * 后缀'e'只能出现在容器中。
+ *
+ * <p>{@link IncrementalDecoder}和{@link BencodeReader}共用这份规则。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+final class ContainerStack {
+
+  private static final byte IN_LIST = 1;
+  private static final byte IN_DICT_KEY = 2;
+  private static final byte IN_DICT_VALUE = 3;
+
+  private byte[] stack = new byte[16];
+  private int depth;
+
+  /**
+   * @return 当前的嵌套深度，顶层为0
+   */
+  int depth() {
+    return depth;
+  }
+
+  /**
+   * <p>开始一个列表或字典。
+   * @param isDict 是否是字典
+   */
+  void push(boolean isDict) {
+    if (depth == stack.length) {
+      stack = Arrays.copyOf(stack, depth * 2);
+    }
+    stack[depth++] = isDict ? IN_DICT_KEY : IN_LIST;
+  }
+
+  /**
+   * <p>读到后缀'e'时结束当前的容器。
+   * @param pos 用于错误信息的位置
+   * @return    结束的是否是字典
+   */
+  boolean pop(long pos) {
+    byte state = (depth > 0) ? stack[depth - 1] : 0;
+    if ((0 == depth) || (IN_DICT_VALUE == state)) {
+      throw ValueScanner.formatError(
+          "Unexpected char in bencode, char = " + BList.SUFFIX
+              + ", pos = " + pos);
+    }
+    depth--;
+    return IN_DICT_KEY == state;
+  }
+
+  /**
+   * <p>读到一个新数据的第一个字节时调用，若当前位置应该是字典的key，
+   * 则校验它是字符串，并将字典的状态改为等待value。
+   * @param current 数据的第一个字节
+   * @param pos     用于错误信息的位置
+   * @return        该数据是否是字典的key
+   */
+  boolean startValue(int current, long pos) {
+    if ((0 == depth) || (IN_DICT_KEY != stack[depth - 1])) {
+      return false;
+    }
+    if ((current < '0') || (current > '9')) {
+      throw ValueScanner.formatError(
+          "Dictionary key must be string, char = " + (char)current
+              + ", pos = " + pos);
+    }
+    stack[depth - 1] = IN_DICT_VALUE;
+    return true;
+  }
+
+  /**
+   * <p>某个数据（不包括key）解析完成后，更新所在容器的状态。
+   */
+  void valueFinished() {
+    if ((depth > 0) && (IN_DICT_VALUE == stack[depth - 1])) {
+      stack[depth - 1] = IN_DICT_KEY;
+    }
+  }
+
+  /**
+   * <p>丢弃所有容器。
+   */
+  void clear() {
+    depth = 0;
+  }
+}
@@ -0,0 +1,374 @@
+package bencode.parse;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import bencode.exception.BEncodeFormatException;
+import bencode.type.BDictionary;
+import bencode.type.BList;
+import bencode.type.BNumber;
+import bencode.type.BString;
+import bencode.type.BType;
+
+/**
+ * <p>可恢复的增量解码器，以推送（push）的方式接收任意分片的输入。
+ *
+ * <p>适用于从网络中分片到达的数据，如DHT的KRPC消息、BEP 10的扩展消息等。
+ * 每次调用{@link #feed(ByteBuffer)}时，解码器从上一次停止的状态继续解析，
+ * 已经消费的字节不会被重新扫描。输入不完整时返回
+ * {@link Status#NEED_MORE_INPUT}，而不是像{@link Parser}那样抛出异常。
+ *
+ * <p>典型的用法如下：
+ * <pre>
+ * while (decoder.feed(buffer) == IncrementalDecoder.Status.VALUE_READY) {
+ *   handle(decoder.getValue());
+ * }
+ * </pre>
+ *
+ * <p>格式错误时抛出{@link BEncodeFormatException}，此后解码器的状态是未定义的，
+ * 需要调用{@link #reset()}后才能继续使用。该类不是线程安全的。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public final class IncrementalDecoder {
+
+  private static Logger logger =
+      LoggerFactory.getLogger(IncrementalDecoder.class);
+
+  /**
+   * {@link IncrementalDecoder#feed(ByteBuffer)}的结果。
+   */
+  public enum Status {
+    /** 输入已经全部消费，但还没有解析出完整的顶层数据 */
+    NEED_MORE_INPUT,
+    /** 解析出了一个完整的顶层数据，输入中可能还有未消费的字节 */
+    VALUE_READY
+  }
+
+  private static final int VALUE = 0;
+  private static final int NUMBER_SIGN = 1;
+  private static final int NUMBER_FIRST = 2;
+  private static final int NUMBER_DIGITS = 3;
+  private static final int STRING_LENGTH = 4;
+  private static final int STRING_BODY = 5;
+
+  private final BencodeVisitor customVisitor;
+  private BencodeVisitor visitor;
+  private TreeBuilder builder;
+  private BType<?> value;
+
+  private final ContainerStack containers = new ContainerStack();
+
+  private int state = VALUE;
+  private long position;
+  private long tokenPosition;
+  private long longValue;
+  private boolean isNagetive;
+  private boolean isKey;
+  private int stringLength;
+  private byte[] pending = new byte[0];
+  private int pendingLength;
+
+  /**
+   * <p>将解析出的顶层数据构建为B编码对象，通过{@link #getValue()}获取。
+   * @since 0.1.1
+   */
+  public IncrementalDecoder() {
+    this.customVisitor = null;
+    this.builder = new TreeBuilder();
+    this.visitor = builder;
+  }
+
+  /**
+   * <p>将解析事件依次回调给visitor，不创建B编码对象。
+   * 字符串跨越多次输入时，内容会被复制到内部的缓冲区中再回调。
+   * @param visitor 接收解析事件的回调
+   * @since 0.1.1
+   */
+  public IncrementalDecoder(BencodeVisitor visitor) {
+    this.customVisitor = visitor;
+    this.visitor = visitor;
+  }
+
+  /**
+   * <p>从input的position开始消费输入，直到解析出一个完整的顶层数据，
+   * 或者input中的字节全部被消费。
+   *
+   * <p>返回{@link Status#VALUE_READY}时，input的position位于该数据之后，
+   * 剩余的字节需要再次调用本方法继续解析。input中的内容被消费后，
+   * 调用方可以复用该缓冲区。
+   *
+   * @param input 新到达的输入
+   * @return      解析的状态
+   * @since 0.1.1
+   */
+  public Status feed(ByteBuffer input) {
+    if ((0 == containers.depth()) && (VALUE == state)) {
+      value = null;
+    }
+    while (input.hasRemaining()) {
+      if (STRING_BODY == state) {
+        if (readStringBody(input) && valueFinished()) {
+          return Status.VALUE_READY;
+        }
+        continue;
+      }
+
+      byte current = input.get();
+      position++;
+      boolean finished;
+      switch (state) {
+        case VALUE: {
+          finished = startToken(current);
+          break;
+        }
+
+        case NUMBER_SIGN: {
+          if ('-' == current) {
+            isNagetive = true;
+            state = NUMBER_FIRST;
+            finished = false;
+            break;
+          }
+          state = NUMBER_FIRST;
+          finished = readNumber(current);
+          break;
+        }
+
+        case NUMBER_FIRST:
+        case NUMBER_DIGITS: {
+          finished = readNumber(current);
+          break;
+        }
+
+        default: {
+          finished = readStringLength(current);
+        }
+      }
+      if (finished && valueFinished()) {
+        return Status.VALUE_READY;
+      }
+    }
+    return Status.NEED_MORE_INPUT;
+  }
+
+  /**
+   * @return 最后一次返回{@link Status#VALUE_READY}时解析出的顶层数据，
+   *         使用自定义的visitor时总是返回null
+   * @since 0.1.1
+   */
+  public BType<?> getValue() {
+    return value;
+  }
+
+  /**
+   * @return 是否已经消费了某个顶层数据的一部分，但还没有解析完成。
+   *         输入结束时若返回true，则说明输入被截断了
+   * @since 0.1.1
+   */
+  public boolean hasPartialValue() {
+    return (containers.depth() > 0) || (VALUE != state);
+  }
+
+  /**
+   * @return 已经消费的字节数
+   * @since 0.1.1
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  /**
+   * <p>丢弃尚未解析完成的数据，使解码器可以重新开始解析。
+   * @since 0.1.1
+   */
+  public void reset() {
+    containers.clear();
+    state = VALUE;
+    value = null;
+    pendingLength = 0;
+    if (null == customVisitor) {
+      builder = new TreeBuilder();
+      visitor = builder;
+    }
+  }
+
+  /**
+   * @return 当前数据是否已经解析完成
+   */
+  private boolean startToken(byte current) {
+    tokenPosition = position - 1;
+    if (BList.SUFFIX == current) {
+      if (containers.pop(tokenPosition)) {
+        visitor.endDict();
+      } else {
+        visitor.endList();
+      }
+      return true;
+    }
+
+    if (containers.startValue(current, tokenPosition)) {
+      isKey = true;
+      longValue = current - '0';
+      state = STRING_LENGTH;
+      return false;
+    }
+
+    switch (current) {
+      case BNumber.PREFIX: {
+        isNagetive = false;
+        longValue = 0;
+        state = NUMBER_SIGN;
+        return false;
+      }
+
+      case BList.PREFIX: {
+        containers.push(false);
+        visitor.beginList();
+        return false;
+      }
+
+      case BDictionary.PREFIX: {
+        containers.push(true);
+        visitor.beginDict();
+        return false;
+      }
+
+      default: {
+        if ((current < '0') || (current > '9')) {
+          throw formatError(
+              "Unexpected char in bencode, when detemining bencode type, "
+                  + "char = " + (char)current + ", pos = " + tokenPosition);
+        }
+        isKey = false;
+        longValue = current - '0';
+        state = STRING_LENGTH;
+        return false;
+      }
+    }
+  }
+
+  /**
+   * @return 整数是否已经解析完成
+   */
+  private boolean readNumber(byte current) {
+    if (BNumber.SUFFIX == current) {
+      if (NUMBER_FIRST == state) {
+        throw formatError(
+            "Numbers not found when parsing number, pos = " + tokenPosition);
+      }
+      state = VALUE;
+      visitor.visitInteger(
+          ValueScanner.signedValue(isNagetive, longValue, tokenPosition));
+      return true;
+    }
+    longValue = ValueScanner.appendDigit(
+        longValue, NUMBER_DIGITS == state, current, position - 1);
+    state = NUMBER_DIGITS;
+    return false;
+  }
+
+  /**
+   * @return 字符串是否已经解析完成，只有空字符串会在这里完成
+   */
+  private boolean readStringLength(byte current) {
+    if (BString.DELIMITER == current) {
+      stringLength = (int)longValue;
+      pendingLength = 0;
+      if (0 == stringLength) {
+        state = VALUE;
+        visitString(pending, 0, 0);
+        return true;
+      }
+      state = STRING_BODY;
+      return false;
+    }
+    longValue =
+        ValueScanner.appendLengthDigit(longValue, current, position - 1);
+    return false;
+  }
+
+  /**
+   * <p>字符串的内容全部在input中时，直接回调input中的内容，不复制；
+   * 否则复制到内部的缓冲区中，缓冲区按照实际到达的字节数增长，
+   * 不会根据长度前缀一次性分配，以免被恶意的长度前缀耗尽内存。
+   *
+   * @return 字符串是否已经解析完成
+   */
+  private boolean readStringBody(ByteBuffer input) {
+    int start = input.position();
+    int available = input.remaining();
+    int needed = stringLength - pendingLength;
+    if ((0 == pendingLength) && (available >= needed)) {
+      ((Buffer)input).position(start + needed);
+      position += needed;
+      state = VALUE;
+      visitString(input, start, needed);
+      return true;
+    }
+
+    int n = Math.min(available, needed);
+    if (pendingLength + n > pending.length) {
+      int capacity = Math.max(pending.length * 2, pendingLength + n);
+      pending = Arrays.copyOf(pending, Math.min(capacity, stringLength));
+    }
+    input.get(pending, pendingLength, n);
+    pendingLength += n;
+    position += n;
+    if (pendingLength < stringLength) {
+      return false;
+    }
+    state = VALUE;
+    visitString(pending, 0, stringLength);
+    pendingLength = 0;
+    return true;
+  }
+
+  private void visitString(byte[] buf, int offset, int length) {
+    if (isKey) {
+      visitor.visitKey(buf, offset, length);
+    } else {
+      visitor.visitString(buf, offset, length);
+    }
+  }
+
+  private void visitString(ByteBuffer buf, int offset, int length) {
+    if (isKey) {
+      visitor.visitKey(buf, offset, length);
+    } else {
+      visitor.visitString(buf, offset, length);
+    }
+  }
+
+  /**
+   * <p>某个数据（不包括key）解析完成后更新所在容器的状态。
+   *
+   * @return 是否解析出了一个完整的顶层数据
+   */
+  private boolean valueFinished() {
+    if (isKey) {
+      isKey = false;
+      return false;
+    }
+    if (containers.depth() > 0) {
+      containers.valueFinished();
+      return false;
+    }
+    if (null == customVisitor) {
+      value = builder.getLastValue();
+      builder = new TreeBuilder();
+      visitor = builder;
+    }
+    return true;
+  }
+
+  private BEncodeFormatException formatError(String msg) {
+    logger.error(msg);
+    return new BEncodeFormatException(msg);
+  }
+}
@@ -0,0 +1,302 @@
+package bencode.parse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import bencode.exception.BEncodeFormatException;
+import bencode.type.BDictionary;
+import bencode.type.BList;
+
+/**
+ * <p>直接在原始字节上计算种子文件的info-hash。
+ *
+ * <p>摘要是对"info"（或其他指定的key）对应的value在输入中的原始字节计算的，
+ * 不需要先解析为{@link BDictionary}再重新编码，
+ * 因此即使输入不是规范的B编码（如key无序），得到的结果也与其他客户端一致。
+ *
+ * <p>BitTorrent v1使用SHA-1，v2（BEP 52）使用SHA-256。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public final class InfoHash {
+
+  private static Logger logger = LoggerFactory.getLogger(InfoHash.class);
+
+  public static final String SHA_1 = "SHA-1";
+  public static final String SHA_256 = "SHA-256";
+  public static final String INFO_KEY = "info";
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private InfoHash() {
+  }
+
+  /**
+   * @param torrent 种子文件的内容
+   * @return        BitTorrent v1的info-hash，没有info时返回null
+   * @since 0.1.1
+   */
+  public static byte[] sha1(final byte[] torrent) {
+    return digest(torrent, 0, INFO_KEY, SHA_1);
+  }
+
+  /**
+   * @param torrent 种子文件的内容
+   * @return        BitTorrent v2的info-hash，没有info时返回null
+   * @since 0.1.1
+   */
+  public static byte[] sha256(final byte[] torrent) {
+    return digest(torrent, 0, INFO_KEY, SHA_256);
+  }
+
+  /**
+   * <p>计算顶层字典中key对应的value的原始字节的摘要。
+   *
+   * <p>为了兼容不规范的输入，查找key时不依赖key的顺序，
+   * 不匹配的value只会被跳过。
+   *
+   * @param content   待解析的内容
+   * @param offset    顶层字典在content中的起始位置
+   * @param key       顶层字典中的key，如{@link #INFO_KEY}
+   * @param algorithm 摘要算法，如{@link #SHA_1}
+   * @return          摘要，找不到key时返回null
+   * @throws IllegalArgumentException 不支持该摘要算法
+   * @since 0.1.1
+   */
+  public static byte[] digest(final byte[] content, int offset,
+      String key, String algorithm) {
+    int[] span = findValue(content, offset, key);
+    if (null == span) {
+      return null;
+    }
+    MessageDigest digest = newDigest(algorithm);
+    digest.update(content, span[0], span[1] - span[0]);
+    return digest.digest();
+  }
+
+  /**
+   * <p>查找顶层字典中key对应的value在content中的位置。
+   * @param content 待解析的内容
+   * @param offset  顶层字典在content中的起始位置
+   * @param key     顶层字典中的key
+   * @return        value的起始位置和结束后的下一个位置，
+   *                顶层数据不是字典或找不到key时返回null
+   * @since 0.1.1
+   */
+  public static int[] findValue(final byte[] content, int offset, String key) {
+    byte[] target = key.getBytes(UTF_8);
+    int limit = content.length;
+    if ((offset < limit) && (BDictionary.PREFIX != content[offset])) {
+      ValueScanner.skip(content, offset, limit);
+      return null;
+    }
+    int i = offset + 1;
+    while ((i < limit) && (BList.SUFFIX != content[i])) {
+      int keyEnd = ValueScanner.stringEnd(content, i, limit);
+      int keyStart = ValueScanner.stringContentStart(content, i);
+      int valueEnd = ValueScanner.skip(content, keyEnd, limit);
+      if (equals(content, keyStart, keyEnd, target)) {
+        return new int[] {keyEnd, valueEnd};
+      }
+      i = valueEnd;
+    }
+    if (i >= limit) {
+      logger.error(
+          "Parsing dictionary unfinished when reaching the end, "
+              + "starting pos = {}", offset);
+      throw new BEncodeFormatException(
+          "Parsing dictionary unfinished when reaching the end, "
+              + "starting pos = " + offset);
+    }
+    return null;
+  }
+
+  /**
+   * <p>从输入流中读取一个顶层字典，同时计算其中key对应的value的摘要。
+   *
+   * <p>value的原始字节在解析的同时被送入各个摘要，只扫描一遍输入，
+   * 不需要缓存整个文件，也不会重新编码。
+   * 输入是按块读取的，顶层字典之后的部分数据也可能已经被读取并丢弃，
+   * 因此调用之后不应再从in中读取其他数据。
+   *
+   * @param in         输入流
+   * @param key        顶层字典中的key，如{@link #INFO_KEY}
+   * @param algorithms 摘要算法，可以同时计算多种摘要
+   * @return           与algorithms一一对应的摘要，找不到key时返回null
+   * @throws IOException 读取输入流失败
+   * @throws IllegalArgumentException 不支持某个摘要算法
+   * @since 0.1.1
+   */
+  public static byte[][] digest(InputStream in, String key,
+      String... algorithms) throws IOException {
+    MessageDigest[] digests = new MessageDigest[algorithms.length];
+    for (int i = 0; i < algorithms.length; i++) {
+      digests[i] = newDigest(algorithms[i]);
+    }
+
+    SpanFinder finder = new SpanFinder(key.getBytes(UTF_8));
+    IncrementalDecoder decoder = new IncrementalDecoder(finder);
+    finder.decoder = decoder;
+
+    byte[] buffer = new byte[BUFFER_SIZE];
+    IncrementalDecoder.Status status;
+    do {
+      int n = in.read(buffer);
+      if (n < 0) {
+        logger.error(
+            "Parsing value unfinished when reaching the end, pos = {}",
+            decoder.getPosition());
+        throw new BEncodeFormatException(
+            "Parsing value unfinished when reaching the end, pos = "
+                + decoder.getPosition());
+      }
+      long chunkStart = decoder.getPosition();
+      status = decoder.feed(ByteBuffer.wrap(buffer, 0, n));
+      long chunkEnd = decoder.getPosition();
+
+      if (finder.start >= 0) {
+        long from = Math.max(chunkStart, finder.start);
+        long to =
+            (finder.end >= 0) ? Math.min(chunkEnd, finder.end) : chunkEnd;
+        if (from < to) {
+          for (MessageDigest digest : digests) {
+            digest.update(
+                buffer, (int)(from - chunkStart), (int)(to - from));
+          }
+        }
+      }
+    } while (IncrementalDecoder.Status.VALUE_READY != status);
+
+    if (finder.start < 0) {
+      return null;
+    }
+    byte[][] result = new byte[digests.length][];
+    for (int i = 0; i < digests.length; i++) {
+      result[i] = digests[i].digest();
+    }
+    return result;
+  }
+
+  private static boolean equals(
+      final byte[] content, int start, int end, byte[] target) {
+    if (end - start != target.length) {
+      return false;
+    }
+    for (int i = 0; i < target.length; i++) {
+      if (content[start + i] != target[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static MessageDigest newDigest(String algorithm) {
+    try {
+      return MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalArgumentException(
+          "Unsupported digest algorithm, algorithm = " + algorithm, e);
+    }
+  }
+
+  /**
+   * <p>根据解析事件记录顶层字典中某个key对应的value在输入中的位置。
+   * 字符串的内容不会被复制。
+   */
+  private static final class SpanFinder implements BencodeVisitor {
+
+    private final byte[] key;
+    private IncrementalDecoder decoder;
+    private int depth;
+    private boolean matched;
+    private long start = -1;
+    private long end = -1;
+
+    SpanFinder(byte[] key) {
+      this.key = key;
+    }
+
+    @Override
+    public void visitInteger(long value) {
+      valueFinished();
+    }
+
+    @Override
+    public void visitString(byte[] buf, int offset, int length) {
+      valueFinished();
+    }
+
+    @Override
+    public void visitString(ByteBuffer buf, int offset, int length) {
+      valueFinished();
+    }
+
+    @Override
+    public void beginList() {
+      depth++;
+    }
+
+    @Override
+    public void endList() {
+      depth--;
+      valueFinished();
+    }
+
+    @Override
+    public void beginDict() {
+      depth++;
+    }
+
+    @Override
+    public void visitKey(byte[] buf, int offset, int length) {
+      if ((1 == depth) && (start < 0) && (length == key.length)) {
+        for (int i = 0; i < length; i++) {
+          if (buf[offset + i] != key[i]) {
+            return;
+          }
+        }
+        keyMatched();
+      }
+    }
+
+    @Override
+    public void visitKey(ByteBuffer buf, int offset, int length) {
+      if ((1 == depth) && (start < 0) && (length == key.length)) {
+        for (int i = 0; i < length; i++) {
+          if (buf.get(offset + i) != key[i]) {
+            return;
+          }
+        }
+        keyMatched();
+      }
+    }
+
+    @Override
+    public void endDict() {
+      depth--;
+      valueFinished();
+    }
+
+    private void keyMatched() {
+      matched = true;
+      start = decoder.getPosition();
+    }
+
+    private void valueFinished() {
+      if (matched && (1 == depth)) {
+        matched = false;
+        end = decoder.getPosition();
+      }
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package bencode.parse;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import bencode.type.BString;
+
+/**
+ * <p>字典key的常量池，使内容相同的key共享同一个不可修改的{@link BString}实例。
+ *
+ * <p>多文件种子和续传文件中，"length"、"path"等key会重复出现成千上万次，
+ * 使用常量池后这些key只需要创建一次，并且相同的key比较时可以直接比较引用。
+ * 通过{@link Parser#setKeyPool(KeyPool)}启用。
+ *
+ * <p>常量池的大小是固定的：根据内容的哈希值直接映射到某个槽位，
+ * 冲突时新的key会替换旧的key，因此不会无限增长。
+ * 超过最大长度的key不会被放入常量池。
+ *
+ * <p>该类是线程安全的，可以被多个解析器共享，查找时不加锁。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public final class KeyPool {
+
+  public static final int DEFAULT_CAPACITY = 1024;
+  public static final int DEFAULT_MAX_KEY_LENGTH = 64;
+
+  private final AtomicReferenceArray<BString> slots;
+  private final int mask;
+  private final int maxKeyLength;
+
+  public KeyPool() {
+    this(DEFAULT_CAPACITY, DEFAULT_MAX_KEY_LENGTH);
+  }
+
+  /**
+   * @param capacity     槽位的个数，会向上取整为2的幂
+   * @param maxKeyLength 可以放入常量池的key的最大长度
+   */
+  public KeyPool(int capacity, int maxKeyLength) {
+    if ((capacity <= 0) || (capacity > (1 << 30))) {
+      throw new IllegalArgumentException(
+          "Invalid key pool capacity, capacity = " + capacity);
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    this.slots = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+    this.maxKeyLength = maxKeyLength;
+  }
+
+  /**
+   * <p>查找内容与buf中某一段相同的key，找不到时创建新的共享实例并放入常量池。
+   * @param buf     key所在的字节数组
+   * @param offset  key的内容在buf中的起始位置
+   * @param length  key的内容的长度
+   * @return        共享的key，超过最大长度时返回null
+   */
+  public BString intern(byte[] buf, int offset, int length) {
+    if (length > maxKeyLength) {
+      return null;
+    }
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + buf[offset + i];
+    }
+    int index = (hash ^ (hash >>> 16)) & mask;
+    BString key = slots.get(index);
+    if ((null != key) && (key.length() == length)) {
+      int i = 0;
+      while ((i < length) && (key.byteAt(i) == buf[offset + i])) {
+        i++;
+      }
+      if (i == length) {
+        return key;
+      }
+    }
+    key = BString.shared(buf, offset, length);
+    slots.set(index, key);
+    return key;
+  }
+
+  /**
+   * <p>与{@link #intern(byte[], int, int)}相同，offset是缓冲区中的绝对位置。
+   * @param buf     key所在的缓冲区
+   * @param offset  key的内容在buf中的绝对起始位置
+   * @param length  key的内容的长度
+   * @return        共享的key，超过最大长度时返回null
+   */
+  public BString intern(ByteBuffer buf, int offset, int length) {
+    if (length > maxKeyLength) {
+      return null;
+    }
+    if (buf.hasArray()) {
+      return intern(buf.array(), buf.arrayOffset() + offset, length);
+    }
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buf.get(offset + i);
+    }
+    return intern(bytes, 0, length);
+  }
+}
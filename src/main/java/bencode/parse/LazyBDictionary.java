@@ -0,0 +1,198 @@
+package bencode.parse;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import bencode.type.BDictionary;
+import bencode.type.BString;
+import bencode.type.BencodeWriter;
+import bencode.type.BType;
+
+/**
+ * <p>延迟解析的字典，只解析出各个key，并记录各个value在原始数据中的位置。
+ *
+ * <p>通过{@link #get(BString)}访问某个value时才解码该value，
+ * 由于合法的B编码中key是有序的，因此使用二分查找定位key。
+ * 若原始数据中的key无序或重复，则在第一次访问时全部解码。
+ * 在value被访问之前，{@link #encode()}直接复制原始数据。
+ * 该类不是线程安全的。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+final class LazyBDictionary extends BDictionary {
+
+  private final LazyDecoder decoder;
+  private byte[] source;
+  private final int start;
+  private final int end;
+  private BString[] keys;
+  private int[] valueStarts;
+  private BType<?>[] values;
+  private final int count;
+  private final boolean sorted;
+  private boolean touched;
+  private boolean materialized;
+
+  /**
+   * @param decoder     解码器
+   * @param source      原始数据
+   * @param start       字典在原始数据中的起始位置
+   * @param end         字典结束后的下一个位置
+   * @param keys        各个key
+   * @param valueStarts 各个value的起始位置
+   * @param count       key的个数
+   */
+  LazyBDictionary(LazyDecoder decoder, byte[] source, int start, int end,
+      BString[] keys, int[] valueStarts, int count) {
+    this.decoder = decoder;
+    this.source = source;
+    this.start = start;
+    this.end = end;
+    this.keys = keys;
+    this.valueStarts = valueStarts;
+    this.values = new BType<?>[count];
+    this.count = count;
+    boolean isSorted = true;
+    for (int i = 1; (i < count) && isSorted; i++) {
+      isSorted = keys[i - 1].compareTo(keys[i]) < 0;
+    }
+    this.sorted = isSorted;
+  }
+
+  private BType<?> valueAt(int index) {
+    BType<?> value = values[index];
+    if (null == value) {
+      value = decoder.decode(source, valueStarts[index]);
+      values[index] = value;
+      link(value);
+    }
+    touched = true;
+    return value;
+  }
+
+  private void materialize() {
+    if (materialized) {
+      return;
+    }
+    for (int i = 0; i < count; i++) {
+      BType<?> value = values[i];
+      if (null == value) {
+        value = decoder.decode(source, valueStarts[i]);
+      } else {
+        // 已经解码的value在访问时link过，放入super之前先解除
+        unlink(value);
+      }
+      super.put(keys[i], value);
+    }
+    materialized = true;
+    source = null;
+    keys = null;
+    valueStarts = null;
+    values = null;
+  }
+
+  @Override
+  public BType<?> get(BString key) {
+    if (!materialized && sorted) {
+      int index = Arrays.binarySearch(keys, 0, count, key);
+      return (index < 0) ? null : valueAt(index);
+    }
+    materialize();
+    return super.get(key);
+  }
+
+  @Override
+  public BType<?> put(BString key, BType<?> value) {
+    materialize();
+    return super.put(key, value);
+  }
+
+  @Override
+  public int size() {
+    if (!materialized && sorted) {
+      return count;
+    }
+    materialize();
+    return super.size();
+  }
+
+  @Override
+  public Iterator<Entry<BString, BType<?>>> iterator() {
+    materialize();
+    return super.iterator();
+  }
+
+  @Override
+  public TreeMap<BString, BType<?>> getContent() {
+    materialize();
+    return super.getContent();
+  }
+
+  @Override
+  public void setContent(TreeMap<BString, BType<?>> content) {
+    if (!materialized) {
+      for (BType<?> value : values) {
+        unlink(value);
+      }
+    }
+    materialized = true;
+    source = null;
+    keys = null;
+    valueStarts = null;
+    values = null;
+    super.setContent(content);
+  }
+
+  /**
+   * <p>value被访问后可能已经被修改，此时需要全部解码后重新计算长度。
+   */
+  @Override
+  public int getContentLength() {
+    if (!materialized && !touched) {
+      return end - start;
+    }
+    materialize();
+    return super.getContentLength();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    materialize();
+    return super.equals(obj);
+  }
+
+  @Override
+  public int hashCode() {
+    materialize();
+    return super.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    materialize();
+    return super.toString();
+  }
+
+  @Override
+  public void writeTo(BencodeWriter writer) throws IOException {
+    if (!materialized && !touched) {
+      writer.raw(source, start, end - start);
+      return;
+    }
+    materialize();
+    super.writeTo(writer);
+  }
+
+  @Override
+  public byte[] encode() {
+    if (!materialized && !touched) {
+      return Arrays.copyOfRange(source, start, end);
+    }
+    materialize();
+    return super.encode();
+  }
+}
@@ -0,0 +1,219 @@
+package bencode.parse;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+import bencode.type.BList;
+import bencode.type.BencodeWriter;
+import bencode.type.BType;
+
+/**
+ * <p>延迟解析的列表，只记录各个元素在原始数据中的位置。
+ *
+ * <p>通过{@link #get(int)}或{@link #iterator()}访问某个元素时才解码该元素，
+ * 未被访问的元素不会被解码，元素中的列表和字典同样是延迟解析的。
+ * 在元素被访问之前，{@link #encode()}直接复制原始数据。
+ * 该类不是线程安全的。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+final class LazyBList extends BList {
+
+  private final LazyDecoder decoder;
+  private byte[] source;
+  private final int start;
+  private final int end;
+  private int[] elementStarts;
+  private BType<?>[] elements;
+  private final int count;
+  private boolean touched;
+  private boolean materialized;
+
+  /**
+   * @param decoder       解码器
+   * @param source        原始数据
+   * @param start         列表在原始数据中的起始位置
+   * @param end           列表结束后的下一个位置
+   * @param elementStarts 各个元素的起始位置，最后一项为后缀'e'的位置
+   * @param count         元素个数
+   */
+  LazyBList(LazyDecoder decoder, byte[] source, int start, int end,
+      int[] elementStarts, int count) {
+    this.decoder = decoder;
+    this.source = source;
+    this.start = start;
+    this.end = end;
+    this.elementStarts = elementStarts;
+    this.elements = new BType<?>[count];
+    this.count = count;
+  }
+
+  private BType<?> elementAt(int index) {
+    BType<?> element = elements[index];
+    if (null == element) {
+      element = decoder.decode(source, elementStarts[index]);
+      elements[index] = element;
+      link(element);
+    }
+    touched = true;
+    return element;
+  }
+
+  /**
+   * @param index 元素的序号
+   * @return      该元素是否已经被解码
+   */
+  boolean isDecoded(int index) {
+    return materialized || (null != elements[index]);
+  }
+
+  private void materialize() {
+    if (materialized) {
+      return;
+    }
+    for (int i = 0; i < count; i++) {
+      BType<?> element = elements[i];
+      if (null == element) {
+        element = decoder.decode(source, elementStarts[i]);
+      } else {
+        // 已经解码的element在访问时link过，放入super之前先解除
+        unlink(element);
+      }
+      super.add(element);
+    }
+    materialized = true;
+    source = null;
+    elementStarts = null;
+    elements = null;
+  }
+
+  @Override
+  public LinkedList<BType<?>> getContent() {
+    materialize();
+    return super.getContent();
+  }
+
+  @Override
+  public void setContent(LinkedList<BType<?>> value) {
+    if (!materialized) {
+      for (BType<?> element : elements) {
+        unlink(element);
+      }
+    }
+    materialized = true;
+    source = null;
+    elementStarts = null;
+    elements = null;
+    super.setContent(value);
+  }
+
+  /**
+   * <p>元素被访问后可能已经被修改，此时需要全部解码后重新计算长度。
+   */
+  @Override
+  public int getContentLength() {
+    if (!materialized && !touched) {
+      return end - start;
+    }
+    materialize();
+    return super.getContentLength();
+  }
+
+  @Override
+  public void add(BType<?> bElement) {
+    materialize();
+    super.add(bElement);
+  }
+
+  @Override
+  public void addAll(Collection<? extends BType<?>> list) {
+    materialize();
+    super.addAll(list);
+  }
+
+  @Override
+  public int size() {
+    return materialized ? super.size() : count;
+  }
+
+  @Override
+  public BType<?> get(int index) {
+    if (materialized) {
+      return super.get(index);
+    }
+    if ((index < 0) || (index >= count)) {
+      throw new IndexOutOfBoundsException(
+          "index = " + index + ", size = " + count);
+    }
+    return elementAt(index);
+  }
+
+  /**
+   * <p>迭代到某个元素时才解码该元素，不支持remove。
+   */
+  @Override
+  public Iterator<BType<?>> iterator() {
+    if (materialized) {
+      return super.iterator();
+    }
+    return new Iterator<BType<?>>() {
+
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return index < size();
+      }
+
+      @Override
+      public BType<?> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return get(index++);
+      }
+    };
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    materialize();
+    return super.equals(obj);
+  }
+
+  @Override
+  public int hashCode() {
+    materialize();
+    return super.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    materialize();
+    return super.toString();
+  }
+
+  @Override
+  public void writeTo(BencodeWriter writer) throws IOException {
+    if (!materialized && !touched) {
+      writer.raw(source, start, end - start);
+      return;
+    }
+    materialize();
+    super.writeTo(writer);
+  }
+
+  @Override
+  public byte[] encode() {
+    if (!materialized && !touched) {
+      return Arrays.copyOfRange(source, start, end);
+    }
+    materialize();
+    return super.encode();
+  }
+}
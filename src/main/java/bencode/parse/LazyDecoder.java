@@ -0,0 +1,185 @@
+package bencode.parse;
+
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import bencode.exception.BEncodeFormatException;
+import bencode.type.BDictionary;
+import bencode.type.BList;
+import bencode.type.BString;
+import bencode.type.BType;
+
+/**
+ * <p>延迟解析模式下的解码器。
+ *
+ * <p>解析列表或字典时，只记录每个子元素在原始数据中的起始位置
+ * （字典的key会被解析出来，以便查找），子元素在第一次被访问时才会被解码。
+ * 未被访问的子元素只需要跳过其字节即可，不会创建任何对象。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+final class LazyDecoder {
+
+  private static Logger logger = LoggerFactory.getLogger(LazyDecoder.class);
+
+  private final Parser parser = new Parser();
+  private final boolean sliceStrings;
+  private final KeyPool keyPool;
+  private final boolean shareNumbers;
+
+  LazyDecoder(boolean sliceStrings, KeyPool keyPool, boolean shareNumbers) {
+    this.sliceStrings = sliceStrings;
+    this.keyPool = keyPool;
+    this.shareNumbers = shareNumbers;
+    this.parser.setSliceStrings(sliceStrings);
+  }
+
+  /**
+   * <p>依次解码顶层的各个数据。
+   */
+  BList decodeAll(final byte[] content, int offset, int parseLength) {
+    BList result = new BList();
+    for (int i = offset; i < parseLength;) {
+      BType<?> value = decode(content, i);
+      result.add(value);
+      if ((value instanceof LazyBList) || (value instanceof LazyBDictionary)) {
+        i += value.getContentLength();
+      } else {
+        i = skip(content, i);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * <p>解码指定位置的数据。列表和字典只扫描出子元素的位置，
+   * 整数和字符串则直接解析。
+   */
+  BType<?> decode(final byte[] content, int offset) {
+    if (offset >= content.length) {
+      logger.error(
+          "Parsing value unfinished when reaching the end, pos = {}", offset);
+      throw new BEncodeFormatException(
+          "Parsing value unfinished when reaching the end, pos = " + offset);
+    }
+    switch (content[offset]) {
+      case BList.PREFIX: {
+        return decodeList(content, offset);
+      }
+
+      case BDictionary.PREFIX: {
+        return decodeDic(content, offset);
+      }
+
+      default: {
+        TreeBuilder builder =
+            new TreeBuilder(sliceStrings, keyPool, shareNumbers);
+        parser.parseNext(content, offset, builder);
+        return builder.getLastValue();
+      }
+    }
+  }
+
+  private LazyBList decodeList(final byte[] content, int offset) {
+    int[] starts = new int[8];
+    int count = 0;
+    int i = offset + 1;
+    while (true) {
+      if (i >= content.length) {
+        logger.error(
+            "Parsing list unfinished when reaching the end, "
+                + "starting pos = {}",
+            offset);
+        throw new BEncodeFormatException(
+            "Parsing list unfinished when reaching the end, "
+                + "starting pos = " + offset);
+      } else if (BList.SUFFIX == content[i]) {
+        break;
+      }
+      if (count + 1 >= starts.length) {
+        starts = Arrays.copyOf(starts, starts.length * 2);
+      }
+      starts[count++] = i;
+      i = skip(content, i);
+    }
+    starts[count] = i;
+    return new LazyBList(this, content, offset, i + 1, starts, count);
+  }
+
+  private LazyBDictionary decodeDic(final byte[] content, int offset) {
+    BString[] keys = new BString[8];
+    int[] valueStarts = new int[8];
+    int count = 0;
+    KeyReader keyReader = new KeyReader(sliceStrings, keyPool);
+    int i = offset + 1;
+    while (true) {
+      if (i >= content.length) {
+        logger.error(
+            "Parsing dictionary unfinished when reaching the end, "
+                + "starting pos = {}",
+            offset);
+        throw new BEncodeFormatException(
+            "Parsing dictionary unfinished when reaching the end, "
+                + "starting pos = " + offset);
+      } else if (BDictionary.SUFFIX == content[i]) {
+        break;
+      }
+
+      byte current = content[i];
+      if ((current < '0') || (current > '9')) {
+        logger.error(
+            "Dictionary key must be string, char = {}, pos = {}", current, i);
+        throw new BEncodeFormatException(
+            "Dictionary key must be string, char = " + (char)current
+                + ", pos = " + i);
+      }
+      if (count == keys.length) {
+        keys = Arrays.copyOf(keys, count * 2);
+        valueStarts = Arrays.copyOf(valueStarts, count * 2);
+      }
+      i = parser.parseNext(content, i, keyReader);
+      keys[count] = keyReader.key;
+      valueStarts[count] = i;
+      count++;
+      i = skip(content, i);
+    }
+    return new LazyBDictionary(
+        this, content, offset, i + 1, keys, valueStarts, count);
+  }
+
+  /**
+   * @return 指定位置的数据结束后的下一个位置
+   */
+  private int skip(final byte[] content, int offset) {
+    return ValueScanner.skip(content, offset, content.length);
+  }
+
+  /**
+   * <p>读取字典中的key。
+   */
+  private static final class KeyReader implements BencodeVisitor {
+
+    private final boolean sliceStrings;
+    private final KeyPool keyPool;
+    private BString key;
+
+    KeyReader(boolean sliceStrings, KeyPool keyPool) {
+      this.sliceStrings = sliceStrings;
+      this.keyPool = keyPool;
+    }
+
+    @Override
+    public void visitString(byte[] buf, int offset, int length) {
+      key = (null == keyPool) ? null : keyPool.intern(buf, offset, length);
+      if (null != key) {
+        return;
+      }
+      key = sliceStrings
+          ? new BString(buf, offset, length)
+          : new BString(Arrays.copyOfRange(buf, offset, offset + length));
+    }
+  }
+}
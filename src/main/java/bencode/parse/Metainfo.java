@@ -0,0 +1,382 @@
+package bencode.parse;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import bencode.exception.BEncodeFormatException;
+
+/**
+ * <p>种子文件（metainfo）的内容，支持BEP 3（v1）、BEP 52（v2）及两者混合的格式。
+ *
+ * <p>解码时不构建B编码对象树，只记录各个数据在原始字节数组中的位置：
+ * piece哈希值不会被切分或复制，{@link #hashAt(int)}返回的是原始数据的只读视图；
+ * 各个文件的长度保存在long数组中，路径的各个部分只记录位置，
+ * 在{@link #getPath(int)}时才解码为字符串。
+ * 因此，在该对象使用完之前，调用方不能修改输入的数据。
+ *
+ * <p>同时包含v1和v2信息的种子，文件列表以v1的files为准（其中可能包含填充文件），
+ * 此时{@link #piecesRoot(int)}和{@link #pieceLayer(int)}返回null。
+ *
+ * <p>该类是不可修改的，可以被多个线程共享。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public final class Metainfo {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /**
+   * v1中每个piece的SHA-1哈希值的长度。
+   */
+  public static final int HASH_LENGTH = 20;
+
+  /**
+   * v2中pieces root及piece layers中每个哈希值的长度。
+   */
+  public static final int V2_HASH_LENGTH = 32;
+
+  final byte[] content;
+
+  String announce;
+  List<List<String>> announceList;
+  String comment;
+  String createdBy;
+  long creationDate = -1;
+
+  int infoStart;
+  int infoEnd;
+  int nameStart;
+  int nameEnd;
+  long pieceLength;
+  boolean isPrivate;
+  int metaVersion = 1;
+
+  int piecesStart = -1;
+  int pieceCount;
+
+  boolean multiFile;
+  int fileCount;
+  long totalLength;
+  long[] fileLengths;
+  /**
+   * 第i个文件的路径由componentStarts/componentEnds中
+   * [pathIndex[i], pathIndex[i + 1])的各个部分组成。
+   */
+  int[] pathIndex;
+  int[] componentStarts;
+  int[] componentEnds;
+  /**
+   * v2中各个文件的pieces root及piece layer的位置，不存在时为-1。
+   */
+  int[] rootStarts;
+  int[] layerStarts;
+  int[] layerEnds;
+
+  Metainfo(byte[] content) {
+    this.content = content;
+  }
+
+  /**
+   * @param content 种子文件的内容
+   * @return        解码结果，引用content中的数据
+   * @throws BEncodeFormatException 格式错误，或缺少必需的字段
+   * @since 0.1.1
+   */
+  public static Metainfo decode(final byte[] content) {
+    return decode(content, 0);
+  }
+
+  /**
+   * @param content 包含种子文件的字节数组
+   * @param offset  种子文件在content中的起始位置
+   * @return        解码结果，引用content中的数据
+   * @throws BEncodeFormatException 格式错误，或缺少必需的字段
+   * @since 0.1.1
+   */
+  public static Metainfo decode(final byte[] content, int offset) {
+    return new MetainfoDecoder(content).decode(offset);
+  }
+
+  /**
+   * @return tracker的地址，没有时返回null
+   * @since 0.1.1
+   */
+  public String getAnnounce() {
+    return announce;
+  }
+
+  /**
+   * @return 分层的tracker列表（BEP 12），没有时返回空列表
+   * @since 0.1.1
+   */
+  public List<List<String>> getAnnounceList() {
+    return announceList;
+  }
+
+  /**
+   * @return 注释，没有时返回null
+   * @since 0.1.1
+   */
+  public String getComment() {
+    return comment;
+  }
+
+  /**
+   * @return 创建者，没有时返回null
+   * @since 0.1.1
+   */
+  public String getCreatedBy() {
+    return createdBy;
+  }
+
+  /**
+   * @return 创建时间（秒），没有时返回-1
+   * @since 0.1.1
+   */
+  public long getCreationDate() {
+    return creationDate;
+  }
+
+  /**
+   * @return info字典原始字节的只读视图
+   * @since 0.1.1
+   */
+  public ByteBuffer getInfo() {
+    return view(infoStart, infoEnd - infoStart);
+  }
+
+  /**
+   * @return v1的info-hash，即info字典原始字节的SHA-1摘要
+   * @since 0.1.1
+   */
+  public byte[] getInfoHash() {
+    return digest(InfoHash.SHA_1);
+  }
+
+  /**
+   * @return v2的info-hash，即info字典原始字节的SHA-256摘要
+   * @since 0.1.1
+   */
+  public byte[] getInfoHashV2() {
+    return digest(InfoHash.SHA_256);
+  }
+
+  /**
+   * @return 单文件种子的文件名，或多文件种子的根目录名
+   * @since 0.1.1
+   */
+  public String getName() {
+    return new String(content, nameStart, nameEnd - nameStart, UTF_8);
+  }
+
+  /**
+   * @return 每个piece的长度
+   * @since 0.1.1
+   */
+  public long getPieceLength() {
+    return pieceLength;
+  }
+
+  /**
+   * @return 是否是私有种子（BEP 27）
+   * @since 0.1.1
+   */
+  public boolean isPrivate() {
+    return isPrivate;
+  }
+
+  /**
+   * @return info中的meta version，没有时为1
+   * @since 0.1.1
+   */
+  public int getMetaVersion() {
+    return metaVersion;
+  }
+
+  /**
+   * @return 是否包含v1的pieces
+   * @since 0.1.1
+   */
+  public boolean hasV1() {
+    return piecesStart >= 0;
+  }
+
+  /**
+   * @return 是否包含v2的file tree
+   * @since 0.1.1
+   */
+  public boolean hasV2() {
+    return 2 == metaVersion;
+  }
+
+  /**
+   * @return v1中piece的个数，只有v2信息时为0
+   * @since 0.1.1
+   */
+  public int getPieceCount() {
+    return pieceCount;
+  }
+
+  /**
+   * @return v1中所有piece的哈希值的只读视图，只有v2信息时为空
+   * @since 0.1.1
+   */
+  public ByteBuffer getPieces() {
+    return view(Math.max(piecesStart, 0), pieceCount * HASH_LENGTH);
+  }
+
+  /**
+   * <p>不复制数据，只创建一个新的视图对象。
+   * @param index piece的序号
+   * @return      该piece的SHA-1哈希值的只读视图
+   * @since 0.1.1
+   */
+  public ByteBuffer hashAt(int index) {
+    return view(hashOffset(index), HASH_LENGTH);
+  }
+
+  /**
+   * @param index     piece的序号
+   * @param dst       目标数组
+   * @param dstOffset 在dst中的起始位置
+   * @since 0.1.1
+   */
+  public void copyHashTo(int index, byte[] dst, int dstOffset) {
+    System.arraycopy(content, hashOffset(index), dst, dstOffset, HASH_LENGTH);
+  }
+
+  /**
+   * <p>校验下载的piece时使用，不会创建任何对象。
+   * @param index  piece的序号
+   * @param digest 计算出的SHA-1摘要
+   * @return       是否与该piece的哈希值相同
+   * @since 0.1.1
+   */
+  public boolean hashEquals(int index, byte[] digest) {
+    if (HASH_LENGTH != digest.length) {
+      return false;
+    }
+    int offset = hashOffset(index);
+    for (int i = 0; i < HASH_LENGTH; i++) {
+      if (content[offset + i] != digest[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return 是否是多文件种子，此时各个文件位于以{@link #getName()}命名的目录中
+   * @since 0.1.1
+   */
+  public boolean isMultiFile() {
+    return multiFile;
+  }
+
+  /**
+   * @return 文件的个数，单文件种子为1
+   * @since 0.1.1
+   */
+  public int getFileCount() {
+    return fileCount;
+  }
+
+  /**
+   * @return 所有文件的总长度
+   * @since 0.1.1
+   */
+  public long getTotalLength() {
+    return totalLength;
+  }
+
+  /**
+   * @param index 文件的序号
+   * @return      该文件的长度
+   * @since 0.1.1
+   */
+  public long getFileLength(int index) {
+    checkFile(index);
+    return fileLengths[index];
+  }
+
+  /**
+   * <p>多文件种子的路径不包含根目录{@link #getName()}，
+   * 单文件种子的路径只有文件名。
+   * @param index 文件的序号
+   * @return      该文件路径的各个部分
+   * @since 0.1.1
+   */
+  public String[] getPath(int index) {
+    checkFile(index);
+    int from = pathIndex[index];
+    String[] path = new String[pathIndex[index + 1] - from];
+    for (int i = 0; i < path.length; i++) {
+      int start = componentStarts[from + i];
+      path[i] = new String(
+          content, start, componentEnds[from + i] - start, UTF_8);
+    }
+    return path;
+  }
+
+  /**
+   * @param index 文件的序号
+   * @return      v2中该文件的pieces root的只读视图，没有时返回null
+   * @since 0.1.1
+   */
+  public ByteBuffer piecesRoot(int index) {
+    checkFile(index);
+    if ((null == rootStarts) || (rootStarts[index] < 0)) {
+      return null;
+    }
+    return view(rootStarts[index], V2_HASH_LENGTH);
+  }
+
+  /**
+   * <p>文件不超过一个piece时，piece layers中没有该文件的数据。
+   * @param index 文件的序号
+   * @return      v2中该文件的piece layer的只读视图，没有时返回null
+   * @since 0.1.1
+   */
+  public ByteBuffer pieceLayer(int index) {
+    checkFile(index);
+    if ((null == layerStarts) || (layerStarts[index] < 0)) {
+      return null;
+    }
+    return view(layerStarts[index], layerEnds[index] - layerStarts[index]);
+  }
+
+  private int hashOffset(int index) {
+    if ((index < 0) || (index >= pieceCount)) {
+      throw new IndexOutOfBoundsException(
+          "index = " + index + ", piece count = " + pieceCount);
+    }
+    return piecesStart + index * HASH_LENGTH;
+  }
+
+  private void checkFile(int index) {
+    if ((index < 0) || (index >= fileCount)) {
+      throw new IndexOutOfBoundsException(
+          "index = " + index + ", file count = " + fileCount);
+    }
+  }
+
+  private ByteBuffer view(int offset, int length) {
+    return ByteBuffer.wrap(content, offset, length).slice()
+        .asReadOnlyBuffer();
+  }
+
+  private byte[] digest(String algorithm) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance(algorithm);
+      digest.update(content, infoStart, infoEnd - infoStart);
+      return digest.digest();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(
+          "Unsupported digest algorithm, algorithm = " + algorithm, e);
+    }
+  }
+}
@@ -0,0 +1,431 @@
+package bencode.parse;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import bencode.type.BDictionary;
+import bencode.type.BList;
+import bencode.type.BNumber;
+
+/**
+ * <p>{@link Metainfo}的解码器。
+ *
+ * <p>使用{@link ValueScanner}逐个跳过字典中的各项，只在遇到关心的key时
+ * 读取其值的位置，不关心的值只需要校验格式。
+ * pieces等较长的字符串只解析长度前缀，不会逐字节扫描。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+final class MetainfoDecoder {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final int INITIAL_CAPACITY = 8;
+
+  private static final byte[] ANNOUNCE = ascii("announce");
+  private static final byte[] ANNOUNCE_LIST = ascii("announce-list");
+  private static final byte[] COMMENT = ascii("comment");
+  private static final byte[] CREATED_BY = ascii("created by");
+  private static final byte[] CREATION_DATE = ascii("creation date");
+  private static final byte[] INFO = ascii("info");
+  private static final byte[] PIECE_LAYERS = ascii("piece layers");
+  private static final byte[] NAME = ascii("name");
+  private static final byte[] PIECE_LENGTH = ascii("piece length");
+  private static final byte[] PIECES = ascii("pieces");
+  private static final byte[] PRIVATE = ascii("private");
+  private static final byte[] LENGTH = ascii("length");
+  private static final byte[] FILES = ascii("files");
+  private static final byte[] PATH = ascii("path");
+  private static final byte[] META_VERSION = ascii("meta version");
+  private static final byte[] FILE_TREE = ascii("file tree");
+  private static final byte[] PIECES_ROOT = ascii("pieces root");
+
+  private final byte[] content;
+  private final int limit;
+  private final Metainfo result;
+
+  private int fileCount;
+  private long[] fileLengths = new long[INITIAL_CAPACITY];
+  private int[] pathIndex = new int[INITIAL_CAPACITY + 1];
+  private int componentCount;
+  private int[] componentStarts = new int[INITIAL_CAPACITY];
+  private int[] componentEnds = new int[INITIAL_CAPACITY];
+  private int[] rootStarts;
+
+  /**
+   * v2的file tree中，当前目录的各级路径。
+   */
+  private int[] treeStarts = new int[INITIAL_CAPACITY];
+  private int[] treeEnds = new int[INITIAL_CAPACITY];
+
+  MetainfoDecoder(byte[] content) {
+    this.content = content;
+    this.limit = content.length;
+    this.result = new Metainfo(content);
+  }
+
+  Metainfo decode(int offset) {
+    requireType(offset, BDictionary.PREFIX, "metainfo");
+    int layersStart = -1;
+    boolean hasInfo = false;
+    for (int i = offset + 1; BList.SUFFIX != at(i);) {
+      int keyEnd = ValueScanner.stringEnd(content, i, limit);
+      int keyStart = ValueScanner.stringContentStart(content, i);
+      int valueEnd = ValueScanner.skip(content, keyEnd, limit);
+      if (equals(keyStart, keyEnd, ANNOUNCE)) {
+        result.announce = string(keyEnd, valueEnd);
+      } else if (equals(keyStart, keyEnd, ANNOUNCE_LIST)) {
+        result.announceList = announceList(keyEnd);
+      } else if (equals(keyStart, keyEnd, COMMENT)) {
+        result.comment = string(keyEnd, valueEnd);
+      } else if (equals(keyStart, keyEnd, CREATED_BY)) {
+        result.createdBy = string(keyEnd, valueEnd);
+      } else if (equals(keyStart, keyEnd, CREATION_DATE)) {
+        result.creationDate = number(keyEnd);
+      } else if (equals(keyStart, keyEnd, INFO)) {
+        result.infoStart = keyEnd;
+        result.infoEnd = valueEnd;
+        hasInfo = true;
+      } else if (equals(keyStart, keyEnd, PIECE_LAYERS)) {
+        requireType(keyEnd, BDictionary.PREFIX, "piece layers");
+        layersStart = keyEnd;
+      }
+      i = valueEnd;
+    }
+    if (!hasInfo) {
+      throw ValueScanner.formatError("Metainfo info not found");
+    }
+    if (null == result.announceList) {
+      result.announceList = Collections.emptyList();
+    }
+    decodeInfo(result.infoStart);
+    if ((null != rootStarts) && (layersStart >= 0)) {
+      resolveLayers(layersStart);
+    }
+    return result;
+  }
+
+  private void decodeInfo(int offset) {
+    requireType(offset, BDictionary.PREFIX, "info");
+    int piecesEnd = -1;
+    int filesStart = -1;
+    int treeStart = -1;
+    long length = -1;
+    result.nameStart = -1;
+    result.pieceLength = -1;
+    for (int i = offset + 1; BList.SUFFIX != at(i);) {
+      int keyEnd = ValueScanner.stringEnd(content, i, limit);
+      int keyStart = ValueScanner.stringContentStart(content, i);
+      int valueEnd = ValueScanner.skip(content, keyEnd, limit);
+      if (equals(keyStart, keyEnd, NAME)) {
+        result.nameStart = stringStart(keyEnd);
+        result.nameEnd = valueEnd;
+      } else if (equals(keyStart, keyEnd, PIECE_LENGTH)) {
+        result.pieceLength = number(keyEnd);
+      } else if (equals(keyStart, keyEnd, PIECES)) {
+        result.piecesStart = stringStart(keyEnd);
+        piecesEnd = valueEnd;
+      } else if (equals(keyStart, keyEnd, PRIVATE)) {
+        result.isPrivate = 1 == number(keyEnd);
+      } else if (equals(keyStart, keyEnd, LENGTH)) {
+        length = number(keyEnd);
+      } else if (equals(keyStart, keyEnd, FILES)) {
+        requireType(keyEnd, BList.PREFIX, "files");
+        filesStart = keyEnd;
+      } else if (equals(keyStart, keyEnd, META_VERSION)) {
+        result.metaVersion = (int)number(keyEnd);
+      } else if (equals(keyStart, keyEnd, FILE_TREE)) {
+        requireType(keyEnd, BDictionary.PREFIX, "file tree");
+        treeStart = keyEnd;
+      }
+      i = valueEnd;
+    }
+
+    if (result.nameStart < 0) {
+      throw ValueScanner.formatError("Metainfo name not found");
+    }
+    if (result.pieceLength <= 0) {
+      throw ValueScanner.formatError(
+          "Invalid piece length, piece length = " + result.pieceLength);
+    }
+    if ((2 == result.metaVersion) != (treeStart >= 0)) {
+      throw ValueScanner.formatError(
+          "Meta version 2 requires file tree, meta version = "
+              + result.metaVersion);
+    }
+
+    if (result.piecesStart >= 0) {
+      int piecesLength = piecesEnd - result.piecesStart;
+      if (0 != piecesLength % Metainfo.HASH_LENGTH) {
+        throw ValueScanner.formatError(
+            "Invalid pieces length, length = " + piecesLength);
+      }
+      result.pieceCount = piecesLength / Metainfo.HASH_LENGTH;
+      if (filesStart >= 0) {
+        result.multiFile = true;
+        decodeFiles(filesStart);
+      } else if (length >= 0) {
+        addComponent(result.nameStart, result.nameEnd);
+        addFile(length);
+      } else {
+        throw ValueScanner.formatError("Metainfo length or files not found");
+      }
+    } else if (treeStart >= 0) {
+      rootStarts = new int[INITIAL_CAPACITY];
+      decodeTree(treeStart, 0);
+      result.multiFile = (fileCount > 1)
+          || ((1 == fileCount) && (pathIndex[1] > 1));
+    } else {
+      throw ValueScanner.formatError("Metainfo pieces or file tree not found");
+    }
+
+    long expected = (result.totalLength + result.pieceLength - 1)
+        / result.pieceLength;
+    if ((result.piecesStart >= 0) && (expected != result.pieceCount)) {
+      throw ValueScanner.formatError(
+          "Piece count does not match total length, piece count = "
+              + result.pieceCount + ", expected = " + expected);
+    }
+
+    result.fileCount = fileCount;
+    result.fileLengths = Arrays.copyOf(fileLengths, fileCount);
+    result.pathIndex = Arrays.copyOf(pathIndex, fileCount + 1);
+    result.componentStarts = Arrays.copyOf(componentStarts, componentCount);
+    result.componentEnds = Arrays.copyOf(componentEnds, componentCount);
+    if (null != rootStarts) {
+      result.rootStarts = Arrays.copyOf(rootStarts, fileCount);
+    }
+  }
+
+  /**
+   * <p>v1的files，每一项是包含length和path的字典。
+   */
+  private void decodeFiles(int offset) {
+    for (int i = offset + 1; BList.SUFFIX != at(i);) {
+      requireType(i, BDictionary.PREFIX, "file");
+      long length = -1;
+      int pathStart = -1;
+      int j = i + 1;
+      for (; BList.SUFFIX != at(j);) {
+        int keyEnd = ValueScanner.stringEnd(content, j, limit);
+        int keyStart = ValueScanner.stringContentStart(content, j);
+        int valueEnd = ValueScanner.skip(content, keyEnd, limit);
+        if (equals(keyStart, keyEnd, LENGTH)) {
+          length = number(keyEnd);
+        } else if (equals(keyStart, keyEnd, PATH)) {
+          requireType(keyEnd, BList.PREFIX, "path");
+          pathStart = keyEnd;
+        }
+        j = valueEnd;
+      }
+      if ((length < 0) || (pathStart < 0)) {
+        throw ValueScanner.formatError(
+            "File length or path not found, pos = " + i);
+      }
+      for (int k = pathStart + 1; BList.SUFFIX != at(k);) {
+        int end = ValueScanner.stringEnd(content, k, limit);
+        addComponent(stringStart(k), end);
+        k = end;
+      }
+      addFile(length);
+      i = j + 1;
+    }
+  }
+
+  /**
+   * <p>v2的file tree，key为空字符串的项是文件，其余的项是目录。
+   */
+  private void decodeTree(int offset, int depth) {
+    for (int i = offset + 1; BList.SUFFIX != at(i);) {
+      int keyEnd = ValueScanner.stringEnd(content, i, limit);
+      int keyStart = ValueScanner.stringContentStart(content, i);
+      int valueEnd = ValueScanner.skip(content, keyEnd, limit);
+      requireType(keyEnd, BDictionary.PREFIX, "file tree node");
+      if (keyStart == keyEnd) {
+        if (0 == depth) {
+          throw ValueScanner.formatError(
+              "File tree entry without name, pos = " + i);
+        }
+        for (int k = 0; k < depth; k++) {
+          addComponent(treeStarts[k], treeEnds[k]);
+        }
+        decodeTreeFile(keyEnd);
+      } else {
+        if (depth == treeStarts.length) {
+          treeStarts = Arrays.copyOf(treeStarts, depth << 1);
+          treeEnds = Arrays.copyOf(treeEnds, depth << 1);
+        }
+        treeStarts[depth] = keyStart;
+        treeEnds[depth] = keyEnd;
+        decodeTree(keyEnd, depth + 1);
+      }
+      i = valueEnd;
+    }
+  }
+
+  private void decodeTreeFile(int offset) {
+    long length = -1;
+    int rootStart = -1;
+    for (int i = offset + 1; BList.SUFFIX != at(i);) {
+      int keyEnd = ValueScanner.stringEnd(content, i, limit);
+      int keyStart = ValueScanner.stringContentStart(content, i);
+      int valueEnd = ValueScanner.skip(content, keyEnd, limit);
+      if (equals(keyStart, keyEnd, LENGTH)) {
+        length = number(keyEnd);
+      } else if (equals(keyStart, keyEnd, PIECES_ROOT)) {
+        rootStart = stringStart(keyEnd);
+        if (Metainfo.V2_HASH_LENGTH != valueEnd - rootStart) {
+          throw ValueScanner.formatError(
+              "Invalid pieces root length, pos = " + keyEnd);
+        }
+      }
+      i = valueEnd;
+    }
+    if (length < 0) {
+      throw ValueScanner.formatError(
+          "File length not found, pos = " + offset);
+    }
+    if (fileCount == rootStarts.length) {
+      rootStarts = Arrays.copyOf(rootStarts, fileCount << 1);
+    }
+    rootStarts[fileCount] = rootStart;
+    addFile(length);
+  }
+
+  /**
+   * <p>piece layers的key是pieces root，value是该文件各个piece的哈希值。
+   */
+  private void resolveLayers(int offset) {
+    HashMap<ByteBuffer, int[]> layers = new HashMap<>();
+    for (int i = offset + 1; BList.SUFFIX != at(i);) {
+      int keyEnd = ValueScanner.stringEnd(content, i, limit);
+      int keyStart = ValueScanner.stringContentStart(content, i);
+      int valueEnd = ValueScanner.skip(content, keyEnd, limit);
+      int valueStart = stringStart(keyEnd);
+      if (0 != (valueEnd - valueStart) % Metainfo.V2_HASH_LENGTH) {
+        throw ValueScanner.formatError(
+            "Invalid piece layer length, pos = " + keyEnd);
+      }
+      layers.put(ByteBuffer.wrap(content, keyStart, keyEnd - keyStart),
+          new int[] {valueStart, valueEnd});
+      i = valueEnd;
+    }
+    int[] starts = new int[fileCount];
+    int[] ends = new int[fileCount];
+    Arrays.fill(starts, -1);
+    for (int i = 0; i < fileCount; i++) {
+      int root = result.rootStarts[i];
+      if (root >= 0) {
+        int[] span = layers.get(
+            ByteBuffer.wrap(content, root, Metainfo.V2_HASH_LENGTH));
+        if (null != span) {
+          starts[i] = span[0];
+          ends[i] = span[1];
+        }
+      }
+    }
+    result.layerStarts = starts;
+    result.layerEnds = ends;
+  }
+
+  private List<List<String>> announceList(int offset) {
+    requireType(offset, BList.PREFIX, "announce-list");
+    ArrayList<List<String>> tiers = new ArrayList<>();
+    for (int i = offset + 1; BList.SUFFIX != at(i);) {
+      requireType(i, BList.PREFIX, "announce-list tier");
+      ArrayList<String> tier = new ArrayList<>();
+      int j = i + 1;
+      while (BList.SUFFIX != at(j)) {
+        int end = ValueScanner.stringEnd(content, j, limit);
+        tier.add(string(j, end));
+        j = end;
+      }
+      tiers.add(Collections.unmodifiableList(tier));
+      i = j + 1;
+    }
+    return Collections.unmodifiableList(tiers);
+  }
+
+  private void addComponent(int start, int end) {
+    if (componentCount == componentStarts.length) {
+      componentStarts = Arrays.copyOf(componentStarts, componentCount << 1);
+      componentEnds = Arrays.copyOf(componentEnds, componentCount << 1);
+    }
+    componentStarts[componentCount] = start;
+    componentEnds[componentCount] = end;
+    componentCount++;
+  }
+
+  private void addFile(long length) {
+    if (length < 0) {
+      throw ValueScanner.formatError(
+          "Invalid file length, length = " + length);
+    }
+    if (fileCount == fileLengths.length) {
+      fileLengths = Arrays.copyOf(fileLengths, fileCount << 1);
+      pathIndex = Arrays.copyOf(pathIndex, (fileCount << 1) + 1);
+    }
+    fileLengths[fileCount] = length;
+    fileCount++;
+    pathIndex[fileCount] = componentCount;
+    result.totalLength += length;
+  }
+
+  private byte at(int pos) {
+    if (pos >= limit) {
+      throw ValueScanner.formatError(
+          "Parsing metainfo unfinished when reaching the end, pos = " + pos);
+    }
+    return content[pos];
+  }
+
+  private void requireType(int pos, char prefix, String name) {
+    if (prefix != at(pos)) {
+      throw ValueScanner.formatError(
+          "Unexpected type of " + name + ", char = " + (char)content[pos]
+              + ", pos = " + pos);
+    }
+  }
+
+  private long number(int pos) {
+    requireType(pos, BNumber.PREFIX, "integer");
+    return ValueScanner.numberValue(content, pos);
+  }
+
+  private int stringStart(int pos) {
+    byte current = at(pos);
+    if ((current < '0') || (current > '9')) {
+      throw ValueScanner.formatError(
+          "Unexpected type of string, char = " + (char)current
+              + ", pos = " + pos);
+    }
+    return ValueScanner.stringContentStart(content, pos);
+  }
+
+  private String string(int pos, int end) {
+    int start = stringStart(pos);
+    return new String(content, start, end - start, UTF_8);
+  }
+
+  private boolean equals(int start, int end, byte[] target) {
+    if (end - start != target.length) {
+      return false;
+    }
+    for (int i = 0; i < target.length; i++) {
+      if (content[start + i] != target[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte[] ascii(String value) {
+    return value.getBytes(Charset.forName("US-ASCII"));
+  }
+}
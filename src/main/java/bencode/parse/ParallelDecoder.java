@@ -0,0 +1,229 @@
+package bencode.parse;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import bencode.type.BDictionary;
+import bencode.type.BList;
+import bencode.type.BString;
+import bencode.type.BType;
+
+/**
+ * <p>并行解析模式下的解码器。
+ *
+ * <p>解析较大的列表或字典时，先用{@link ValueScanner#skip(byte[], int, int)}
+ * 顺序找出各个子元素的边界（只校验格式，不创建对象），再在{@link ForkJoinPool}
+ * 中并发地解码各个子元素，最后按照原来的顺序组装。
+ * 较大的子元素会继续被拆分，较小的数据则直接顺序解码，以免任务调度的开销过大。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+final class ParallelDecoder {
+
+  /**
+   * 小于该字节数的数据直接顺序解码，不再拆分。
+   */
+  static final int THRESHOLD = 1 << 16;
+
+  private final Parser parser = new Parser();
+  private final boolean sliceStrings;
+  private final KeyPool keyPool;
+  private final boolean shareNumbers;
+  private final ForkJoinPool pool;
+
+  ParallelDecoder(boolean sliceStrings, KeyPool keyPool,
+      boolean shareNumbers, ForkJoinPool pool) {
+    this.sliceStrings = sliceStrings;
+    this.keyPool = keyPool;
+    this.shareNumbers = shareNumbers;
+    this.pool = pool;
+    this.parser.setSliceStrings(sliceStrings);
+  }
+
+  /**
+   * <p>依次解码[offset, end)之间的各个顶层数据。
+   */
+  BList decodeAll(final byte[] content, int offset, int end) {
+    int[] starts = new int[16];
+    int[] ends = new int[16];
+    int count = 0;
+    for (int i = offset; i < end; count++) {
+      if (count == starts.length) {
+        starts = Arrays.copyOf(starts, count * 2);
+        ends = Arrays.copyOf(ends, count * 2);
+      }
+      starts[count] = i;
+      i = ValueScanner.skip(content, i, content.length);
+      ends[count] = i;
+    }
+
+    BType<?>[] values = new BType<?>[count];
+    pool.invoke(new RangeTask(content, starts, ends, 0, count, values));
+    BList result = new BList();
+    for (BType<?> value : values) {
+      result.add(value);
+    }
+    return result;
+  }
+
+  /**
+   * <p>解码以content[offset]开始的数据。
+   * @param prefix 期望的类型前缀
+   */
+  BType<?> decode(final byte[] content, int offset, char prefix) {
+    if ((offset >= content.length) || (prefix != content[offset])) {
+      throw ValueScanner.formatError(
+          "Unexpected char in bencode, expecting " + prefix
+              + ", pos = " + offset);
+    }
+    int end = ValueScanner.skip(content, offset, content.length);
+    return pool.invoke(new ValueTask(content, offset, end));
+  }
+
+  private BType<?> decodeSequentially(final byte[] content, int offset) {
+    TreeBuilder builder = new TreeBuilder(sliceStrings, keyPool, shareNumbers);
+    parser.parseNext(content, offset, builder);
+    return builder.getLastValue();
+  }
+
+  /**
+   * <p>解码[start, end)之间的一个数据，较大的列表和字典会被拆分。
+   */
+  private final class ValueTask extends RecursiveTask<BType<?>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] content;
+    private final int start;
+    private final int end;
+
+    ValueTask(byte[] content, int start, int end) {
+      this.content = content;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected BType<?> compute() {
+      byte prefix = content[start];
+      if ((end - start < THRESHOLD)
+          || ((BList.PREFIX != prefix) && (BDictionary.PREFIX != prefix))) {
+        return decodeSequentially(content, start);
+      }
+      return (BList.PREFIX == prefix) ? computeList() : computeDictionary();
+    }
+
+    private BList computeList() {
+      int[] starts = new int[16];
+      int[] ends = new int[16];
+      int count = 0;
+      for (int i = start + 1; BList.SUFFIX != content[i]; count++) {
+        if (count == starts.length) {
+          starts = Arrays.copyOf(starts, count * 2);
+          ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = i;
+        i = ValueScanner.skip(content, i, end);
+        ends[count] = i;
+      }
+
+      BType<?>[] values = new BType<?>[count];
+      new RangeTask(content, starts, ends, 0, count, values).invoke();
+      BList result = new BList();
+      for (BType<?> value : values) {
+        result.add(value);
+      }
+      return result;
+    }
+
+    private BDictionary computeDictionary() {
+      BString[] keys = new BString[16];
+      int[] starts = new int[16];
+      int[] ends = new int[16];
+      int count = 0;
+      for (int i = start + 1; BList.SUFFIX != content[i]; count++) {
+        if (count == starts.length) {
+          keys = Arrays.copyOf(keys, count * 2);
+          starts = Arrays.copyOf(starts, count * 2);
+          ends = Arrays.copyOf(ends, count * 2);
+        }
+        int keyEnd = ValueScanner.stringEnd(content, i, end);
+        int keyStart = ValueScanner.stringContentStart(content, i);
+        keys[count] = newKey(content, keyStart, keyEnd);
+        starts[count] = keyEnd;
+        i = ValueScanner.skip(content, keyEnd, end);
+        ends[count] = i;
+      }
+
+      BType<?>[] values = new BType<?>[count];
+      new RangeTask(content, starts, ends, 0, count, values).invoke();
+      BDictionary result = new BDictionary();
+      for (int k = 0; k < count; k++) {
+        result.put(keys[k], values[k]);
+      }
+      return result;
+    }
+  }
+
+  private BString newKey(final byte[] content, int start, int end) {
+    BString key = (null == keyPool)
+        ? null : keyPool.intern(content, start, end - start);
+    if (null != key) {
+      return key;
+    }
+    return sliceStrings
+        ? new BString(content, start, end - start)
+        : new BString(Arrays.copyOfRange(content, start, end));
+  }
+
+  /**
+   * <p>解码第from到第to个（不包含）数据，结果依次保存在values中。
+   * 字节数超过阈值时拆分为两半，分别在不同的线程中解码。
+   */
+  private final class RangeTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] content;
+    private final int[] starts;
+    private final int[] ends;
+    private final int from;
+    private final int to;
+    private final BType<?>[] values;
+
+    RangeTask(byte[] content, int[] starts, int[] ends, int from, int to,
+        BType<?>[] values) {
+      this.content = content;
+      this.starts = starts;
+      this.ends = ends;
+      this.from = from;
+      this.to = to;
+      this.values = values;
+    }
+
+    @Override
+    protected void compute() {
+      if ((to - from > 1) && (ends[to - 1] - starts[from] >= THRESHOLD)) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new RangeTask(content, starts, ends, from, middle, values),
+            new RangeTask(content, starts, ends, middle, to, values));
+        return;
+      }
+      TreeBuilder builder = null;
+      for (int i = from; i < to; i++) {
+        if (ends[i] - starts[i] >= THRESHOLD) {
+          values[i] = new ValueTask(content, starts[i], ends[i]).compute();
+          continue;
+        }
+        if (null == builder) {
+          builder = new TreeBuilder(sliceStrings, keyPool, shareNumbers);
+        }
+        parser.parseNext(content, starts[i], builder);
+        values[i] = builder.getLastValue();
+      }
+    }
+  }
+}
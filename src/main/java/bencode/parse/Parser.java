@@ -1,28 +1,130 @@
 package bencode.parse;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import bencode.exception.BEncodeFormatException;
 import bencode.type.BDictionary;
 import bencode.type.BNumber;
 import bencode.type.BList;
 import bencode.type.BString;
-import bencode.type.BType;
 
 /**
  * <p>
  * 解析器，将一段字节数组转换为B编码的数据。https://en.wikipedia.org/wiki/Bencode
  *
+ * <p>解析过程由{@link BencodeVisitor}驱动，解析器本身不创建任何对象。
+ * 返回B编码对象的各个方法，都是通过{@link TreeBuilder}构建对象树的。
+ *
+ * <p>开启切片模式（{@link #setSliceStrings(boolean)}）后，解析出的{@link BString}
+ * 直接引用输入的字节数组或缓冲区，不再复制字符串的内容。
+ *
+ * <p>开启延迟解析模式（{@link #setLazy(boolean)}）后，解析字节数组得到的列表和字典
+ * 只记录各个子元素的位置，子元素在第一次被访问时才解码。
+ *
+ * <p>传入{@link ForkJoinPool}的解析方法会并发地解码较大的列表和字典中的子元素。
+ *
  * @author caoxudong
  * @since 0.1.0
  */
 public class Parser {
 
   private static Logger logger = LoggerFactory.getLogger(Parser.class);
-  
+
+  /**
+   * 映射文件时，每一段映射区域的大小为2的MAPPED_SEGMENT_SHIFT次方，即1GB。
+   */
+  private static final int MAPPED_SEGMENT_SHIFT = 30;
+
+  private boolean sliceStrings;
+  private boolean lazy;
+  private KeyPool keyPool;
+  private boolean shareNumbers;
+
+  /**
+   * @return 是否以切片的方式引用输入中的字符串
+   * @since 0.1.1
+   */
+  public boolean isSliceStrings() {
+    return sliceStrings;
+  }
+
+  /**
+   * <p>设置是否以切片的方式引用输入中的字符串。开启后，
+   * 在解析结果使用完之前，调用方不能修改或复用输入的数据，
+   * 否则应先调用{@link BString#copy()}或{@link BString#detach()}。
+   * @param sliceStrings 是否以切片的方式引用输入中的字符串
+   * @since 0.1.1
+   */
+  public void setSliceStrings(boolean sliceStrings) {
+    this.sliceStrings = sliceStrings;
+  }
+
+  /**
+   * @return 是否延迟解析列表和字典中的子元素
+   * @since 0.1.1
+   */
+  public boolean isLazy() {
+    return lazy;
+  }
+
+  /**
+   * <p>设置是否延迟解析列表和字典中的子元素，只对解析字节数组并返回
+   * B编码对象的方法有效。开启后，在解析结果使用完之前，调用方不能修改输入的数据。
+   * @param lazy 是否延迟解析列表和字典中的子元素
+   * @since 0.1.1
+   */
+  public void setLazy(boolean lazy) {
+    this.lazy = lazy;
+  }
+
+  /**
+   * @return 字典key的常量池，未设置时返回null
+   * @since 0.1.1
+   */
+  public KeyPool getKeyPool() {
+    return keyPool;
+  }
+
+  /**
+   * <p>设置字典key的常量池，只对返回B编码对象的方法有效。设置后，
+   * 内容相同的key共享同一个不可修改的{@link BString}实例，
+   * 同一个常量池可以被多个解析器共享。
+   * @param keyPool 字典key的常量池，为null时不使用常量池
+   * @since 0.1.1
+   */
+  public void setKeyPool(KeyPool keyPool) {
+    this.keyPool = keyPool;
+  }
+
+  /**
+   * @return 较小的整数是否使用共享的实例
+   * @since 0.1.1
+   */
+  public boolean isShareNumbers() {
+    return shareNumbers;
+  }
+
+  /**
+   * <p>设置较小的整数是否使用共享的实例，只对返回B编码对象的方法有效。
+   * 默认每个整数都是新的可修改的{@link BNumber}；开启后，
+   * 0到{@value BNumber#CACHE_HIGH}之间的整数使用{@link BNumber#valueOf(long)}
+   * 返回的共享实例，可以减少对象的个数，但调用它们的
+   * {@link BNumber#setLong(long)}会抛出{@link UnsupportedOperationException}。
+   * @param shareNumbers 较小的整数是否使用共享的实例
+   * @since 0.1.1
+   */
+  public void setShareNumbers(boolean shareNumbers) {
+    this.shareNumbers = shareNumbers;
+  }
+
   /**
    * <p>逐字节解析，遇到相应的类型前缀后，就调用目标类型的解析方法完成解析任务，
    * 返回解析结果，并增加相应的偏移量。
@@ -33,71 +135,171 @@ public class Parser {
    * @since 0.1.0
    */
   public BList parse(final byte[] content, int offset, int parseLength) {
-    BList result = new BList();
-    for (int i = offset; i < parseLength;) {
-      BType<?> element = parseNext(content, i);
-      i += element.getContentLength();
-      result.add(element);
+    if (lazy) {
+      return newLazyDecoder()
+          .decodeAll(content, offset, parseLength);
+    }
+    TreeBuilder builder = newBuilder();
+    parse(content, offset, parseLength, builder);
+    return builder.getValues();
+  }
+
+  /**
+   * <p>并行解析：先顺序找出各个顶层数据的边界，再在pool中并发地解码，
+   * 较大的列表和字典内部的子元素也会被并发地解码。结果的顺序与输入一致。
+   *
+   * <p>并行解析总是立即解码全部数据，不受延迟解析模式的影响。
+   * @param content 待解析的内容
+   * @param offset 偏移量，从该偏移量开始解析
+   * @param parseLength 指定解析的长度，达到该长度后，则停止解析
+   * @param pool 执行解码任务的线程池
+   * @return 解析出的数据
+   * @since 0.1.1
+   */
+  public BList parse(final byte[] content, int offset, int parseLength,
+      ForkJoinPool pool) {
+    return newParallelDecoder(pool)
+        .decodeAll(content, offset, parseLength);
+  }
+
+  /**
+   * <p>逐字节解析，将解析出的数据依次回调给visitor，不构建对象树。
+   * @param content 待解析的内容
+   * @param offset 偏移量，从该偏移量开始解析
+   * @param parseLength 指定解析的长度，达到该长度后，则停止解析
+   * @param visitor 接收解析事件的回调
+   * @since 0.1.1
+   */
+  public void parse(final byte[] content, int offset, int parseLength,
+      BencodeVisitor visitor) {
+    ByteInput input = ByteInput.of(content);
+    for (long i = offset; i < parseLength;) {
+      i = ValueScanner.parseNext(input, i, content.length, visitor);
     }
-    return result;
   }
-  
+
   /**
-   * <p>只解析出下一个B编码的数据类型。
-   * 
+   * <p>解析缓冲区中从position到limit之间的全部数据，不会修改缓冲区的position。
+   * @param content 待解析的内容
+   * @return 解析出的数据
+   * @since 0.1.1
+   */
+  public BList parse(final ByteBuffer content) {
+    TreeBuilder builder = newBuilder();
+    parse(content, builder);
+    return builder.getValues();
+  }
+
+  /**
+   * <p>解析缓冲区中从position到limit之间的全部数据，并回调给visitor。
+   * 字符串以{@link BencodeVisitor#visitString(ByteBuffer, int, int)}的形式回调，
+   * 位置都是缓冲区中的绝对位置。
+   * @param content 待解析的内容
+   * @param visitor 接收解析事件的回调
+   * @since 0.1.1
+   */
+  public void parse(final ByteBuffer content, BencodeVisitor visitor) {
+    ValueScanner.parse(ByteInput.of(content.duplicate()), content.position(),
+        content.limit(), visitor);
+  }
+
+  /**
+   * <p>将文件映射到内存中解析，参见{@link #parse(FileChannel, BencodeVisitor)}。
+   * @param path 待解析的文件
+   * @return 解析出的数据
+   * @throws IOException 打开或映射文件失败
+   * @since 0.1.1
+   */
+  public BList parse(Path path) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(path, StandardOpenOption.READ)) {
+      return parse(channel);
+    }
+  }
+
+  /**
+   * <p>将文件映射到内存中解析，参见{@link #parse(FileChannel, BencodeVisitor)}。
+   * @param channel 待解析的文件
+   * @return 解析出的数据
+   * @throws IOException 映射文件失败
+   * @since 0.1.1
+   */
+  public BList parse(FileChannel channel) throws IOException {
+    TreeBuilder builder = newBuilder();
+    parse(channel, builder);
+    return builder.getValues();
+  }
+
+  /**
+   * <p>将整个文件以只读方式映射到内存中，并回调给visitor。
+   *
+   * <p>文件按1GB分段映射，位置使用long表示，因此文件可以超过2GB。
+   * 字符串以{@link BencodeVisitor#visitString(ByteBuffer, int, int)}的形式
+   * 回调所在的映射区域，开启切片模式后，解析出的{@link BString}
+   * 直接引用映射区域，不会复制到堆中，只有跨越两段映射区域的字符串才会被复制。
+   * 映射区域在channel关闭后依然有效。
+   * @param channel 待解析的文件
+   * @param visitor 接收解析事件的回调
+   * @throws IOException 映射文件失败
+   * @since 0.1.1
+   */
+  public void parse(FileChannel channel, BencodeVisitor visitor)
+      throws IOException {
+    long size = channel.size();
+    long segmentSize = 1L << MAPPED_SEGMENT_SHIFT;
+    int segmentCount = (int)((size + segmentSize - 1) >>> MAPPED_SEGMENT_SHIFT);
+    ByteBuffer[] segments = new ByteBuffer[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      long start = i * segmentSize;
+      segments[i] = channel.map(
+          MapMode.READ_ONLY, start, Math.min(segmentSize, size - start));
+    }
+    ValueScanner.parse(
+        ByteInput.of(segments, MAPPED_SEGMENT_SHIFT), 0, size, visitor);
+  }
+
+  /**
+   * <p>只解析出下一个B编码的数据，并回调给visitor。
+   *
    * @param content 带解析的内容
    * @param offset  偏移量，从该偏移量开始解析
-   * @return        解析出的数据
-   * @since 0.1.0
+   * @param visitor 接收解析事件的回调
+   * @return        该数据结束后的下一个位置
+   * @since 0.1.1
    */
-  private BType<?> parseNext(final byte[] content, int offset) {
-    byte current = content[offset];
-    BType<?> result = null;
-    switch (current) {
-      case 'i': {
-        // number
-        result = parseNumber(content, offset);
-        break;
-      }
-
-      case 'l': {
-        // list
-        result = parseList(content, offset);
-        break;
-      }
-
-      case 'd': {
-        // dictionary
-        result = parseDic(content, offset);
-        break;
-      }
-
-      case '0':
-      case '1':
-      case '2':
-      case '3':
-      case '4':
-      case '5':
-      case '6':
-      case '7':
-      case '8':
-      case '9': {
-        // string
-        result = parseString(content, offset);
-        break;
-      }
-
-      default: {
-        logger.error(
-            "Unexpected char in bencode when detemining bencode type, "
-                + "char = {}, pos = {}", 
-            current, offset);
-        throw new BEncodeFormatException(
-            "Unexpected char in bencode, when detemining bencode type, char = " 
-                + (char)current + ", pos = " + offset);
-      }
-    }
-    return result;
+  public int parseNext(final byte[] content, int offset,
+      BencodeVisitor visitor) {
+    return (int)ValueScanner.parseNext(
+        ByteInput.of(content), offset, content.length, visitor);
+  }
+
+  /**
+   * <p>跳过下一个B编码的数据，返回它结束后的下一个位置，
+   * [offset, 返回值)即为该数据的原始字节。
+   *
+   * <p>只校验格式，不回调visitor，也不创建任何对象。
+   * 列表和字典使用显式的栈迭代跳过，不会因为嵌套过深而栈溢出。
+   *
+   * @param content 带解析的内容
+   * @param offset  数据的起始位置
+   * @return        该数据结束后的下一个位置
+   * @since 0.1.1
+   */
+  public int skip(final byte[] content, int offset) {
+    return ValueScanner.skip(content, offset, content.length);
+  }
+
+  /**
+   * <p>与{@link #skip(byte[], int)}相同，offset是缓冲区中的绝对位置，
+   * 不会修改缓冲区的position和limit。
+   *
+   * @param content 带解析的内容，最多读取到limit
+   * @param offset  数据的起始位置
+   * @return        该数据结束后的下一个位置
+   * @since 0.1.1
+   */
+  public int skip(final ByteBuffer content, int offset) {
+    return ValueScanner.skip(content, offset, content.limit());
   }
 
   /**
@@ -108,79 +310,34 @@ public class Parser {
    * @since 0.1.0
    */
   public BNumber parseNumber(final byte[] content, int offset) {
-    int i = offset + 1, pin = i;
-    int contentLength = content.length;
-    boolean isNagetive = false;
-
-    if (i >= contentLength) {
-      logger.error(
-          "Parsing number unfinished when reaching the end, starting pos = {}", 
-          offset);
-      throw new BEncodeFormatException(
-          "Parsing number unfinished when reaching the end, starting pos = " 
-              + offset);
-    }
-    
-    if ('-' == content[i]) {
-      isNagetive = true;
-      i++;
-    }
+    TreeBuilder builder = newBuilder();
+    parseNumber(content, offset, builder);
+    BNumber bInteger = (BNumber)builder.getLastValue();
 
-    if (BNumber.SUFFIX == content[i]) {
-      logger.error("Numbers not found when parsing number, pos = {}", i);
-      throw new BEncodeFormatException(
-          "Numbers not found when parsing number, pos = " + i);
-    }
-    
-    BNumber bInteger = null;
-    long value = 0;
-    do {
-      byte current = content[i];
-      if (BNumber.SUFFIX == current) {
-        bInteger = new BNumber();
-        if (isNagetive) {
-          if (0 == value) {
-            logger.error(
-                "Find invalid nagetive-zero when parsing number, pos = {}", i); 
-            throw new BEncodeFormatException(
-                "Find invalid nagetive-zero when parsing number, pos = " + i); 
-          } else {
-            value *= -1;
-          }
-        }
-        bInteger.setContent(value);
-        break;
-      } else {
-        if ((i == pin) && ('0' == current) 
-            && (i < contentLength) && (BNumber.SUFFIX != content[i + 1])) {
-          logger.error(
-              "Find unexpected pre-zero when parsing number, pos = {}", i);
-          throw new BEncodeFormatException(
-              "Find unexpected pre-zero when parsing number, pos = " + i);
-        } else {
-          value = value * 10 + (current - '0');
-        }
-      }
-      i++;
-    } while(i < contentLength);
-    
-    if (null == bInteger) {
-      logger.error(
-          "Parsing number unfinished when reaching the end, starting pos = {}", 
-          offset);
-      throw new BEncodeFormatException(
-          "Parsing number unfinished when reaching the end, starting post = " 
-              + offset);
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          "Parsing value, pos = {}, type = {}, value = {}, length = {}",
+          offset, BNumber.class,
+          bInteger.getLong(), bInteger.getContentLength());
     }
-    
-    logger.debug(
-        "Parsing value, pos = {}, type = {}, value = {}, length = {}",
-        offset, BNumber.class, 
-        bInteger.getContent(), bInteger.getContentLength());
-    
+
     return bInteger;
   }
 
+  /**
+   * <p>解析整数，并回调{@link BencodeVisitor#visitInteger(long)}。
+   * @param content     带解析的字节数组
+   * @param offset      偏移量，从某个位置开始解析
+   * @param visitor     接收解析事件的回调
+   * @return            该整数结束后的下一个位置
+   * @since 0.1.1
+   */
+  public int parseNumber(final byte[] content, int offset,
+      BencodeVisitor visitor) {
+    return (int)ValueScanner.parseNumber(
+        ByteInput.of(content), offset, content.length, visitor);
+  }
+
   /**
    * 解析字符串数据
    * @param content     带解析的字节数组
@@ -189,150 +346,167 @@ public class Parser {
    * @since 0.1.0
    */
   public BString parseString(final byte[] content, int offset) {
-    int i = offset;
-    int value = 0;
-    int contentLength = content.length;
-
-    BString bString = null; 
-    do {
-      byte current = content[i++];
-      if (BString.DELIMITER != current) {
-        value = value * 10 + (current - '0');
-      } else {
-        if ((contentLength - i + 1) < value) {
-          logger.error(
-              "Parsing string unfinished when reaching the end, "
-                  + "starting pos = {}", 
-              offset);
-          throw new BEncodeFormatException(
-              "Parsing string unfinished when reaching the end, "
-                  + "starting pos = " + offset);
-        }
-        bString = new BString();
-        bString.setContent(Arrays.copyOfRange(content, i, i + value));
-        break;
-      }
-    } while (i < contentLength);
-    
-    if (null == bString) {
-      logger.error(
-          "Parsing string unfinished when reaching the end, "
-              + "starting pos = {}", 
-          offset);
-      throw new BEncodeFormatException(
-          "Parsing string unfinished when reaching the end, "
-              + "starting pos = " + offset);
+    TreeBuilder builder = newBuilder();
+    parseString(content, offset, builder, false);
+    BString bString = (BString)builder.getLastValue();
+
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          "Parsing value, pos = {}, type = {}, value = {}, length = {}",
+          offset, BString.class,
+          bString.getContent(), bString.getContentLength());
     }
-    
-    logger.debug(
-        "Parsing value, pos = {}, type = {}, value = {}, length = {}",
-        offset, BString.class, 
-        bString.getContent(), bString.getContentLength());
-    
+
     return bString;
   }
 
+  /**
+   * <p>解析字符串数据，并回调{@link BencodeVisitor#visitString}，
+   * 若是字典的key，则回调{@link BencodeVisitor#visitKey}。
+   * @param content     带解析的字节数组
+   * @param offset      偏移量，从某个位置开始解析
+   * @param visitor     接收解析事件的回调
+   * @param isKey       是否是字典中的key
+   * @return            该字符串结束后的下一个位置
+   */
+  private int parseString(final byte[] content, int offset,
+      BencodeVisitor visitor, boolean isKey) {
+    return (int)ValueScanner.parseString(
+        ByteInput.of(content), offset, content.length, visitor, isKey);
+  }
+
   /**
    * <p>解析列表数据。由于列表数据中可能包含更复杂的结构，
-   * 因此会调用{@link Parser#parseNext(byte[], int)}完成解析任务。
+   * 因此会调用{@link Parser#parseNext(byte[], int, BencodeVisitor)}完成解析任务。
    * @param content     带解析的字节数组
    * @param offset      偏移量，从某个位置开始解析
    * @return            解析结果
    * @since 0.1.0
    */
   public BList parseList(final byte[] content, int offset) {
-    BList bList = new BList();
-    int i = offset + 1;
-    int contentLength = content.length;
-    
-    if (i >= contentLength) {
-      logger.error(
-          "Parsing list unfinished when reaching the end, "
-              + "starting pos = {}", 
-          offset);
-      throw new BEncodeFormatException(
-          "Parsing string unfinished when reaching the end, "
-              + "starting pos = " + offset);
+    BList bList;
+    if (lazy) {
+      bList = (BList)newLazyDecoder()
+          .decode(content, offset);
+    } else {
+      TreeBuilder builder = newBuilder();
+      parseList(content, offset, builder);
+      bList = (BList)builder.getLastValue();
     }
-    
-    if (BList.SUFFIX == content[i]) {
-      return bList;
-    }
-    
-    while (true) {
-      BType<?> bElement = parseNext(content, i);
-      bList.add(bElement);
-      i += bElement.getContentLength();
-      if (i >= contentLength) {
-        logger.error(
-            "Parsing list unfinished when reaching the end, "
-                + "starting pos = {}", 
-            offset);
-        throw new BEncodeFormatException(
-            "Parsing string unfinished when reaching the end, "
-                + "starting pos = " + offset);
-      } else if (content[i] == BList.SUFFIX) {
-        break;
-      }
+
+    if (lazy) {
+      logger.debug(
+          "Parsing value lazily, pos = {}, type = {}, length = {}",
+          offset, BList.class, bList.getContentLength());
+    } else {
+      logger.debug(
+          "Parsing value, pos = {}, type = {}, value = {}, length = {}",
+          offset, BList.class,
+          bList, bList.getContentLength());
     }
-    
-    logger.debug(
-        "Parsing value, pos = {}, type = {}, value = {}, length = {}",
-        offset, BList.class, 
-        bList.getContent(), bList.getContentLength());
-    
+
     return bList;
   }
 
+  /**
+   * <p>解析列表数据，并依次回调{@link BencodeVisitor#beginList()}、
+   * 各个元素的事件以及{@link BencodeVisitor#endList()}。
+   * @param content     带解析的字节数组
+   * @param offset      偏移量，从某个位置开始解析
+   * @param visitor     接收解析事件的回调
+   * @return            该列表结束后的下一个位置
+   * @since 0.1.1
+   */
+  public int parseList(final byte[] content, int offset,
+      BencodeVisitor visitor) {
+    return (int)ValueScanner.parseList(
+        ByteInput.of(content), offset, content.length, visitor);
+  }
+
+  /**
+   * <p>并行解析列表数据，参见{@link #parse(byte[], int, int, ForkJoinPool)}。
+   * @param content     带解析的字节数组
+   * @param offset      偏移量，从某个位置开始解析
+   * @param pool        执行解码任务的线程池
+   * @return            解析结果
+   * @since 0.1.1
+   */
+  public BList parseList(final byte[] content, int offset,
+      ForkJoinPool pool) {
+    return (BList)newParallelDecoder(pool)
+        .decode(content, offset, BList.PREFIX);
+  }
+
+  /**
+   * <p>解析字典数据。
+   * @param content     带解析的字节数组
+   * @param offset      偏移量，从某个位置开始解析
+   * @return            解析结果
+   * @since 0.1.0
+   */
   public BDictionary parseDic(final byte[] content, int offset) {
-    BDictionary bDictionary = new BDictionary();
-    int i = offset + 1;
-    int contentLength = content.length;
-    
-    if (i >= contentLength) {
-      logger.error(
-          "Parsing dictionary unfinished when reaching the end, "
-              + "starting pos = {}", 
-          offset);
-      throw new BEncodeFormatException(
-          "Parsing dictionary unfinished when reaching the end, "
-              + "starting pos = " + offset);
+    BDictionary bDictionary;
+    if (lazy) {
+      bDictionary = (BDictionary)newLazyDecoder()
+          .decode(content, offset);
+    } else {
+      TreeBuilder builder = newBuilder();
+      parseDic(content, offset, builder);
+      bDictionary = (BDictionary)builder.getLastValue();
     }
-    
-    if (BDictionary.SUFFIX == content[i]) {
-      return bDictionary;
-    }
-    
-    while (true) {
-      // parse key
-      BString key = parseString(content, i);
-      i += key.getContentLength();
-      
-      // parse value
-      BType<?> value = parseNext(content, i);
-      i += value.getContentLength();
-      
-      bDictionary.put(key, value);
-      
-      if (i >= contentLength) {
-        logger.error(
-            "Parsing list unfinished when reaching the end, "
-                + "starting pos = {}", 
-            offset);
-        throw new BEncodeFormatException(
-            "Parsing string unfinished when reaching the end, "
-                + "starting pos = " + offset);
-      } else if (content[i] == BDictionary.SUFFIX) {
-        break;
-      }
+
+    if (lazy) {
+      logger.debug(
+          "Parsing value lazily, pos = {}, type = {}, length = {}",
+          offset, BDictionary.class, bDictionary.getContentLength());
+    } else {
+      logger.debug(
+          "Parsing value, pos = {}, type = {}, value = {}, length = {}",
+          offset, BDictionary.class,
+          bDictionary, bDictionary.getContentLength());
     }
-    
-    logger.debug(
-        "Parsing value, pos = {}, type = {}, value = {}, length = {}",
-        offset, BDictionary.class, 
-        bDictionary.getContent(), bDictionary.getContentLength());
-    
+
     return bDictionary;
   }
 
+  /**
+   * <p>并行解析字典数据，参见{@link #parse(byte[], int, int, ForkJoinPool)}。
+   * @param content     带解析的字节数组
+   * @param offset      偏移量，从某个位置开始解析
+   * @param pool        执行解码任务的线程池
+   * @return            解析结果
+   * @since 0.1.1
+   */
+  public BDictionary parseDic(final byte[] content, int offset,
+      ForkJoinPool pool) {
+    return (BDictionary)newParallelDecoder(pool)
+        .decode(content, offset, BDictionary.PREFIX);
+  }
+
+  /**
+   * <p>解析字典数据，并依次回调{@link BencodeVisitor#beginDict()}、
+   * 各个key和value的事件以及{@link BencodeVisitor#endDict()}。
+   * @param content     带解析的字节数组
+   * @param offset      偏移量，从某个位置开始解析
+   * @param visitor     接收解析事件的回调
+   * @return            该字典结束后的下一个位置
+   * @since 0.1.1
+   */
+  public int parseDic(final byte[] content, int offset,
+      BencodeVisitor visitor) {
+    return (int)ValueScanner.parseDic(
+        ByteInput.of(content), offset, content.length, visitor);
+  }
+
+  private TreeBuilder newBuilder() {
+    return new TreeBuilder(sliceStrings, keyPool, shareNumbers);
+  }
+
+  private LazyDecoder newLazyDecoder() {
+    return new LazyDecoder(sliceStrings, keyPool, shareNumbers);
+  }
+
+  private ParallelDecoder newParallelDecoder(ForkJoinPool pool) {
+    return new ParallelDecoder(sliceStrings, keyPool, shareNumbers, pool);
+  }
 }
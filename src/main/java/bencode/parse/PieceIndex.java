@@ -0,0 +1,309 @@
+package bencode.parse;
+
+/**
+ * <p>piece与文件之间的映射关系。
+ *
+ * <p>所有文件首尾相连，组成一段连续的数据，piece按照piece length切分这段数据。
+ * 创建时计算每个文件在这段数据中的起始位置（长度的前缀和），
+ * 之后通过二分查找定位某个位置所在的文件，每次查询的时间复杂度为O(log n)。
+ *
+ * <p>只有v2信息的种子，每个文件都从一个新的piece开始（BEP 52），
+ * 此时各个非空文件的起始位置会按piece length对齐，每个piece只属于一个文件。
+ *
+ * <p>该类是不可修改的，可以被多个线程共享。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public final class PieceIndex {
+
+  private final long pieceLength;
+  private final boolean aligned;
+  private final int pieceCount;
+  private final int fileCount;
+  /**
+   * 第i个文件的数据位于[offsets[i], offsets[i] + lengths[i])，
+   * offsets[fileCount]为所有数据的结束位置。
+   */
+  private final long[] offsets;
+  private final long[] lengths;
+
+  /**
+   * @param metainfo 种子文件的内容
+   * @since 0.1.1
+   */
+  public PieceIndex(final Metainfo metainfo) {
+    this.pieceLength = metainfo.pieceLength;
+    this.fileCount = metainfo.fileCount;
+    this.lengths = metainfo.fileLengths;
+    this.offsets = new long[fileCount + 1];
+    this.aligned = !metainfo.hasV1();
+    long position = 0;
+    for (int i = 0; i < fileCount; i++) {
+      if (aligned && (lengths[i] > 0)) {
+        position = (position + pieceLength - 1) / pieceLength * pieceLength;
+      }
+      offsets[i] = position;
+      position += lengths[i];
+    }
+    offsets[fileCount] = position;
+    this.pieceCount = aligned
+        ? (int)((position + pieceLength - 1) / pieceLength)
+        : metainfo.pieceCount;
+  }
+
+  /**
+   * @return piece的个数
+   * @since 0.1.1
+   */
+  public int getPieceCount() {
+    return pieceCount;
+  }
+
+  /**
+   * @param piece piece的序号
+   * @return      该piece的长度，最后一个piece可能小于piece length
+   * @since 0.1.1
+   */
+  public long pieceSize(int piece) {
+    checkPiece(piece);
+    long start = piece * pieceLength;
+    return Math.min(pieceLength, offsets[fileCount] - start);
+  }
+
+  /**
+   * @param file 文件的序号
+   * @return     该文件在所有数据中的起始位置
+   * @since 0.1.1
+   */
+  public long fileOffset(int file) {
+    checkFile(file);
+    return offsets[file];
+  }
+
+  /**
+   * @param offset 在所有数据中的位置
+   * @return       包含该位置的文件的序号，该位置是v2的对齐填充时返回-1
+   * @since 0.1.1
+   */
+  public int fileAt(long offset) {
+    if ((offset < 0) || (offset >= offsets[fileCount])) {
+      throw new IndexOutOfBoundsException(
+          "offset = " + offset + ", total length = " + offsets[fileCount]);
+    }
+    int file = upperBound(offset) - 1;
+    return (offset < offsets[file] + lengths[file]) ? file : -1;
+  }
+
+  /**
+   * <p>不会创建对象，与{@link #lastFile(int)}一起使用可以遍历piece涉及的文件。
+   * @param piece piece的序号
+   * @return      该piece涉及的第一个文件的序号
+   * @since 0.1.1
+   */
+  public int firstFile(int piece) {
+    checkPiece(piece);
+    return upperBound(piece * pieceLength) - 1;
+  }
+
+  /**
+   * @param piece piece的序号
+   * @return      该piece涉及的最后一个文件的序号
+   * @since 0.1.1
+   */
+  public int lastFile(int piece) {
+    if (aligned) {
+      return firstFile(piece);
+    }
+    long end = piece * pieceLength + pieceSize(piece);
+    return lowerBound(end) - 1;
+  }
+
+  /**
+   * @param piece piece的序号
+   * @return      该piece涉及的各个文件及其中的范围，不包含长度为0的文件
+   * @since 0.1.1
+   */
+  public FileSlice[] filesForPiece(int piece) {
+    return filesForRange(piece * pieceLength, pieceSize(piece));
+  }
+
+  /**
+   * <p>用于定位一个block所在的各个文件。
+   * @param offset 在所有数据中的起始位置
+   * @param length 数据的长度
+   * @return       该范围涉及的各个文件及其中的范围，不包含长度为0的文件
+   * @since 0.1.1
+   */
+  public FileSlice[] filesForRange(long offset, long length) {
+    long end = offset + length;
+    if ((offset < 0) || (length < 0) || (end > offsets[fileCount])) {
+      throw new IndexOutOfBoundsException("offset = " + offset
+          + ", length = " + length + ", total length = " + offsets[fileCount]);
+    }
+    if (0 == length) {
+      return new FileSlice[0];
+    }
+    int first = upperBound(offset) - 1;
+    int last = lowerBound(end) - 1;
+    int count = 0;
+    for (int i = first; i <= last; i++) {
+      if (overlap(i, offset, end) > 0) {
+        count++;
+      }
+    }
+    FileSlice[] slices = new FileSlice[count];
+    int n = 0;
+    for (int i = first; i <= last; i++) {
+      long size = overlap(i, offset, end);
+      if (size > 0) {
+        long start = Math.max(offset, offsets[i]);
+        slices[n++] = new FileSlice(i, start - offsets[i], size);
+      }
+    }
+    return slices;
+  }
+
+  /**
+   * @param file 文件的序号
+   * @return     包含该文件数据的第一个piece的序号
+   * @since 0.1.1
+   */
+  public int pieceStart(int file) {
+    checkFile(file);
+    return (int)(offsets[file] / pieceLength);
+  }
+
+  /**
+   * <p>长度为0的文件不属于任何piece，此时与{@link #pieceStart(int)}相同。
+   * @param file 文件的序号
+   * @return     包含该文件数据的最后一个piece的序号加1
+   * @since 0.1.1
+   */
+  public int pieceEnd(int file) {
+    checkFile(file);
+    if (0 == lengths[file]) {
+      return pieceStart(file);
+    }
+    long end = offsets[file] + lengths[file];
+    return (int)((end + pieceLength - 1) / pieceLength);
+  }
+
+  private long overlap(int file, long start, long end) {
+    long fileStart = offsets[file];
+    long fileEnd = fileStart + lengths[file];
+    return Math.min(end, fileEnd) - Math.max(start, fileStart);
+  }
+
+  /**
+   * @return offsets中第一个大于value的位置
+   */
+  private int upperBound(long value) {
+    int low = 0;
+    int high = fileCount;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (offsets[mid] <= value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return offsets中第一个不小于value的位置
+   */
+  private int lowerBound(long value) {
+    int low = 0;
+    int high = fileCount;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (offsets[mid] < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private void checkPiece(int piece) {
+    if ((piece < 0) || (piece >= pieceCount)) {
+      throw new IndexOutOfBoundsException(
+          "piece = " + piece + ", piece count = " + pieceCount);
+    }
+  }
+
+  private void checkFile(int file) {
+    if ((file < 0) || (file >= fileCount)) {
+      throw new IndexOutOfBoundsException(
+          "file = " + file + ", file count = " + fileCount);
+    }
+  }
+
+  /**
+   * <p>一段数据在某个文件中的位置。
+   *
+   * @author caoxudong
+   * @since 0.1.1
+   */
+  public static final class FileSlice {
+
+    private final int file;
+    private final long offset;
+    private final long length;
+
+    FileSlice(int file, long offset, long length) {
+      this.file = file;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    /**
+     * @return 文件的序号
+     * @since 0.1.1
+     */
+    public int getFile() {
+      return file;
+    }
+
+    /**
+     * @return 在该文件中的起始位置
+     * @since 0.1.1
+     */
+    public long getOffset() {
+      return offset;
+    }
+
+    /**
+     * @return 数据的长度
+     * @since 0.1.1
+     */
+    public long getLength() {
+      return length;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof FileSlice)) {
+        return false;
+      }
+      FileSlice other = (FileSlice)obj;
+      return (file == other.file) && (offset == other.offset)
+          && (length == other.length);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * file + Long.hashCode(offset)) + Long.hashCode(length);
+    }
+
+    @Override
+    public String toString() {
+      return "FileSlice [file=" + file + ", offset=" + offset + ", length="
+          + length + "]";
+    }
+  }
+}
@@ -0,0 +1,189 @@
+package bencode.parse;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import bencode.type.BDictionary;
+import bencode.type.BList;
+import bencode.type.BNumber;
+import bencode.type.BString;
+import bencode.type.BType;
+
+/**
+ * <p>根据解析事件构建B编码对象树的{@link BencodeVisitor}。
+ *
+ * <p>顶层的各个数据依次记录下来，可以通过{@link #getValues()}一起获取，
+ * 在此之前它们不属于任何容器。
+ * 若开启了切片模式，则创建的{@link BString}只是输入数据的视图，不会复制内容，
+ * 参见{@link BString#detach()}。
+ * 若指定了{@link KeyPool}，则字典的key从常量池中获取，不受切片模式的影响。
+ * 默认每个整数都创建新的可修改的{@link BNumber}，开启共享整数后，
+ * 0到{@value BNumber#CACHE_HIGH}之间的整数使用{@link BNumber#valueOf(long)}
+ * 返回的共享的不可修改的实例。
+ * 该类不是线程安全的，每次解析应使用新的实例。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public class TreeBuilder implements BencodeVisitor {
+
+  private final boolean sliceStrings;
+  private final KeyPool keyPool;
+  private final boolean shareNumbers;
+  private final ArrayList<BType<?>> values = new ArrayList<>();
+  private BType<?> lastValue;
+
+  private final ArrayList<BType<?>> containers = new ArrayList<>();
+  private final ArrayList<BString> containerKeys = new ArrayList<>();
+  private BString pendingKey;
+
+  public TreeBuilder() {
+    this(false);
+  }
+
+  /**
+   * @param sliceStrings 是否以切片的方式引用输入中的字符串，而不复制内容
+   * @since 0.1.1
+   */
+  public TreeBuilder(boolean sliceStrings) {
+    this(sliceStrings, null);
+  }
+
+  /**
+   * @param sliceStrings 是否以切片的方式引用输入中的字符串，而不复制内容
+   * @param keyPool      字典key的常量池，为null时不使用常量池
+   * @since 0.1.1
+   */
+  public TreeBuilder(boolean sliceStrings, KeyPool keyPool) {
+    this(sliceStrings, keyPool, false);
+  }
+
+  /**
+   * @param sliceStrings 是否以切片的方式引用输入中的字符串，而不复制内容
+   * @param keyPool      字典key的常量池，为null时不使用常量池
+   * @param shareNumbers 较小的整数是否使用共享的不可修改的实例
+   * @since 0.1.1
+   */
+  public TreeBuilder(
+      boolean sliceStrings, KeyPool keyPool, boolean shareNumbers) {
+    this.sliceStrings = sliceStrings;
+    this.keyPool = keyPool;
+    this.shareNumbers = shareNumbers;
+  }
+
+  /**
+   * <p>每次调用都创建新的列表。
+   * @return 包含已经解析完成的顶层数据的列表
+   * @since 0.1.1
+   */
+  public BList getValues() {
+    BList list = new BList();
+    list.addAll(values);
+    return list;
+  }
+
+  /**
+   * @return 最后一个解析完成的顶层数据，尚未解析出任何数据时返回null
+   * @since 0.1.1
+   */
+  public BType<?> getLastValue() {
+    return lastValue;
+  }
+
+  @Override
+  public void visitInteger(long value) {
+    addValue(shareNumbers ? BNumber.valueOf(value) : new BNumber(value));
+  }
+
+  @Override
+  public void visitString(byte[] buf, int offset, int length) {
+    addValue(newString(buf, offset, length));
+  }
+
+  @Override
+  public void visitString(ByteBuffer buf, int offset, int length) {
+    addValue(newString(buf, offset, length));
+  }
+
+  @Override
+  public void beginList() {
+    beginContainer(new BList());
+  }
+
+  @Override
+  public void endList() {
+    endContainer();
+  }
+
+  @Override
+  public void beginDict() {
+    beginContainer(new BDictionary());
+  }
+
+  @Override
+  public void visitKey(byte[] buf, int offset, int length) {
+    BString key =
+        (null == keyPool) ? null : keyPool.intern(buf, offset, length);
+    pendingKey = (null != key) ? key : newString(buf, offset, length);
+  }
+
+  @Override
+  public void visitKey(ByteBuffer buf, int offset, int length) {
+    BString key =
+        (null == keyPool) ? null : keyPool.intern(buf, offset, length);
+    pendingKey = (null != key) ? key : newString(buf, offset, length);
+  }
+
+  @Override
+  public void endDict() {
+    endContainer();
+  }
+
+  private BString newString(byte[] buf, int offset, int length) {
+    if (sliceStrings) {
+      return new BString(buf, offset, length);
+    }
+    return new BString(Arrays.copyOfRange(buf, offset, offset + length));
+  }
+
+  private BString newString(ByteBuffer buf, int offset, int length) {
+    if (buf.hasArray()) {
+      return newString(buf.array(), buf.arrayOffset() + offset, length);
+    }
+    BString bString = new BString(buf, offset, length);
+    return sliceStrings ? bString : bString.detach();
+  }
+
+  private void beginContainer(BType<?> container) {
+    containers.add(container);
+    containerKeys.add(pendingKey);
+    pendingKey = null;
+  }
+
+  /**
+   * <p>容器解析完成后才将其加入上一层容器，
+   * 这样上一层容器记录的编码长度才是准确的。
+   */
+  private void endContainer() {
+    int last = containers.size() - 1;
+    BType<?> container = containers.remove(last);
+    pendingKey = containerKeys.remove(last);
+    addValue(container);
+  }
+
+  private void addValue(BType<?> value) {
+    if (containers.isEmpty()) {
+      values.add(value);
+      lastValue = value;
+      return;
+    }
+    BType<?> parent = containers.get(containers.size() - 1);
+    if (parent instanceof BList) {
+      ((BList)parent).add(value);
+    } else {
+      ((BDictionary)parent).put(pendingKey, value);
+      pendingKey = null;
+    }
+  }
+}
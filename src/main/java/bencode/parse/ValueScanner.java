@@ -0,0 +1,517 @@
+package bencode.parse;
+
+import java.nio.ByteBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import bencode.exception.BEncodeFormatException;
+import bencode.type.BDictionary;
+import bencode.type.BList;
+import bencode.type.BNumber;
+import bencode.type.BString;
+
+/**
+ * <p>所有随机访问输入共用的扫描器：校验格式、计算数据结束位置，
+ * 以及将数据依次回调给{@link BencodeVisitor}。
+ * 字节数组、{@link ByteBuffer}和分段映射的文件都通过{@link ByteInput}读取，
+ * 因此校验规则只有一份。
+ *
+ * <p>格式错误时抛出{@link BEncodeFormatException}。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+final class ValueScanner {
+
+  private static Logger logger = LoggerFactory.getLogger(ValueScanner.class);
+
+  private ValueScanner() {
+  }
+
+  /**
+   * @param content 待解析的内容
+   * @param offset  整数的起始位置，即前缀'i'的位置
+   * @param limit   可以读取的最大位置（不包含）
+   * @return        整数结束后的下一个位置
+   */
+  static int numberEnd(final byte[] content, int offset, int limit) {
+    return (int)numberEnd(ByteInput.of(content), offset, limit);
+  }
+
+  /**
+   * <p>不能是"-0"，不能有多余的前导0，
+   * 数值必须在[-Long.MAX_VALUE, Long.MAX_VALUE]的范围内。
+   * @param input  待解析的内容
+   * @param offset 整数的起始位置，即前缀'i'的位置
+   * @param limit  可以读取的最大位置（不包含）
+   * @return       整数结束后的下一个位置
+   */
+  static long numberEnd(final ByteInput input, long offset, long limit) {
+    long i = offset + 1, pin = i;
+    boolean isNagetive = false;
+
+    if ((i < limit) && ('-' == input.get(i))) {
+      isNagetive = true;
+      i++;
+      pin++;
+    }
+
+    if ((i < limit) && (BNumber.SUFFIX == input.get(i))) {
+      throw formatError("Numbers not found when parsing number, pos = " + i);
+    }
+
+    long value = 0;
+    for (; i < limit; i++) {
+      byte current = input.get(i);
+      if (BNumber.SUFFIX == current) {
+        signedValue(isNagetive, value, i);
+        return i + 1;
+      }
+      value = appendDigit(value, i > pin, current, i);
+    }
+
+    throw formatError(
+        "Parsing number unfinished when reaching the end, starting pos = "
+            + offset);
+  }
+
+  /**
+   * <p>整数中的下一个数字，流式的解码器逐个字节调用，
+   * 与{@link #numberEnd(ByteInput, long, long)}使用相同的校验规则。
+   * @param value     已经读取的各个数字组成的值（不含符号）
+   * @param hasDigits 之前是否已经读取过数字
+   * @param current   当前字节
+   * @param pos       用于错误信息的位置
+   * @return          加上当前数字后的值
+   */
+  static long appendDigit(long value, boolean hasDigits, int current,
+      long pos) {
+    if ((current < '0') || (current > '9')) {
+      throw formatError(
+          "Unexpected char when parsing number, char = " + (char)current
+              + ", pos = " + pos);
+    }
+    if (hasDigits && (0 == value)) {
+      throw formatError(
+          "Find unexpected pre-zero when parsing number, pos = " + pos);
+    }
+    int digit = current - '0';
+    if (value > (Long.MAX_VALUE - digit) / 10) {
+      throw formatError("Number overflow when parsing number, pos = " + pos);
+    }
+    return value * 10 + digit;
+  }
+
+  /**
+   * <p>读到整数的后缀'e'时调用。
+   * @param isNagetive 是否有负号
+   * @param value      各个数字组成的值（不含符号）
+   * @param pos        用于错误信息的位置
+   * @return           整数的值
+   */
+  static long signedValue(boolean isNagetive, long value, long pos) {
+    if (!isNagetive) {
+      return value;
+    }
+    if (0 == value) {
+      throw formatError(
+          "Find invalid nagetive-zero when parsing number, pos = " + pos);
+    }
+    return -value;
+  }
+
+  /**
+   * <p>字符串长度前缀中的下一个数字。
+   * @param value   已经读取的长度
+   * @param current 当前字节
+   * @param pos     用于错误信息的位置
+   * @return        加上当前数字后的长度，不会超过{@link Integer#MAX_VALUE}
+   */
+  static long appendLengthDigit(long value, int current, long pos) {
+    if ((current < '0') || (current > '9')) {
+      throw formatError(
+          "Unexpected char when parsing string length, char = "
+              + (char)current + ", pos = " + pos);
+    }
+    long result = value * 10 + (current - '0');
+    if (result > Integer.MAX_VALUE) {
+      throw formatError(
+          "String too long when parsing string, pos = " + pos);
+    }
+    return result;
+  }
+
+  /**
+   * <p>解析已经校验过格式的整数。
+   * @param content 待解析的内容
+   * @param offset  整数的起始位置，即前缀'i'的位置
+   * @return        整数的值
+   */
+  static long numberValue(final byte[] content, int offset) {
+    return numberValue(ByteInput.of(content), offset);
+  }
+
+  /**
+   * @see #numberValue(byte[], int)
+   */
+  static long numberValue(final ByteInput input, long offset) {
+    long i = offset + 1;
+    boolean isNagetive = ('-' == input.get(i));
+    if (isNagetive) {
+      i++;
+    }
+    long value = 0;
+    for (byte current; BNumber.SUFFIX != (current = input.get(i)); i++) {
+      value = value * 10 + (current - '0');
+    }
+    return isNagetive ? -value : value;
+  }
+
+  /**
+   * @param content 待解析的内容
+   * @param offset  字符串的起始位置，即长度前缀的位置
+   * @param limit   可以读取的最大位置（不包含）
+   * @return        字符串结束后的下一个位置
+   */
+  static int stringEnd(final byte[] content, int offset, int limit) {
+    return (int)stringEnd(ByteInput.of(content), offset, limit);
+  }
+
+  /**
+   * @see #stringEnd(byte[], int, int)
+   */
+  static long stringEnd(final ByteInput input, long offset, long limit) {
+    long i = offset;
+    long value = 0;
+
+    while (i < limit) {
+      byte current = input.get(i++);
+      if (BString.DELIMITER == current) {
+        if ((limit - i) < value) {
+          break;
+        }
+        return i + value;
+      }
+      value = appendLengthDigit(value, current, i - 1);
+    }
+
+    throw formatError(
+        "Parsing string unfinished when reaching the end, "
+            + "starting pos = " + offset);
+  }
+
+  /**
+   * <p>计算已经校验过格式的字符串的内容起始位置。
+   * @param content 待解析的内容
+   * @param offset  字符串的起始位置，即长度前缀的位置
+   * @return        字符串内容的起始位置，即分隔符':'的下一个位置
+   */
+  static int stringContentStart(final byte[] content, int offset) {
+    int i = offset;
+    while (BString.DELIMITER != content[i]) {
+      i++;
+    }
+    return i + 1;
+  }
+
+  /**
+   * @see #stringContentStart(byte[], int)
+   */
+  static long stringContentStart(final ByteInput input, long offset) {
+    long i = offset;
+    while (BString.DELIMITER != input.get(i)) {
+      i++;
+    }
+    return i + 1;
+  }
+
+  /**
+   * @param content 待解析的内容
+   * @param offset  数据的起始位置
+   * @param limit   可以读取的最大位置（不包含）
+   * @return        数据结束后的下一个位置
+   * @see #skip(ByteInput, long, long)
+   */
+  static int skip(final byte[] content, int offset, int limit) {
+    return (int)skip(ByteInput.of(content), offset, limit);
+  }
+
+  /**
+   * <p>与{@link #skip(byte[], int, int)}相同，使用缓冲区中的绝对位置。
+   * @param content 待解析的内容
+   * @param offset  数据的起始位置
+   * @param limit   可以读取的最大位置（不包含）
+   * @return        数据结束后的下一个位置
+   */
+  static int skip(final ByteBuffer content, int offset, int limit) {
+    return (int)skip(ByteInput.of(content), offset, limit);
+  }
+
+  /**
+   * <p>计算下一个数据结束的位置，列表和字典会被完整跳过并校验格式。
+   *
+   * <p>使用显式的栈代替递归：只需要为每一层记录"是否是字典"以及
+   * "下一个是否应该是key"两个标志位，前64层保存在两个long中，
+   * 只有嵌套超过64层时才会分配数组，因此通常不会有任何堆内存分配。
+   * @param input  待解析的内容
+   * @param offset 数据的起始位置
+   * @param limit  可以读取的最大位置（不包含）
+   * @return       数据结束后的下一个位置
+   */
+  static long skip(final ByteInput input, long offset, long limit) {
+    long i = offset;
+    int depth = 0;
+    long dictBits = 0;
+    long keyBits = 0;
+    long[] deepDictBits = null;
+    long[] deepKeyBits = null;
+
+    do {
+      if (i >= limit) {
+        throw formatError(
+            "Parsing value unfinished when reaching the end, "
+                + "starting pos = " + offset);
+      }
+      byte current = input.get(i);
+
+      boolean inDict = false;
+      boolean expectKey = false;
+      if (depth > 0) {
+        int level = depth - 1;
+        if (level < 64) {
+          inDict = 0 != (dictBits & (1L << level));
+          expectKey = 0 != (keyBits & (1L << level));
+        } else {
+          inDict = getBit(deepDictBits, level - 64);
+          expectKey = getBit(deepKeyBits, level - 64);
+        }
+
+        if (BList.SUFFIX == current) {
+          if (inDict && !expectKey) {
+            throw formatError("Dictionary value not found, pos = " + i);
+          }
+          depth--;
+          i++;
+          continue;
+        }
+
+        if (inDict) {
+          if (expectKey && ((current < '0') || (current > '9'))) {
+            throw formatError(
+                "Dictionary key must be string, char = " + (char)current
+                    + ", pos = " + i);
+          }
+          if (level < 64) {
+            keyBits ^= 1L << level;
+          } else {
+            flipBit(deepKeyBits, level - 64);
+          }
+        }
+      }
+
+      switch (current) {
+        case BNumber.PREFIX: {
+          i = numberEnd(input, i, limit);
+          break;
+        }
+
+        case BList.PREFIX:
+        case BDictionary.PREFIX: {
+          boolean isDict = BDictionary.PREFIX == current;
+          if (depth < 64) {
+            long bit = 1L << depth;
+            dictBits = isDict ? (dictBits | bit) : (dictBits & ~bit);
+            keyBits = isDict ? (keyBits | bit) : (keyBits & ~bit);
+          } else {
+            int level = depth - 64;
+            if ((null == deepDictBits)
+                || ((level >>> 6) >= deepDictBits.length)) {
+              int words =
+                  (null == deepDictBits) ? 1 : deepDictBits.length * 2;
+              deepDictBits = grow(deepDictBits, words);
+              deepKeyBits = grow(deepKeyBits, words);
+            }
+            setBit(deepDictBits, level, isDict);
+            setBit(deepKeyBits, level, isDict);
+          }
+          depth++;
+          i++;
+          break;
+        }
+
+        default: {
+          if ((current < '0') || (current > '9')) {
+            throw formatError(
+                "Unexpected char in bencode, when detemining bencode type, "
+                    + "char = " + (char)current + ", pos = " + i);
+          }
+          i = stringEnd(input, i, limit);
+        }
+      }
+    } while (depth > 0);
+
+    return i;
+  }
+
+  /**
+   * <p>解析[offset, limit)中的全部数据，依次回调给visitor。
+   * @param input   待解析的内容
+   * @param offset  起始位置
+   * @param limit   可以读取的最大位置（不包含）
+   * @param visitor 接收解析事件的回调
+   */
+  static void parse(final ByteInput input, long offset, long limit,
+      BencodeVisitor visitor) {
+    for (long i = offset; i < limit;) {
+      i = parseNext(input, i, limit, visitor);
+    }
+  }
+
+  /**
+   * <p>只解析出下一个数据，并回调给visitor。
+   * @param input   待解析的内容
+   * @param offset  数据的起始位置
+   * @param limit   可以读取的最大位置（不包含）
+   * @param visitor 接收解析事件的回调
+   * @return        该数据结束后的下一个位置
+   */
+  static long parseNext(final ByteInput input, long offset, long limit,
+      BencodeVisitor visitor) {
+    if (offset >= limit) {
+      throw formatError(
+          "Parsing value unfinished when reaching the end, pos = " + offset);
+    }
+    byte current = input.get(offset);
+    switch (current) {
+      case BNumber.PREFIX: {
+        return parseNumber(input, offset, limit, visitor);
+      }
+
+      case BList.PREFIX: {
+        return parseList(input, offset, limit, visitor);
+      }
+
+      case BDictionary.PREFIX: {
+        return parseDic(input, offset, limit, visitor);
+      }
+
+      default: {
+        if ((current < '0') || (current > '9')) {
+          throw formatError(
+              "Unexpected char in bencode, when detemining bencode type, "
+                  + "char = " + (char)current + ", pos = " + offset);
+        }
+        return parseString(input, offset, limit, visitor, false);
+      }
+    }
+  }
+
+  /**
+   * <p>解析整数，并回调{@link BencodeVisitor#visitInteger(long)}。
+   * @return 该整数结束后的下一个位置
+   */
+  static long parseNumber(final ByteInput input, long offset, long limit,
+      BencodeVisitor visitor) {
+    long end = numberEnd(input, offset, limit);
+    visitor.visitInteger(numberValue(input, offset));
+    return end;
+  }
+
+  /**
+   * <p>解析字符串，并回调{@link BencodeVisitor#visitString}，
+   * 若是字典的key，则回调{@link BencodeVisitor#visitKey}。
+   * @return 该字符串结束后的下一个位置
+   */
+  static long parseString(final ByteInput input, long offset, long limit,
+      BencodeVisitor visitor, boolean isKey) {
+    long end = stringEnd(input, offset, limit);
+    long start = stringContentStart(input, offset);
+    input.visitString(start, (int)(end - start), visitor, isKey);
+    return end;
+  }
+
+  /**
+   * <p>解析列表，并依次回调{@link BencodeVisitor#beginList()}、
+   * 各个元素的事件以及{@link BencodeVisitor#endList()}。
+   * @return 该列表结束后的下一个位置
+   */
+  static long parseList(final ByteInput input, long offset, long limit,
+      BencodeVisitor visitor) {
+    long i = offset + 1;
+
+    visitor.beginList();
+    while (true) {
+      if (i >= limit) {
+        throw formatError(
+            "Parsing list unfinished when reaching the end, "
+                + "starting pos = " + offset);
+      } else if (BList.SUFFIX == input.get(i)) {
+        break;
+      }
+      i = parseNext(input, i, limit, visitor);
+    }
+    visitor.endList();
+
+    return i + 1;
+  }
+
+  /**
+   * <p>解析字典，并依次回调{@link BencodeVisitor#beginDict()}、
+   * 各个key和value的事件以及{@link BencodeVisitor#endDict()}。
+   * @return 该字典结束后的下一个位置
+   */
+  static long parseDic(final ByteInput input, long offset, long limit,
+      BencodeVisitor visitor) {
+    long i = offset + 1;
+
+    visitor.beginDict();
+    while (true) {
+      if (i >= limit) {
+        throw formatError(
+            "Parsing dictionary unfinished when reaching the end, "
+                + "starting pos = " + offset);
+      } else if (BDictionary.SUFFIX == input.get(i)) {
+        break;
+      }
+
+      // parse key
+      i = parseString(input, i, limit, visitor, true);
+
+      // parse value
+      i = parseNext(input, i, limit, visitor);
+    }
+    visitor.endDict();
+
+    return i + 1;
+  }
+
+  private static boolean getBit(long[] bits, int index) {
+    return 0 != (bits[index >>> 6] & (1L << index));
+  }
+
+  private static void setBit(long[] bits, int index, boolean value) {
+    if (value) {
+      bits[index >>> 6] |= 1L << index;
+    } else {
+      bits[index >>> 6] &= ~(1L << index);
+    }
+  }
+
+  private static void flipBit(long[] bits, int index) {
+    bits[index >>> 6] ^= 1L << index;
+  }
+
+  private static long[] grow(long[] bits, int words) {
+    long[] result = new long[words];
+    if (null != bits) {
+      System.arraycopy(bits, 0, result, 0, bits.length);
+    }
+    return result;
+  }
+
+  static BEncodeFormatException formatError(String msg) {
+    logger.error(msg);
+    return new BEncodeFormatException(msg);
+  }
+}
@@ -0,0 +1,183 @@
+package bencode.type;
+
+/**
+ * <p>记录包含当前对象的容器，当前对象被修改时通知它，
+ * 使它缓存的长度和编码结果失效，并继续向上通知。
+ *
+ * <p>每个对象只记录一个容器，以及它在该容器中出现的次数。
+ * 同一个对象被放入第二个容器后不再通知任何容器，
+ * 包含它的容器都视其为无法记录修改的元素，直到将它移除。
+ * 共享的不可修改的对象不会被修改，因此不记录包含它的容器。
+ * 字典的key按内容比较，放入字典后视为不可修改，同样不记录。
+ *
+ * <p>若某个对象通过{@link BType#getContent()}交出了内部的内容，
+ * 对它的修改无法被记录，此时该对象及包含它的所有容器都不再缓存，
+ * 每次都重新计算长度和编码结果，直到调用{@link BType#setContent(Object)}
+ * 替换全部内容。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+abstract class AbstractBType<T> implements BType<T> {
+
+  private AbstractBType<?> owner;
+  /**
+   * 当前对象在owner中出现的次数。
+   */
+  private int ownerLinks;
+  /**
+   * 是否同时被多个容器包含。
+   */
+  private boolean multiOwned;
+  /**
+   * 是否交出了内部的内容。
+   */
+  private boolean leaked;
+  /**
+   * 无法记录修改的元素出现的次数。
+   */
+  private int untrackedChildren;
+
+  /**
+   * @return 是否是不会被修改的共享实例
+   */
+  boolean isImmutable() {
+    return false;
+  }
+
+  /**
+   * <p>使缓存的长度和编码结果失效。
+   * @return 失效之前是否有有效的缓存
+   */
+  boolean invalidate() {
+    return false;
+  }
+
+  /**
+   * @return 是否已经无法记录修改，此时不能使用缓存
+   */
+  protected final boolean isUntracked() {
+    return leaked || (untrackedChildren > 0);
+  }
+
+  /**
+   * <p>当前对象被修改后调用，通知包含它的容器。
+   * 容器自身的缓存由容器在修改时处理。
+   */
+  protected final void modified() {
+    if (null != owner) {
+      owner.childModified();
+    }
+  }
+
+  /**
+   * <p>当前对象交出了内部的内容，此后不再缓存，并通知包含它的容器。
+   */
+  protected final void markUntracked() {
+    if (leaked) {
+      return;
+    }
+    boolean wasUntracked = isUntracked();
+    leaked = true;
+    invalidate();
+    if (!wasUntracked) {
+      trackingChanged(true);
+    }
+  }
+
+  /**
+   * <p>全部内容被替换时调用，原有的元素应该已经解除了包含关系，
+   * 此后重新开始记录修改。
+   */
+  protected final void resetTracking() {
+    boolean wasUntracked = isUntracked();
+    leaked = false;
+    untrackedChildren = 0;
+    if (wasUntracked) {
+      trackingChanged(false);
+    }
+  }
+
+  /**
+   * <p>记录当前容器包含了child，child被修改时会通知当前容器。
+   */
+  protected final void link(BType<?> child) {
+    if (!(child instanceof AbstractBType)) {
+      if (null != child) {
+        untrackedChildrenChanged(1);
+      }
+      return;
+    }
+    AbstractBType<?> node = (AbstractBType<?>)child;
+    if (node.isImmutable()) {
+      return;
+    }
+    if (node.multiOwned) {
+      untrackedChildrenChanged(1);
+    } else if ((null == node.owner) || (this == node.owner)) {
+      node.owner = this;
+      node.ownerLinks++;
+      if (node.isUntracked()) {
+        untrackedChildrenChanged(1);
+      }
+    } else {
+      if (!node.isUntracked()) {
+        node.owner.untrackedChildrenChanged(node.ownerLinks);
+      }
+      node.owner = null;
+      node.ownerLinks = 0;
+      node.multiOwned = true;
+      untrackedChildrenChanged(1);
+    }
+  }
+
+  /**
+   * <p>当前容器不再包含child，每次{@link #link(BType)}对应一次调用。
+   */
+  protected final void unlink(BType<?> child) {
+    if (!(child instanceof AbstractBType)) {
+      if (null != child) {
+        untrackedChildrenChanged(-1);
+      }
+      return;
+    }
+    AbstractBType<?> node = (AbstractBType<?>)child;
+    if (node.isImmutable()) {
+      return;
+    }
+    if (node.multiOwned) {
+      untrackedChildrenChanged(-1);
+    } else if (this == node.owner) {
+      if (node.isUntracked()) {
+        untrackedChildrenChanged(-1);
+      }
+      if (0 == --node.ownerLinks) {
+        node.owner = null;
+      }
+    }
+  }
+
+  private void childModified() {
+    if (invalidate()) {
+      modified();
+    }
+  }
+
+  private void untrackedChildrenChanged(int delta) {
+    boolean wasUntracked = isUntracked();
+    untrackedChildren += delta;
+    boolean untracked = isUntracked();
+    if (wasUntracked != untracked) {
+      if (untracked) {
+        invalidate();
+      }
+      trackingChanged(untracked);
+    }
+  }
+
+  private void trackingChanged(boolean untracked) {
+    if (null != owner) {
+      owner.untrackedChildrenChanged(untracked ? ownerLinks : -ownerLinks);
+    }
+  }
+}
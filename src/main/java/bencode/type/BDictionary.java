@@ -1,52 +1,131 @@
 package bencode.type;
 
+import java.io.IOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeMap;
 
 /**
  * <p>B编码的字典类型。
- * 
+ *
  * <p>格式如下：
  * <ul>
  *  <li>字典的基本格式为"d${contents}e"</li>
  *  <li>key必须是字符串类型，且按照字典顺序排列</li>
  *  <li>字典元素的key和value紧跟在一起，并无特殊分隔符</li>
- *  <li>示例： "bar-&gt;spam" -&gt; "d3:bar4:spame", "foo:42" -&gt; "d3:fooi42ee", 
+ *  <li>示例： "bar-&gt;spam" -&gt; "d3:bar4:spame", "foo:42" -&gt; "d3:fooi42ee",
  *  "bar-&gt;spam, foo-&gt;42" -&gt; "d3:bar4:spam3:fooi42ee"</li>
  * </ul>
  *
+ * <p>大部分字典只有几个key，并且合法的B编码中key已经是有序的，
+ * 因此默认使用两个按key排序的数组保存内容：按顺序放入的key直接追加到末尾，
+ * 无序的key通过二分查找插入到合适的位置，查找时同样使用二分查找。
+ * 当key的个数较多且无序放入时，或调用{@link #getContent()}之后，
+ * 转为使用{@link TreeMap}保存，此后对返回的{@link TreeMap}的修改都会生效。
+ * 只需要遍历字典时应使用{@link #iterator()}，它不会改变内部的存储方式。
+ *
+ * <p>字典会缓存{@link #encode()}的结果，通过{@link #put(BString, BType)}
+ * 修改字典，或字典中的value被修改后，缓存自动失效，编码长度也会随之更新。
+ * key按内容比较和排序，放入字典后不应再修改。
+ * 调用{@link #getContent()}之后，无法记录对集合的修改，此时不再缓存，
+ * 每次都重新计算，直到通过{@link #setContent(TreeMap)}替换全部内容。
+ *
  * @author caoxudong
  * @since 0.1.0
  */
-public class BDictionary implements BType<TreeMap<BString, BType<?>>> {
+public class BDictionary extends AbstractBType<TreeMap<BString, BType<?>>>
+    implements BType<TreeMap<BString, BType<?>>>,
+    Iterable<Entry<BString, BType<?>>> {
 
   public static final char PREFIX = 'd';
   public static final char SUFFIX = 'e';
-  
-  private TreeMap<BString, BType<?>> content = new TreeMap<>();
+
+  private static final int INITIAL_CAPACITY = 8;
+  private static final int TREE_THRESHOLD = 64;
+  private static final BString[] EMPTY_KEYS = new BString[0];
+  private static final BType<?>[] EMPTY_VALUES = new BType<?>[0];
+
+  private BString[] keys = EMPTY_KEYS;
+  private BType<?>[] values = EMPTY_VALUES;
+  private int size;
+  private TreeMap<BString, BType<?>> content;
   private int contentLength = 2;
-  
+  private boolean lengthValid = true;
+  private byte[] encoded;
+
+  /**
+   * <p>若当前使用数组保存内容，则先转为使用{@link TreeMap}保存。
+   */
   @Override
   public TreeMap<BString, BType<?>> getContent() {
+    toTree();
+    markUntracked();
     return this.content;
   }
+
+  /**
+   * <p>按顺序复制content中的内容，改回使用数组保存，并重新开始缓存。
+   * 之后对content或之前{@link #getContent()}返回的集合的修改都不会生效。
+   */
   @Override
   public void setContent(TreeMap<BString, BType<?>> content) {
-    this.content = content;
+    if (null != this.content) {
+      for (Entry<BString, BType<?>> entry: this.content.entrySet()) {
+        unlink(entry.getValue());
+      }
+    } else {
+      for (int i = 0; i < size; i++) {
+        unlink(values[i]);
+      }
+    }
+    resetTracking();
+    int count = content.size();
+    this.content = null;
+    this.keys = (0 == count) ? EMPTY_KEYS : new BString[count];
+    this.values = (0 == count) ? EMPTY_VALUES : new BType<?>[count];
+    this.size = 0;
+    this.contentLength = 2;
     for (Entry<BString, BType<?>> entry: content.entrySet()) {
       BString key = entry.getKey();
       BType<?> value = entry.getValue();
+      keys[size] = key;
+      values[size++] = value;
+      link(value);
       this.contentLength += key.getContentLength() + value.getContentLength();
     }
+    contentChanged();
   }
-  
+
+  /**
+   * <p>key或value被修改后重新计算长度。
+   */
   @Override
   public int getContentLength() {
+    if (!lengthValid) {
+      int length = 2;
+      if (null != this.content) {
+        for (Entry<BString, BType<?>> entry: this.content.entrySet()) {
+          length += entry.getKey().getContentLength()
+              + entry.getValue().getContentLength();
+        }
+      } else {
+        for (int i = 0; i < size; i++) {
+          length += keys[i].getContentLength() + values[i].getContentLength();
+        }
+      }
+      this.contentLength = length;
+      this.lengthValid = !isUntracked();
+    }
     return this.contentLength;
   }
-  
+
+  /**
+   * <p>两边都使用数组保存内容时直接逐个比较，否则逐个查找key。
+   */
   @Override
   public boolean equals(Object obj) {
     if (obj == this) {
@@ -55,35 +134,173 @@ public class BDictionary implements BType<TreeMap<BString, BType<?>>> {
     if (!(obj instanceof BDictionary)) {
       return false;
     }
-    return this.content.equals(((BDictionary)obj).content);
+    BDictionary target = (BDictionary)obj;
+    if ((null != this.content) && (null != target.content)) {
+      return this.content.equals(target.content);
+    }
+    if ((null == this.content) && (BDictionary.class == target.getClass())
+        && (null == target.content)) {
+      if (size != target.size) {
+        return false;
+      }
+      for (int i = 0; i < size; i++) {
+        if (!keys[i].equals(target.keys[i])
+            || !equals(values[i], target.values[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (size() != target.size()) {
+      return false;
+    }
+    if (null != this.content) {
+      for (Entry<BString, BType<?>> entry: this.content.entrySet()) {
+        if (!equals(entry.getValue(), target.get(entry.getKey()))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    for (int i = 0; i < size; i++) {
+      if (!equals(values[i], target.get(keys[i]))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * <p>各项的key与value的哈希值按位异或之后求和，与{@link #equals(Object)}一致，
+   * 与存储方式无关。
+   * @since 0.1.1
+   */
+  @Override
+  public int hashCode() {
+    int h = 0;
+    if (null != this.content) {
+      for (Entry<BString, BType<?>> entry: this.content.entrySet()) {
+        h += entry.getKey().hashCode() ^ hashCode(entry.getValue());
+      }
+      return h;
+    }
+    for (int i = 0; i < size; i++) {
+      h += keys[i].hashCode() ^ hashCode(values[i]);
+    }
+    return h;
   }
 
   public BType<?> put(BString key, BType<?> value) {
-    if (!this.content.containsKey(key)) {
-      this.contentLength += key.getContentLength();
+    if (null != this.content) {
+      return putToTree(key, value);
     }
-    BType<?> previous = this.content.put(key, value);
-    if (null != previous) {
-      this.contentLength -= previous.getContentLength();
+    int index;
+    if ((0 == size) || (keys[size - 1].compareTo(key) < 0)) {
+      index = -size - 1;
+    } else {
+      index = Arrays.binarySearch(keys, 0, size, key);
     }
-    if (null != value) {
-      this.contentLength += value.getContentLength();    
+    if (index >= 0) {
+      BType<?> previous = values[index];
+      values[index] = value;
+      replaced(previous, value);
+      return previous;
     }
-    return previous;
+    index = -index - 1;
+    if ((index < size) && (size >= TREE_THRESHOLD)) {
+      toTree();
+      return putToTree(key, value);
+    }
+    if (size == keys.length) {
+      int capacity = Math.max(INITIAL_CAPACITY, size << 1);
+      keys = Arrays.copyOf(keys, capacity);
+      values = Arrays.copyOf(values, capacity);
+    }
+    if (index < size) {
+      System.arraycopy(keys, index, keys, index + 1, size - index);
+      System.arraycopy(values, index, values, index + 1, size - index);
+    }
+    keys[index] = key;
+    values[index] = value;
+    size++;
+    if (lengthValid) {
+      this.contentLength += key.getContentLength();
+    }
+    replaced(null, value);
+    return null;
   }
-  
+
   public BType<?> get(BString key) {
-    return this.content.get(key);
+    if (null != this.content) {
+      return this.content.get(key);
+    }
+    int index = Arrays.binarySearch(keys, 0, size, key);
+    return (index < 0) ? null : values[index];
   }
-  
+
   public int size() {
-    return this.content.size();
+    return (null != this.content) ? this.content.size() : size;
+  }
+
+  /**
+   * <p>按key的顺序遍历字典中的各项，不会转为使用{@link TreeMap}保存，
+   * 也不会使缓存失效。返回的各项是只读的，迭代器不支持删除。
+   * @since 0.1.1
+   */
+  @Override
+  public Iterator<Entry<BString, BType<?>>> iterator() {
+    if (null != this.content) {
+      final Iterator<Entry<BString, BType<?>>> iterator =
+          this.content.entrySet().iterator();
+      return new Iterator<Entry<BString, BType<?>>>() {
+        @Override
+        public boolean hasNext() {
+          return iterator.hasNext();
+        }
+
+        @Override
+        public Entry<BString, BType<?>> next() {
+          return new SimpleImmutableEntry<>(iterator.next());
+        }
+      };
+    }
+    final BString[] entryKeys = keys;
+    final BType<?>[] entryValues = values;
+    final int count = size;
+    return new Iterator<Entry<BString, BType<?>>>() {
+      private int next;
+
+      @Override
+      public boolean hasNext() {
+        return next < count;
+      }
+
+      @Override
+      public Entry<BString, BType<?>> next() {
+        if (next >= count) {
+          throw new NoSuchElementException();
+        }
+        int i = next++;
+        return new SimpleImmutableEntry<BString, BType<?>>(
+            entryKeys[i], entryValues[i]);
+      }
+    };
   }
 
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
     sb.append("{");
+    if (null == content) {
+      for (int i = 0; i < size; i++) {
+        if (i > 0) {
+          sb.append(", ");
+        }
+        sb.append(keys[i].toString()).append(":").append(values[i].toString());
+      }
+      sb.append("}");
+      return sb.toString();
+    }
     Set<Entry<BString, BType<?>>> set = content.entrySet();
     Iterator<Entry<BString, BType<?>>> iterator = set.iterator();
     while (iterator.hasNext()) {
@@ -98,25 +315,110 @@ public class BDictionary implements BType<TreeMap<BString, BType<?>>> {
     sb.append("}");
     return sb.toString();
   }
-  
+
+  /**
+   * @since 0.1.1
+   */
+  @Override
+  public void writeTo(BencodeWriter writer) throws IOException {
+    if (null != encoded) {
+      writer.raw(encoded, 0, encoded.length);
+      return;
+    }
+    writer.beginDictionary();
+    if (null == content) {
+      for (int i = 0; i < size; i++) {
+        writer.key(keys[i]).write(values[i]);
+      }
+    } else {
+      for (Entry<BString, BType<?>> entry: content.entrySet()) {
+        writer.key(entry.getKey()).write(entry.getValue());
+      }
+    }
+    writer.end();
+  }
+
+  /**
+   * <p>通过{@link BencodeWriter}一次性写入结果数组，不为各个元素单独编码。
+   * 结果会被缓存，字典没有被修改时，再次编码只需要复制缓存。
+   */
   @Override
   public byte[] encode() {
-    byte[] result = new byte[contentLength];
-    result[0] = PREFIX;
-    int pos = 1;
-    for (Entry<BString, BType<?>> entry: content.entrySet()) {
-      BString key = entry.getKey();
-      BType<?> value = entry.getValue();
-      byte[] keyEncode = key.encode();
-      byte[] valueEncode = value.encode();
-      for (byte b: keyEncode) {
-        result[pos++] = b;
+    byte[] result = encoded;
+    if (null == result) {
+      result = BencodeWriter.encode(this, getContentLength());
+      if (isUntracked()) {
+        return result;
+      }
+      encoded = result;
+    }
+    return result.clone();
+  }
+
+  @Override
+  boolean invalidate() {
+    boolean valid = lengthValid || (null != encoded);
+    lengthValid = false;
+    encoded = null;
+    return valid;
+  }
+
+  /**
+   * <p>字典自身被修改后调用，使缓存的编码结果失效，并通知包含它的容器。
+   */
+  private void contentChanged() {
+    encoded = null;
+    modified();
+  }
+
+  /**
+   * <p>内部改为使用{@link TreeMap}保存，不会交出集合。
+   */
+  private void toTree() {
+    if (null == this.content) {
+      TreeMap<BString, BType<?>> map = new TreeMap<>();
+      for (int i = 0; i < size; i++) {
+        map.put(keys[i], values[i]);
+      }
+      this.content = map;
+      this.keys = null;
+      this.values = null;
+      this.size = 0;
+    }
+  }
+
+  private BType<?> putToTree(BString key, BType<?> value) {
+    if (lengthValid && !this.content.containsKey(key)) {
+      this.contentLength += key.getContentLength();
+    }
+    BType<?> previous = this.content.put(key, value);
+    replaced(previous, value);
+    return previous;
+  }
+
+  /**
+   * <p>更新长度和包含关系，每个value按出现的次数记录，
+   * previous仍在字典中的其他位置时，包含关系仍然保留。
+   */
+  private void replaced(BType<?> previous, BType<?> value) {
+    if (lengthValid) {
+      if (null != previous) {
+        this.contentLength -= previous.getContentLength();
       }
-      for (byte b: valueEncode) {
-        result[pos++] = b;
+      if (null != value) {
+        this.contentLength += value.getContentLength();
       }
     }
-    result[contentLength - 1] = SUFFIX;
-    return result;
+    link(value);
+    unlink(previous);
+    contentChanged();
+  }
+
+  private static boolean equals(BType<?> a, BType<?> b) {
+    return (null == a) ? (null == b) : a.equals(b);
+  }
+
+  private static int hashCode(BType<?> value) {
+    return (null == value) ? 0 : value.hashCode();
   }
 }
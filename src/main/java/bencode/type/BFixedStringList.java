@@ -0,0 +1,220 @@
+package bencode.type;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>只包含等长字符串的列表，所有元素的内容连续保存在同一个字节数组中，
+ * 如紧凑格式的peer列表，或按20字节切分的piece哈希值。
+ *
+ * <p>{@link #get(int)}和{@link #iterator()}返回的是内部数组的切片，
+ * 不复制数据。{@link #add(BType)}放入的{@link BString}只保存其内容。
+ *
+ * <p>放入其他类型或长度不同的元素，或调用{@link #getContent()}、
+ * {@link #setContent(LinkedList)}之后，转为与{@link BList}相同的存储方式。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public class BFixedStringList extends BList {
+
+  private static final int INITIAL_CAPACITY = 8;
+
+  private final int width;
+  private final int elementLength;
+  private byte[] data;
+  private int count;
+  private boolean materialized;
+
+  /**
+   * @param width 每个字符串内容的长度
+   */
+  public BFixedStringList(int width) {
+    this(width, new byte[0]);
+  }
+
+  /**
+   * <p>将字节数组按照固定长度切分为各个元素，不复制数据。
+   * @param width 每个字符串内容的长度
+   * @param data  各个元素的内容，长度必须是width的整数倍
+   */
+  public BFixedStringList(int width, byte[] data) {
+    if ((width <= 0) || (0 != data.length % width)) {
+      throw new IllegalArgumentException(
+          "Invalid string width, width = " + width
+              + ", data length = " + data.length);
+    }
+    this.width = width;
+    this.elementLength = BString.encodedLength(width);
+    this.data = data;
+    this.count = data.length / width;
+  }
+
+  /**
+   * @return 每个字符串内容的长度
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * <p>追加一个字符串，长度与width不同时转为与{@link BList}相同的存储方式。
+   * @param value 字符串的内容，会被复制
+   */
+  public void add(byte[] value) {
+    if (materialized || (value.length != width)) {
+      add(new BString(value.clone()));
+      return;
+    }
+    ensureCapacity();
+    System.arraycopy(value, 0, data, count * width, width);
+    count++;
+    contentChanged();
+  }
+
+  @Override
+  public void add(BType<?> bElement) {
+    if (!materialized && (bElement instanceof BString)
+        && (((BString)bElement).length() == width)) {
+      ensureCapacity();
+      ((BString)bElement).copyTo(data, count * width);
+      count++;
+      contentChanged();
+      return;
+    }
+    materialize();
+    super.add(bElement);
+  }
+
+  @Override
+  public int size() {
+    return materialized ? super.size() : count;
+  }
+
+  @Override
+  public BType<?> get(int index) {
+    if (materialized) {
+      return super.get(index);
+    }
+    if ((index < 0) || (index >= count)) {
+      throw new IndexOutOfBoundsException(
+          "index = " + index + ", size = " + count);
+    }
+    return new BString(data, index * width, width);
+  }
+
+  @Override
+  public Iterator<BType<?>> iterator() {
+    if (materialized) {
+      return super.iterator();
+    }
+    return new Iterator<BType<?>>() {
+      private int next;
+
+      @Override
+      public boolean hasNext() {
+        return next < count;
+      }
+
+      @Override
+      public BType<?> next() {
+        if (next >= count) {
+          throw new NoSuchElementException();
+        }
+        return new BString(data, (next++) * width, width);
+      }
+    };
+  }
+
+  @Override
+  public LinkedList<BType<?>> getContent() {
+    materialize();
+    return super.getContent();
+  }
+
+  @Override
+  public void setContent(LinkedList<BType<?>> value) {
+    materialized = true;
+    data = null;
+    super.setContent(value);
+  }
+
+  @Override
+  public int getContentLength() {
+    return materialized
+        ? super.getContentLength() : 2 + count * elementLength;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if ((obj instanceof BFixedStringList) && !materialized
+        && !((BFixedStringList)obj).materialized
+        && (width == ((BFixedStringList)obj).width)) {
+      BFixedStringList target = (BFixedStringList)obj;
+      if (count != target.count) {
+        return false;
+      }
+      for (int i = 0, length = count * width; i < length; i++) {
+        if (data[i] != target.data[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return super.equals(obj);
+  }
+
+  /**
+   * <p>与{@link BList#hashCode()}的结果相同，但不创建元素对象。
+   */
+  @Override
+  public int hashCode() {
+    if (materialized) {
+      return super.hashCode();
+    }
+    int h = 1;
+    for (int i = 0; i < count; i++) {
+      int elementHash = 0;
+      for (int j = i * width, end = j + width; j < end; j++) {
+        elementHash = 31 * elementHash + data[j];
+      }
+      h = 31 * h + elementHash;
+    }
+    return h;
+  }
+
+  @Override
+  public void writeTo(BencodeWriter writer) throws IOException {
+    if (materialized) {
+      super.writeTo(writer);
+      return;
+    }
+    writer.beginList();
+    for (int i = 0; i < count; i++) {
+      writer.value(data, i * width, width);
+    }
+    writer.end();
+  }
+
+  private void ensureCapacity() {
+    if ((count + 1) * width > data.length) {
+      data = Arrays.copyOf(
+          data, Math.max(INITIAL_CAPACITY, count << 1) * width);
+    }
+  }
+
+  private void materialize() {
+    if (materialized) {
+      return;
+    }
+    materialized = true;
+    for (int i = 0; i < count; i++) {
+      super.add(new BString(
+          Arrays.copyOfRange(data, i * width, (i + 1) * width)));
+    }
+    data = null;
+  }
+}
@@ -1,12 +1,14 @@
 package bencode.type;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
 
 /**
  * <p>B编码的列表类型。
- * 
+ *
  * <p>格式如下：
  * <ul>
  *  <li>列表的基本格式为"l${contents}e"</li>
@@ -14,49 +16,164 @@ import java.util.LinkedList;
  *  <li>注意，列表中的各个元素之间是没有特定分隔符的</li>
  * </ul>
  *
+ * <p>默认使用可增长的数组保存元素，{@link #get(int)}的时间复杂度为O(1)。
+ * 调用{@link #getContent()}之后转为使用{@link LinkedList}保存，
+ * 此后对返回的{@link LinkedList}的修改都会生效。
+ *
+ * <p>列表会缓存{@link #encode()}的结果，通过{@link #add(BType)}修改列表，
+ * 或列表中的元素被修改后，缓存自动失效，编码长度也会随之更新。
+ * 调用{@link #getContent()}之后，无法记录对集合的修改，此时不再缓存，
+ * 每次都重新计算，直到通过{@link #setContent(LinkedList)}替换全部元素。
+ *
+ * <p>元素类型相同的大列表可以使用更紧凑的子类，
+ * 如{@link BNumberList}和{@link BFixedStringList}。
+ *
  * @author caoxudong
  * @since 0.1.0
  */
-public class BList implements BType<LinkedList<BType<?>>> {
+public class BList extends AbstractBType<LinkedList<BType<?>>>
+    implements BType<LinkedList<BType<?>>>, Iterable<BType<?>> {
 
   public static final char PREFIX = 'l';
   public static final char SUFFIX = 'e';
-  
-  private LinkedList<BType<?>> content = new LinkedList<>();
+
+  private static final int INITIAL_CAPACITY = 8;
+  private static final BType<?>[] EMPTY_ELEMENTS = new BType<?>[0];
+
+  private BType<?>[] elements = EMPTY_ELEMENTS;
+  private int size;
+  private LinkedList<BType<?>> content;
   private int contentLength = 2;
-  
+  private boolean lengthValid = true;
+  private byte[] encoded;
+
+  /**
+   * <p>若当前使用数组保存元素，则先转为使用{@link LinkedList}保存。
+   */
   @Override
   public LinkedList<BType<?>> getContent() {
+    if (null == this.content) {
+      LinkedList<BType<?>> list = new LinkedList<>();
+      for (int i = 0; i < size; i++) {
+        list.add(elements[i]);
+      }
+      this.content = list;
+      this.elements = null;
+      this.size = 0;
+    }
+    markUntracked();
     return this.content;
   }
-  
+
+  /**
+   * <p>复制value中的元素，改回使用数组保存，并重新开始缓存。
+   * 之后对value或之前{@link #getContent()}返回的集合的修改都不会生效。
+   */
   @Override
   public void setContent(LinkedList<BType<?>> value) {
+    if (null != this.content) {
+      for (BType<?> e: this.content) {
+        unlink(e);
+      }
+    } else {
+      for (int i = 0; i < size; i++) {
+        unlink(elements[i]);
+      }
+    }
+    resetTracking();
+    BType<?>[] array = value.toArray(EMPTY_ELEMENTS);
     int newValueLength = 0;
-    for (BType<?> e: value) {
+    for (BType<?> e: array) {
+      link(e);
       newValueLength += e.getContentLength();
     }
-    this.content = value;
+    this.content = null;
+    this.elements = array;
+    this.size = array.length;
     this.contentLength = newValueLength + 2;
+    contentChanged();
   }
-  
+
+  /**
+   * <p>元素被修改后重新计算长度。
+   */
   @Override
   public int getContentLength() {
+    if (!lengthValid) {
+      int length = 2;
+      if (null != this.content) {
+        for (BType<?> e: this.content) {
+          length += e.getContentLength();
+        }
+      } else {
+        for (int i = 0; i < size; i++) {
+          length += elements[i].getContentLength();
+        }
+      }
+      contentLength = length;
+      lengthValid = !isUntracked();
+    }
     return contentLength;
   }
-  
+
   public void add(BType<?> bElement) {
-    this.content.add(bElement);
-    this.contentLength += bElement.getContentLength();
+    if (null != this.content) {
+      this.content.add(bElement);
+    } else {
+      if (size == elements.length) {
+        elements = Arrays.copyOf(
+            elements, Math.max(INITIAL_CAPACITY, size << 1));
+      }
+      elements[size++] = bElement;
+    }
+    link(bElement);
+    if (lengthValid) {
+      this.contentLength += bElement.getContentLength();
+    }
+    contentChanged();
   }
-  
+
   public void addAll(Collection<? extends BType<?>> list) {
-    this.content.addAll(list);
-    for (BType<?> e: content) {
-      this.contentLength += e.getContentLength();
+    for (BType<?> e: list) {
+      add(e);
     }
   }
-  
+
+  /**
+   * @return 元素个数
+   * @since 0.1.1
+   */
+  public int size() {
+    return (null != this.content) ? this.content.size() : size;
+  }
+
+  /**
+   * @param index 元素的位置
+   * @return      指定位置的元素
+   * @since 0.1.1
+   */
+  public BType<?> get(int index) {
+    if (null != this.content) {
+      return this.content.get(index);
+    }
+    if ((index < 0) || (index >= size)) {
+      throw new IndexOutOfBoundsException(
+          "index = " + index + ", size = " + size);
+    }
+    return elements[index];
+  }
+
+  /**
+   * @since 0.1.1
+   */
+  @Override
+  public Iterator<BType<?>> iterator() {
+    if (null != this.content) {
+      return this.content.iterator();
+    }
+    return Arrays.asList(elements).subList(0, size).iterator();
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (obj == this) {
@@ -65,13 +182,41 @@ public class BList implements BType<LinkedList<BType<?>>> {
     if (!(obj instanceof BList)) {
       return false;
     }
-    return this.content.equals(((BList)obj).content);
+    BList target = (BList)obj;
+    if (size() != target.size()) {
+      return false;
+    }
+    Iterator<BType<?>> iterator = iterator();
+    Iterator<BType<?>> targetIterator = target.iterator();
+    while (iterator.hasNext()) {
+      BType<?> element = iterator.next();
+      BType<?> targetElement = targetIterator.next();
+      if ((null == element)
+          ? (null != targetElement) : !element.equals(targetElement)) {
+        return false;
+      }
+    }
+    return true;
   }
-  
+
+  /**
+   * <p>根据各个元素计算，与{@link #equals(Object)}一致，
+   * 与存储方式无关，子类中元素相同的列表哈希值也相同。
+   * @since 0.1.1
+   */
+  @Override
+  public int hashCode() {
+    int h = 1;
+    for (BType<?> e : this) {
+      h = 31 * h + ((null == e) ? 0 : e.hashCode());
+    }
+    return h;
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder("[");
-    Iterator<BType<?>> iterator = content.iterator();
+    Iterator<BType<?>> iterator = iterator();
     while (iterator.hasNext()) {
       BType<?> element = iterator.next();
       sb.append(element.toString());
@@ -83,18 +228,59 @@ public class BList implements BType<LinkedList<BType<?>>> {
     return sb.toString();
   }
 
+  /**
+   * <p>有缓存的编码结果时直接输出缓存。
+   * @since 0.1.1
+   */
+  @Override
+  public void writeTo(BencodeWriter writer) throws IOException {
+    if (null != encoded) {
+      writer.raw(encoded, 0, encoded.length);
+      return;
+    }
+    writer.beginList();
+    if (null != content) {
+      for (BType<?> e: content) {
+        writer.write(e);
+      }
+    } else {
+      for (int i = 0; i < size; i++) {
+        writer.write(elements[i]);
+      }
+    }
+    writer.end();
+  }
+
+  /**
+   * <p>通过{@link BencodeWriter}一次性写入结果数组，不为各个元素单独编码。
+   * 结果会被缓存，列表没有被修改时，再次编码只需要复制缓存。
+   */
   @Override
   public byte[] encode() {
-    byte[] result = new byte[contentLength];
-    result[0] = PREFIX;
-    int pos = 1;
-    for (BType<?> e: content) {
-      byte[] eEncode = e.encode();
-      for (byte b: eEncode) {
-        result[pos++] = b;
+    byte[] result = encoded;
+    if (null == result) {
+      result = BencodeWriter.encode(this, getContentLength());
+      if (isUntracked()) {
+        return result;
       }
+      encoded = result;
     }
-    result[contentLength - 1] = SUFFIX;
-    return result;
+    return result.clone();
+  }
+
+  /**
+   * <p>列表自身被修改后调用，使缓存的编码结果失效，并通知包含它的容器。
+   */
+  void contentChanged() {
+    encoded = null;
+    modified();
+  }
+
+  @Override
+  boolean invalidate() {
+    boolean valid = lengthValid || (null != encoded);
+    lengthValid = false;
+    encoded = null;
+    return valid;
   }
 }
@@ -1,5 +1,7 @@
 package bencode.type;
 
+import java.io.IOException;
+
 /**
  * <p>
  * B编码的整数类型。
@@ -14,48 +16,120 @@ package bencode.type;
  * </ul>
  *
  * <p>
- * BInteger使用Integer存储实际数据，因为在比较对象的时候，
- * 应使用{@link BNumber#equals(Object)}方法。
+ * BNumber使用基本类型long存储实际数据，通过{@link #getLong()}读取时不会装箱。
+ * 在比较对象的时候，应使用{@link BNumber#equals(Object)}方法。
+ *
+ * <p>
+ * {@link #valueOf(long)}对0到{@value #CACHE_HIGH}之间的值返回共享的实例，
+ * 共享的实例是不可修改的，调用{@link #setContent(Long)}或{@link #setLong(long)}
+ * 会抛出{@link UnsupportedOperationException}。
  *
  * @author caoxudong
  * @since 0.1.0
  */
-public class BNumber implements BType<Long> {
+public class BNumber extends AbstractBType<Long> implements BType<Long> {
 
   public static final char PREFIX = 'i';
   public static final char SUFFIX = 'e';
 
+  /**
+   * 缓存的共享实例的最大值（包含）。
+   */
+  public static final int CACHE_HIGH = 1023;
+
+  private static final BNumber[] CACHE = new BNumber[CACHE_HIGH + 1];
+
+  static {
+    for (int i = 0; i <= CACHE_HIGH; i++) {
+      CACHE[i] = new BNumber(i, true);
+    }
+  }
+
+  /**
+   * <p>创建值为0的整数，编码结果为"i0e"，长度为3。
+   * 0.1.1之前的版本中，该构造方法创建的对象内容为null，长度为2。
+   */
   public BNumber() {
+    this(0L);
   }
   
   public BNumber(long i) {
-    this.content = i;
-    this.contentLength = 2 + String.valueOf(i).length();
+    this(i, false);
   }
-  
-  private Long content;
-  private int contentLength = 2;
 
+  private BNumber(long i, boolean shared) {
+    this.value = i;
+    this.contentLength = 2 + stringSize(i);
+    this.shared = shared;
+  }
+
+  private long value;
+  private int contentLength;
+  private final boolean shared;
+
+  /**
+   * <p>返回表示该值的实例，0到{@value #CACHE_HIGH}之间的值返回共享的不可修改的实例。
+   * @param i 整数的值
+   * @return  表示该值的实例
+   * @since 0.1.1
+   */
+  public static BNumber valueOf(long i) {
+    if ((i >= 0) && (i <= CACHE_HIGH)) {
+      return CACHE[(int)i];
+    }
+    return new BNumber(i);
+  }
+
+  /**
+   * @return 整数的值，会装箱，应尽量使用{@link #getLong()}
+   */
   public Long getContent() {
-    return content;
+    return value;
   }
   
   public void setContent(Long t) {
-    this.content = t;
-    this.contentLength = String.valueOf(t).length() + 2;
+    setLong(t);
+  }
+
+  /**
+   * @return 整数的值
+   * @since 0.1.1
+   */
+  public long getLong() {
+    return value;
+  }
+
+  /**
+   * @param i 整数的值
+   * @throws UnsupportedOperationException 当前实例是共享的实例
+   * @since 0.1.1
+   */
+  public void setLong(long i) {
+    if (shared) {
+      throw new UnsupportedOperationException(
+          "Shared BNumber instance is immutable, value = " + value);
+    }
+    this.value = i;
+    this.contentLength = 2 + stringSize(i);
+    modified();
+  }
+
+  @Override
+  boolean isImmutable() {
+    return shared;
   }
 
   @Override
   public boolean equals(Object obj) {
     if (obj instanceof BNumber) {
-      return content == ((BNumber) obj).content.longValue();
+      return value == ((BNumber) obj).value;
     }
     return false;
   }
 
   @Override
   public int hashCode() {
-    return Long.hashCode(content);
+    return Long.hashCode(value);
   }
 
   @Override
@@ -65,19 +139,67 @@ public class BNumber implements BType<Long> {
   
   @Override
   public String toString() {
-    return content.toString();
+    return Long.toString(value);
   }
   
+  /**
+   * @since 0.1.1
+   */
+  @Override
+  public void writeTo(BencodeWriter writer) throws IOException {
+    writer.value(value);
+  }
+
   @Override
   public byte[] encode() {
     byte[] result = new byte[contentLength];
-    result[0] = PREFIX;
-    long tempContent = this.content;
-    for (int i = contentLength - 2; i > 0 ; i--) {
-      result[i] = (byte)('0' + (tempContent % 10));
+    encodeTo(value, contentLength, result, 0);
+    return result;
+  }
+
+  /**
+   * <p>将整数的编码写入目标数组中。
+   * @param value         整数
+   * @param contentLength 编码后的长度，即2 + {@link #stringSize(long)}
+   * @param dst           目标数组
+   * @param pos           在目标数组中的起始位置
+   * @return              编码结束后的下一个位置
+   */
+  static int encodeTo(long value, int contentLength, byte[] dst, int pos) {
+    dst[pos] = PREFIX;
+    // 使用负数计算各位数字，以免Long.MIN_VALUE取反后溢出
+    long tempContent = (value < 0) ? value : -value;
+    int i = pos + contentLength - 2;
+    do {
+      dst[i--] = (byte)('0' - (tempContent % 10));
       tempContent = tempContent / 10;
+    } while (tempContent != 0);
+    if (value < 0) {
+      dst[pos + 1] = '-';
     }
-    result[contentLength - 1] = SUFFIX;
-    return result;
+    dst[pos + contentLength - 1] = SUFFIX;
+    return pos + contentLength;
+  }
+
+  /**
+   * <p>计算整数的十进制表示的字符数（包括负号），不创建临时字符串。
+   * 与{@link #encode()}一样使用负数计算，以免Long.MIN_VALUE取反后溢出。
+   */
+  static int stringSize(long i) {
+    int sign = 0;
+    long x = i;
+    if (x < 0) {
+      sign = 1;
+    } else {
+      x = -x;
+    }
+    long p = -10;
+    for (int digits = 1; digits < 19; digits++) {
+      if (x > p) {
+        return sign + digits;
+      }
+      p *= 10;
+    }
+    return sign + 19;
   }
 }
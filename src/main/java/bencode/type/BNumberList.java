@@ -0,0 +1,203 @@
+package bencode.type;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>只包含整数的列表，使用long数组保存各个元素，不为每个元素创建对象。
+ *
+ * <p>{@link #get(int)}和{@link #iterator()}返回的是根据数值新创建的或共享的
+ * {@link BNumber}，修改它们不会影响列表的内容。{@link #add(BType)}放入的
+ * {@link BNumber}只保存其数值。
+ *
+ * <p>放入其他类型的元素，或调用{@link #getContent()}、
+ * {@link #setContent(LinkedList)}之后，转为与{@link BList}相同的存储方式。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public class BNumberList extends BList {
+
+  private static final int INITIAL_CAPACITY = 8;
+
+  private long[] values;
+  private int count;
+  private int contentLength = 2;
+  private boolean materialized;
+
+  public BNumberList() {
+    this.values = new long[INITIAL_CAPACITY];
+  }
+
+  /**
+   * @param values 各个元素的值，会被复制
+   */
+  public BNumberList(long[] values) {
+    this.values = values.clone();
+    this.count = values.length;
+    for (long value : values) {
+      this.contentLength += 2 + BNumber.stringSize(value);
+    }
+  }
+
+  /**
+   * @param value 追加到列表末尾的整数
+   */
+  public void addLong(long value) {
+    if (materialized) {
+      super.add(BNumber.valueOf(value));
+      return;
+    }
+    if (count == values.length) {
+      values = Arrays.copyOf(values, Math.max(INITIAL_CAPACITY, count << 1));
+    }
+    values[count++] = value;
+    contentLength += 2 + BNumber.stringSize(value);
+    contentChanged();
+  }
+
+  /**
+   * @param index 元素的位置
+   * @return      指定位置的整数
+   * @throws ClassCastException 指定位置的元素不是整数
+   */
+  public long getLong(int index) {
+    if (materialized) {
+      return ((BNumber)super.get(index)).getLong();
+    }
+    checkIndex(index);
+    return values[index];
+  }
+
+  @Override
+  public void add(BType<?> bElement) {
+    if (!materialized && (bElement instanceof BNumber)) {
+      addLong(((BNumber)bElement).getLong());
+      return;
+    }
+    materialize();
+    super.add(bElement);
+  }
+
+  @Override
+  public int size() {
+    return materialized ? super.size() : count;
+  }
+
+  @Override
+  public BType<?> get(int index) {
+    if (materialized) {
+      return super.get(index);
+    }
+    checkIndex(index);
+    return BNumber.valueOf(values[index]);
+  }
+
+  @Override
+  public Iterator<BType<?>> iterator() {
+    if (materialized) {
+      return super.iterator();
+    }
+    return new Iterator<BType<?>>() {
+      private int next;
+
+      @Override
+      public boolean hasNext() {
+        return next < count;
+      }
+
+      @Override
+      public BType<?> next() {
+        if (next >= count) {
+          throw new NoSuchElementException();
+        }
+        return BNumber.valueOf(values[next++]);
+      }
+    };
+  }
+
+  @Override
+  public LinkedList<BType<?>> getContent() {
+    materialize();
+    return super.getContent();
+  }
+
+  @Override
+  public void setContent(LinkedList<BType<?>> value) {
+    materialized = true;
+    values = null;
+    super.setContent(value);
+  }
+
+  @Override
+  public int getContentLength() {
+    return materialized ? super.getContentLength() : contentLength;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if ((obj instanceof BNumberList) && !materialized
+        && !((BNumberList)obj).materialized) {
+      BNumberList target = (BNumberList)obj;
+      if (count != target.count) {
+        return false;
+      }
+      for (int i = 0; i < count; i++) {
+        if (values[i] != target.values[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return super.equals(obj);
+  }
+
+  /**
+   * <p>与{@link BList#hashCode()}的结果相同，但不创建元素对象。
+   */
+  @Override
+  public int hashCode() {
+    if (materialized) {
+      return super.hashCode();
+    }
+    int h = 1;
+    for (int i = 0; i < count; i++) {
+      h = 31 * h + Long.hashCode(values[i]);
+    }
+    return h;
+  }
+
+  @Override
+  public void writeTo(BencodeWriter writer) throws IOException {
+    if (materialized) {
+      super.writeTo(writer);
+      return;
+    }
+    writer.beginList();
+    for (int i = 0; i < count; i++) {
+      writer.value(values[i]);
+    }
+    writer.end();
+  }
+
+  private void materialize() {
+    if (materialized) {
+      return;
+    }
+    materialized = true;
+    for (int i = 0; i < count; i++) {
+      super.add(BNumber.valueOf(values[i]));
+    }
+    values = null;
+  }
+
+  private void checkIndex(int index) {
+    if ((index < 0) || (index >= count)) {
+      throw new IndexOutOfBoundsException(
+          "index = " + index + ", size = " + count);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package bencode.type;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import bencode.exception.BEncodeFormatException;
+
+/**
+ * <p>已经编码好的B编码数据片段，如缓存的info字典或预先构造的节点列表。
+ *
+ * <p>创建时校验一次，必须恰好是一个完整的B编码值，此后{@link #encode()}和
+ * {@link BencodeWriter}都原样输出，不再重新编码。
+ * 放入列表或字典后，拼装响应时只需要复制这段数据。
+ *
+ * <p>该类是不可修改的，{@link #setContent(byte[])}会抛出
+ * {@link UnsupportedOperationException}。
+ * 只有内容相同的{@link BRaw}才相等，与内容相同的其他类型不相等。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public final class BRaw extends AbstractBType<byte[]> implements BType<byte[]> {
+
+  private static Logger logger = LoggerFactory.getLogger(BRaw.class);
+
+  private final byte[] encoded;
+
+  /**
+   * @param encoded 一个完整的B编码值，会被复制
+   * @throws BEncodeFormatException 不是一个完整的B编码值
+   */
+  public BRaw(byte[] encoded) {
+    this(encoded, 0, encoded.length);
+  }
+
+  /**
+   * @param buf     B编码值所在的字节数组，会被复制
+   * @param offset  B编码值在buf中的起始位置
+   * @param length  B编码值的长度
+   * @throws BEncodeFormatException 不是一个完整的B编码值
+   */
+  public BRaw(byte[] buf, int offset, int length) {
+    if ((offset < 0) || (length < 0) || (offset > buf.length - length)) {
+      throw new IndexOutOfBoundsException(
+          "offset = " + offset + ", length = " + length
+              + ", buffer length = " + buf.length);
+    }
+    byte[] copy = Arrays.copyOfRange(buf, offset, offset + length);
+    if ((0 == length) || (ValueChecker.valueEnd(copy, 0, length) != length)) {
+      String msg = "Raw value must be exactly one bencode value, length = "
+          + length;
+      logger.error(msg);
+      throw new BEncodeFormatException(msg);
+    }
+    this.encoded = copy;
+  }
+
+  /**
+   * <p>encode()的结果一定是完整的B编码值，不需要再校验。
+   */
+  private BRaw(BType<?> value) {
+    this.encoded = value.encode();
+  }
+
+  /**
+   * @param value B编码对象
+   * @return      value当前的编码结果，之后对value的修改不会影响返回值
+   */
+  public static BRaw of(BType<?> value) {
+    return new BRaw(value);
+  }
+
+  /**
+   * @return 编码结果的副本
+   */
+  @Override
+  public byte[] getContent() {
+    return encoded.clone();
+  }
+
+  /**
+   * @throws UnsupportedOperationException 总是抛出
+   */
+  @Override
+  public void setContent(byte[] t) {
+    throw new UnsupportedOperationException("BRaw instance is immutable");
+  }
+
+  @Override
+  public int getContentLength() {
+    return encoded.length;
+  }
+
+  @Override
+  public byte[] encode() {
+    return encoded.clone();
+  }
+
+  @Override
+  public void writeTo(BencodeWriter writer) throws IOException {
+    writer.raw(encoded, 0, encoded.length);
+  }
+
+  @Override
+  boolean isImmutable() {
+    return true;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    return (obj instanceof BRaw) && Arrays.equals(encoded, ((BRaw)obj).encoded);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(encoded);
+  }
+
+  @Override
+  public String toString() {
+    return new String(encoded, Charset.forName(BString.CHARSET_ASCII));
+  }
+}
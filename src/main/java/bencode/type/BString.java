@@ -1,12 +1,14 @@
 package bencode.type;
 
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import java.util.Arrays;
 
 /**
  * <p>
  * B编码的字符串类型。
- * 
+ *
  * <p>
  * 格式如下：
  * <ul>
@@ -16,35 +18,135 @@ import java.util.Arrays;
  * <li>默认情况下，B编码的字符串只支持ASCII字符</li>
  * </ul>
  *
+ * <p>
+ * BString可以是某个字节数组或{@link ByteBuffer}的一段视图（切片），
+ * 此时不会复制字符串的内容，{@link #equals(Object)}、{@link #compareTo(BString)}、
+ * {@link #encode()}和{@link #toString()}都直接读取原始数据。
+ * 若原始数据会被复用或修改，应先调用{@link #copy()}或{@link #detach()}。
+ *
+ * <p>
+ * {@link #shared(byte[], int, int)}创建的是可以被多处共享的不可修改的实例，
+ * 如字典key的常量池中的key，调用{@link #setContent(byte[])}会抛出
+ * {@link UnsupportedOperationException}。
+ *
  * @author caoxudong
  * @since 0.1.0
  */
-public class BString implements BType<byte[]>, Comparable<BString> {
+public class BString extends AbstractBType<byte[]>
+    implements BType<byte[]>, Comparable<BString> {
 
   public static final char DELIMITER = ':';
   public static final String CHARSET_ASCII = "US-ASCII";
 
+  private static final Charset ASCII = Charset.forName(CHARSET_ASCII);
+
   public BString() {}
 
   public BString(byte[] content) {
-    this.content = content;
-    int strLength = content.length;
-    this.contentLength = String.valueOf(strLength).length() + 1 + strLength;
+    setContent(content);
+  }
+
+  /**
+   * <p>创建字节数组中某一段的视图，不复制数据。
+   * @param buf     字符串所在的字节数组
+   * @param offset  字符串内容在buf中的起始位置
+   * @param length  字符串内容的长度
+   * @since 0.1.1
+   */
+  public BString(byte[] buf, int offset, int length) {
+    if ((offset < 0) || (length < 0) || (offset > buf.length - length)) {
+      throw new IndexOutOfBoundsException(
+          "offset = " + offset + ", length = " + length
+              + ", buffer length = " + buf.length);
+    }
+    this.content = buf;
+    this.offset = offset;
+    this.length = length;
+    this.contentLength = encodedLength(length);
+  }
+
+  /**
+   * <p>创建{@link ByteBuffer}中某一段的视图，不复制数据。
+   * 使用绝对位置读取，不受buf的position影响。
+   * @param buf     字符串所在的缓冲区
+   * @param offset  字符串内容在buf中的绝对起始位置
+   * @param length  字符串内容的长度
+   * @since 0.1.1
+   */
+  public BString(ByteBuffer buf, int offset, int length) {
+    if ((offset < 0) || (length < 0) || (offset > buf.limit() - length)) {
+      throw new IndexOutOfBoundsException(
+          "offset = " + offset + ", length = " + length
+              + ", buffer limit = " + buf.limit());
+    }
+    this.buffer = buf;
+    this.offset = offset;
+    this.length = length;
+    this.contentLength = encodedLength(length);
   }
 
   private byte[] content;
+  private ByteBuffer buffer;
+  private int offset;
+  private int length;
   private int contentLength = 0;
+  private boolean shared;
+  private int hash;
+
+  /**
+   * <p>复制字节数组中的一段，创建可以被多处共享的不可修改的实例。
+   * @param buf     字符串所在的字节数组
+   * @param offset  字符串内容在buf中的起始位置
+   * @param length  字符串内容的长度
+   * @return        不可修改的实例
+   * @since 0.1.1
+   */
+  public static BString shared(byte[] buf, int offset, int length) {
+    BString bString = new BString(buf, offset, length).copy();
+    bString.shared = true;
+    return bString;
+  }
 
+  /**
+   * <p>若当前对象是切片或共享的实例，则返回内容的副本，否则返回内部的字节数组。
+   * 交出内部的字节数组之后，无法记录对它的修改，
+   * 此后包含当前对象的容器不再缓存编码结果，哈希值也不再缓存，
+   * 直到通过{@link #setContent(byte[])}替换内容。
+   */
   @Override
   public byte[] getContent() {
+    if (isSlice() || shared) {
+      return toByteArray();
+    }
+    if (null != content) {
+      hash = 0;
+      markUntracked();
+    }
     return content;
   }
 
+  /**
+   * @throws UnsupportedOperationException 当前实例是共享的实例
+   */
   @Override
   public void setContent(byte[] value) {
+    if (shared) {
+      throw new UnsupportedOperationException(
+          "Shared BString instance is immutable");
+    }
     this.content = value;
-    int strLength = value.length;
-    this.contentLength = String.valueOf(strLength).length() + 1 + strLength;
+    this.buffer = null;
+    this.offset = 0;
+    this.length = value.length;
+    this.contentLength = encodedLength(length);
+    this.hash = 0;
+    resetTracking();
+    modified();
+  }
+
+  @Override
+  boolean isImmutable() {
+    return shared;
   }
 
   @Override
@@ -52,43 +154,254 @@ public class BString implements BType<byte[]>, Comparable<BString> {
     return contentLength;
   }
 
+  /**
+   * @return 字符串内容的长度，不包含长度前缀和分隔符
+   * @since 0.1.1
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * @param index 字节在字符串内容中的位置
+   * @return      指定位置的字节
+   * @since 0.1.1
+   */
+  public byte byteAt(int index) {
+    if ((index < 0) || (index >= length)) {
+      throw new IndexOutOfBoundsException(
+          "index = " + index + ", length = " + length);
+    }
+    return get(index);
+  }
+
+  /**
+   * @return 是否是可以被多处共享的不可修改的实例
+   * @since 0.1.1
+   */
+  public boolean isShared() {
+    return shared;
+  }
+
+  /**
+   * @return 是否是其他字节数组或缓冲区的视图
+   * @since 0.1.1
+   */
+  public boolean isSlice() {
+    return (null != buffer)
+        || ((null != content) && ((0 != offset) || (length != content.length)));
+  }
+
+  /**
+   * @return 内容相同、但拥有独立存储空间的新字符串
+   * @since 0.1.1
+   */
+  public BString copy() {
+    return new BString(toByteArray());
+  }
+
+  /**
+   * <p>将内容复制到独立的存储空间，此后不再引用原始数据。
+   * @return 当前对象
+   * @since 0.1.1
+   */
+  public BString detach() {
+    if (isSlice()) {
+      this.content = toByteArray();
+      this.buffer = null;
+      this.offset = 0;
+    }
+    return this;
+  }
+
+  /**
+   * <p>将字符串的内容复制到目标数组中。
+   * @param dst       目标数组
+   * @param dstOffset 在目标数组中的起始位置
+   * @since 0.1.1
+   */
+  public void copyTo(byte[] dst, int dstOffset) {
+    if (null == buffer) {
+      System.arraycopy(content, offset, dst, dstOffset, length);
+    } else {
+      for (int i = 0; i < length; i++) {
+        dst[dstOffset + i] = buffer.get(offset + i);
+      }
+    }
+  }
+
+  /**
+   * <p>将内容中的一段复制到目标数组中。
+   */
+  void copyTo(int index, byte[] dst, int dstOffset, int count) {
+    if (null == buffer) {
+      System.arraycopy(content, offset + index, dst, dstOffset, count);
+    } else {
+      for (int i = 0; i < count; i++) {
+        dst[dstOffset + i] = buffer.get(offset + index + i);
+      }
+    }
+  }
+
+  /**
+   * @return 与当前对象共享数据的只读缓冲区，position为0，limit为内容的长度
+   */
+  ByteBuffer asByteBuffer() {
+    if (null == buffer) {
+      return (null == content)
+          ? ByteBuffer.allocate(0)
+          : ByteBuffer.wrap(content, offset, length).slice().asReadOnlyBuffer();
+    }
+    ByteBuffer view = buffer.duplicate();
+    ((Buffer)view).limit(offset + length);
+    ((Buffer)view).position(offset);
+    return view.slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * @since 0.1.1
+   */
+  @Override
+  public void writeTo(BencodeWriter writer) throws IOException {
+    writer.value(this);
+  }
+
   @Override
   public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
     if (obj instanceof BString) {
-      byte[] targetContent = ((BString) obj).content;
-      return Arrays.equals(targetContent, content);
+      BString target = (BString) obj;
+      if ((null == content) && (null == buffer)) {
+        return (null == target.content) && (null == target.buffer);
+      }
+      if (length != target.length) {
+        return false;
+      }
+      if ((0 != hash) && (0 != target.hash) && (hash != target.hash)) {
+        return false;
+      }
+      if ((null == buffer) && (null == target.buffer)) {
+        byte[] a = content;
+        byte[] b = target.content;
+        int i = offset;
+        int j = target.offset;
+        for (int end = offset + length; i < end; i++, j++) {
+          if (a[i] != b[j]) {
+            return false;
+          }
+        }
+        return true;
+      }
+      for (int i = 0; i < length; i++) {
+        if (get(i) != target.get(i)) {
+          return false;
+        }
+      }
+      return true;
     }
     return false;
   }
 
+  /**
+   * <p>根据字符串的内容计算，与{@link #equals(Object)}一致，
+   * 切片与内容相同的副本的哈希值相同。
+   * 计算结果会被缓存，交出内部的字节数组之后除外。
+   * @since 0.1.1
+   */
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if ((0 == h) && (length > 0)) {
+      if (null == buffer) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+          h = 31 * h + content[i];
+        }
+      } else {
+        for (int i = 0; i < length; i++) {
+          h = 31 * h + buffer.get(offset + i);
+        }
+      }
+      if (!isUntracked()) {
+        hash = h;
+      }
+    }
+    return h;
+  }
+
+  /**
+   * <p>按照无符号字节逐个比较，这也是B编码中字典key的排序规则。
+   */
   @Override
   public int compareTo(BString o) {
-    String selfContentStr = 
-        new String(this.content, Charset.forName(CHARSET_ASCII));
-    String targetContentStr = 
-        new String(o.content, Charset.forName(CHARSET_ASCII));
-    return selfContentStr.compareTo(targetContentStr);
+    if (o == this) {
+      return 0;
+    }
+    int minLength = Math.min(length, o.length);
+    if ((null == buffer) && (null == o.buffer)) {
+      byte[] a = content;
+      byte[] b = o.content;
+      for (int i = 0; i < minLength; i++) {
+        int diff = (a[offset + i] & 0xFF) - (b[o.offset + i] & 0xFF);
+        if (0 != diff) {
+          return diff;
+        }
+      }
+      return length - o.length;
+    }
+    for (int i = 0; i < minLength; i++) {
+      int diff = (get(i) & 0xFF) - (o.get(i) & 0xFF);
+      if (0 != diff) {
+        return diff;
+      }
+    }
+    return length - o.length;
   }
 
   @Override
   public String toString() {
-    return new String(content, Charset.forName(CHARSET_ASCII));
+    if (null == buffer) {
+      return new String(content, offset, length, ASCII);
+    }
+    StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      byte b = buffer.get(offset + i);
+      sb.append((b >= 0) ? (char)b : '\uFFFD');
+    }
+    return sb.toString();
   }
-  
+
   @Override
   public byte[] encode() {
-    int lengthDiff = contentLength - content.length;
+    int lengthDiff = contentLength - length;
     byte[] result = new byte[contentLength];
-    int i = contentLength - 1;
-    for (; i >= lengthDiff; i--) {
-      result[i] = content[i - lengthDiff];
-    }
+    copyTo(result, lengthDiff);
+    int i = lengthDiff - 1;
     result[i--] = DELIMITER;
-    int tempContentLength = content.length;
+    int tempContentLength = length;
     while (i >= 0) {
       result[i--] = (byte)('0' + (tempContentLength % 10));
       tempContentLength = tempContentLength / 10;
     }
     return result;
   }
+
+  private byte get(int index) {
+    return (null == buffer)
+        ? content[offset + index] : buffer.get(offset + index);
+  }
+
+  private byte[] toByteArray() {
+    byte[] result = new byte[length];
+    copyTo(result, 0);
+    return result;
+  }
+
+  /**
+   * @return 内容长度为strLength的字符串编码后的长度
+   */
+  static int encodedLength(int strLength) {
+    return String.valueOf(strLength).length() + 1 + strLength;
+  }
 }
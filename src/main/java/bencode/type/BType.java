@@ -1,5 +1,7 @@
 package bencode.type;
 
+import java.io.IOException;
+
 /**
  * <p>B编码各种类型的公共接口。
  *
@@ -34,4 +36,15 @@ public interface BType<T> {
    * @since 0.1.0
    */
   byte[] encode();
+
+  /**
+   * <p>将当前数据的B编码输出到writer中，默认输出{@link #encode()}的结果。
+   * @param writer  输出目标
+   * @throws IOException 写入输出目标失败
+   * @since 0.1.1
+   */
+  default void writeTo(BencodeWriter writer) throws IOException {
+    byte[] encoded = encode();
+    writer.raw(encoded, 0, encoded.length);
+  }
 }
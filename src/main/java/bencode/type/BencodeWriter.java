@@ -0,0 +1,528 @@
+package bencode.type;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>流式的B编码输出，一次遍历即可完成编码，不为每个节点单独分配字节数组。
+ *
+ * <p>既可以通过{@link #write(BType)}输出已有的B编码对象，
+ * 也可以不创建B编码对象，直接通过{@link #beginDictionary()}、
+ * {@link #key(String)}、{@link #value(long)}、{@link #end()}等方法构造消息。
+ * 写入字典时，由调用方保证key按照字典顺序排列。
+ *
+ * <p>编码结果先写入内部的缓冲区，缓冲区满或调用{@link #flush()}时，
+ * 再写入{@link OutputStream}、{@link WritableByteChannel}或{@link ByteBuffer}。
+ * 使用{@link #BencodeWriter(int)}创建的实例没有输出目标，缓冲区会自动增长，
+ * 通过{@link #toByteArray()}取得编码结果，{@link #reset()}之后可以重复使用。
+ *
+ * <p>使用{@link #BencodeWriter(GatheringByteChannel, int)}或
+ * {@link #BencodeWriter(int, int)}创建的实例以聚集写的方式输出：
+ * 长度不小于wrapThreshold的字符串内容和原始数据不复制到缓冲区中，
+ * 而是直接包装为{@link ByteBuffer}，与存放前缀、长度等结构字节的缓冲区
+ * 一起组成{@link ByteBuffer}序列，通过{@link GatheringByteChannel}一次写出，
+ * 或通过{@link #toBuffers()}取得。在写出之前，被包装的数据不能被修改。
+ *
+ * <p>该类不是线程安全的。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+public class BencodeWriter implements Closeable, Flushable {
+
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+  public static final int DEFAULT_WRAP_THRESHOLD = 1024;
+
+  private static final int MIN_BUFFER_SIZE = 32;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final byte IN_LIST = 0;
+  private static final byte IN_DICT_KEY = 1;
+  private static final byte IN_DICT_VALUE = 2;
+
+  private final OutputStream out;
+  private final WritableByteChannel channel;
+  private final ByteBuffer target;
+  private byte[] buf;
+  private int pos;
+  private final int wrapThreshold;
+  private final List<ByteBuffer> segments;
+  private final List<byte[]> chunks;
+  private int chunkIndex;
+  private int segmentStart;
+  private int segmentBytes;
+  private byte[] containers = new byte[16];
+  private int depth;
+
+  /**
+   * <p>创建没有输出目标的实例，编码结果保存在自动增长的缓冲区中。
+   * @param initialCapacity 缓冲区的初始大小
+   */
+  public BencodeWriter(int initialCapacity) {
+    this(null, null, null, initialCapacity, 0);
+  }
+
+  /**
+   * <p>创建没有输出目标的聚集写的实例，通过{@link #toBuffers()}取得编码结果。
+   * 结构字节保存在多个固定大小的缓冲区中，{@link #reset()}之后会被重复使用。
+   * @param bufferSize    每个缓冲区的大小
+   * @param wrapThreshold 不复制而是直接包装的数据的最小长度
+   */
+  public BencodeWriter(int bufferSize, int wrapThreshold) {
+    this(null, null, null, bufferSize, wrapThreshold);
+  }
+
+  public BencodeWriter(OutputStream out) {
+    this(out, null, null, DEFAULT_BUFFER_SIZE, 0);
+  }
+
+  public BencodeWriter(WritableByteChannel channel) {
+    this(null, channel, null, DEFAULT_BUFFER_SIZE, 0);
+  }
+
+  /**
+   * <p>创建聚集写的实例，缓冲区满或调用{@link #flush()}时，
+   * 通过{@link GatheringByteChannel#write(ByteBuffer[], int, int)}写出。
+   * @param channel       输出目标
+   * @param wrapThreshold 不复制而是直接包装的数据的最小长度
+   */
+  public BencodeWriter(GatheringByteChannel channel, int wrapThreshold) {
+    this(null, channel, null, DEFAULT_BUFFER_SIZE, wrapThreshold);
+  }
+
+  /**
+   * @param target 输出目标，剩余空间不足时抛出
+   *               {@link java.nio.BufferOverflowException}
+   */
+  public BencodeWriter(ByteBuffer target) {
+    this(null, null, target, DEFAULT_BUFFER_SIZE, 0);
+  }
+
+  /**
+   * @param wrapThreshold 为0时不使用聚集写
+   */
+  private BencodeWriter(OutputStream out, WritableByteChannel channel,
+      ByteBuffer target, int bufferSize, int wrapThreshold) {
+    if (wrapThreshold < 0) {
+      throw new IllegalArgumentException(
+          "Invalid wrap threshold, wrapThreshold = " + wrapThreshold);
+    }
+    this.out = out;
+    this.channel = channel;
+    this.target = target;
+    this.buf = new byte[Math.max(MIN_BUFFER_SIZE, bufferSize)];
+    this.wrapThreshold =
+        (0 == wrapThreshold) ? Integer.MAX_VALUE : wrapThreshold;
+    if (0 == wrapThreshold) {
+      this.segments = null;
+      this.chunks = null;
+    } else {
+      this.segments = new ArrayList<>();
+      this.chunks = new ArrayList<>();
+      this.chunks.add(buf);
+    }
+  }
+
+  /**
+   * <p>按照已知的长度编码，长度正确时直接返回内部的缓冲区，不再复制。
+   */
+  static byte[] encode(BType<?> value, int length) {
+    BencodeWriter writer = new BencodeWriter(length);
+    try {
+      writer.write(value);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return (writer.pos == writer.buf.length)
+        ? writer.buf : Arrays.copyOf(writer.buf, writer.pos);
+  }
+
+  /**
+   * <p>输出一个B编码对象，其中的列表和字典会被递归地输出。
+   * @param value B编码对象
+   * @return      当前对象
+   * @throws IOException 写入输出目标失败
+   */
+  public BencodeWriter write(BType<?> value) throws IOException {
+    value.writeTo(this);
+    return this;
+  }
+
+  /**
+   * <p>开始输出字典，之后交替输出key和value，最后调用{@link #end()}。
+   */
+  public BencodeWriter beginDictionary() throws IOException {
+    beforeValue();
+    push(IN_DICT_KEY);
+    writeByte(BDictionary.PREFIX);
+    return this;
+  }
+
+  /**
+   * <p>开始输出列表，最后调用{@link #end()}。
+   */
+  public BencodeWriter beginList() throws IOException {
+    beforeValue();
+    push(IN_LIST);
+    writeByte(BList.PREFIX);
+    return this;
+  }
+
+  /**
+   * <p>结束当前的列表或字典。
+   * @throws IllegalStateException 没有未结束的列表或字典，或字典的最后一个key没有value
+   */
+  public BencodeWriter end() throws IOException {
+    if (0 == depth) {
+      throw new IllegalStateException("No container to end");
+    }
+    if (IN_DICT_VALUE == containers[depth - 1]) {
+      throw new IllegalStateException("Dictionary value expected");
+    }
+    depth--;
+    writeByte(BList.SUFFIX);
+    return this;
+  }
+
+  /**
+   * @param key 字典的key，使用UTF-8编码
+   */
+  public BencodeWriter key(String key) throws IOException {
+    return key(key.getBytes(UTF_8));
+  }
+
+  public BencodeWriter key(byte[] key) throws IOException {
+    beforeKey();
+    writeString(key, 0, key.length);
+    return this;
+  }
+
+  public BencodeWriter key(BString key) throws IOException {
+    beforeKey();
+    writeString(key);
+    return this;
+  }
+
+  public BencodeWriter value(long value) throws IOException {
+    beforeValue();
+    int length = 2 + BNumber.stringSize(value);
+    ensure(length);
+    pos = BNumber.encodeTo(value, length, buf, pos);
+    return this;
+  }
+
+  /**
+   * @param value 字符串，使用UTF-8编码
+   */
+  public BencodeWriter value(String value) throws IOException {
+    return value(value.getBytes(UTF_8));
+  }
+
+  public BencodeWriter value(byte[] value) throws IOException {
+    return value(value, 0, value.length);
+  }
+
+  public BencodeWriter value(byte[] value, int offset, int length)
+      throws IOException {
+    beforeValue();
+    writeString(value, offset, length);
+    return this;
+  }
+
+  public BencodeWriter value(BString value) throws IOException {
+    beforeValue();
+    writeString(value);
+    return this;
+  }
+
+  /**
+   * <p>原样输出一段已经编码好的值，调用方需要保证其是一个完整的B编码值。
+   * @param encoded 已经编码好的值所在的字节数组
+   * @param offset  在encoded中的起始位置
+   * @param length  长度
+   */
+  public BencodeWriter raw(byte[] encoded, int offset, int length)
+      throws IOException {
+    beforeValue();
+    writeBytes(encoded, offset, length);
+    return this;
+  }
+
+  /**
+   * <p>将缓冲区中的内容写入输出目标，没有输出目标时什么也不做。
+   */
+  @Override
+  public void flush() throws IOException {
+    flushBuffer();
+    if (null != out) {
+      out.flush();
+    }
+  }
+
+  /**
+   * <p>写入缓冲区中剩余的内容，并关闭{@link OutputStream}或
+   * {@link WritableByteChannel}。
+   */
+  @Override
+  public void close() throws IOException {
+    flushBuffer();
+    if (null != out) {
+      out.close();
+    } else if (null != channel) {
+      channel.close();
+    }
+  }
+
+  /**
+   * @return 缓冲区中还没有写入输出目标的内容，没有输出目标时即全部编码结果
+   */
+  public byte[] toByteArray() {
+    if (null == segments) {
+      return Arrays.copyOf(buf, pos);
+    }
+    byte[] result = new byte[size()];
+    int offset = 0;
+    for (ByteBuffer segment : toBuffers()) {
+      int length = segment.remaining();
+      segment.get(result, offset, length);
+      offset += length;
+    }
+    return result;
+  }
+
+  /**
+   * <p>以{@link ByteBuffer}序列的形式返回还没有写入输出目标的内容，
+   * 返回的缓冲区与当前对象共享数据，在{@link #reset()}之后失效。
+   * @return 依次排列的各段内容
+   * @since 0.1.1
+   */
+  public ByteBuffer[] toBuffers() {
+    if (null == segments) {
+      return new ByteBuffer[] {ByteBuffer.wrap(buf, 0, pos)};
+    }
+    sealSegment();
+    ByteBuffer[] result = new ByteBuffer[segments.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = segments.get(i).duplicate();
+    }
+    return result;
+  }
+
+  /**
+   * @return 还没有写入输出目标的字节数
+   */
+  public int size() {
+    return segmentBytes + pos - segmentStart;
+  }
+
+  /**
+   * <p>丢弃缓冲区中的内容和未结束的列表、字典，以便重复使用。
+   */
+  public void reset() {
+    pos = 0;
+    depth = 0;
+    if (null != segments) {
+      segments.clear();
+      segmentStart = 0;
+      segmentBytes = 0;
+      chunkIndex = 0;
+      buf = chunks.get(0);
+    }
+  }
+
+  private void beforeValue() {
+    if (0 == depth) {
+      return;
+    }
+    byte container = containers[depth - 1];
+    if (IN_DICT_KEY == container) {
+      throw new IllegalStateException("Dictionary key expected");
+    }
+    if (IN_DICT_VALUE == container) {
+      containers[depth - 1] = IN_DICT_KEY;
+    }
+  }
+
+  private void beforeKey() {
+    if ((0 == depth) || (IN_DICT_KEY != containers[depth - 1])) {
+      throw new IllegalStateException("Dictionary key not expected");
+    }
+    containers[depth - 1] = IN_DICT_VALUE;
+  }
+
+  private void push(byte container) {
+    if (depth == containers.length) {
+      containers = Arrays.copyOf(containers, depth << 1);
+    }
+    containers[depth++] = container;
+  }
+
+  private void writeLength(int length) throws IOException {
+    int digits = BNumber.stringSize(length);
+    ensure(digits + 1);
+    for (int i = pos + digits - 1; i >= pos; i--) {
+      buf[i] = (byte)('0' + (length % 10));
+      length /= 10;
+    }
+    pos += digits;
+    buf[pos++] = BString.DELIMITER;
+  }
+
+  private void writeString(byte[] value, int offset, int length)
+      throws IOException {
+    writeLength(length);
+    writeBytes(value, offset, length);
+  }
+
+  private void writeString(BString value) throws IOException {
+    int length = value.length();
+    writeLength(length);
+    if (length >= wrapThreshold) {
+      wrap(value.asByteBuffer());
+      return;
+    }
+    int index = 0;
+    while (index < length) {
+      if (pos == buf.length) {
+        ensure(1);
+      }
+      int count = Math.min(length - index, buf.length - pos);
+      value.copyTo(index, buf, pos, count);
+      pos += count;
+      index += count;
+    }
+  }
+
+  private void writeByte(char b) throws IOException {
+    ensure(1);
+    buf[pos++] = (byte)b;
+  }
+
+  private void writeBytes(byte[] value, int offset, int length)
+      throws IOException {
+    if (length >= wrapThreshold) {
+      wrap(ByteBuffer.wrap(value, offset, length).asReadOnlyBuffer());
+      return;
+    }
+    if ((length > buf.length) && (null == segments) && hasTarget()) {
+      flushBuffer();
+      writeToTarget(value, offset, length);
+      return;
+    }
+    while (length > 0) {
+      if (pos == buf.length) {
+        ensure(1);
+      }
+      int count = Math.min(length, buf.length - pos);
+      System.arraycopy(value, offset, buf, pos, count);
+      pos += count;
+      offset += count;
+      length -= count;
+    }
+  }
+
+  private boolean hasTarget() {
+    return (null != out) || (null != channel) || (null != target);
+  }
+
+  /**
+   * <p>保证缓冲区中至少还有n个字节的空间，n不超过缓冲区的最小大小。
+   */
+  private void ensure(int n) throws IOException {
+    if (n <= buf.length - pos) {
+      return;
+    }
+    if (hasTarget()) {
+      flushBuffer();
+    } else if (null != segments) {
+      nextChunk();
+    } else {
+      buf = Arrays.copyOf(buf, Math.max(buf.length << 1, pos + n));
+    }
+  }
+
+  private void flushBuffer() throws IOException {
+    if (!hasTarget()) {
+      return;
+    }
+    if (null != segments) {
+      writeSegments();
+      return;
+    }
+    if (0 != pos) {
+      writeToTarget(buf, 0, pos);
+      pos = 0;
+    }
+  }
+
+  /**
+   * <p>将缓冲区中尚未成段的结构字节作为一段加入序列。
+   */
+  private void sealSegment() {
+    if (pos > segmentStart) {
+      segments.add(ByteBuffer.wrap(buf, segmentStart, pos - segmentStart));
+      segmentBytes += pos - segmentStart;
+      segmentStart = pos;
+    }
+  }
+
+  private void wrap(ByteBuffer payload) {
+    sealSegment();
+    segments.add(payload);
+    segmentBytes += payload.remaining();
+  }
+
+  /**
+   * <p>没有输出目标时，当前缓冲区已满，换用下一个缓冲区，已有的段仍然有效。
+   */
+  private void nextChunk() {
+    sealSegment();
+    chunkIndex++;
+    if (chunkIndex == chunks.size()) {
+      chunks.add(new byte[buf.length]);
+    }
+    buf = chunks.get(chunkIndex);
+    pos = 0;
+    segmentStart = 0;
+  }
+
+  private void writeSegments() throws IOException {
+    sealSegment();
+    ByteBuffer[] srcs = segments.toArray(new ByteBuffer[segments.size()]);
+    GatheringByteChannel gathering = (GatheringByteChannel)channel;
+    int first = 0;
+    while (first < srcs.length) {
+      gathering.write(srcs, first, srcs.length - first);
+      while ((first < srcs.length) && !srcs[first].hasRemaining()) {
+        first++;
+      }
+    }
+    segments.clear();
+    segmentBytes = 0;
+    segmentStart = 0;
+    pos = 0;
+  }
+
+  private void writeToTarget(byte[] bytes, int offset, int length)
+      throws IOException {
+    if (null != out) {
+      out.write(bytes, offset, length);
+    } else if (null != channel) {
+      ByteBuffer src = ByteBuffer.wrap(bytes, offset, length);
+      while (src.hasRemaining()) {
+        channel.write(src);
+      }
+    } else {
+      target.put(bytes, offset, length);
+    }
+  }
+}
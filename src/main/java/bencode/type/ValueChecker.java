@@ -0,0 +1,132 @@
+package bencode.type;
+
+import java.util.Arrays;
+
+/**
+ * <p>校验一段字节是否以一个格式正确的B编码值开头，供{@link BRaw}使用。
+ *
+ * <p>规则与{@link bencode.parse.Parser}相同：整数不能是"-0"，不能有多余的前导0，
+ * 不能超出long的范围；字典的key必须是字符串，并且每个key之后都有value。
+ * 该类放在type包中，使type包不依赖parse包。
+ *
+ * @author caoxudong
+ * @since 0.1.1
+ */
+final class ValueChecker {
+
+  private static final byte IN_LIST = 1;
+  private static final byte IN_DICT_KEY = 2;
+  private static final byte IN_DICT_VALUE = 3;
+
+  private ValueChecker() {
+  }
+
+  /**
+   * <p>列表和字典使用显式的栈迭代校验，不会因为嵌套过深而栈溢出。
+   * @param buf    待校验的内容
+   * @param offset 数据的起始位置
+   * @param limit  可以读取的最大位置（不包含）
+   * @return       数据结束后的下一个位置，格式错误或数据不完整时返回-1
+   */
+  static int valueEnd(final byte[] buf, int offset, int limit) {
+    byte[] stack = null;
+    int depth = 0;
+    int i = offset;
+    do {
+      if (i >= limit) {
+        return -1;
+      }
+      byte current = buf[i];
+      byte state = (depth > 0) ? stack[depth - 1] : 0;
+      if ((depth > 0) && (BList.SUFFIX == current)) {
+        if (IN_DICT_VALUE == state) {
+          return -1;
+        }
+        depth--;
+        i++;
+        continue;
+      }
+      if (IN_DICT_KEY == state) {
+        if ((current < '0') || (current > '9')) {
+          return -1;
+        }
+        stack[depth - 1] = IN_DICT_VALUE;
+      } else if (IN_DICT_VALUE == state) {
+        stack[depth - 1] = IN_DICT_KEY;
+      }
+
+      switch (current) {
+        case BNumber.PREFIX: {
+          i = numberEnd(buf, i, limit);
+          break;
+        }
+
+        case BList.PREFIX:
+        case BDictionary.PREFIX: {
+          if (null == stack) {
+            stack = new byte[16];
+          } else if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+          }
+          stack[depth++] =
+              (BDictionary.PREFIX == current) ? IN_DICT_KEY : IN_LIST;
+          i++;
+          break;
+        }
+
+        default: {
+          i = stringEnd(buf, i, limit);
+        }
+      }
+      if (i < 0) {
+        return -1;
+      }
+    } while (depth > 0);
+    return i;
+  }
+
+  private static int numberEnd(final byte[] buf, int offset, int limit) {
+    int i = offset + 1;
+    boolean isNagetive = (i < limit) && ('-' == buf[i]);
+    if (isNagetive) {
+      i++;
+    }
+    int pin = i;
+    long value = 0;
+    for (; i < limit; i++) {
+      byte current = buf[i];
+      if (BNumber.SUFFIX == current) {
+        boolean empty = i == pin;
+        return (empty || (isNagetive && (0 == value))) ? -1 : i + 1;
+      }
+      if ((current < '0') || (current > '9')
+          || ((i > pin) && (0 == value))) {
+        return -1;
+      }
+      int digit = current - '0';
+      if (value > (Long.MAX_VALUE - digit) / 10) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return -1;
+  }
+
+  private static int stringEnd(final byte[] buf, int offset, int limit) {
+    long length = 0;
+    for (int i = offset; i < limit; i++) {
+      byte current = buf[i];
+      if ((BString.DELIMITER == current) && (i > offset)) {
+        return (length <= limit - i - 1) ? (int)(i + 1 + length) : -1;
+      }
+      if ((current < '0') || (current > '9')) {
+        return -1;
+      }
+      length = length * 10 + (current - '0');
+      if (length > Integer.MAX_VALUE) {
+        return -1;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,121 @@
+package bencode.batch;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import bencode.exception.BEncodeFormatException;
+import bencode.parse.InfoHash;
+
+public class BatchProcessorTest {
+
+  private byte[] torrent;
+  private Path directory;
+
+  @BeforeClass
+  public void createDirectory() throws IOException, URISyntaxException {
+    torrent = Files.readAllBytes(Paths.get(
+        BatchProcessorTest.class.getResource("/demo.torrent").toURI()));
+    directory = Files.createTempDirectory("bencode-batch");
+    Path nested = Files.createDirectory(directory.resolve("nested"));
+    for (int i = 0; i < 10; i++) {
+      Files.write(directory.resolve(i + ".torrent"), torrent);
+      Files.write(nested.resolve(i + ".TORRENT"), torrent);
+    }
+    Files.write(directory.resolve("broken.torrent"), "d4:info".getBytes());
+    Files.write(directory.resolve("ignored.txt"), "x".getBytes());
+  }
+
+  @AfterClass
+  public void deleteDirectory() throws IOException {
+    Path nested = directory.resolve("nested");
+    for (int i = 0; i < 10; i++) {
+      Files.delete(directory.resolve(i + ".torrent"));
+      Files.delete(nested.resolve(i + ".TORRENT"));
+    }
+    Files.delete(nested);
+    Files.delete(directory.resolve("broken.torrent"));
+    Files.delete(directory.resolve("ignored.txt"));
+    Files.delete(directory);
+  }
+
+  @DataProvider
+  private Object[][] executorTestData() {
+    return new Object[][] {
+        new Object[] {Executors.newFixedThreadPool(3), 2},
+        new Object[] {BatchProcessor.newDefaultExecutor(), 64},
+    };
+  }
+
+  @Test(dataProvider = "executorTestData")
+  public void process(ExecutorService executor, int maxInFlight)
+      throws IOException, InterruptedException {
+    List<BatchResult> results = new ArrayList<>();
+    BatchStatistics statistics;
+    try {
+      statistics = new BatchProcessor(executor, maxInFlight)
+          .process(directory, results::add);
+    } finally {
+      executor.shutdown();
+    }
+
+    Assert.assertEquals(results.size(), 21);
+    Assert.assertEquals(statistics.getFiles(), 21);
+    Assert.assertEquals(statistics.getFailures(), 1);
+    Assert.assertEquals(
+        statistics.getBytes(), torrent.length * 20L + "d4:info".length());
+    for (BatchResult result : results) {
+      if (result.getPath().endsWith("broken.torrent")) {
+        Assert.assertFalse(result.isSuccess());
+        Assert.assertTrue(result.getError() instanceof BEncodeFormatException);
+        continue;
+      }
+      Assert.assertTrue(result.isSuccess(), String.valueOf(result));
+      Assert.assertEquals(result.getInfoHash(), InfoHash.sha1(torrent));
+      Assert.assertEquals(result.getInfoHashHex().length(), 40);
+      Assert.assertEquals(result.getTotalLength(), 4762849926L);
+      Assert.assertNotNull(result.getName());
+    }
+  }
+
+  @Test
+  public void processV2Only() throws IOException {
+    byte[] data = ("d4:infod9:file treed1:ad0:d6:lengthi5e11:pieces root32:"
+        + "rrrrrrrrrrrrrrrrrrrrrrrrrrrrrrrree1:bd0:d6:lengthi4e"
+        + "11:pieces root32:rrrrrrrrrrrrrrrrrrrrrrrrrrrrrrrreee"
+        + "12:meta versioni2e4:name1:t12:piece lengthi16384eee")
+        .getBytes("ISO-8859-1");
+    Path file = Files.createTempFile("bencode-v2", BatchProcessor.SUFFIX);
+    try {
+      Files.write(file, data);
+      BatchResult result = BatchProcessor.processFile(file);
+      Assert.assertTrue(result.isSuccess(), String.valueOf(result));
+      Assert.assertEquals(result.getInfoHash(),
+          InfoHash.digest(data, 0, InfoHash.INFO_KEY, InfoHash.SHA_256));
+      Assert.assertEquals(result.getTotalLength(), 9);
+      Assert.assertEquals(result.getName(), "t");
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void processFile() {
+    BatchResult result =
+        BatchProcessor.processFile(directory.resolve("missing.torrent"));
+    Assert.assertFalse(result.isSuccess());
+    Assert.assertTrue(result.getError() instanceof IOException);
+  }
+}
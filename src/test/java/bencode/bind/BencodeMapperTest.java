@@ -0,0 +1,218 @@
+package bencode.bind;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import bencode.exception.BEncodeFormatException;
+import bencode.parse.BencodeReader;
+import bencode.parse.Parser;
+import bencode.type.BDictionary;
+import bencode.type.BList;
+import bencode.type.BNumber;
+import bencode.type.BString;
+import bencode.type.BType;
+
+public class BencodeMapperTest {
+
+  private static final Charset ASCII = Charset.forName("US-ASCII");
+
+  static class Torrent {
+    @BencodeField
+    String announce;
+    @BencodeField("announce-list")
+    List<List<String>> announceList;
+    @BencodeField("created by")
+    String createdBy;
+    @BencodeField("creation date")
+    long creationDate;
+    @BencodeField
+    String encoding;
+    @BencodeField
+    Info info;
+  }
+
+  static class Info {
+    @BencodeField
+    List<FileEntry> files;
+    @BencodeField
+    String name;
+    @BencodeField("piece length")
+    int pieceLength;
+    @BencodeField
+    byte[] pieces;
+  }
+
+  static class FileEntry {
+    @BencodeField
+    long length;
+    @BencodeField
+    List<String> path;
+  }
+
+  static class Message {
+    @BencodeField("y")
+    private String type;
+    @BencodeField("t")
+    private byte[] transaction;
+    @BencodeField("a")
+    private Map<String, BType<?>> arguments;
+    @BencodeField("ro")
+    private Boolean readOnly;
+    private String ignored = "ignored";
+
+    private Message() {
+    }
+  }
+
+  static class Node {
+    @BencodeField
+    short id;
+    @BencodeField
+    List<Node> children;
+    @BencodeField
+    BList extra;
+  }
+
+  static class Duplicate {
+    @BencodeField("a")
+    long first;
+    @BencodeField("a")
+    long second;
+  }
+
+  static class Unsupported {
+    @BencodeField
+    Object value;
+  }
+
+  @Test
+  public void readTorrent() throws IOException, URISyntaxException {
+    byte[] data = Files.readAllBytes(Paths.get(
+        BencodeMapperTest.class.getResource("/demo.torrent").toURI()));
+    BDictionary tree = new Parser().parseDic(data, 0);
+    BDictionary infoTree = (BDictionary)tree.get(key("info"));
+
+    Torrent torrent = BencodeMapper.read(data, Torrent.class);
+    Assert.assertEquals(torrent.announce,
+        tree.get(key("announce")).toString());
+    Assert.assertEquals(torrent.announceList.size(),
+        ((BList)tree.get(key("announce-list"))).size());
+    Assert.assertEquals(torrent.creationDate,
+        ((BNumber)tree.get(key("creation date"))).getLong());
+    Assert.assertEquals(torrent.encoding, "UTF-8");
+    Assert.assertEquals(torrent.info.pieceLength,
+        ((BNumber)infoTree.get(key("piece length"))).getLong());
+    Assert.assertEquals(torrent.info.pieces,
+        ((BString)infoTree.get(key("pieces"))).getContent());
+    BList files = (BList)infoTree.get(key("files"));
+    Assert.assertEquals(torrent.info.files.size(), files.size());
+    Assert.assertEquals(torrent.info.files.get(0).length,
+        ((BNumber)((BDictionary)files.get(0)).get(key("length"))).getLong());
+
+    // 映射了所有的key，重新编码后与原始数据相同
+    Assert.assertEquals(BencodeMapper.write(torrent), data);
+  }
+
+  @Test
+  public void roundTrip() {
+    String encoded = "d1:ad2:id3:abc4:porti6881ee1:q4:ping"
+        + "2:roi1e1:t2:aa1:y1:qe";
+    Message message = BencodeMapper.read(encoded.getBytes(ASCII),
+        Message.class);
+    Assert.assertEquals(message.type, "q");
+    Assert.assertEquals(message.transaction, "aa".getBytes(ASCII));
+    Assert.assertEquals(message.readOnly, Boolean.TRUE);
+    Assert.assertEquals(message.arguments.get("port"), BNumber.valueOf(6881));
+    Assert.assertEquals(message.ignored, "ignored");
+
+    // 不认识的key "q"被跳过
+    Assert.assertEquals(new String(BencodeMapper.write(message), ASCII),
+        "d1:ad2:id3:abc4:porti6881ee2:roi1e1:t2:aa1:y1:qe");
+
+    message.readOnly = null;
+    Assert.assertEquals(new String(BencodeMapper.write(message), ASCII),
+        "d1:ad2:id3:abc4:porti6881ee1:t2:aa1:y1:qe");
+  }
+
+  @Test
+  public void recursive() throws IOException {
+    byte[] encoded = ("d8:childrenld8:childrenle2:idi2eed2:idi3eee"
+        + "5:extrali1e1:xe2:idi1ee").getBytes(ASCII);
+    Node node = BencodeMapper.read(encoded, Node.class);
+    Assert.assertEquals(node.id, 1);
+    Assert.assertEquals(node.children.size(), 2);
+    Assert.assertEquals(node.children.get(0).id, 2);
+    Assert.assertTrue(node.children.get(0).children.isEmpty());
+    Assert.assertNull(node.children.get(1).children);
+    Assert.assertEquals(node.extra.size(), 2);
+    Assert.assertEquals(BencodeMapper.write(node), encoded);
+  }
+
+  @Test
+  public void readSequence() throws IOException {
+    byte[] encoded = "d2:idi1eed2:idi2ee".getBytes(ASCII);
+    BencodeReader reader =
+        new BencodeReader(new ByteArrayInputStream(encoded));
+    Assert.assertEquals(BencodeMapper.read(reader, Node.class).id, 1);
+    Assert.assertEquals(BencodeMapper.read(reader, Node.class).id, 2);
+  }
+
+  @DataProvider
+  private Object[][] invalidTestData() {
+    return new Object[][] {
+        new Object[] {"le"},
+        new Object[] {"d2:id1:1e"},
+        new Object[] {"d2:idi40000ee"},
+        new Object[] {"d8:childrend2:idi1eee"},
+        new Object[] {"d5:extrai1ee"},
+        new Object[] {"d2:idi1eede"},
+    };
+  }
+
+  @Test(dataProvider = "invalidTestData",
+      expectedExceptions = BEncodeFormatException.class)
+  public void invalid(String value) {
+    BencodeMapper.read(value.getBytes(ASCII), Node.class);
+  }
+
+  @DataProvider
+  private Object[][] unmappableTestData() {
+    return new Object[][] {
+        new Object[] {Duplicate.class},
+        new Object[] {Unsupported.class},
+        new Object[] {List.class},
+    };
+  }
+
+  @Test(dataProvider = "unmappableTestData",
+      expectedExceptions = IllegalArgumentException.class)
+  public void unmappable(Class<?> type) {
+    BencodeMapper.read("de".getBytes(ASCII), type);
+  }
+
+  @Test
+  public void sortedMapKeys() {
+    Message message = new Message();
+    message.type = "r";
+    message.arguments = new LinkedHashMap<>();
+    message.arguments.put("z", BNumber.valueOf(1));
+    message.arguments.put("a", BNumber.valueOf(2));
+    Assert.assertEquals(new String(BencodeMapper.write(message), ASCII),
+        "d1:ad1:ai2e1:zi1ee1:y1:re");
+  }
+
+  private static BString key(String value) {
+    return new BString(value.getBytes(ASCII));
+  }
+}
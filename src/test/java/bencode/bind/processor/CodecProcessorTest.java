@@ -0,0 +1,184 @@
+package bencode.bind.processor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import bencode.bind.BencodeField;
+import bencode.bind.BencodeMapper;
+import bencode.bind.BencodeType;
+import bencode.exception.BEncodeFormatException;
+import bencode.parse.BencodeReader;
+import bencode.type.BList;
+import bencode.type.BNumber;
+import bencode.type.BType;
+
+public class CodecProcessorTest {
+
+  private static final Charset ASCII = Charset.forName("US-ASCII");
+
+  @BencodeType
+  static class Torrent {
+    @BencodeField
+    String announce;
+    @BencodeField("announce-list")
+    List<List<String>> announceList;
+    @BencodeField("created by")
+    String createdBy;
+    @BencodeField("creation date")
+    long creationDate;
+    @BencodeField
+    String encoding;
+    @BencodeField
+    Info info;
+  }
+
+  @BencodeType
+  static class Info {
+    @BencodeField
+    List<FileEntry> files;
+    @BencodeField
+    String name;
+    @BencodeField("piece length")
+    int pieceLength;
+    @BencodeField
+    byte[] pieces;
+  }
+
+  @BencodeType
+  static class FileEntry {
+    @BencodeField
+    long length;
+    @BencodeField
+    List<String> path;
+  }
+
+  @BencodeType
+  static class Message {
+    @BencodeField("y")
+    String type;
+    @BencodeField("t")
+    byte[] transaction;
+    @BencodeField("a")
+    Map<String, BType<?>> arguments;
+    @BencodeField("r")
+    Map<String, List<Long>> results;
+    @BencodeField("ro")
+    Boolean readOnly;
+    @BencodeField("rw")
+    boolean writable;
+    @BencodeField("v")
+    Short version;
+    String ignored = "ignored";
+  }
+
+  @BencodeType
+  static class Node {
+    @BencodeField
+    short id;
+    @BencodeField
+    List<Node> children;
+    @BencodeField
+    BList extra;
+  }
+
+  @Test
+  public void readTorrent() throws IOException, URISyntaxException {
+    byte[] data = Files.readAllBytes(Paths.get(
+        CodecProcessorTest.class.getResource("/demo.torrent").toURI()));
+    Torrent torrent = CodecProcessorTest_TorrentCodec.read(data);
+    Torrent expected = BencodeMapper.read(data, Torrent.class);
+    Assert.assertEquals(torrent.announce, expected.announce);
+    Assert.assertEquals(torrent.announceList, expected.announceList);
+    Assert.assertEquals(torrent.createdBy, expected.createdBy);
+    Assert.assertEquals(torrent.creationDate, expected.creationDate);
+    Assert.assertEquals(torrent.info.name, expected.info.name);
+    Assert.assertEquals(torrent.info.pieceLength, expected.info.pieceLength);
+    Assert.assertEquals(torrent.info.pieces, expected.info.pieces);
+    Assert.assertEquals(torrent.info.files.size(),
+        expected.info.files.size());
+    Assert.assertEquals(torrent.info.files.get(1).path,
+        expected.info.files.get(1).path);
+
+    Assert.assertEquals(CodecProcessorTest_TorrentCodec.write(torrent), data);
+  }
+
+  @Test
+  public void roundTrip() {
+    String encoded = "d1:ad2:id3:abc4:porti6881ee1:q4:ping"
+        + "1:rd1:ali1ei2ee1:blee2:roi1e2:rwi1e1:t2:aa1:vi2e1:y1:qe";
+    Message message =
+        CodecProcessorTest_MessageCodec.read(encoded.getBytes(ASCII));
+    Assert.assertEquals(message.type, "q");
+    Assert.assertEquals(message.transaction, "aa".getBytes(ASCII));
+    Assert.assertEquals(message.arguments.get("port"), BNumber.valueOf(6881));
+    Assert.assertEquals(message.results.get("a").get(1), Long.valueOf(2));
+    Assert.assertEquals(message.readOnly, Boolean.TRUE);
+    Assert.assertTrue(message.writable);
+    Assert.assertEquals(message.version, Short.valueOf((short)2));
+    Assert.assertEquals(message.ignored, "ignored");
+
+    // 不认识的key "q"被跳过
+    byte[] written = CodecProcessorTest_MessageCodec.write(message);
+    Assert.assertEquals(new String(written, ASCII),
+        encoded.replace("1:q4:ping", ""));
+    Assert.assertEquals(written, BencodeMapper.write(message));
+
+    message.readOnly = null;
+    message.writable = false;
+    message.results = new LinkedHashMap<>();
+    message.results.put("z", null);
+    message.results.put("b", java.util.Arrays.asList(3L));
+    Assert.assertEquals(
+        new String(CodecProcessorTest_MessageCodec.write(message), ASCII),
+        "d1:ad2:id3:abc4:porti6881ee1:rd1:bli3eee2:rwi0e"
+            + "1:t2:aa1:vi2e1:y1:qe");
+  }
+
+  @Test
+  public void recursive() throws IOException {
+    byte[] encoded = ("d8:childrenld8:childrenle2:idi2eed2:idi3eee"
+        + "5:extrali1e1:xe2:idi1ee").getBytes(ASCII);
+    Node node = CodecProcessorTest_NodeCodec.read(encoded);
+    Assert.assertEquals(node.id, 1);
+    Assert.assertEquals(node.children.size(), 2);
+    Assert.assertEquals(node.children.get(0).id, 2);
+    Assert.assertTrue(node.children.get(0).children.isEmpty());
+    Assert.assertNull(node.children.get(1).children);
+    Assert.assertEquals(node.extra.size(), 2);
+    Assert.assertEquals(CodecProcessorTest_NodeCodec.write(node), encoded);
+
+    BencodeReader reader = new BencodeReader(
+        new ByteArrayInputStream("d2:idi1eed2:idi2ee".getBytes(ASCII)));
+    Assert.assertEquals(CodecProcessorTest_NodeCodec.read(reader).id, 1);
+    Assert.assertEquals(CodecProcessorTest_NodeCodec.read(reader).id, 2);
+  }
+
+  @DataProvider
+  private Object[][] invalidTestData() {
+    return new Object[][] {
+        new Object[] {"le"},
+        new Object[] {"d2:id1:1e"},
+        new Object[] {"d2:idi40000ee"},
+        new Object[] {"d8:childrend2:idi1eee"},
+        new Object[] {"d5:extrai1ee"},
+        new Object[] {"d2:idi1eede"},
+    };
+  }
+
+  @Test(dataProvider = "invalidTestData",
+      expectedExceptions = BEncodeFormatException.class)
+  public void invalid(String value) {
+    CodecProcessorTest_NodeCodec.read(value.getBytes(ASCII));
+  }
+}
@@ -0,0 +1,98 @@
+package bencode.parse;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import bencode.type.BNumber;
+import bencode.type.BString;
+import bencode.type.BType;
+
+public class BencodePathTest {
+
+  private byte[] torrent;
+
+  @BeforeClass
+  public void loadTorrent() throws IOException, URISyntaxException {
+    torrent = Files.readAllBytes(
+        Paths.get(BencodePathTest.class.getResource("/demo.torrent").toURI()));
+  }
+
+  @DataProvider
+  private Object[][] selectFirstTestData() {
+    return new Object[][] {
+        new Object[] {"info.piece length", new BNumber(4194304)},
+        new Object[] {"['creation date']", new BNumber(1223975827)},
+        new Object[] {
+            "announce-list[0][0]",
+            new BString("http://bt.yyets.net:6969/announce".getBytes())
+        },
+        new Object[] {"info.files[2].length", new BNumber(7307)},
+        new Object[] {"info.files[9].length", null},
+        new Object[] {"info.missing", null},
+        new Object[] {"announce.length", null},
+        new Object[] {"*", new BString("http://bt.yyets.net:6969/announce"
+            .getBytes())},
+    };
+  }
+
+  @DataProvider
+  private Object[][] invalidExpressionTestData() {
+    return new Object[][] {
+        new Object[] {"info..name"},
+        new Object[] {".info"},
+        new Object[] {"info."},
+        new Object[] {"files[x]"},
+        new Object[] {"files[-1]"},
+        new Object[] {"files[0"},
+        new Object[] {"['info"},
+    };
+  }
+
+  @Test(dataProvider = "selectFirstTestData")
+  public void selectFirst(String expression, BType<?> expectedValue) {
+    Assert.assertEquals(
+        BencodePath.compile(expression).selectFirst(torrent), expectedValue);
+  }
+
+  @Test(dataProvider = "invalidExpressionTestData",
+      expectedExceptions = IllegalArgumentException.class)
+  public void compileInvalid(String expression) {
+    BencodePath.compile(expression);
+  }
+
+  @Test
+  public void select() {
+    List<BType<?>> lengths =
+        BencodePath.compile("info.files[*].length").select(torrent);
+    Assert.assertEquals(lengths.size(), 5);
+    Assert.assertEquals(lengths.get(1), new BNumber(4696268952L));
+  }
+
+  @Test
+  public void selectWithVisitor() {
+    final long[] total = new long[1];
+    BencodePath.compile("info.files[*].length").select(torrent, 0,
+        new BencodeVisitor() {
+          @Override
+          public void visitInteger(long value) {
+            total[0] += value;
+          }
+        });
+    Assert.assertEquals(total[0], 4762849926L);
+  }
+
+  @Test
+  public void find() {
+    byte[] content = "d1:ai1e1:cl1:xee".getBytes();
+    Assert.assertEquals(BencodePath.compile("c[0]").find(content, 0), 11);
+    Assert.assertEquals(BencodePath.compile("b").find(content, 0), -1);
+  }
+}
@@ -0,0 +1,141 @@
+package bencode.parse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import bencode.exception.BEncodeFormatException;
+
+public class BencodeReaderTest {
+
+  @DataProvider
+  private Object[][] nextTestData() {
+    return new Object[][] {
+        new Object[] {
+            "d3:bar4:spam3:fooi42ee".getBytes(),
+            new BencodeToken[] {
+                BencodeToken.START_DICT,
+                BencodeToken.KEY, BencodeToken.STRING,
+                BencodeToken.KEY, BencodeToken.INTEGER,
+                BencodeToken.END, BencodeToken.END_OF_INPUT
+            }
+        },
+        new Object[] {
+            "li-3eld0:leeeei0e".getBytes(),
+            new BencodeToken[] {
+                BencodeToken.START_LIST, BencodeToken.INTEGER,
+                BencodeToken.START_LIST, BencodeToken.START_DICT,
+                BencodeToken.KEY, BencodeToken.START_LIST, BencodeToken.END,
+                BencodeToken.END, BencodeToken.END, BencodeToken.END,
+                BencodeToken.INTEGER, BencodeToken.END_OF_INPUT
+            }
+        },
+    };
+  }
+
+  @DataProvider
+  private Object[][] invalidTestData() {
+    return new Object[][] {
+        new Object[] {"i".getBytes()},
+        new Object[] {"i-0e".getBytes()},
+        new Object[] {"i032e".getBytes()},
+        new Object[] {"ie".getBytes()},
+        new Object[] {"i4xe".getBytes()},
+        new Object[] {"4:22".getBytes()},
+        new Object[] {"l".getBytes()},
+        new Object[] {"di1ei2ee".getBytes()},
+        new Object[] {"d3:fooe".getBytes()},
+        new Object[] {"e".getBytes()},
+        new Object[] {"x".getBytes()},
+    };
+  }
+
+  @Test(dataProvider = "nextTestData")
+  public void next(byte[] content, BencodeToken[] expectedTokens)
+      throws IOException {
+    BencodeReader reader =
+        new BencodeReader(new ByteArrayInputStream(content), 2);
+    List<BencodeToken> tokens = new ArrayList<>();
+    BencodeToken token;
+    do {
+      token = reader.next();
+      tokens.add(token);
+    } while (BencodeToken.END_OF_INPUT != token);
+    Assert.assertEquals(tokens.toArray(), expectedTokens);
+  }
+
+  @Test(dataProvider = "invalidTestData",
+      expectedExceptions = BEncodeFormatException.class)
+  public void nextInvalid(byte[] content) throws IOException {
+    BencodeReader reader =
+        new BencodeReader(new ByteArrayInputStream(content));
+    while (BencodeToken.END_OF_INPUT != reader.next()) {
+      if (BencodeToken.STRING == reader.getToken()) {
+        reader.readBytes();
+      }
+    }
+  }
+
+  @Test
+  public void readValues() throws IOException {
+    byte[] content = "d3:bar11:djdj39f029c3:fooi-42ee".getBytes();
+    BencodeReader reader = new BencodeReader(
+        Channels.newChannel(new ByteArrayInputStream(content)), 3);
+    Assert.assertEquals(reader.next(), BencodeToken.START_DICT);
+    Assert.assertEquals(reader.next(), BencodeToken.KEY);
+    Assert.assertEquals(reader.readBytes(), "bar".getBytes());
+    Assert.assertEquals(reader.next(), BencodeToken.STRING);
+    Assert.assertEquals(reader.getStringLength(), 11);
+    Assert.assertEquals(reader.readBytes(), "djdj39f029c".getBytes());
+    Assert.assertEquals(reader.next(), BencodeToken.KEY);
+    Assert.assertEquals(reader.getTokenPosition(), 20L);
+    Assert.assertEquals(reader.next(), BencodeToken.INTEGER);
+    Assert.assertEquals(reader.getLong(), -42L);
+    Assert.assertEquals(reader.next(), BencodeToken.END);
+    Assert.assertEquals(reader.getPosition(), (long)content.length);
+  }
+
+  @Test(expectedExceptions = BEncodeFormatException.class)
+  public void readBytesTruncated() throws IOException {
+    BencodeReader reader = new BencodeReader(
+        new ByteArrayInputStream("2147483000:abc".getBytes()));
+    Assert.assertEquals(reader.next(), BencodeToken.STRING);
+    Assert.assertEquals(reader.getStringLength(), 2147483000);
+    reader.readBytes();
+  }
+
+  @Test
+  public void skipValue() throws IOException {
+    byte[] content = "ld3:fooli1ei2eee4:spame".getBytes();
+    BencodeReader reader =
+        new BencodeReader(new ByteArrayInputStream(content), 4);
+    Assert.assertEquals(reader.next(), BencodeToken.START_LIST);
+    Assert.assertEquals(reader.next(), BencodeToken.START_DICT);
+    reader.skipValue();
+    Assert.assertEquals(reader.getDepth(), 1);
+    Assert.assertEquals(reader.next(), BencodeToken.STRING);
+    Assert.assertEquals(reader.readBytes(), "spam".getBytes());
+    Assert.assertEquals(reader.next(), BencodeToken.END);
+  }
+
+  @Test
+  public void readTorrent() throws IOException {
+    try (InputStream in =
+        BencodeReaderTest.class.getResourceAsStream("/demo.torrent")) {
+      BencodeReader reader = new BencodeReader(in, 64);
+      int values = 0;
+      while (BencodeToken.END_OF_INPUT != reader.next()) {
+        values++;
+      }
+      Assert.assertTrue(values > 0);
+      Assert.assertEquals(reader.getDepth(), 0);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package bencode.parse;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import bencode.exception.BEncodeFormatException;
+import bencode.type.BDictionary;
+import bencode.type.BString;
+
+public class BencodeTapeTest {
+
+  @DataProvider
+  private Object[][] invalidTestData() {
+    return new Object[][] {
+        new Object[] {"l".getBytes()},
+        new Object[] {"d3:fooe".getBytes()},
+        new Object[] {"di1ei2ee".getBytes()},
+        new Object[] {"i-0e".getBytes()},
+        new Object[] {"4:22".getBytes()},
+        new Object[] {"x".getBytes()},
+    };
+  }
+
+  @Test
+  public void build() {
+    byte[] content = "d3:bar4:spam3:fooli1ei-2eee2:xy".getBytes();
+    BencodeTape tape = BencodeTape.build(content);
+    Assert.assertEquals(tape.size(), 8);
+    Assert.assertEquals(tape.type(0), BencodeTape.Type.DICTIONARY);
+    Assert.assertEquals(tape.end(0), 27);
+    Assert.assertEquals(tape.next(0), 7);
+    Assert.assertEquals(tape.type(4), BencodeTape.Type.LIST);
+    Assert.assertEquals(tape.parent(5), 4);
+    Assert.assertEquals(tape.longValue(6), -2L);
+    Assert.assertEquals(tape.stringValue(7), new BString("xy".getBytes()));
+  }
+
+  @Test
+  public void cursor() {
+    byte[] content = "d3:bar4:spam3:fooli1ei-2eee2:xy".getBytes();
+    BencodeTape.Cursor cursor = BencodeTape.build(content).cursor();
+    Assert.assertTrue(cursor.get(new BString("foo".getBytes())));
+    Assert.assertEquals(cursor.type(), BencodeTape.Type.LIST);
+    Assert.assertTrue(cursor.get(1));
+    Assert.assertEquals(cursor.longValue(), -2L);
+    Assert.assertFalse(cursor.nextSibling());
+    Assert.assertTrue(cursor.parent());
+    Assert.assertTrue(cursor.parent());
+    Assert.assertEquals(cursor.index(), 0);
+    Assert.assertFalse(cursor.get(new BString("baz".getBytes())));
+    Assert.assertTrue(cursor.nextSibling());
+    Assert.assertEquals(cursor.stringValue().toString(), "xy");
+    Assert.assertFalse(cursor.nextSibling());
+  }
+
+  @Test(dataProvider = "invalidTestData",
+      expectedExceptions = BEncodeFormatException.class)
+  public void buildInvalid(byte[] content) {
+    BencodeTape.build(content);
+  }
+
+  @Test
+  public void buildTorrent() throws IOException, URISyntaxException {
+    byte[] data = Files.readAllBytes(
+        Paths.get(BencodeTapeTest.class.getResource("/demo.torrent").toURI()));
+    BDictionary expected = new Parser().parseDic(data, 0);
+    BencodeTape tape = BencodeTape.build(data);
+    Assert.assertEquals(tape.end(0), data.length);
+    Assert.assertEquals(tape.toBType(0), expected);
+
+    BencodeTape.Cursor cursor = tape.cursor();
+    Assert.assertTrue(cursor.get(new BString("info".getBytes())));
+    Assert.assertEquals(cursor.toBType(),
+        expected.get(new BString("info".getBytes())));
+  }
+}
@@ -0,0 +1,146 @@
+package bencode.parse;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import bencode.exception.BEncodeFormatException;
+import bencode.type.BType;
+
+public class IncrementalDecoderTest {
+
+  @DataProvider
+  private Object[][] chunkSizeTestData() {
+    return new Object[][] {
+        new Object[] {1},
+        new Object[] {7},
+        new Object[] {4096},
+        new Object[] {Integer.MAX_VALUE},
+    };
+  }
+
+  @DataProvider
+  private Object[][] invalidTestData() {
+    return new Object[][] {
+        new Object[] {"i-0e".getBytes()},
+        new Object[] {"i03e".getBytes()},
+        new Object[] {"ie".getBytes()},
+        new Object[] {"i1x".getBytes()},
+        new Object[] {"di1ei2ee".getBytes()},
+        new Object[] {"d1:ae".getBytes()},
+        new Object[] {"e".getBytes()},
+        new Object[] {"x".getBytes()},
+        new Object[] {"1x".getBytes()},
+    };
+  }
+
+  @Test(dataProvider = "chunkSizeTestData")
+  public void feed(int chunkSize) throws IOException, URISyntaxException {
+    byte[] torrent = Files.readAllBytes(Paths.get(
+        IncrementalDecoderTest.class.getResource("/demo.torrent").toURI()));
+    byte[] small = "i-42e0:l4:spame".getBytes();
+    byte[] data = new byte[torrent.length * 2 + small.length];
+    System.arraycopy(torrent, 0, data, 0, torrent.length);
+    System.arraycopy(small, 0, data, torrent.length, small.length);
+    System.arraycopy(
+        torrent, 0, data, torrent.length + small.length, torrent.length);
+    List<BType<?>> expected =
+        new Parser().parse(data, 0, data.length).getContent();
+
+    IncrementalDecoder decoder = new IncrementalDecoder();
+    List<BType<?>> values = new ArrayList<>();
+    for (int i = 0; i < data.length; i += chunkSize) {
+      int length = Math.min(chunkSize, data.length - i);
+      ByteBuffer chunk = ByteBuffer.wrap(data, i, length).slice();
+      while (IncrementalDecoder.Status.VALUE_READY == decoder.feed(chunk)) {
+        values.add(decoder.getValue());
+      }
+      Assert.assertFalse(chunk.hasRemaining());
+    }
+    Assert.assertFalse(decoder.hasPartialValue());
+    Assert.assertEquals(decoder.getPosition(), data.length);
+    Assert.assertEquals(values, expected);
+  }
+
+  @Test
+  public void feedPartial() {
+    IncrementalDecoder decoder = new IncrementalDecoder();
+    ByteBuffer head = ByteBuffer.wrap("d3:foo5:ab".getBytes());
+    Assert.assertEquals(decoder.feed(head),
+        IncrementalDecoder.Status.NEED_MORE_INPUT);
+    Assert.assertTrue(decoder.hasPartialValue());
+    Assert.assertNull(decoder.getValue());
+
+    ByteBuffer rest = ByteBuffer.wrap("cdeei1e".getBytes());
+    Assert.assertEquals(decoder.feed(rest),
+        IncrementalDecoder.Status.VALUE_READY);
+    Assert.assertEquals(rest.position(), 4);
+    Assert.assertEquals(
+        decoder.getValue().encode(), "d3:foo5:abcdee".getBytes());
+    Assert.assertEquals(decoder.feed(rest),
+        IncrementalDecoder.Status.VALUE_READY);
+    Assert.assertEquals(decoder.getValue().encode(), "i1e".getBytes());
+    Assert.assertEquals(decoder.feed(rest),
+        IncrementalDecoder.Status.NEED_MORE_INPUT);
+    Assert.assertNull(decoder.getValue());
+
+    decoder.feed(ByteBuffer.wrap("li1".getBytes()));
+    decoder.reset();
+    Assert.assertFalse(decoder.hasPartialValue());
+    Assert.assertEquals(decoder.feed(ByteBuffer.wrap("le".getBytes())),
+        IncrementalDecoder.Status.VALUE_READY);
+    Assert.assertEquals(decoder.getValue().encode(), "le".getBytes());
+  }
+
+  @Test
+  public void feedWithVisitor() {
+    final StringBuilder events = new StringBuilder();
+    IncrementalDecoder decoder = new IncrementalDecoder(new BencodeVisitor() {
+      @Override
+      public void visitInteger(long value) {
+        events.append('i').append(value);
+      }
+
+      @Override
+      public void visitString(byte[] buf, int offset, int length) {
+        events.append('s').append(new String(buf, offset, length));
+      }
+
+      @Override
+      public void visitKey(byte[] buf, int offset, int length) {
+        events.append('k').append(new String(buf, offset, length));
+      }
+
+      @Override
+      public void beginDict() {
+        events.append('d');
+      }
+
+      @Override
+      public void endDict() {
+        events.append('e');
+      }
+    });
+    byte[] data = "d1:ai-7e2:bc3:xyze".getBytes();
+    for (byte b : data) {
+      decoder.feed(ByteBuffer.wrap(new byte[] {b}));
+    }
+    Assert.assertFalse(decoder.hasPartialValue());
+    Assert.assertNull(decoder.getValue());
+    Assert.assertEquals(events.toString(), "dkai-7kbcsxyze");
+  }
+
+  @Test(dataProvider = "invalidTestData",
+      expectedExceptions = BEncodeFormatException.class)
+  public void feedInvalid(byte[] content) {
+    new IncrementalDecoder().feed(ByteBuffer.wrap(content));
+  }
+}
@@ -0,0 +1,113 @@
+package bencode.parse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import bencode.exception.BEncodeFormatException;
+import bencode.type.BDictionary;
+import bencode.type.BString;
+
+public class InfoHashTest {
+
+  @DataProvider
+  private Object[][] invalidTestData() {
+    return new Object[][] {
+        new Object[] {"d4:infod".getBytes()},
+        new Object[] {"d4:infoi-0ee".getBytes()},
+        new Object[] {"d4:info".getBytes()},
+    };
+  }
+
+  @Test
+  public void sha1() throws IOException, URISyntaxException,
+      NoSuchAlgorithmException {
+    byte[] data = Files.readAllBytes(
+        Paths.get(InfoHashTest.class.getResource("/demo.torrent").toURI()));
+    BDictionary torrent = new Parser().parseDic(data, 0);
+    byte[] info = torrent.get(new BString("info".getBytes())).encode();
+
+    Assert.assertEquals(InfoHash.sha1(data),
+        MessageDigest.getInstance("SHA-1").digest(info));
+    Assert.assertEquals(InfoHash.sha256(data),
+        MessageDigest.getInstance("SHA-256").digest(info));
+
+    byte[][] digests = InfoHash.digest(new TrickleInputStream(data),
+        InfoHash.INFO_KEY, InfoHash.SHA_1, InfoHash.SHA_256);
+    Assert.assertEquals(digests[0], InfoHash.sha1(data));
+    Assert.assertEquals(digests[1], InfoHash.sha256(data));
+  }
+
+  @Test
+  public void digestNonCanonical() throws IOException,
+      NoSuchAlgorithmException {
+    byte[] data = "d1:zi1e4:infod1:bi1e1:ai2ee1:ai3ee".getBytes();
+    byte[] expected = MessageDigest.getInstance("SHA-1")
+        .digest("d1:bi1e1:ai2ee".getBytes());
+    Assert.assertEquals(InfoHash.sha1(data), expected);
+    Assert.assertEquals(InfoHash.findValue(data, 0, "info"),
+        new int[] {13, 27});
+    Assert.assertEquals(
+        InfoHash.digest(new ByteArrayInputStream(data), "info", "SHA-1")[0],
+        expected);
+  }
+
+  @Test
+  public void digestMissing() throws IOException {
+    byte[] data = "d1:ai1e4:infp0:ei42e".getBytes();
+    Assert.assertNull(InfoHash.sha1(data));
+    Assert.assertNull(InfoHash.sha1("li1ee".getBytes()));
+    Assert.assertNull(InfoHash.digest(
+        new ByteArrayInputStream(data), InfoHash.INFO_KEY, InfoHash.SHA_1));
+  }
+
+  @Test(dataProvider = "invalidTestData",
+      expectedExceptions = BEncodeFormatException.class)
+  public void digestInvalid(byte[] content) throws IOException {
+    InfoHash.digest(new ByteArrayInputStream(content), "info", "SHA-1");
+  }
+
+  @Test(dataProvider = "invalidTestData",
+      expectedExceptions = BEncodeFormatException.class)
+  public void sha1Invalid(byte[] content) {
+    InfoHash.sha1(content);
+  }
+
+  /**
+   * <p>每次最多只返回3个字节的输入流，用来测试跨越多次读取的数据。
+   */
+  private static final class TrickleInputStream extends InputStream {
+
+    private final byte[] data;
+    private int pos;
+
+    TrickleInputStream(byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    public int read() {
+      return (pos < data.length) ? (data[pos++] & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (pos >= data.length) {
+        return -1;
+      }
+      int n = Math.min(Math.min(len, 3), data.length - pos);
+      System.arraycopy(data, pos, b, off, n);
+      pos += n;
+      return n;
+    }
+  }
+}
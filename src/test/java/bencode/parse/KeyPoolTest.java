@@ -0,0 +1,130 @@
+package bencode.parse;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import bencode.type.BDictionary;
+import bencode.type.BList;
+import bencode.type.BString;
+import bencode.type.BType;
+
+public class KeyPoolTest {
+
+  @DataProvider
+  private Object[][] parserTestData() {
+    return new Object[][] {
+        new Object[] {false, false},
+        new Object[] {true, false},
+        new Object[] {false, true},
+    };
+  }
+
+  @Test
+  public void intern() {
+    KeyPool pool = new KeyPool();
+    byte[] data = "xlengthlength".getBytes();
+    BString first = pool.intern(data, 1, 6);
+    Assert.assertSame(pool.intern(data, 7, 6), first);
+    Assert.assertSame(
+        pool.intern(ByteBuffer.wrap("length".getBytes()), 0, 6), first);
+    ByteBuffer direct = ByteBuffer.allocateDirect(6);
+    direct.put("length".getBytes());
+    Assert.assertSame(pool.intern(direct, 0, 6), first);
+    Assert.assertEquals(first, new BString("length".getBytes()));
+    Assert.assertTrue(first.isShared());
+    Assert.assertFalse(first.isSlice());
+
+    data[1] = 'L';
+    Assert.assertEquals(first.toString(), "length");
+    Assert.assertNull(new KeyPool(16, 4).intern(data, 1, 6));
+  }
+
+  @Test
+  public void internCollision() {
+    KeyPool pool = new KeyPool(1, 64);
+    BString a = pool.intern("a".getBytes(), 0, 1);
+    BString b = pool.intern("b".getBytes(), 0, 1);
+    Assert.assertEquals(b.toString(), "b");
+    Assert.assertNotSame(pool.intern("a".getBytes(), 0, 1), a);
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void internImmutable() {
+    new KeyPool().intern("path".getBytes(), 0, 4).setContent(new byte[0]);
+  }
+
+  @Test
+  public void internConcurrently() throws Exception {
+    final KeyPool pool = new KeyPool(64, 64);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executor.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() {
+            for (int i = 0; i < 100000; i++) {
+              byte[] key = ("key" + (i % 200)).getBytes();
+              BString interned = pool.intern(key, 0, key.length);
+              if (!interned.equals(new BString(key))) {
+                return false;
+              }
+            }
+            return true;
+          }
+        }));
+      }
+      for (Future<Boolean> future : futures) {
+        Assert.assertTrue(future.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(dataProvider = "parserTestData")
+  public void parseWithKeyPool(boolean sliceStrings, boolean lazy)
+      throws IOException, URISyntaxException {
+    byte[] data = Files.readAllBytes(
+        Paths.get(KeyPoolTest.class.getResource("/demo.torrent").toURI()));
+    BDictionary expected = new Parser().parseDic(data, 0);
+
+    Parser parser = new Parser();
+    parser.setSliceStrings(sliceStrings);
+    parser.setLazy(lazy);
+    parser.setKeyPool(new KeyPool());
+    BDictionary torrent = parser.parseDic(data, 0);
+    Assert.assertEquals(torrent, expected);
+    Assert.assertEquals(torrent.encode(), data);
+
+    BDictionary info =
+        (BDictionary)torrent.get(new BString("info".getBytes()));
+    BString lengthKey = null;
+    for (BType<?> file : (BList)info.get(new BString("files".getBytes()))) {
+      for (Entry<BString, BType<?>> entry : (BDictionary)file) {
+        BString key = entry.getKey();
+        if ("length".equals(key.toString())) {
+          if (null == lengthKey) {
+            lengthKey = key;
+          }
+          Assert.assertSame(key, lengthKey);
+        }
+      }
+    }
+    Assert.assertNotNull(lengthKey);
+  }
+}
@@ -0,0 +1,244 @@
+package bencode.parse;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import bencode.exception.BEncodeFormatException;
+import bencode.type.BDictionary;
+import bencode.type.BList;
+import bencode.type.BNumber;
+import bencode.type.BString;
+
+public class MetainfoTest {
+
+  private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+  private static final String HASH_A = repeat('a', 20);
+  private static final String HASH_B = repeat('b', 20);
+  private static final String ROOT_X = repeat('x', 32);
+  private static final String ROOT_Y = repeat('y', 32);
+
+  @DataProvider
+  private Object[][] invalidTestData() {
+    return new Object[][] {
+        new Object[] {"le"},
+        new Object[] {"d8:announce3:urle"},
+        new Object[] {"d4:infoi1ee"},
+        new Object[] {"d4:infod12:piece lengthi4e6:lengthi4e6:pieces0:ee"},
+        new Object[] {"d4:infod4:name1:a6:lengthi4e6:pieces20:" + HASH_A
+            + "ee"},
+        new Object[] {"d4:infod4:name1:a12:piece lengthi0e6:lengthi4e"
+            + "6:pieces20:" + HASH_A + "ee"},
+        new Object[] {"d4:infod4:name1:a12:piece lengthi4e6:lengthi4e"
+            + "6:pieces3:abcee"},
+        new Object[] {"d4:infod4:name1:a12:piece lengthi4e6:lengthi9e"
+            + "6:pieces20:" + HASH_A + "ee"},
+        new Object[] {"d4:infod4:name1:a12:piece lengthi4e"
+            + "6:pieces20:" + HASH_A + "ee"},
+        new Object[] {"d4:infod5:filesld4:pathl1:beee4:name1:a"
+            + "12:piece lengthi4e6:pieces20:" + HASH_A + "ee"},
+        new Object[] {"d4:infod4:name1:a12:piece lengthi4eee"},
+        new Object[] {"d4:infod9:file treed0:d6:lengthi1eee"
+            + "12:meta versioni2e4:name1:a12:piece lengthi4eee"},
+        new Object[] {"d4:infod9:file treed1:ad0:d6:lengthi1e"
+            + "11:pieces root3:abceeee12:meta versioni2e"
+            + "4:name1:a12:piece lengthi4eee"},
+        new Object[] {"d4:infod4:name1:a12:piece lengthi4e6:lengthi4e"
+            + "6:pieces20:" + HASH_A},
+    };
+  }
+
+  @Test
+  public void demoTorrent() throws IOException, URISyntaxException {
+    byte[] data = Files.readAllBytes(
+        Paths.get(MetainfoTest.class.getResource("/demo.torrent").toURI()));
+    BDictionary torrent = new Parser().parseDic(data, 0);
+    BDictionary info = (BDictionary)torrent.get(key("info"));
+    BList files = (BList)info.get(key("files"));
+    byte[] pieces = ((BString)info.get(key("pieces"))).getContent();
+
+    Metainfo metainfo = Metainfo.decode(data);
+    Assert.assertEquals(metainfo.getAnnounce(),
+        new String(((BString)torrent.get(key("announce"))).getContent()));
+    Assert.assertEquals(metainfo.getAnnounceList().size(),
+        ((BList)torrent.get(key("announce-list"))).size());
+    Assert.assertEquals(metainfo.getCreationDate(),
+        ((BNumber)torrent.get(key("creation date"))).getLong());
+    Assert.assertEquals(metainfo.getName(),
+        new String(((BString)info.get(key("name"))).getContent(), "UTF-8"));
+    Assert.assertEquals(metainfo.getPieceLength(),
+        ((BNumber)info.get(key("piece length"))).getLong());
+    Assert.assertTrue(metainfo.hasV1());
+    Assert.assertFalse(metainfo.hasV2());
+    Assert.assertTrue(metainfo.isMultiFile());
+    Assert.assertEquals(metainfo.getInfoHash(), InfoHash.sha1(data));
+    Assert.assertEquals(metainfo.getInfoHashV2(), InfoHash.sha256(data));
+    Assert.assertEquals(toBytes(metainfo.getInfo()), info.encode());
+
+    Assert.assertEquals(metainfo.getPieceCount(),
+        pieces.length / Metainfo.HASH_LENGTH);
+    Assert.assertEquals(toBytes(metainfo.getPieces()), pieces);
+    byte[] hash = new byte[Metainfo.HASH_LENGTH];
+    for (int i = 0; i < metainfo.getPieceCount(); i++) {
+      byte[] expected = Arrays.copyOfRange(pieces,
+          i * Metainfo.HASH_LENGTH, (i + 1) * Metainfo.HASH_LENGTH);
+      Assert.assertEquals(toBytes(metainfo.hashAt(i)), expected);
+      metainfo.copyHashTo(i, hash, 0);
+      Assert.assertEquals(hash, expected);
+      Assert.assertTrue(metainfo.hashEquals(i, expected));
+    }
+
+    Assert.assertEquals(metainfo.getFileCount(), files.size());
+    long total = 0;
+    for (int i = 0; i < files.size(); i++) {
+      BDictionary file = (BDictionary)files.get(i);
+      long length = ((BNumber)file.get(key("length"))).getLong();
+      BList path = (BList)file.get(key("path"));
+      String[] expected = new String[path.size()];
+      for (int j = 0; j < expected.length; j++) {
+        expected[j] =
+            new String(((BString)path.get(j)).getContent(), "UTF-8");
+      }
+      Assert.assertEquals(metainfo.getFileLength(i), length);
+      Assert.assertEquals(metainfo.getPath(i), expected);
+      Assert.assertNull(metainfo.piecesRoot(i));
+      total += length;
+    }
+    Assert.assertEquals(metainfo.getTotalLength(), total);
+  }
+
+  @Test
+  public void singleFile() {
+    byte[] data = bytes("d8:announce3:url13:announce-listll1:a1:bel1:cee"
+        + "7:comment2:hi10:created by1:x13:creation datei7e"
+        + "4:infod6:lengthi6e4:name5:a.txt12:piece lengthi4e"
+        + "6:pieces40:" + HASH_A + HASH_B + "7:privatei1eee");
+    Metainfo metainfo = Metainfo.decode(data);
+    Assert.assertEquals(metainfo.getAnnounce(), "url");
+    Assert.assertEquals(metainfo.getAnnounceList(), Arrays.asList(
+        Arrays.asList("a", "b"), Arrays.asList("c")));
+    Assert.assertEquals(metainfo.getComment(), "hi");
+    Assert.assertEquals(metainfo.getCreatedBy(), "x");
+    Assert.assertEquals(metainfo.getCreationDate(), 7);
+    Assert.assertTrue(metainfo.isPrivate());
+    Assert.assertFalse(metainfo.isMultiFile());
+    Assert.assertEquals(metainfo.getFileCount(), 1);
+    Assert.assertEquals(metainfo.getFileLength(0), 6);
+    Assert.assertEquals(metainfo.getPath(0), new String[] {"a.txt"});
+    Assert.assertEquals(metainfo.getPieceCount(), 2);
+    Assert.assertEquals(toBytes(metainfo.hashAt(1)), bytes(HASH_B));
+    Assert.assertFalse(metainfo.hashEquals(0, bytes(HASH_B)));
+    Assert.assertFalse(metainfo.hashEquals(0, new byte[1]));
+
+    ByteBuffer view = metainfo.hashAt(0);
+    Assert.assertTrue(view.isReadOnly());
+    Assert.assertEquals(view.position(), 0);
+    Assert.assertEquals(view.remaining(), Metainfo.HASH_LENGTH);
+  }
+
+  @Test
+  public void defaults() {
+    Metainfo metainfo = Metainfo.decode(bytes("d4:infod6:lengthi0e"
+        + "4:name1:a12:piece lengthi4e6:pieces0:ee"));
+    Assert.assertNull(metainfo.getAnnounce());
+    Assert.assertTrue(metainfo.getAnnounceList().isEmpty());
+    Assert.assertNull(metainfo.getComment());
+    Assert.assertEquals(metainfo.getCreationDate(), -1);
+    Assert.assertFalse(metainfo.isPrivate());
+    Assert.assertEquals(metainfo.getMetaVersion(), 1);
+    Assert.assertEquals(metainfo.getPieceCount(), 0);
+    Assert.assertEquals(metainfo.getTotalLength(), 0);
+  }
+
+  @Test
+  public void v2() {
+    byte[] data = bytes("d4:infod9:file treed3:dird1:bd0:d6:lengthi9e"
+        + "11:pieces root32:" + ROOT_X + "ee1:cd0:d6:lengthi1e"
+        + "11:pieces root32:" + ROOT_Y + "eee"
+        + "1:zd0:d6:lengthi0eeee"
+        + "12:meta versioni2e4:name1:t12:piece lengthi4ee"
+        + "12:piece layersd32:" + ROOT_X + "96:" + repeat('p', 96) + "ee");
+    Metainfo metainfo = Metainfo.decode(data);
+    Assert.assertTrue(metainfo.hasV2());
+    Assert.assertFalse(metainfo.hasV1());
+    Assert.assertTrue(metainfo.isMultiFile());
+    Assert.assertEquals(metainfo.getPieceCount(), 0);
+    Assert.assertEquals(metainfo.getPieces().remaining(), 0);
+    Assert.assertEquals(metainfo.getFileCount(), 3);
+    Assert.assertEquals(metainfo.getTotalLength(), 10);
+    Assert.assertEquals(metainfo.getPath(0), new String[] {"dir", "b"});
+    Assert.assertEquals(metainfo.getPath(1), new String[] {"dir", "c"});
+    Assert.assertEquals(metainfo.getPath(2), new String[] {"z"});
+    Assert.assertEquals(metainfo.getFileLength(0), 9);
+    Assert.assertEquals(toBytes(metainfo.piecesRoot(0)), bytes(ROOT_X));
+    Assert.assertEquals(toBytes(metainfo.piecesRoot(1)), bytes(ROOT_Y));
+    Assert.assertNull(metainfo.piecesRoot(2));
+    Assert.assertEquals(toBytes(metainfo.pieceLayer(0)),
+        bytes(repeat('p', 96)));
+    Assert.assertNull(metainfo.pieceLayer(1));
+    Assert.assertNull(metainfo.pieceLayer(2));
+
+    Metainfo single = Metainfo.decode(bytes("d4:infod9:file treed1:td0:"
+        + "d6:lengthi3eeee12:meta versioni2e4:name1:t12:piece lengthi4eee"));
+    Assert.assertFalse(single.isMultiFile());
+    Assert.assertEquals(single.getPath(0), new String[] {"t"});
+    Assert.assertNull(single.pieceLayer(0));
+  }
+
+  @Test
+  public void hybrid() {
+    byte[] data = bytes("d4:infod5:filesld6:lengthi5e4:pathl1:aee"
+        + "d4:attr1:p6:lengthi3e4:pathl4:.pad1:3eee"
+        + "9:file treed1:ad0:d6:lengthi5e11:pieces root32:" + ROOT_X
+        + "eee12:meta versioni2e4:name1:h12:piece lengthi4e"
+        + "6:pieces40:" + HASH_A + HASH_B + "ee");
+    Metainfo metainfo = Metainfo.decode(data);
+    Assert.assertTrue(metainfo.hasV1());
+    Assert.assertTrue(metainfo.hasV2());
+    Assert.assertEquals(metainfo.getFileCount(), 2);
+    Assert.assertEquals(metainfo.getPath(1), new String[] {".pad", "3"});
+    Assert.assertEquals(metainfo.getTotalLength(), 8);
+    Assert.assertNull(metainfo.piecesRoot(0));
+  }
+
+  @Test(expectedExceptions = IndexOutOfBoundsException.class)
+  public void hashAtOutOfBounds() {
+    Metainfo.decode(bytes("d4:infod6:lengthi1e4:name1:a12:piece lengthi4e"
+        + "6:pieces20:" + HASH_A + "ee")).hashAt(1);
+  }
+
+  @Test(dataProvider = "invalidTestData",
+      expectedExceptions = BEncodeFormatException.class)
+  public void invalid(String content) {
+    Metainfo.decode(bytes(content));
+  }
+
+  private static BString key(String value) {
+    return new BString(value.getBytes());
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(LATIN_1);
+  }
+
+  private static byte[] toBytes(ByteBuffer buffer) {
+    byte[] result = new byte[buffer.remaining()];
+    buffer.duplicate().get(result);
+    return result;
+  }
+
+  private static String repeat(char c, int count) {
+    char[] chars = new char[count];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
+}
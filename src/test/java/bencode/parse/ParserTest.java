@@ -4,9 +4,12 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
 
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
@@ -17,6 +20,7 @@ import bencode.type.BDictionary;
 import bencode.type.BNumber;
 import bencode.type.BList;
 import bencode.type.BString;
+import bencode.type.BType;
 
 public class ParserTest {
   private Parser parser = new Parser();
@@ -248,6 +252,32 @@ public class ParserTest {
     }
   }
 
+  @Test
+  public void parseWithVisitor() {
+    byte[] content =
+        "d5:filesld6:lengthi3e4:pathl1:aeed6:lengthi4e4:pathl1:beeee"
+            .getBytes();
+    final long[] lengths = new long[2];
+    parser.parse(content, 0, content.length, new BencodeVisitor() {
+      private boolean isLength;
+
+      @Override
+      public void visitKey(byte[] buf, int offset, int length) {
+        isLength = "length".equals(new String(buf, offset, length));
+      }
+
+      @Override
+      public void visitInteger(long value) {
+        if (isLength) {
+          lengths[0]++;
+          lengths[1] += value;
+        }
+      }
+    });
+    Assert.assertEquals(lengths[0], 2L);
+    Assert.assertEquals(lengths[1], 7L);
+  }
+
   @Test(dataProvider = "parseTestData")
   public void parse(String fileLocation) 
       throws IOException, URISyntaxException {
@@ -257,5 +287,296 @@ public class ParserTest {
     byte[] data = Files.readAllBytes(path);
     BList bList = parser.parse(data, 0, data.length);
     Assert.assertNotNull(bList);
+    Assert.assertEquals(bList.getContent().getFirst().encode(), data);
+  }
+
+  @Test(dataProvider = "parseTestData")
+  public void parseSlices(String fileLocation)
+      throws IOException, URISyntaxException {
+    byte[] data = Files.readAllBytes(
+        Paths.get(ParserTest.class.getResource(fileLocation).toURI()));
+    BList expected = parser.parse(data, 0, data.length);
+
+    Parser slicingParser = new Parser();
+    slicingParser.setSliceStrings(true);
+    BList sliced = slicingParser.parse(data, 0, data.length);
+    Assert.assertEquals(sliced, expected);
+    BType<?> torrent = sliced.getContent().getFirst();
+    BType<?> announce =
+        ((BDictionary)torrent).get(new BString("announce".getBytes()));
+    Assert.assertTrue(((BString)announce).isSlice());
+    Assert.assertEquals(torrent.encode(), data);
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(data.length + 2);
+    direct.put((byte)'x').put(data).put((byte)'y');
+    direct.position(1);
+    direct.limit(data.length + 1);
+    BList fromBuffer = slicingParser.parse(direct);
+    Assert.assertEquals(fromBuffer, expected);
+    Assert.assertEquals(direct.position(), 1);
+    Assert.assertEquals(fromBuffer.getContent().getFirst().encode(), data);
+    Assert.assertEquals(parser.parse(direct), expected);
+  }
+
+  @Test(dataProvider = "parseTestData")
+  public void parseMapped(String fileLocation)
+      throws IOException, URISyntaxException {
+    Path path = Paths.get(ParserTest.class.getResource(fileLocation).toURI());
+    byte[] data = Files.readAllBytes(path);
+    BList expected = parser.parse(data, 0, data.length);
+
+    Parser slicingParser = new Parser();
+    slicingParser.setSliceStrings(true);
+    BList mapped = slicingParser.parse(path);
+    Assert.assertEquals(mapped, expected);
+    BType<?> announce = ((BDictionary)mapped.getContent().getFirst())
+        .get(new BString("announce".getBytes()));
+    Assert.assertTrue(((BString)announce).isSlice());
+  }
+
+  @Test(dataProvider = "parseTestData")
+  public void parseSegments(String fileLocation)
+      throws IOException, URISyntaxException {
+    byte[] data = Files.readAllBytes(
+        Paths.get(ParserTest.class.getResource(fileLocation).toURI()));
+    BList expected = parser.parse(data, 0, data.length);
+
+    int segmentShift = 6;
+    int segmentSize = 1 << segmentShift;
+    ByteBuffer[] segments =
+        new ByteBuffer[(data.length + segmentSize - 1) / segmentSize];
+    for (int i = 0; i < segments.length; i++) {
+      int start = i * segmentSize;
+      ByteBuffer segment = ByteBuffer.allocateDirect(
+          Math.min(segmentSize, data.length - start));
+      segment.put(data, start, segment.capacity());
+      segments[i] = segment;
+    }
+    TreeBuilder builder = new TreeBuilder(true);
+    ValueScanner.parse(ByteInput.of(segments, segmentShift), 0, data.length,
+        builder);
+    Assert.assertEquals(builder.getValues(), expected);
+  }
+
+  @Test(dataProvider = "parseTestData")
+  public void parseLazy(String fileLocation)
+      throws IOException, URISyntaxException {
+    byte[] data = Files.readAllBytes(
+        Paths.get(ParserTest.class.getResource(fileLocation).toURI()));
+    BList expected = parser.parse(data, 0, data.length);
+
+    Parser lazyParser = new Parser();
+    lazyParser.setLazy(true);
+    BList lazy = lazyParser.parse(data, 0, data.length);
+    BDictionary torrent = (BDictionary)lazy.getContent().getFirst();
+    Assert.assertTrue(torrent instanceof LazyBDictionary);
+    Assert.assertEquals(torrent.getContentLength(), data.length);
+
+    BType<?> info = torrent.get(new BString("info".getBytes()));
+    Assert.assertTrue(info instanceof LazyBDictionary);
+    BType<?> expectedInfo = ((BDictionary)expected.getContent().getFirst())
+        .get(new BString("info".getBytes()));
+    Assert.assertEquals(info.hashCode(), expectedInfo.hashCode());
+    Assert.assertEquals(info.encode(),
+        ((BDictionary)expected.getContent().getFirst())
+            .get(new BString("info".getBytes())).encode());
+    Assert.assertNull(torrent.get(new BString("missing".getBytes())));
+    Assert.assertEquals(torrent.encode(), data);
+    Assert.assertEquals(lazy, expected);
+    Assert.assertEquals(lazy.hashCode(), expected.hashCode());
+  }
+
+  @Test
+  public void parseLazyModified() {
+    byte[] data = "d1:ali1ei2ee1:bd1:ci3eee".getBytes();
+    Parser lazyParser = new Parser();
+    lazyParser.setLazy(true);
+    BDictionary dictionary = lazyParser.parseDic(data, 0);
+    Assert.assertEquals(dictionary.size(), 2);
+    BDictionary b = (BDictionary)dictionary.get(new BString("b".getBytes()));
+    b.put(new BString("d".getBytes()), new BNumber(4));
+    Assert.assertEquals(
+        dictionary.encode(), "d1:ali1ei2ee1:bd1:ci3e1:di4eee".getBytes());
+    Assert.assertEquals(dictionary.getContentLength(), 30);
+  }
+
+  @Test
+  public void parseLazyList() {
+    StringBuilder sb = new StringBuilder("l");
+    for (int i = 0; i < 1000; i++) {
+      sb.append("d1:ai").append(i).append("ee");
+    }
+    byte[] data = sb.append("e").toString().getBytes();
+    Parser lazyParser = new Parser();
+    lazyParser.setLazy(true);
+    LazyBList list = (LazyBList)lazyParser.parseList(data, 0);
+    Assert.assertEquals(list.size(), 1000);
+
+    BString a = new BString("a".getBytes());
+    Assert.assertEquals(((BDictionary)list.get(500)).get(a), new BNumber(500));
+    Iterator<BType<?>> iterator = list.iterator();
+    Assert.assertEquals(((BDictionary)iterator.next()).get(a), new BNumber(0));
+    for (int i = 0; i < list.size(); i++) {
+      Assert.assertEquals(list.isDecoded(i), (0 == i) || (500 == i));
+    }
+
+    ((BDictionary)iterator.next()).put(a, new BNumber(7));
+    Assert.assertTrue(list.isDecoded(1));
+    Assert.assertFalse(list.isDecoded(2));
+    Assert.assertEquals(((BDictionary)list.get(1)).get(a), new BNumber(7));
+    byte[] encoded = list.encode();
+    Assert.assertEquals(encoded.length, data.length);
+    Assert.assertEquals(list.getContentLength(), data.length);
+    Assert.assertEquals(new String(encoded, 1, 16), "d1:ai0eed1:ai7ee");
+  }
+
+  @Test(expectedExceptions = IndexOutOfBoundsException.class)
+  public void parseLazyListOutOfBounds() {
+    Parser lazyParser = new Parser();
+    lazyParser.setLazy(true);
+    lazyParser.parseList("li1ee".getBytes(), 0).get(1);
+  }
+
+  @DataProvider
+  private Object[][] skipTestData() {
+    return new Object[][] {
+        new Object[] {"i-42e".getBytes(), 0, 5, null},
+        new Object[] {"x4:spam".getBytes(), 1, 7, null},
+        new Object[] {"d1:ali1ei2ee1:bd1:ci3eeei9e".getBytes(), 0, 24, null},
+        new Object[] {"ldelli1eeeei1e".getBytes(), 0, 11, null},
+        new Object[] {"li1e".getBytes(), 0, -1, BEncodeFormatException.class},
+        new Object[] {"di1ei2ee".getBytes(), 0, -1,
+            BEncodeFormatException.class},
+        new Object[] {"d1:ae".getBytes(), 0, -1, BEncodeFormatException.class},
+        new Object[] {"li01ee".getBytes(), 0, -1,
+            BEncodeFormatException.class},
+        new Object[] {"5:abc".getBytes(), 0, -1, BEncodeFormatException.class},
+        new Object[] {"i9223372036854775807e".getBytes(), 0, 21, null},
+        new Object[] {"i9999999999999999999e".getBytes(), 0, -1,
+            BEncodeFormatException.class},
+        new Object[] {"i-9223372036854775808e".getBytes(), 0, -1,
+            BEncodeFormatException.class},
+        new Object[] {"i-0e".getBytes(), 0, -1, BEncodeFormatException.class},
+        new Object[] {"i00e".getBytes(), 0, -1, BEncodeFormatException.class},
+    };
+  }
+
+  @Test(dataProvider = "skipTestData")
+  public void skip(final byte[] content, int offset, int expectedEnd,
+      Class<? extends Exception> expectedException) {
+    Parser parser = new Parser();
+    try {
+      Assert.assertEquals(parser.skip(content, offset), expectedEnd);
+      Assert.assertNull(expectedException);
+    } catch (Exception e) {
+      Assert.assertEquals(e.getClass(), expectedException);
+    }
+    try {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+      buffer.put(content);
+      buffer.clear();
+      Assert.assertEquals(parser.skip(buffer, offset), expectedEnd);
+      Assert.assertNull(expectedException);
+    } catch (Exception e) {
+      Assert.assertEquals(e.getClass(), expectedException);
+    }
+  }
+
+  @Test
+  public void skipDeeplyNested() {
+    int depth = 100000;
+    byte[] data = new byte[depth * 4 + 2];
+    int i = 0;
+    for (int n = 0; n < depth; n++) {
+      data[i++] = 'd';
+      data[i++] = '1';
+      data[i++] = ':';
+      data[i++] = 'k';
+    }
+    data[i++] = 'l';
+    data[i++] = 'e';
+    byte[] closed = new byte[data.length + depth];
+    System.arraycopy(data, 0, closed, 0, data.length);
+    for (int n = data.length; n < closed.length; n++) {
+      closed[n] = 'e';
+    }
+    Parser parser = new Parser();
+    Assert.assertEquals(parser.skip(closed, 0), closed.length);
+    closed[depth * 4] = 'e';
+    try {
+      parser.skip(closed, 0);
+      Assert.fail();
+    } catch (BEncodeFormatException e) {
+      // the dictionary at the deepest level has no value
+    }
+  }
+
+  @Test(dataProvider = "parseTestData")
+  public void skipTorrent(String fileLocation)
+      throws IOException, URISyntaxException {
+    URL fileUrl = ParserTest.class.getResource(fileLocation);
+    byte[] data = Files.readAllBytes(Paths.get(fileUrl.toURI()));
+    Assert.assertEquals(new Parser().skip(data, 0), data.length);
+    Assert.assertEquals(
+        new Parser().skip(ByteBuffer.wrap(data), 0), data.length);
+  }
+
+  @Test
+  public void parseParallel() {
+    StringBuilder files = new StringBuilder("l");
+    for (int n = 0; n < 20000; n++) {
+      String name = "file-" + n;
+      files.append("d6:lengthi").append(n * 7L).append("e4:pathl")
+          .append(name.length()).append(':').append(name).append("ee");
+    }
+    files.append('e');
+    byte[] torrent = ("d8:announce3:url4:infod5:files" + files
+        + "4:name4:demoee").getBytes();
+    byte[] data = new byte[torrent.length * 3];
+    for (int n = 0; n < 3; n++) {
+      System.arraycopy(torrent, 0, data, n * torrent.length, torrent.length);
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Parser parser = new Parser();
+      BList expected = parser.parse(data, 0, data.length);
+      BList actual = parser.parse(data, 0, data.length, pool);
+      Assert.assertEquals(actual, expected);
+      Assert.assertEquals(actual.encode(), expected.encode());
+
+      parser.setSliceStrings(true);
+      BDictionary dictionary = parser.parseDic(data, torrent.length, pool);
+      Assert.assertEquals(dictionary, expected.getContent().get(1));
+      BList list = parser.parseList(torrent, 30, pool);
+      Assert.assertEquals(list.getContent().size(), 20000);
+      Assert.assertEquals(list.encode(), files.toString().getBytes());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test(expectedExceptions = BEncodeFormatException.class)
+  public void parseParallelInvalid() {
+    byte[] data = "d4:infoi1ee".getBytes();
+    new Parser().parseList(data, 0, ForkJoinPool.commonPool());
+  }
+
+  @Test
+  public void parseMutableNumbers() {
+    byte[] data = "d7:privatei0ee".getBytes();
+    BString key = new BString("private".getBytes());
+    BDictionary dictionary = new Parser().parseDic(data, 0);
+    BNumber flag = (BNumber)dictionary.get(key);
+    Assert.assertNotSame(flag, BNumber.valueOf(0));
+    Assert.assertEquals(dictionary.encode(), data);
+    flag.setLong(1);
+    Assert.assertEquals(dictionary.encode(), "d7:privatei1ee".getBytes());
+
+    Parser sharing = new Parser();
+    sharing.setShareNumbers(true);
+    Assert.assertSame(sharing.parseDic(data, 0).get(key), BNumber.valueOf(0));
+    sharing.setLazy(true);
+    Assert.assertSame(sharing.parseDic(data, 0).get(key), BNumber.valueOf(0));
   }
 }
@@ -0,0 +1,155 @@
+package bencode.parse;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import bencode.parse.PieceIndex.FileSlice;
+
+public class PieceIndexTest {
+
+  private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+  @DataProvider
+  private Object[][] outOfBoundsTestData() {
+    return new Object[][] {
+        new Object[] {-1L, 1L},
+        new Object[] {0L, -1L},
+        new Object[] {10L, 1L},
+        new Object[] {8L, 3L},
+    };
+  }
+
+  @Test
+  public void demoTorrent() throws IOException, URISyntaxException {
+    byte[] data = Files.readAllBytes(
+        Paths.get(PieceIndexTest.class.getResource("/demo.torrent").toURI()));
+    Metainfo metainfo = Metainfo.decode(data);
+    PieceIndex index = new PieceIndex(metainfo);
+    Assert.assertEquals(index.getPieceCount(), metainfo.getPieceCount());
+
+    long pieceLength = metainfo.getPieceLength();
+    for (int piece = 0; piece < index.getPieceCount(); piece++) {
+      long start = piece * pieceLength;
+      long end = Math.min(start + pieceLength, metainfo.getTotalLength());
+      List<FileSlice> expected = new ArrayList<>();
+      long fileStart = 0;
+      for (int file = 0; file < metainfo.getFileCount(); file++) {
+        long fileEnd = fileStart + metainfo.getFileLength(file);
+        long from = Math.max(start, fileStart);
+        long to = Math.min(end, fileEnd);
+        if (from < to) {
+          expected.add(new FileSlice(file, from - fileStart, to - from));
+        }
+        fileStart = fileEnd;
+      }
+      Assert.assertEquals(index.pieceSize(piece), end - start);
+      Assert.assertEquals(Arrays.asList(index.filesForPiece(piece)),
+          expected);
+      Assert.assertEquals(index.firstFile(piece), expected.get(0).getFile());
+      Assert.assertEquals(index.lastFile(piece),
+          expected.get(expected.size() - 1).getFile());
+    }
+    for (int file = 0; file < metainfo.getFileCount(); file++) {
+      for (int piece = index.pieceStart(file); piece < index.pieceEnd(file);
+          piece++) {
+        boolean found = false;
+        for (FileSlice slice : index.filesForPiece(piece)) {
+          found |= file == slice.getFile();
+        }
+        Assert.assertTrue(found);
+      }
+    }
+  }
+
+  @Test
+  public void v1() {
+    // 文件长度为3、0、5、2，piece length为4
+    PieceIndex index = new PieceIndex(Metainfo.decode(bytes(
+        "d4:infod5:filesld6:lengthi3e4:pathl1:aeed6:lengthi0e4:pathl1:bee"
+            + "d6:lengthi5e4:pathl1:ceed6:lengthi2e4:pathl1:deee"
+            + "4:name1:t12:piece lengthi4e6:pieces60:" + repeat('h', 60)
+            + "ee")));
+    Assert.assertEquals(index.getPieceCount(), 3);
+    Assert.assertEquals(index.pieceSize(2), 2);
+    Assert.assertEquals(index.fileOffset(1), 3);
+    Assert.assertEquals(index.fileOffset(2), 3);
+    Assert.assertEquals(index.fileOffset(3), 8);
+    Assert.assertEquals(index.fileAt(0), 0);
+    Assert.assertEquals(index.fileAt(3), 2);
+    Assert.assertEquals(index.fileAt(7), 2);
+    Assert.assertEquals(index.fileAt(9), 3);
+
+    Assert.assertEquals(index.filesForPiece(0), new FileSlice[] {
+        new FileSlice(0, 0, 3), new FileSlice(2, 0, 1)});
+    Assert.assertEquals(index.filesForPiece(1), new FileSlice[] {
+        new FileSlice(2, 1, 4)});
+    Assert.assertEquals(index.filesForPiece(2), new FileSlice[] {
+        new FileSlice(3, 0, 2)});
+    Assert.assertEquals(index.filesForRange(2, 7), new FileSlice[] {
+        new FileSlice(0, 2, 1), new FileSlice(2, 0, 5),
+        new FileSlice(3, 0, 1)});
+    Assert.assertEquals(index.filesForRange(5, 0).length, 0);
+    Assert.assertEquals(index.firstFile(1), 2);
+    Assert.assertEquals(index.lastFile(0), 2);
+
+    Assert.assertEquals(index.pieceStart(0), 0);
+    Assert.assertEquals(index.pieceEnd(0), 1);
+    Assert.assertEquals(index.pieceStart(1), index.pieceEnd(1));
+    Assert.assertEquals(index.pieceStart(2), 0);
+    Assert.assertEquals(index.pieceEnd(2), 2);
+    Assert.assertEquals(index.pieceStart(3), 2);
+    Assert.assertEquals(index.pieceEnd(3), 3);
+  }
+
+  @Test
+  public void v2() {
+    // 文件长度为5、0、4，piece length为4，非空文件从新的piece开始
+    String root = repeat('r', 32);
+    PieceIndex index = new PieceIndex(Metainfo.decode(bytes(
+        "d4:infod9:file treed1:ad0:d6:lengthi5e11:pieces root32:" + root
+            + "ee1:bd0:d6:lengthi0eee1:cd0:d6:lengthi4e11:pieces root32:"
+            + root + "eee12:meta versioni2e4:name1:t"
+            + "12:piece lengthi4eee")));
+    Assert.assertEquals(index.getPieceCount(), 3);
+    Assert.assertEquals(index.fileOffset(1), 5);
+    Assert.assertEquals(index.fileOffset(2), 8);
+    Assert.assertEquals(index.pieceSize(1), 4);
+    Assert.assertEquals(index.fileAt(4), 0);
+    Assert.assertEquals(index.fileAt(6), -1);
+    Assert.assertEquals(index.filesForPiece(1), new FileSlice[] {
+        new FileSlice(0, 4, 1)});
+    Assert.assertEquals(index.firstFile(2), 2);
+    Assert.assertEquals(index.lastFile(1), 0);
+    Assert.assertEquals(index.pieceStart(2), 2);
+    Assert.assertEquals(index.pieceEnd(0), 2);
+  }
+
+  @Test(dataProvider = "outOfBoundsTestData",
+      expectedExceptions = IndexOutOfBoundsException.class)
+  public void outOfBounds(long offset, long length) {
+    PieceIndex index = new PieceIndex(Metainfo.decode(bytes(
+        "d4:infod6:lengthi10e4:name1:t12:piece lengthi4e"
+            + "6:pieces60:" + repeat('h', 60) + "ee")));
+    index.filesForRange(offset, length);
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(LATIN_1);
+  }
+
+  private static String repeat(char c, int count) {
+    char[] chars = new char[count];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
+}
@@ -1,9 +1,16 @@
 package bencode.type;
 
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import bencode.parse.Parser;
+
 public class BDictionaryTest {
 
   @DataProvider
@@ -57,5 +64,256 @@ public class BDictionaryTest {
   public void encode(BDictionary target, byte[] expectedValue) {
     Assert.assertEquals(target.encode(), expectedValue);
   }
-  
+
+  @DataProvider
+  private Object[][] getPutTestData() {
+    return new Object[][] {
+        new Object[] {new String[] {"a", "b", "c"}},
+        new Object[] {new String[] {"c", "a", "b"}},
+        new Object[] {new String[] {"b", "c", "b", "a", "c"}},
+    };
+  }
+
+  @Test(dataProvider = "getPutTestData")
+  public void put(String[] keys) {
+    BDictionary target = new BDictionary();
+    for (int i = 0; i < keys.length; i++) {
+      target.put(new BString(keys[i].getBytes()), new BNumber(i));
+    }
+    Assert.assertEquals(target.size(), 3);
+    byte[] encoded = target.encode();
+    Assert.assertEquals(encoded.length, target.getContentLength());
+    String text = new String(encoded);
+    Assert.assertTrue(text.startsWith("d1:ai"), text);
+    Assert.assertTrue(text.indexOf("1:b") < text.indexOf("1:c"), text);
+    Assert.assertNull(target.get(new BString("d".getBytes())));
+
+    BDictionary tree = new BDictionary();
+    tree.setContent(new TreeMap<>(target.getContent()));
+    Assert.assertEquals(tree, target);
+    Assert.assertEquals(tree.encode(), encoded);
+  }
+
+  @Test
+  public void putUnordered() {
+    BDictionary target = new BDictionary();
+    BDictionary expected = new BDictionary();
+    expected.getContent();
+    for (int i = 0; i < 200; i++) {
+      BString key = new BString(String.valueOf((i * 37) % 200).getBytes());
+      target.put(key, new BNumber(i));
+      expected.put(key, new BNumber(i));
+    }
+    Assert.assertEquals(target.size(), 200);
+    Assert.assertEquals(target, expected);
+    Assert.assertEquals(expected, target);
+    Assert.assertEquals(target.hashCode(), expected.hashCode());
+    Assert.assertEquals(target.encode(), expected.encode());
+    Assert.assertEquals(target.get(new BString("74".getBytes())),
+        new BNumber(2));
+  }
+
+  @Test
+  public void equalsAcrossStorage() {
+    BDictionary array = new BDictionary();
+    array.put(new BString("foo".getBytes()), new BNumber(42));
+    BDictionary tree = new BDictionary();
+    tree.put(new BString("foo".getBytes()), new BNumber(42));
+    tree.getContent();
+    Assert.assertEquals(array, tree);
+    Assert.assertEquals(tree, array);
+    Assert.assertEquals(array.hashCode(), tree.hashCode());
+
+    tree.getContent().put(new BString("bar".getBytes()), new BNumber(1));
+    Assert.assertNotEquals(array, tree);
+    Assert.assertNotEquals(tree, array);
+  }
+
+  @Test
+  public void trackNestedModification() {
+    BString name = new BString("x".getBytes());
+    BNumber port = new BNumber(1);
+    BList list = new BList();
+    list.add(name);
+    BDictionary inner = new BDictionary();
+    inner.put(new BString("port".getBytes()), port);
+    BDictionary root = new BDictionary();
+    root.put(new BString("a".getBytes()), list);
+    root.put(new BString("b".getBytes()), inner);
+
+    byte[] encoded = root.encode();
+    Assert.assertEquals(encoded, "d1:al1:xe1:bd4:porti1eee".getBytes());
+    encoded[0] = 'x';
+    Assert.assertEquals(root.encode(), "d1:al1:xe1:bd4:porti1eee".getBytes());
+
+    name.setContent("yy".getBytes());
+    port.setLong(6881);
+    Assert.assertEquals(
+        root.encode(), "d1:al2:yye1:bd4:porti6881eee".getBytes());
+    Assert.assertEquals(root.getContentLength(), 28);
+
+    list.add(new BNumber(-1));
+    Assert.assertEquals(
+        root.encode(), "d1:al2:yyi-1ee1:bd4:porti6881eee".getBytes());
+    Assert.assertEquals(root.getContentLength(), 32);
+
+    BString replaced = new BString("z".getBytes());
+    root.put(new BString("a".getBytes()), replaced);
+    list.add(new BNumber(2));
+    replaced.setContent("zz".getBytes());
+    Assert.assertEquals(
+        root.encode(), "d1:a2:zz1:bd4:porti6881eee".getBytes());
+    Assert.assertEquals(root.getContentLength(), 26);
+  }
+
+  @Test
+  public void trackSharedChild() {
+    BNumber shared = new BNumber(1);
+    BDictionary root = new BDictionary();
+    root.put(new BString("a".getBytes()), shared);
+    root.put(new BString("b".getBytes()), shared);
+    root.encode();
+    root.put(new BString("a".getBytes()), new BNumber(0));
+    shared.setLong(22);
+    Assert.assertEquals(root.encode(), "d1:ai0e1:bi22ee".getBytes());
+  }
+
+  @Test
+  public void trackChildInTwoContainers() {
+    BNumber value = new BNumber(1);
+    BDictionary dictionary = new BDictionary();
+    dictionary.put(new BString("a".getBytes()), value);
+    BList list = new BList();
+    list.add(value);
+    Assert.assertTrue(dictionary.isUntracked());
+    Assert.assertTrue(list.isUntracked());
+
+    value.setLong(2);
+    Assert.assertEquals(dictionary.encode(), "d1:ai2ee".getBytes());
+    Assert.assertEquals(list.encode(), "li2ee".getBytes());
+
+    dictionary.put(new BString("a".getBytes()), new BNumber(3));
+    Assert.assertFalse(dictionary.isUntracked());
+    value.setLong(4);
+    Assert.assertEquals(list.encode(), "li4ee".getBytes());
+    Assert.assertEquals(dictionary.encode(), "d1:ai3ee".getBytes());
+  }
+
+  @Test
+  public void shareKeyAcrossDictionaries() {
+    BString key = new BString("k".getBytes());
+    BDictionary[] dictionaries = new BDictionary[100000];
+    for (int i = 0; i < dictionaries.length; i++) {
+      dictionaries[i] = new BDictionary();
+      dictionaries[i].put(key, new BNumber(i));
+    }
+    for (BDictionary dictionary : dictionaries) {
+      Assert.assertFalse(dictionary.isUntracked());
+    }
+    Assert.assertEquals(dictionaries[7].encode(), "d1:ki7ee".getBytes());
+  }
+
+  @Test
+  public void untrackedAfterGetContent() {
+    BList list = new BList();
+    BDictionary root = new BDictionary();
+    root.put(new BString("a".getBytes()), list);
+    Assert.assertEquals(root.encode(), "d1:alee".getBytes());
+
+    list.getContent().add(new BNumber(1));
+    Assert.assertEquals(root.encode(), "d1:ali1eee".getBytes());
+    Assert.assertEquals(root.getContentLength(), 10);
+
+    root.getContent().put(new BString("b".getBytes()), new BNumber(2));
+    Assert.assertEquals(root.encode(), "d1:ali1ee1:bi2ee".getBytes());
+    Assert.assertEquals(root.getContentLength(), 16);
+  }
+
+  @Test
+  public void untrackedAfterStringGetContent() {
+    BDictionary root =
+        new Parser().parseDic("d3:foo3:bar1:pi0ee".getBytes(), 0);
+    BString value = (BString)root.get(new BString("foo".getBytes()));
+    Assert.assertEquals(root.encode(), "d3:foo3:bar1:pi0ee".getBytes());
+    int hash = value.hashCode();
+
+    value.getContent()[0] = 'X';
+    Assert.assertEquals(value.toString(), "Xar");
+    Assert.assertEquals(root.encode(), "d3:foo3:Xar1:pi0ee".getBytes());
+    Assert.assertNotEquals(value.hashCode(), hash);
+    Assert.assertEquals(value, new BString("Xar".getBytes()));
+  }
+
+  @Test
+  public void trackedAfterSetContent() {
+    BList list = new BList();
+    BString name = new BString("x".getBytes());
+    BDictionary root = new BDictionary();
+    root.put(new BString("a".getBytes()), list);
+    root.put(new BString("b".getBytes()), name);
+    LinkedList<BType<?>> leaked = list.getContent();
+    name.getContent();
+    Assert.assertTrue(root.isUntracked());
+
+    LinkedList<BType<?>> replacement = new LinkedList<>();
+    replacement.add(new BNumber(1));
+    list.setContent(replacement);
+    Assert.assertFalse(list.isUntracked());
+    Assert.assertTrue(root.isUntracked());
+    name.setContent("yy".getBytes());
+    Assert.assertFalse(root.isUntracked());
+    Assert.assertEquals(root.encode(), "d1:ali1ee1:b2:yye".getBytes());
+
+    leaked.add(new BNumber(8));
+    replacement.add(new BNumber(9));
+    Assert.assertEquals(root.encode(), "d1:ali1ee1:b2:yye".getBytes());
+    list.add(new BNumber(2));
+    Assert.assertEquals(root.encode(), "d1:ali1ei2ee1:b2:yye".getBytes());
+
+    TreeMap<BString, BType<?>> content = root.getContent();
+    Assert.assertTrue(root.isUntracked());
+    root.setContent(new TreeMap<>(content));
+    Assert.assertFalse(root.isUntracked());
+    content.clear();
+    Assert.assertEquals(root.encode(), "d1:ali1ei2ee1:b2:yye".getBytes());
+    Assert.assertEquals(root.getContentLength(), 20);
+  }
+
+  @Test
+  public void iterate() {
+    BDictionary root = new Parser().parseDic("d1:ai1e1:bi2ee".getBytes(), 0);
+    BNumber b = (BNumber)root.get(new BString("b".getBytes()));
+    Assert.assertEquals(root.encode(), "d1:ai1e1:bi2ee".getBytes());
+
+    StringBuilder keys = new StringBuilder();
+    for (Entry<BString, BType<?>> entry : root) {
+      keys.append(entry.getKey()).append(entry.getValue());
+    }
+    Assert.assertEquals(keys.toString(), "a1b2");
+    Assert.assertFalse(root.isUntracked());
+
+    b.setLong(3);
+    Assert.assertEquals(root.encode(), "d1:ai1e1:bi3ee".getBytes());
+
+    Iterator<Entry<BString, BType<?>>> iterator = root.iterator();
+    Entry<BString, BType<?>> first = iterator.next();
+    try {
+      first.setValue(new BNumber(0));
+      Assert.fail();
+    } catch (UnsupportedOperationException e) {
+      // 各项是只读的
+    }
+    try {
+      iterator.remove();
+      Assert.fail();
+    } catch (UnsupportedOperationException e) {
+      // 迭代器不支持删除
+    }
+
+    root.getContent();
+    iterator = root.iterator();
+    Assert.assertEquals(iterator.next().getKey(), new BString("a".getBytes()));
+    Assert.assertEquals(iterator.next().getValue(), new BNumber(3));
+    Assert.assertFalse(iterator.hasNext());
+  }
 }
@@ -0,0 +1,73 @@
+package bencode.type;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class BFixedStringListTest {
+
+  @DataProvider
+  private Object[][] getEncodeTestData() {
+    return new Object[][] {
+        new Object[] {2, "", "le"},
+        new Object[] {2, "abcd", "l2:ab2:cde"},
+        new Object[] {
+            10, "0123456789abcdefghij", "l10:012345678910:abcdefghije",
+        },
+    };
+  }
+
+  @Test(dataProvider = "getEncodeTestData")
+  public void encode(int width, String data, String expectedValue) {
+    BFixedStringList target =
+        new BFixedStringList(width, data.getBytes());
+    Assert.assertEquals(target.encode(), expectedValue.getBytes());
+    Assert.assertEquals(
+        target.getContentLength(), expectedValue.length());
+
+    BFixedStringList added = new BFixedStringList(width);
+    BList expected = new BList();
+    for (int i = 0; i < data.length(); i += width) {
+      byte[] value = data.substring(i, i + width).getBytes();
+      added.add(value);
+      expected.add(new BString(value));
+    }
+    Assert.assertEquals(added, target);
+    Assert.assertEquals(added, expected);
+    Assert.assertEquals(expected, added);
+    Assert.assertEquals(added.hashCode(), expected.hashCode());
+    Assert.assertEquals(target.hashCode(), expected.hashCode());
+    Assert.assertEquals(added.encode(), expectedValue.getBytes());
+    added.getContent();
+    Assert.assertEquals(added.hashCode(), expected.hashCode());
+  }
+
+  @Test
+  public void get() {
+    byte[] data = "aabbcc".getBytes();
+    BFixedStringList target = new BFixedStringList(2, data);
+    BString element = (BString)target.get(1);
+    Assert.assertTrue(element.isSlice());
+    Assert.assertEquals(element.toString(), "bb");
+
+    target.add(new BString("xxdd".getBytes(), 2, 2));
+    Assert.assertEquals(target.size(), 4);
+    Assert.assertEquals(target.get(3).toString(), "dd");
+    Assert.assertEquals(new String(data), "aabbcc");
+  }
+
+  @Test
+  public void addOtherLength() {
+    BFixedStringList target = new BFixedStringList(2, "ab".getBytes());
+    target.add("xyz".getBytes());
+    target.add(new BNumber(1));
+    Assert.assertEquals(target.size(), 3);
+    Assert.assertEquals(target.encode(), "l2:ab3:xyzi1ee".getBytes());
+    Assert.assertEquals(target.getContentLength(), 14);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void invalidWidth() {
+    new BFixedStringList(20, new byte[30]);
+  }
+}
@@ -1,5 +1,7 @@
 package bencode.type;
 
+import java.util.Arrays;
+
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -35,5 +37,54 @@ public class BListTest {
   public void encode(BList target, byte[] expectedValue) {
     Assert.assertEquals(target.encode(), expectedValue);
   }
-  
+
+  @Test
+  public void get() {
+    BList target = new BList();
+    for (int i = 0; i < 100; i++) {
+      target.add(new BNumber(i));
+    }
+    Assert.assertEquals(target.size(), 100);
+    Assert.assertEquals(target.get(42), new BNumber(42));
+    int expected = 0;
+    for (BType<?> element : target) {
+      Assert.assertEquals(element, new BNumber(expected++));
+    }
+    Assert.assertEquals(expected, 100);
+    Assert.assertEquals(target.encode().length, target.getContentLength());
+  }
+
+  @Test(expectedExceptions = IndexOutOfBoundsException.class)
+  public void getOutOfBounds() {
+    BList target = new BList();
+    target.add(new BNumber(1));
+    target.get(1);
+  }
+
+  @Test
+  public void addAll() {
+    BList target = new BList();
+    target.add(new BString("spam".getBytes()));
+    target.addAll(Arrays.asList(new BNumber(1), new BNumber(22)));
+    Assert.assertEquals(target.encode(), "l4:spami1ei22ee".getBytes());
+    Assert.assertEquals(target.getContentLength(), 15);
+  }
+
+  @Test
+  public void getContent() {
+    BList target = new BList();
+    target.add(new BNumber(1));
+    BList expected = new BList();
+    expected.add(new BNumber(1));
+    Assert.assertEquals(target.getContent().getFirst(), new BNumber(1));
+    Assert.assertEquals(target, expected);
+    Assert.assertEquals(expected, target);
+    Assert.assertEquals(target.hashCode(), expected.hashCode());
+
+    target.add(new BNumber(2));
+    Assert.assertEquals(target.getContent().size(), 2);
+    Assert.assertEquals(target.get(1), new BNumber(2));
+    Assert.assertEquals(target.encode(), "li1ei2ee".getBytes());
+    Assert.assertNotEquals(target, expected);
+  }
 }
@@ -0,0 +1,73 @@
+package bencode.type;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class BNumberListTest {
+
+  @DataProvider
+  private Object[][] getEncodeTestData() {
+    return new Object[][] {
+        new Object[] {new long[0], "le".getBytes()},
+        new Object[] {new long[] {0, -1, 42}, "li0ei-1ei42ee".getBytes()},
+        new Object[] {
+            new long[] {Long.MIN_VALUE, 4762849926L},
+            "li-9223372036854775808ei4762849926ee".getBytes(),
+        },
+    };
+  }
+
+  @Test(dataProvider = "getEncodeTestData")
+  public void encode(long[] values, byte[] expectedValue) {
+    BNumberList target = new BNumberList(values);
+    Assert.assertEquals(target.encode(), expectedValue);
+    Assert.assertEquals(target.getContentLength(), expectedValue.length);
+
+    BNumberList added = new BNumberList();
+    BList expected = new BList();
+    for (long value : values) {
+      added.addLong(value);
+      expected.add(new BNumber(value));
+    }
+    Assert.assertEquals(added, target);
+    Assert.assertEquals(added, expected);
+    Assert.assertEquals(expected, added);
+    Assert.assertEquals(added.hashCode(), expected.hashCode());
+    Assert.assertEquals(target.hashCode(), expected.hashCode());
+    Assert.assertEquals(added.encode(), expectedValue);
+    added.getContent();
+    Assert.assertEquals(added.hashCode(), expected.hashCode());
+  }
+
+  @Test
+  public void get() {
+    BNumberList target = new BNumberList();
+    for (int i = 0; i < 100; i++) {
+      target.add(new BNumber(i * 1000L));
+    }
+    Assert.assertEquals(target.size(), 100);
+    Assert.assertEquals(target.getLong(99), 99000L);
+    Assert.assertEquals(target.get(1), new BNumber(1000));
+  }
+
+  @Test
+  public void addOtherType() {
+    BNumberList target = new BNumberList(new long[] {1, 2});
+    target.add(new BString("spam".getBytes()));
+    target.addLong(3);
+    Assert.assertEquals(target.size(), 4);
+    Assert.assertEquals(target.getLong(3), 3L);
+    Assert.assertEquals(target.get(2), new BString("spam".getBytes()));
+    Assert.assertEquals(target.encode(), "li1ei2e4:spami3ee".getBytes());
+    Assert.assertEquals(target.getContentLength(), 17);
+  }
+
+  @Test
+  public void getContent() {
+    BNumberList target = new BNumberList(new long[] {1, 2});
+    target.getContent().removeFirst();
+    Assert.assertEquals(target.size(), 1);
+    Assert.assertEquals(target.getLong(0), 2L);
+  }
+}
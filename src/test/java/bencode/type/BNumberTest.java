@@ -15,6 +15,16 @@ public class BNumberTest {
             new BNumber(12L), 
             "i12e".getBytes(Charset.forName(BString.CHARSET_ASCII))
         },
+        new Object[] {new BNumber(0L), "i0e".getBytes()},
+        new Object[] {new BNumber(-7L), "i-7e".getBytes()},
+        new Object[] {new BNumber(-120L), "i-120e".getBytes()},
+        new Object[] {
+            new BNumber(Long.MAX_VALUE), "i9223372036854775807e".getBytes()
+        },
+        new Object[] {
+            new BNumber(Long.MIN_VALUE), "i-9223372036854775808e".getBytes()
+        },
+        new Object[] {BNumber.valueOf(1023L), "i1023e".getBytes()},
     };
   }
 
@@ -24,6 +34,12 @@ public class BNumberTest {
         new Object[] {
             12L, 4
         },
+        new Object[] {9L, 3},
+        new Object[] {10L, 4},
+        new Object[] {-10L, 5},
+        new Object[] {999999999999999999L, 20},
+        new Object[] {1000000000000000000L, 21},
+        new Object[] {Long.MIN_VALUE, 22},
     };
   }
   
@@ -38,4 +54,22 @@ public class BNumberTest {
     bNumber.setContent(content);
     Assert.assertEquals(bNumber.getContentLength(), expectedContentLength);
   }
+
+  @Test
+  public void valueOf() {
+    Assert.assertSame(BNumber.valueOf(0), BNumber.valueOf(0));
+    Assert.assertSame(BNumber.valueOf(1023), BNumber.valueOf(1023));
+    Assert.assertNotSame(BNumber.valueOf(1024), BNumber.valueOf(1024));
+    Assert.assertEquals(BNumber.valueOf(-1).getLong(), -1L);
+    Assert.assertEquals(BNumber.valueOf(42), new BNumber(42));
+
+    BNumber bNumber = BNumber.valueOf(2048);
+    bNumber.setLong(5);
+    Assert.assertEquals(bNumber.getContentLength(), 3);
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void setSharedContent() {
+    BNumber.valueOf(1).setContent(2L);
+  }
 }
@@ -0,0 +1,130 @@
+package bencode.type;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import bencode.exception.BEncodeFormatException;
+import bencode.parse.Parser;
+
+public class BRawTest {
+
+  private static final Charset ASCII =
+      Charset.forName(BString.CHARSET_ASCII);
+
+  @DataProvider
+  private Object[][] validTestData() {
+    return new Object[][] {
+        new Object[] {"i-42e"},
+        new Object[] {"4:spam"},
+        new Object[] {"le"},
+        new Object[] {"l4:spami3ee"},
+        new Object[] {"d3:cow3:moo4:spaml1:a1:bee"},
+        new Object[] {"0:"},
+        new Object[] {"ld1:ad1:bleeei0ee"},
+        new Object[] {"i-9223372036854775807e"},
+    };
+  }
+
+  @DataProvider
+  private Object[][] invalidTestData() {
+    return new Object[][] {
+        new Object[] {""},
+        new Object[] {"x"},
+        new Object[] {"d1:a"},
+        new Object[] {"i1ei2e"},
+        new Object[] {"5:spam"},
+        new Object[] {"e"},
+        new Object[] {"ie"},
+        new Object[] {"i-0e"},
+        new Object[] {"i01e"},
+        new Object[] {"i9223372036854775808e"},
+        new Object[] {"di1ei2ee"},
+        new Object[] {"d1:ae"},
+        new Object[] {":"},
+    };
+  }
+
+  @Test(dataProvider = "validTestData")
+  public void valid(String value) {
+    byte[] encoded = value.getBytes(ASCII);
+    BRaw raw = new BRaw(encoded);
+    Assert.assertEquals(raw.getContentLength(), encoded.length);
+    Assert.assertEquals(raw.encode(), encoded);
+    Assert.assertEquals(raw.toString(), value);
+
+    byte[] padded = ("xx" + value + "yy").getBytes(ASCII);
+    Assert.assertEquals(new BRaw(padded, 2, encoded.length), raw);
+  }
+
+  @Test(dataProvider = "invalidTestData",
+      expectedExceptions = BEncodeFormatException.class)
+  public void invalid(String value) {
+    new BRaw(value.getBytes(ASCII));
+  }
+
+  @Test
+  public void embed() throws IOException {
+    BDictionary info = new BDictionary();
+    info.put(new BString("length".getBytes()), BNumber.valueOf(1024));
+    info.put(new BString("name".getBytes()), new BString("a.txt".getBytes()));
+    BRaw raw = BRaw.of(info);
+    Assert.assertEquals(raw.encode(), info.encode());
+
+    BDictionary torrent = new BDictionary();
+    torrent.put(new BString("announce".getBytes()),
+        new BString("udp://tracker".getBytes()));
+    torrent.put(new BString("info".getBytes()), raw);
+    BDictionary expected = new BDictionary();
+    expected.put(new BString("announce".getBytes()),
+        new BString("udp://tracker".getBytes()));
+    expected.put(new BString("info".getBytes()), info);
+    byte[] encoded = expected.encode();
+    Assert.assertEquals(torrent.getContentLength(), encoded.length);
+    Assert.assertEquals(torrent.encode(), encoded);
+    Assert.assertEquals(
+        new Parser().parseDic(torrent.encode(), 0), expected);
+
+    BencodeWriter writer = new BencodeWriter(16);
+    writer.write(torrent);
+    Assert.assertEquals(writer.toByteArray(), encoded);
+
+    // 创建之后对原对象的修改不影响已编码的数据
+    info.put(new BString("private".getBytes()), BNumber.valueOf(1));
+    Assert.assertEquals(torrent.encode(), encoded);
+    Assert.assertNotEquals(raw.encode(), info.encode());
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void immutable() {
+    BRaw raw = new BRaw("4:spam".getBytes(ASCII));
+    raw.getContent()[0] = '5';
+    Assert.assertEquals(raw.toString(), "4:spam");
+    raw.setContent("i1e".getBytes(ASCII));
+  }
+
+  @Test
+  public void writeGathering() throws IOException, URISyntaxException {
+    byte[] data = Files.readAllBytes(Paths.get(
+        BRawTest.class.getResource("/demo.torrent").toURI()));
+    BRaw raw = new BRaw(data);
+    BList list = new BList();
+    list.add(BNumber.valueOf(1));
+    list.add(raw);
+
+    BencodeWriter writer = new BencodeWriter(64, 256);
+    writer.write(list);
+    ByteBuffer[] buffers = writer.toBuffers();
+    Assert.assertEquals(buffers.length, 3);
+    Assert.assertEquals(buffers[1].remaining(), data.length);
+    Assert.assertEquals(writer.toByteArray(), list.encode());
+    Assert.assertEquals(list.getContentLength(), data.length + 5);
+  }
+}
@@ -1,6 +1,9 @@
 package bencode.type;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
@@ -28,6 +31,18 @@ public class BStringTest {
     };
   }
   
+  @DataProvider
+  private Object[][] getSliceTestData() {
+    byte[] source = "xx4:spamyy".getBytes();
+    ByteBuffer direct = ByteBuffer.allocateDirect(source.length);
+    direct.put(source);
+    return new Object[][] {
+        new Object[] {new BString(source, 4, 4)},
+        new Object[] {new BString(direct, 4, 4)},
+        new Object[] {new BString(ByteBuffer.wrap(source), 4, 4)},
+    };
+  }
+
   @Test(dataProvider = "getEncodeTestData")
   public void encode(BString target, byte[] expectedValue) {
     Assert.assertEquals(target.encode(), expectedValue);
@@ -39,4 +54,55 @@ public class BStringTest {
     bString.setContent(content);
     Assert.assertEquals(bString.encode(), expectedEncodedValue);
   }
+
+  @Test(dataProvider = "getSliceTestData")
+  public void slice(BString slice) {
+    BString expected = new BString("spam".getBytes());
+    Assert.assertTrue(slice.isSlice());
+    Assert.assertEquals(slice, expected);
+    Assert.assertEquals(slice.compareTo(expected), 0);
+    Assert.assertTrue(slice.compareTo(new BString("spa".getBytes())) > 0);
+    Assert.assertTrue(slice.compareTo(new BString("spb".getBytes())) < 0);
+    Assert.assertEquals(slice.toString(), "spam");
+    Assert.assertEquals(slice.getContentLength(), 6);
+    Assert.assertEquals(slice.encode(), "4:spam".getBytes());
+    Assert.assertEquals(slice.getContent(), "spam".getBytes());
+
+    BString copy = slice.copy();
+    Assert.assertFalse(copy.isSlice());
+    Assert.assertEquals(copy, slice);
+    Assert.assertFalse(slice.detach().isSlice());
+    Assert.assertEquals(slice, expected);
+  }
+
+  @Test
+  public void compareUnsigned() {
+    BString high = new BString(new byte[] {(byte)0xFF});
+    BString low = new BString(new byte[] {0x7F});
+    Assert.assertTrue(high.compareTo(low) > 0);
+    Assert.assertTrue(low.compareTo(high) < 0);
+  }
+
+  @Test(dataProvider = "getSliceTestData")
+  public void hashCodeOfSlice(BString slice) {
+    BString expected = new BString("spam".getBytes());
+    Assert.assertEquals(slice.hashCode(), expected.hashCode());
+    Assert.assertEquals(slice.hashCode(), slice.copy().hashCode());
+
+    Map<BString, Integer> map = new HashMap<>();
+    map.put(expected, 1);
+    Assert.assertEquals(map.get(slice), Integer.valueOf(1));
+  }
+
+  @Test
+  public void hashCodeAfterSetContent() {
+    BString bString = new BString("spam".getBytes());
+    int before = bString.hashCode();
+    bString.setContent("eggs".getBytes());
+    Assert.assertNotEquals(bString.hashCode(), before);
+    Assert.assertEquals(
+        bString.hashCode(), new BString("eggs".getBytes()).hashCode());
+    Assert.assertNotEquals(bString, new BString("spam".getBytes()));
+    Assert.assertEquals(new BString().hashCode(), 0);
+  }
 }
@@ -0,0 +1,256 @@
+package bencode.type;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import bencode.parse.Parser;
+
+public class BencodeWriterTest {
+
+  @DataProvider
+  private Object[][] parserTestData() {
+    return new Object[][] {
+        new Object[] {false, false},
+        new Object[] {true, false},
+        new Object[] {false, true},
+    };
+  }
+
+  @Test(dataProvider = "parserTestData")
+  public void writeTorrent(boolean sliceStrings, boolean lazy)
+      throws IOException, URISyntaxException {
+    byte[] data = Files.readAllBytes(Paths.get(
+        BencodeWriterTest.class.getResource("/demo.torrent").toURI()));
+    Parser parser = new Parser();
+    parser.setSliceStrings(sliceStrings);
+    parser.setLazy(lazy);
+    BDictionary torrent = parser.parseDic(data, 0);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (BencodeWriter writer = new BencodeWriter(out)) {
+      writer.write(torrent);
+    }
+    Assert.assertEquals(out.toByteArray(), data);
+
+    out.reset();
+    try (BencodeWriter writer =
+        new BencodeWriter(Channels.newChannel(out))) {
+      writer.write(torrent);
+    }
+    Assert.assertEquals(out.toByteArray(), data);
+
+    ByteBuffer target = ByteBuffer.allocate(data.length);
+    new BencodeWriter(target).write(torrent).flush();
+    Assert.assertEquals(target.array(), data);
+
+    BencodeWriter writer = new BencodeWriter(16);
+    writer.write(torrent);
+    Assert.assertEquals(writer.toByteArray(), data);
+    Assert.assertEquals(torrent.encode(), data);
+  }
+
+  @Test
+  public void writeMessage() throws IOException {
+    BencodeWriter writer = new BencodeWriter(64);
+    writer.beginDictionary()
+        .key("a").beginDictionary()
+            .key("id").value("abcdefghij0123456789")
+            .key("port").value(6881)
+        .end()
+        .key("q").value("announce_peer")
+        .key("t").value(new byte[] {'a', 'a'})
+        .key("v").beginList().value(-1).value(0).end()
+        .key("y").raw("1:q".getBytes(), 0, 3)
+        .end();
+    Assert.assertEquals(new String(writer.toByteArray()),
+        "d1:ad2:id20:abcdefghij01234567894:porti6881ee"
+            + "1:q13:announce_peer1:t2:aa1:vli-1ei0ee1:y1:qe");
+
+    writer.reset();
+    writer.value(1).value("x");
+    Assert.assertEquals(writer.toByteArray(), "i1e1:x".getBytes());
+    Assert.assertEquals(writer.size(), 6);
+  }
+
+  @Test
+  public void writeLargeString() throws IOException {
+    byte[] content = new byte[BencodeWriter.DEFAULT_BUFFER_SIZE * 3 + 1];
+    Arrays.fill(content, (byte)'x');
+    ByteBuffer direct = ByteBuffer.allocateDirect(content.length);
+    direct.put(content);
+    BList list = new BList();
+    list.add(new BString(content));
+    list.add(new BString(direct, 0, content.length));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (BencodeWriter writer = new BencodeWriter(out)) {
+      writer.value(1).write(list);
+    }
+    byte[] expected = list.encode();
+    Assert.assertEquals(expected.length, list.getContentLength());
+    Assert.assertEquals(
+        Arrays.copyOfRange(out.toByteArray(), 3, out.size()), expected);
+  }
+
+  @DataProvider
+  private Object[][] invalidStateTestData() {
+    return new Object[][] {
+        new Object[] {"end"},
+        new Object[] {"key"},
+        new Object[] {"valueForKey"},
+        new Object[] {"endWithoutValue"},
+    };
+  }
+
+  @Test(dataProvider = "invalidStateTestData",
+      expectedExceptions = IllegalStateException.class)
+  public void invalidState(String operation) throws IOException {
+    BencodeWriter writer = new BencodeWriter(64);
+    switch (operation) {
+      case "end":
+        writer.beginList().end().end();
+        break;
+      case "key":
+        writer.beginList().key("a");
+        break;
+      case "valueForKey":
+        writer.beginDictionary().value(1);
+        break;
+      default:
+        writer.beginDictionary().key("a").end();
+        break;
+    }
+  }
+
+  @Test(dataProvider = "parserTestData")
+  public void writeGathering(boolean sliceStrings, boolean lazy)
+      throws IOException, URISyntaxException {
+    byte[] data = Files.readAllBytes(Paths.get(
+        BencodeWriterTest.class.getResource("/demo.torrent").toURI()));
+    Parser parser = new Parser();
+    parser.setSliceStrings(sliceStrings);
+    parser.setLazy(lazy);
+    BDictionary torrent = parser.parseDic(data, 0);
+
+    BencodeWriter writer = new BencodeWriter(64, 256);
+    writer.write(torrent);
+    ByteBuffer[] buffers = writer.toBuffers();
+    Assert.assertTrue(lazy ? (1 == buffers.length) : (buffers.length > 1));
+    Assert.assertEquals(writer.size(), data.length);
+    Assert.assertEquals(writer.toByteArray(), data);
+    if (sliceStrings || lazy) {
+      // 较大的pieces直接包装原始数据，修改原始数据后输出随之改变
+      byte[] copy = data.clone();
+      data[data.length - 3] ^= 1;
+      Assert.assertNotEquals(writer.toByteArray(), copy);
+      data[data.length - 3] ^= 1;
+    }
+
+    writer.reset();
+    writer.write(torrent);
+    Assert.assertEquals(writer.toByteArray(), data);
+
+    Path file = Files.createTempFile("bencode-writer", ".torrent");
+    try {
+      try (BencodeWriter channelWriter = new BencodeWriter(
+          FileChannel.open(file, StandardOpenOption.WRITE),
+          BencodeWriter.DEFAULT_WRAP_THRESHOLD)) {
+        channelWriter.write(torrent);
+      }
+      Assert.assertEquals(Files.readAllBytes(file), data);
+    } finally {
+      Files.delete(file);
+    }
+
+    TrickleChannel trickle = new TrickleChannel();
+    BencodeWriter trickleWriter = new BencodeWriter(trickle, 128);
+    trickleWriter.write(torrent).write(torrent).flush();
+    Assert.assertEquals(trickleWriter.size(), 0);
+    byte[] twice = trickle.out.toByteArray();
+    Assert.assertEquals(Arrays.copyOf(twice, data.length), data);
+    Assert.assertEquals(
+        Arrays.copyOfRange(twice, data.length, twice.length), data);
+  }
+
+  @Test(dataProvider = "parserTestData")
+  public void encodeModifiedTorrent(boolean sliceStrings, boolean lazy)
+      throws IOException, URISyntaxException {
+    byte[] data = Files.readAllBytes(Paths.get(
+        BencodeWriterTest.class.getResource("/demo.torrent").toURI()));
+    Parser parser = new Parser();
+    parser.setSliceStrings(sliceStrings);
+    parser.setLazy(lazy);
+    BDictionary torrent = parser.parseDic(data, 0);
+    Assert.assertEquals(torrent.encode(), data);
+    Assert.assertEquals(torrent.encode(), data);
+
+    BDictionary info =
+        (BDictionary)torrent.get(new BString("info".getBytes()));
+    BString name = (BString)info.get(new BString("name".getBytes()));
+    name.setContent("renamed".getBytes());
+    info.put(new BString("private".getBytes()), new BNumber(1));
+
+    byte[] encoded = torrent.encode();
+    Assert.assertEquals(encoded.length, torrent.getContentLength());
+    BDictionary expected = new Parser().parseDic(data, 0);
+    BDictionary expectedInfo =
+        (BDictionary)expected.get(new BString("info".getBytes()));
+    expectedInfo.put(new BString("name".getBytes()),
+        new BString("renamed".getBytes()));
+    expectedInfo.put(new BString("private".getBytes()), new BNumber(1));
+    Assert.assertEquals(encoded, expected.encode());
+    Assert.assertEquals(new Parser().parseDic(encoded, 0), expected);
+  }
+
+  /**
+   * 每次最多写出100个字节。
+   */
+  private static class TrickleChannel implements GatheringByteChannel {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) {
+      int written = 0;
+      for (int i = offset; (i < offset + length) && (written < 100); i++) {
+        while (srcs[i].hasRemaining() && (written < 100)) {
+          out.write(srcs[i].get());
+          written++;
+        }
+      }
+      return written;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) {
+      return write(srcs, 0, srcs.length);
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      return (int)write(new ByteBuffer[] {src});
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {}
+  }
+}